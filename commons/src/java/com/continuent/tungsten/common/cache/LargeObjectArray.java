@@ -21,10 +21,10 @@
 package com.continuent.tungsten.common.cache;
 
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -45,6 +45,10 @@ import java.util.concurrent.atomic.AtomicLong;
  * size and keep object size limits relatively large. This ensures that most
  * lists will be handled only as Java objects while extremely large lists will
  * spill to storage.
+ * </p>
+ * Spilled elements are written by an {@link ObjectCodec}, which defaults to
+ * Java serialization. Classes that spill often should supply a codec that
+ * writes a compact binary form instead.
  */
 public class LargeObjectArray<T extends Serializable>
 {
@@ -61,12 +65,17 @@ public class LargeObjectArray<T extends Serializable>
     private RawByteCache byteCache;
     private String       key;
 
+    // Element codec and reusable buffer for writing elements to cache.
+    private final ObjectCodec<T>  codec;
+    private ByteArrayOutputStream encodeBuffer;
+    private DataOutputStream      encodeOutput;
+
     // Cursor definition and table of open cursors.
     class ArrayCursor
     {
-        long                id;
-        private InputStream byteInput;
-        private int         index = 0;
+        long                    id;
+        private DataInputStream byteInput;
+        private int             index = 0;
     }
 
     private AtomicLong             nextCursorId = new AtomicLong();
@@ -83,9 +92,25 @@ public class LargeObjectArray<T extends Serializable>
      *            spilling to cache
      */
     public LargeObjectArray(RawByteCache byteCache, int bufferSize)
+    {
+        this(byteCache, bufferSize, new SerializableCodec<T>());
+    }
+
+    /**
+     * Creates a new instance that writes spilled elements using the given
+     * codec.
+     * 
+     * @param byteCache Backing storage
+     * @param bufferSize Number of entries to hold as Java objects before
+     *            spilling to cache
+     * @param codec Codec used to write and read elements in cache
+     */
+    public LargeObjectArray(RawByteCache byteCache, int bufferSize,
+            ObjectCodec<T> codec)
     {
         // Set up the cache entry.
         this.byteCache = byteCache;
+        this.codec = codec;
         this.key = keyBase + "-" + nextKey.getAndIncrement();
         this.byteCache.allocate(this.key);
 
@@ -184,15 +209,19 @@ public class LargeObjectArray<T extends Serializable>
         // offsets we are tracking.
         offsets.add(byteCache.size(key));
 
-        // Append the serialized object to the cache.
+        // Append the encoded object to the cache. The encoding buffer is
+        // reused across elements.
         try
         {
-            ByteArrayOutputStream byteOutput = new ByteArrayOutputStream();
-            ObjectOutputStream objectOutput = new ObjectOutputStream(
-                    byteOutput);
-            objectOutput.writeObject(element);
-            objectOutput.flush();
-            this.byteCache.append(key, byteOutput.toByteArray());
+            if (encodeBuffer == null)
+            {
+                encodeBuffer = new ByteArrayOutputStream();
+                encodeOutput = new DataOutputStream(encodeBuffer);
+            }
+            encodeBuffer.reset();
+            codec.encode(element, encodeOutput);
+            encodeOutput.flush();
+            this.byteCache.append(key, encodeBuffer.toByteArray());
         }
         catch (IOException e)
         {
@@ -223,20 +252,12 @@ public class LargeObjectArray<T extends Serializable>
                     throw new RuntimeException(
                             "Unable to seek to large object array offset: index="
                                     + index + " offset=" + offset);
-                ObjectInputStream objectInput = new ObjectInputStream(
-                        byteInput);
-                @SuppressWarnings("unchecked")
-                T element = (T) objectInput.readObject();
-                return element;
+                return codec.decode(new DataInputStream(byteInput));
             }
             catch (IOException e)
             {
                 throw new RuntimeException("Unable to read object", e);
             }
-            catch (ClassNotFoundException e)
-            {
-                throw new RuntimeException("Unable to read object", e);
-            }
             finally
             {
                 if (byteInput != null)
@@ -364,18 +385,12 @@ public class LargeObjectArray<T extends Serializable>
                     // it now.
                     if (cursor.byteInput == null)
                     {
-                        cursor.byteInput = getByteCache()
-                                .allocateStream(getKey());
+                        cursor.byteInput = new DataInputStream(getByteCache()
+                                .allocateStream(getKey()));
                     }
 
-                    // Allocate object input stream to read next serialized
-                    // object, which is serialized separately. We don't close
-                    // the stream as that would screw up the position of the
-                    // underlying byte reader.
-                    ObjectInputStream objectInput = new ObjectInputStream(
-                            cursor.byteInput);
-                    @SuppressWarnings("unchecked")
-                    T nextObject = (T) objectInput.readObject();
+                    // Decode the next object, which is written separately.
+                    T nextObject = codec.decode(cursor.byteInput);
                     cursor.index++;
                     return nextObject;
                 }
@@ -386,13 +401,6 @@ public class LargeObjectArray<T extends Serializable>
                                     + cursor.index,
                             e);
                 }
-                catch (ClassNotFoundException e)
-                {
-                    throw new RuntimeException(
-                            "Unable to deserialize next object: count="
-                                    + cursor.index,
-                            e);
-                }
             }
         }
         else
@@ -0,0 +1,52 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.common.cache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Denotes a class that writes elements of a {@link LargeObjectArray} to its
+ * backing byte cache and reads them back. Each element is written separately
+ * and must be read back using exactly the bytes that were written for it.
+ * Implementations must be stateless so that cursors may read elements in any
+ * order.
+ * 
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public interface ObjectCodec<T>
+{
+    /**
+     * Writes an element.
+     * 
+     * @param element Element to write
+     * @param out Stream to which the element is written
+     */
+    public void encode(T element, DataOutputStream out) throws IOException;
+
+    /**
+     * Reads an element written by {@link #encode(Object, DataOutputStream)}.
+     * 
+     * @param in Stream positioned at the start of the element
+     */
+    public T decode(DataInputStream in) throws IOException;
+}
@@ -26,8 +26,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.channels.FileChannel;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.log4j.Logger;
 
@@ -48,6 +49,12 @@ import org.apache.log4j.Logger;
  * cache exceeds remaining memory bytes, new bytes are written to storage. To
  * keep things sane, bytes are effectively immutable unless the vector is
  * resized to a smaller length, in which case any extra bytes are truncated.
+ * <p/>
+ * Vector operations lock one of a fixed set of stripes chosen by key, and
+ * cache totals are kept in atomic counters, so that threads working on
+ * different vectors rarely contend. Only writes to storage share a lock, which
+ * protects the cache of open files. A single vector must still be used by one
+ * thread at a time.
  */
 public class RawByteCache
 {
@@ -60,12 +67,19 @@ public class RawByteCache
     private final long maxObjectBytes;
     private final int  maxOpenFiles;
 
+    // Number of lock stripes for vector operations.
+    private static final int STRIPES = 32;
+
     // Cache control properties.
-    private long                              currentMemoryBytes    = 0;
-    private long                              currentStorageBytes   = 0;
-    private Map<Object, RawByteAllocator>     rawByteAllocatorCache = new HashMap<Object, RawByteAllocator>();
+    private final AtomicLong                  currentMemoryBytes    = new AtomicLong();
+    private final AtomicLong                  currentStorageBytes   = new AtomicLong();
+    private Map<Object, RawByteAllocator>     rawByteAllocatorCache = new ConcurrentHashMap<Object, RawByteAllocator>();
     private IndexedLRUCache<FileOutputStream> outputStreamCache;
 
+    // Vector locks and the lock on open storage files.
+    private final Object[] stripes  = new Object[STRIPES];
+    private final Object   fileLock = new Object();
+
     /**
      * Instantiates a new cache.
      * 
@@ -84,6 +98,8 @@ public class RawByteCache
         this.maxCacheBytes = maxCacheBytes;
         this.maxObjectBytes = maxObjectBytes;
         this.maxOpenFiles = maxOpenFiles;
+        for (int i = 0; i < STRIPES; i++)
+            stripes[i] = new Object();
     }
 
     /** Return number of elements in the cache. */
@@ -95,13 +111,13 @@ public class RawByteCache
     /** Return number of bytes of memory used by cache. */
     public long getCurrentMemoryBytes()
     {
-        return currentMemoryBytes;
+        return currentMemoryBytes.get();
     }
 
     /** Return number of bytes of storage used by cache. */
     public long getCurrentStorageBytes()
     {
-        return currentStorageBytes;
+        return currentStorageBytes.get();
     }
 
     /**
@@ -144,8 +160,11 @@ public class RawByteCache
                 }
             }
         };
-        outputStreamCache = new IndexedLRUCache<FileOutputStream>(maxOpenFiles,
-                cacheResourceManager);
+        synchronized (fileLock)
+        {
+            outputStreamCache = new IndexedLRUCache<FileOutputStream>(
+                    maxOpenFiles, cacheResourceManager);
+        }
     }
 
     /**
@@ -155,8 +174,11 @@ public class RawByteCache
     {
         // Invalidate the OutputStream cache, which closes any outstanding
         // streams.
-        if (outputStreamCache != null)
-            outputStreamCache.invalidateAll();
+        synchronized (fileLock)
+        {
+            if (outputStreamCache != null)
+                outputStreamCache.invalidateAll();
+        }
 
         // Clear the cache.
         if (cacheDir.exists() && cacheDir.isDirectory())
@@ -177,19 +199,20 @@ public class RawByteCache
      * 
      * @param key Object reference
      */
-    public synchronized void allocate(String key)
+    public void allocate(String key)
     {
-        if (this.rawByteAllocatorCache.get(key) == null)
-        {
-            RawByteAllocator alloc = new RawByteAllocator();
-            alloc.key = key;
-            rawByteAllocatorCache.put(key, alloc);
-        }
-        else
+        synchronized (lockFor(key))
         {
-            throw new RuntimeException(
-                    "Attempt to allocate existing vector: key=" + key);
+            if (this.rawByteAllocatorCache.get(key) == null)
+            {
+                RawByteAllocator alloc = new RawByteAllocator();
+                alloc.key = key;
+                rawByteAllocatorCache.put(key, alloc);
+                return;
+            }
         }
+        throw new RuntimeException(
+                "Attempt to allocate existing vector: key=" + key);
     }
 
     /**
@@ -200,25 +223,32 @@ public class RawByteCache
      */
     public void deallocate(String key)
     {
-        RawByteAllocator alloc = rawByteAllocatorCache.remove(key);
-        if (key == null)
-        {
-            logger.warn("Attempt to deallocate unknown vector from cache: key="
-                    + key);
-        }
-        else
+        synchronized (lockFor(key))
         {
-            // Null out array to free memory buffers.
-            alloc.buffers = null;
-            currentMemoryBytes -= alloc.memoryLength;
-
-            // Invalidate any open output stream on the file system and
-            // delete storage.
-            if (alloc.storageLength > 0)
+            RawByteAllocator alloc = rawByteAllocatorCache.remove(key);
+            if (alloc == null)
             {
-                outputStreamCache.invalidate(key);
-                alloc.cacheFile.delete();
-                this.currentStorageBytes -= alloc.storageLength;
+                logger.warn(
+                        "Attempt to deallocate unknown vector from cache: key="
+                                + key);
+            }
+            else
+            {
+                // Null out array to free memory buffers.
+                alloc.buffers = null;
+                currentMemoryBytes.addAndGet(-alloc.memoryLength);
+
+                // Invalidate any open output stream on the file system and
+                // delete storage.
+                if (alloc.storageLength > 0)
+                {
+                    synchronized (fileLock)
+                    {
+                        outputStreamCache.invalidate(key);
+                    }
+                    alloc.cacheFile.delete();
+                    this.currentStorageBytes.addAndGet(-alloc.storageLength);
+                }
             }
         }
     }
@@ -229,71 +259,82 @@ public class RawByteCache
      * @param key Object reference
      * @param bytes Byte buffer to write
      */
-    public synchronized void append(String key, byte[] bytes)
+    public void append(String key, byte[] bytes)
     {
-        // Locate the vector and compute expected sizes of vector and overall
-        // cache.
-        RawByteAllocator alloc = findRawByteAllocator(key);
-        long newObjectBytes = alloc.memoryLength + bytes.length;
-        long newCacheBytes = this.currentMemoryBytes + bytes.length;
-
-        // There are two cases to consider: either the new buffer fits in memory
-        // or it does not.
-        if (newObjectBytes <= maxObjectBytes && newCacheBytes <= maxCacheBytes)
-        {
-            // Case 1: New buffer fits within single vector and cache memory
-            // limits.
-            alloc.buffers.add(bytes);
-
-            // Update cache sizes.
-            alloc.memoryLength += bytes.length;
-            currentMemoryBytes += bytes.length;
-        }
-        else
+        synchronized (lockFor(key))
         {
-            // Case 2: New buffer exceeds resource limits, hence must go to
-            // storage.
-
-            // We start by ensuring that the storage file exists
-            if (alloc.storageLength == 0)
+            // Locate the vector and compute expected size of the vector.
+            RawByteAllocator alloc = findRawByteAllocator(key);
+            long newObjectBytes = alloc.memoryLength + bytes.length;
+
+            // There are two cases to consider: either the new buffer fits in
+            // memory or it does not. Memory is reserved up front so that
+            // concurrent appends cannot together exceed the cache limit.
+            if (newObjectBytes <= maxObjectBytes && reserveMemory(bytes.length))
             {
-                // Generate the storage file name.
-                alloc.cacheFile = new File(cacheDir, key);
+                // Case 1: New buffer fits within single vector and cache
+                // memory limits.
+                alloc.buffers.add(bytes);
+                alloc.memoryLength += bytes.length;
             }
-
-            // Write buffer to storage.
-            try
+            else
             {
-                // Fetch the storage output stream from the LRU cache. If it
-                // does not exist, create a new one.
-                FileOutputStream output = outputStreamCache.get(key);
-                if (output == null)
+                // Case 2: New buffer exceeds resource limits, hence must go to
+                // storage.
+
+                // We start by ensuring that the storage file exists
+                if (alloc.storageLength == 0)
                 {
-                    // Create and store the output stream.
-                    output = new FileOutputStream(alloc.cacheFile);
-                    outputStreamCache.put(key, output);
-
-                    // Seek to the end of the currently stored information so
-                    // the next write picks up the previous position (including
-                    // 0 if this is the first write).
-                    FileChannel channel = output.getChannel();
-                    channel.position(alloc.storageLength);
+                    // Generate the storage file name.
+                    alloc.cacheFile = new File(cacheDir, key);
                 }
 
-                output.write(bytes);
-            }
-            catch (IOException e)
-            {
-                throw new RuntimeException(String.format(
-                        "Unable to append bytes to storage: key=%s file=%s buffer length=%d",
-                        key, alloc.cacheFile.getAbsolutePath(), bytes.length));
-            }
+                // Write buffer to storage.
+                try
+                {
+                    synchronized (fileLock)
+                    {
+                        // Fetch the storage output stream from the LRU cache.
+                        // If it does not exist, create a new one.
+                        FileOutputStream output = outputStreamCache.get(key);
+                        if (output == null)
+                        {
+                            // Create and store the output stream. The file
+                            // is opened for append so that reopening it after
+                            // the LRU cache closed it does not truncate bytes
+                            // that are already stored.
+                            output = new FileOutputStream(alloc.cacheFile,
+                                    alloc.storageLength > 0);
+                            outputStreamCache.put(key, output);
+                        }
+
+                        output.write(bytes);
+                    }
+                }
+                catch (IOException e)
+                {
+                    throw new RuntimeException(String.format(
+                            "Unable to append bytes to storage: key=%s file=%s buffer length=%d",
+                            key, alloc.cacheFile.getAbsolutePath(),
+                            bytes.length));
+                }
 
-            // Adjust object length and storage cache size.
-            alloc.storageLength += bytes.length;
-            currentStorageBytes += bytes.length;
+                // Adjust object length and storage cache size.
+                alloc.storageLength += bytes.length;
+                currentStorageBytes.addAndGet(bytes.length);
+            }
         }
+    }
 
+    /**
+     * Reserves memory for a new buffer if the cache limit allows it.
+     */
+    private boolean reserveMemory(long length)
+    {
+        if (currentMemoryBytes.addAndGet(length) <= maxCacheBytes)
+            return true;
+        currentMemoryBytes.addAndGet(-length);
+        return false;
     }
 
     /**
@@ -304,9 +345,12 @@ public class RawByteCache
      */
     public InputStream allocateStream(String key)
     {
-        RawByteAllocator alloc = findRawByteAllocator(key);
-        InputStream input = new RawByteInputStream(alloc);
-        return input;
+        synchronized (lockFor(key))
+        {
+            RawByteAllocator alloc = findRawByteAllocator(key);
+            InputStream input = new RawByteInputStream(alloc);
+            return input;
+        }
     }
 
     /**
@@ -317,8 +361,11 @@ public class RawByteCache
      */
     public long size(String key)
     {
-        RawByteAllocator alloc = findRawByteAllocator(key);
-        return alloc.memoryLength + alloc.storageLength;
+        synchronized (lockFor(key))
+        {
+            RawByteAllocator alloc = findRawByteAllocator(key);
+            return alloc.memoryLength + alloc.storageLength;
+        }
     }
 
     /**
@@ -329,110 +376,131 @@ public class RawByteCache
      */
     public void resize(String key, long length)
     {
-        RawByteAllocator alloc = findRawByteAllocator(key);
-
-        // First step of resizing is to drop storage.
-        if (alloc.cacheFile != null)
+        synchronized (lockFor(key))
         {
-            long newFileLength = length - alloc.memoryLength;
-            if (newFileLength > 0)
+            RawByteAllocator alloc = findRawByteAllocator(key);
+
+            // First step of resizing is to drop storage.
+            if (alloc.cacheFile != null)
             {
-                // This truncate operation is entirely in storage and just
-                // shortens the file.
-                int excessLength = (int) (alloc.storageLength - newFileLength);
-                FileOutputStream output = outputStreamCache.get(key);
-                try
+                long newFileLength = length - alloc.memoryLength;
+                if (newFileLength > 0)
                 {
-                    if (output == null)
+                    // This truncate operation is entirely in storage and just
+                    // shortens the file.
+                    int excessLength = (int) (alloc.storageLength
+                            - newFileLength);
+                    try
+                    {
+                        synchronized (fileLock)
+                        {
+                            FileOutputStream output = outputStreamCache
+                                    .get(key);
+                            if (output == null)
+                            {
+                                // Create and store the output stream.
+                                output = new FileOutputStream(alloc.cacheFile,
+                                        true);
+                                outputStreamCache.put(key, output);
+                            }
+
+                            // Since this is an existing file, we need to
+                            // position at the end.
+                            FileChannel channel = output.getChannel();
+                            channel.truncate(newFileLength);
+                            channel.position(newFileLength);
+
+                            // Flush and then invalidate the LRU cache entry to
+                            // close the file.
+                            output.flush();
+                            outputStreamCache.invalidate(key);
+                        }
+
+                        // Adjust length of object as well as cache storage
+                        // bytes.
+                        alloc.storageLength = newFileLength;
+                        currentStorageBytes.addAndGet(-excessLength);
+                    }
+                    catch (IOException e)
                     {
-                        // Create and store the output stream.
-                        output = new FileOutputStream(alloc.cacheFile, true);
-                        outputStreamCache.put(key, output);
+                        throw new RuntimeException(String.format(
+                                "Unable to truncate vector in storage: key=%s file=%s length=%d truncated length=%d",
+                                key, alloc.cacheFile.getAbsolutePath(),
+                                alloc.memoryLength + alloc.storageLength,
+                                length));
                     }
 
-                    // Since this is an existing file, we need to position
-                    // at the end.
-                    FileChannel channel = output.getChannel();
-                    channel.truncate(newFileLength);
-                    channel.position(newFileLength);
-
-                    // Flush and then invalidate the LRU cache entry to close
-                    // the file.
-                    output.flush();
-                    outputStreamCache.invalidate(key);
-
-                    // Adjust length of object as well as cache storage
-                    // bytes.
-                    alloc.storageLength = newFileLength;
-                    currentStorageBytes -= excessLength;
+                    // Operation affects only storage, so we can return now.
+                    return;
                 }
-                catch (IOException e)
+                else
                 {
-                    throw new RuntimeException(String.format(
-                            "Unable to truncate vector in storage: key=%s file=%s length=%d truncated length=%d",
-                            key, alloc.cacheFile.getAbsolutePath(),
-                            alloc.memoryLength + alloc.storageLength, length));
+                    // Storage file is deleted.
+                    synchronized (fileLock)
+                    {
+                        outputStreamCache.invalidate(key);
+                    }
+                    alloc.cacheFile.delete();
+                    alloc.cacheFile = null;
+                    currentStorageBytes.addAndGet(-alloc.storageLength);
+                    alloc.storageLength = 0;
                 }
-
-                // Operation affects only storage, so we can return now.
-                return;
             }
-            else
-            {
-                // Storage file is deleted.
-                outputStreamCache.invalidate(key);
-                alloc.cacheFile.delete();
-                alloc.cacheFile = null;
-                currentStorageBytes -= alloc.storageLength;
-                alloc.storageLength = 0;
-            }
-        }
 
-        // Now we have to see if any buffers should be truncated.
-        int lastBuffer = -1;
-        int totalBufferBytes = 0;
-        for (int i = 0; i < alloc.buffers.size(); i++)
-        {
-            byte[] buffer = alloc.buffers.get(i);
-            totalBufferBytes += buffer.length;
-
-            if (totalBufferBytes == length)
+            // Now we have to see if any buffers should be truncated.
+            int lastBuffer = -1;
+            int totalBufferBytes = 0;
+            for (int i = 0; i < alloc.buffers.size(); i++)
             {
-                // We have to truncate any succeeding buffers.
-                lastBuffer = i;
-                break;
-            }
-            else if (totalBufferBytes > length)
-            {
-                // We have to truncate any succeeding buffers *and* part of
-                // this one.
-                lastBuffer = i;
-                int excessLength = totalBufferBytes - (int) length;
-                int shortenedBufferLength = buffer.length - excessLength;
-                byte[] shortenedBuffer = Arrays.copyOf(buffer,
-                        shortenedBufferLength);
-                alloc.buffers.set(i, shortenedBuffer);
-
-                // Subtracted dropped bytes from cache and vector size.
-                currentMemoryBytes -= excessLength;
-                alloc.memoryLength -= excessLength;
-                break;
+                byte[] buffer = alloc.buffers.get(i);
+                totalBufferBytes += buffer.length;
+
+                if (totalBufferBytes == length)
+                {
+                    // We have to truncate any succeeding buffers.
+                    lastBuffer = i;
+                    break;
+                }
+                else if (totalBufferBytes > length)
+                {
+                    // We have to truncate any succeeding buffers *and* part of
+                    // this one.
+                    lastBuffer = i;
+                    int excessLength = totalBufferBytes - (int) length;
+                    int shortenedBufferLength = buffer.length - excessLength;
+                    byte[] shortenedBuffer = Arrays.copyOf(buffer,
+                            shortenedBufferLength);
+                    alloc.buffers.set(i, shortenedBuffer);
+
+                    // Subtracted dropped bytes from cache and vector size.
+                    currentMemoryBytes.addAndGet(-excessLength);
+                    alloc.memoryLength -= excessLength;
+                    break;
+                }
             }
-        }
 
-        // Remove excess buffers, if any. Subtract the size of each excess
-        // buffer from the vector and cache length.
-        if (lastBuffer > -1)
-        {
-            for (int i = alloc.buffers.size() - 1; i > lastBuffer; i--)
+            // Remove excess buffers, if any. Subtract the size of each excess
+            // buffer from the vector and cache length.
+            if (lastBuffer > -1)
             {
-                byte[] buffer = alloc.buffers.remove(i);
-                currentMemoryBytes -= buffer.length;
-                alloc.memoryLength -= buffer.length;
+                for (int i = alloc.buffers.size() - 1; i > lastBuffer; i--)
+                {
+                    byte[] buffer = alloc.buffers.remove(i);
+                    currentMemoryBytes.addAndGet(-buffer.length);
+                    alloc.memoryLength -= buffer.length;
+                }
             }
         }
     }
 
+    /**
+     * Returns the lock that guards operations on a vector.
+     */
+    private Object lockFor(String key)
+    {
+        return stripes[(key.hashCode() & 0x7fffffff) % STRIPES];
+    }
+
     /**
      * Finds an existing RawByteAllocator or throws an exception.
      */
@@ -457,8 +525,8 @@ public class RawByteCache
         StringBuffer sb = new StringBuffer();
         sb.append(this.getClass().getSimpleName()).append(":");
         sb.append(" elements=" + this.rawByteAllocatorCache.size());
-        sb.append(" memoryBytes=" + this.currentMemoryBytes);
-        sb.append(" storageBytes=" + this.currentStorageBytes);
+        sb.append(" memoryBytes=" + this.currentMemoryBytes.get());
+        sb.append(" storageBytes=" + this.currentStorageBytes.get());
         return sb.toString();
     }
 }
\ No newline at end of file
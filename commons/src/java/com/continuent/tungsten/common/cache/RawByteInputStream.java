@@ -102,6 +102,60 @@ public class RawByteInputStream extends InputStream
         }
     }
 
+    /**
+     * Reads a range of bytes, copying directly from the current memory buffer
+     * or from storage. A single call does not cross from one memory buffer to
+     * the next, so it may return fewer bytes than requested. {@inheritDoc}
+     *
+     * @see java.io.InputStream#read(byte[], int, int)
+     */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        if (len == 0)
+            return 0;
+
+        if (nextByteIndex < alloc.memoryLength)
+        {
+            // See if we have anything to read at all.
+            if (bufferIndex >= alloc.buffers.size())
+                return -1;
+
+            // Rotate to the next buffer if we are at the end of this one.
+            while (bufferOffset >= alloc.buffers.get(bufferIndex).length)
+            {
+                bufferIndex++;
+                bufferOffset = 0;
+            }
+
+            // Copy what we can from the current buffer.
+            byte[] buffer = alloc.buffers.get(bufferIndex);
+            int count = Math.min(len, buffer.length - bufferOffset);
+            System.arraycopy(buffer, bufferOffset, b, off, count);
+            bufferOffset += count;
+            nextByteIndex += count;
+            return count;
+        }
+        else
+        {
+            // See if there is storage allocated. If not we are at EOF.
+            if (alloc.cacheFile == null)
+                return -1;
+
+            // Ensure we have an input stream to read data.
+            if (fileInput == null)
+            {
+                fileInput = new FileInputStream(alloc.cacheFile);
+                input = new BufferedInputStream(fileInput);
+            }
+
+            int count = input.read(b, off, len);
+            if (count > 0)
+                nextByteIndex += count;
+            return count;
+        }
+    }
+
     /**
      * Provide efficient skipping mechanism that depends on ability to determine
      * offset location quickly in memory buffer or by seeking to a file
@@ -0,0 +1,78 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.common.cache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+/**
+ * Writes elements using Java serialization. This works for any serializable
+ * class but is slow and verbose as each element carries a full stream header
+ * and class descriptors, so classes that spill often should have a codec of
+ * their own.
+ * 
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class SerializableCodec<T extends Serializable>
+        implements
+            ObjectCodec<T>
+{
+    /**
+     * {@inheritDoc}
+     * 
+     * @see com.continuent.tungsten.common.cache.ObjectCodec#encode(java.lang.Object,
+     *      java.io.DataOutputStream)
+     */
+    public void encode(T element, DataOutputStream out) throws IOException
+    {
+        // Do not close the object stream as that would close the underlying
+        // stream.
+        ObjectOutputStream objectOutput = new ObjectOutputStream(out);
+        objectOutput.writeObject(element);
+        objectOutput.flush();
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see com.continuent.tungsten.common.cache.ObjectCodec#decode(java.io.DataInputStream)
+     */
+    public T decode(DataInputStream in) throws IOException
+    {
+        // Likewise we don't close the stream as that would screw up the
+        // position of the underlying byte reader.
+        ObjectInputStream objectInput = new ObjectInputStream(in);
+        try
+        {
+            @SuppressWarnings("unchecked")
+            T element = (T) objectInput.readObject();
+            return element;
+        }
+        catch (ClassNotFoundException e)
+        {
+            throw new IOException("Unable to deserialize object", e);
+        }
+    }
+}
@@ -96,6 +96,13 @@ public class OpenReplicatorParams
     /** Name of heartbeat. */
     public static final String HEARTBEAT_NAME        = "heartbeatName";
 
+    // Parameters for trace() JMX call.
+    /** Trace one in this many events; 0 disables tracing. */
+    public static final String TRACE_SAMPLE_RATE     = "traceSampleRate";
+
+    /** If set, discard traced steps after returning them. */
+    public static final String TRACE_CLEAR           = "traceClear";
+
     // Parameters for purge JMX call.
 
     /** Timeout in seconds to wait for a purge operation. */
@@ -0,0 +1,128 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.common.exec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Runnable to read from an InputStream and write the results to an output
+ * stream owned by the caller, which is flushed but not closed. If writing
+ * fails, the rest of the input is discarded so that the process can terminate,
+ * and the failure is available from {@link #getError()}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class OutputStreamSink implements InputStreamSink
+{
+    private final static Logger logger = Logger.getLogger(OutputStreamSink.class);
+    private final String        tag;
+    private final InputStream   inputStream;
+    private final OutputStream  outputStream;
+    private volatile IOException error;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param tag A tag for this processor to help with logging
+     * @param in InputStream from which we read
+     * @param out OutputStream to which we write
+     */
+    public OutputStreamSink(String tag, InputStream in, OutputStream out)
+    {
+        this.tag = tag;
+        this.inputStream = in;
+        this.outputStream = out;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see com.continuent.tungsten.common.exec.InputStreamSink#run()
+     */
+    public void run()
+    {
+        byte[] buff = new byte[65536];
+        int len = 0;
+        try
+        {
+            while ((len = inputStream.read(buff)) != -1)
+            {
+                if (error == null)
+                {
+                    try
+                    {
+                        outputStream.write(buff, 0, len);
+                    }
+                    catch (IOException e)
+                    {
+                        logger.warn("[" + tag
+                                + "] Writing of data to output stream halted by exception",
+                                e);
+                        error = e;
+                    }
+                }
+            }
+            if (error == null)
+                outputStream.flush();
+        }
+        catch (IOException e)
+        {
+            logger.warn("[" + tag + "] Reading of data halted by exception", e);
+            if (error == null)
+                error = e;
+        }
+        finally
+        {
+            try
+            {
+                inputStream.close();
+            }
+            catch (IOException e)
+            {
+                logger.warn("[" + tag
+                        + "] Input stream close operation generated exception",
+                        e);
+            }
+        }
+    }
+
+    /**
+     * Returns the exception that stopped the copy, or null if it succeeded.
+     */
+    public IOException getError()
+    {
+        return error;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see com.continuent.tungsten.common.exec.InputStreamSink#getOutput()
+     */
+    public String getOutput()
+    {
+        return null;
+    }
+}
@@ -79,6 +79,7 @@ public class ProcessExecutor implements Runnable
     protected boolean                 stdOutAppend;
     protected boolean                 stdErrAppend;
     protected File                    stdOutFile;
+    protected OutputStream            stdOutStream;
     protected File                    stdErrFile;
     protected String                  stdout;
     protected String                  stderr;
@@ -162,6 +163,17 @@ public class ProcessExecutor implements Runnable
         this.stdOutFile = stdOutFile;
     }
     
+    /**
+     * Send stdout to an output stream, which is not closed when the process
+     * completes. The process fails if writing to the stream fails.
+     * 
+     * @param stdOutStream a stream for stdout to be written to
+     */
+    public void setStdOut(OutputStream stdOutStream)
+    {
+        this.stdOutStream = stdOutStream;
+    }
+
     /**
      * Send stdout to a logger.
      * 
@@ -424,8 +436,13 @@ public class ProcessExecutor implements Runnable
         try
         {
             // Use threads to capture process output.
-            stdoutProcessor = getInputSink("stdout", process.getInputStream(),
-                    stdOutFile, stdOutAppend, stdOutLogger);
+            if (stdOutStream != null)
+                stdoutProcessor = new OutputStreamSink("stdout",
+                        process.getInputStream(), stdOutStream);
+            else
+                stdoutProcessor = getInputSink("stdout",
+                        process.getInputStream(), stdOutFile, stdOutAppend,
+                        stdOutLogger);
             stderrProcessor = getInputSink("stderr", process.getErrorStream(),
                     stdErrFile, stdErrAppend, stdErrLogger);
             Thread stdoutThread = new Thread(stdoutProcessor);
@@ -501,6 +518,18 @@ public class ProcessExecutor implements Runnable
             // but makes it more likely we will read output properly.
             stdoutThread.join(THREAD_WAIT_MILLIS);
             stderrThread.join(THREAD_WAIT_MILLIS);
+
+            // Output written to a stream must be complete.
+            if (stdoutProcessor instanceof OutputStreamSink)
+            {
+                IOException sinkError = ((OutputStreamSink) stdoutProcessor)
+                        .getError();
+                if (sinkError != null)
+                    error = sinkError;
+                else if (stdoutThread.isAlive())
+                    error = new IOException(
+                            "Timed out waiting for process output to be written");
+            }
         }
         catch (FileNotFoundException e)
         {
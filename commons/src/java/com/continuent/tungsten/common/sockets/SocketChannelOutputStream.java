@@ -0,0 +1,80 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.common.sockets;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Writes to a blocking socket channel directly. The output stream of the
+ * socket adaptor of a channel synchronizes on the channel's blocking lock,
+ * which on Java 8 and 11 is also held by a thread blocked in a read on the
+ * adaptor's input stream. Writing through the channel only takes the
+ * channel's write lock, so one thread can write while another waits for
+ * input on the same socket.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+class SocketChannelOutputStream extends OutputStream
+{
+    private final SocketChannel channel;
+
+    SocketChannelOutputStream(SocketChannel channel)
+    {
+        this.channel = channel;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see java.io.OutputStream#write(int)
+     */
+    public void write(int b) throws IOException
+    {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see java.io.OutputStream#write(byte[], int, int)
+     */
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+        if (!channel.isBlocking())
+            throw new IllegalBlockingModeException();
+        ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    /**
+     * Closes the channel, as closing the output stream of a socket closes the
+     * socket.
+     */
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+}
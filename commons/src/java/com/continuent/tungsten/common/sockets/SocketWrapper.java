@@ -78,11 +78,16 @@ public class SocketWrapper
     }
 
     /**
-     * Returns an output stream that can write data to the socket.
+     * Returns an output stream that can write data to the socket. Sockets
+     * created from channels are written through the channel, so that writes
+     * do not wait for a read in progress on another thread.
      */
     public OutputStream getOutputStream() throws IOException
     {
-        return socket.getOutputStream();
+        if (socket.getChannel() != null)
+            return new SocketChannelOutputStream(socket.getChannel());
+        else
+            return socket.getOutputStream();
     }
 
     /**
@@ -20,6 +20,8 @@
 
 package com.continuent.tungsten.common.cache;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -255,6 +257,94 @@ public class LargeElementArrayTest
         cache.release();
     }
 
+    /**
+     * Verify that arrays using a binary codec spill to memory and storage and
+     * read back the same objects by index, through a scanner, and after a
+     * resize.
+     */
+    @Test
+    public void testArrayCodec() throws Exception
+    {
+        // Create the array with limits that push most objects to storage.
+        File testDir = this.prepareTestDir("testArrayCodec");
+        RawByteCache cache = new RawByteCache(testDir, 10000, 1000, 5);
+        cache.prepare();
+        LargeObjectArray<SampleObject> loa = new LargeObjectArray<SampleObject>(
+                cache, 10, new SampleObjectCodec());
+        List<SampleObject> objects = this.createObjectList(loa, 1000);
+        Assert.assertTrue("Spilled to storage",
+                cache.getCurrentStorageBytes() > 0);
+
+        // Read back by index and with a scanner.
+        for (int i = 0; i < objects.size(); i += 97)
+            Assert.assertEquals("Original vs. stored object", objects.get(i),
+                    loa.get(i));
+        LargeObjectScanner<SampleObject> scanner = loa.scanner();
+        for (SampleObject original : objects)
+            Assert.assertEquals("Original vs. scanned object", original,
+                    scanner.next());
+        Assert.assertFalse("At end of the large array", scanner.hasNext());
+
+        // Resize and check the last remaining element.
+        loa.resize(500);
+        Assert.assertEquals("Resized list size", 500, loa.size());
+        Assert.assertEquals("Last object", objects.get(499), loa.get(499));
+
+        loa.release();
+        Assert.assertEquals("Memory released", 0,
+                cache.getCurrentMemoryBytes());
+        Assert.assertEquals("Storage released", 0,
+                cache.getCurrentStorageBytes());
+        cache.release();
+    }
+
+    /**
+     * Verify that several threads may fill and read back separate arrays on a
+     * shared cache at the same time and that cache totals stay consistent.
+     */
+    @Test
+    public void testArrayConcurrent() throws Exception
+    {
+        File testDir = this.prepareTestDir("testArrayConcurrent");
+        final RawByteCache cache = new RawByteCache(testDir, 100000, 5000, 3);
+        cache.prepare();
+
+        final List<Throwable> errors = new ArrayList<Throwable>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 8; t++)
+        {
+            Thread thread = new Thread()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        for (int n = 0; n < 5; n++)
+                            createAndCompareList(cache, 0, 2000);
+                    }
+                    catch (Throwable e)
+                    {
+                        synchronized (errors)
+                        {
+                            errors.add(e);
+                        }
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        Assert.assertEquals("Thread errors: " + errors, 0, errors.size());
+        Assert.assertEquals("Memory released", 0,
+                cache.getCurrentMemoryBytes());
+        Assert.assertEquals("Storage released", 0,
+                cache.getCurrentStorageBytes());
+        cache.release();
+    }
+
     /**
      * Append objects to a large object array, returning a list of said objects
      * in insert order.
@@ -314,6 +404,24 @@ public class LargeElementArrayTest
         loa.release();
     }
 
+    // Writes sample objects field by field.
+    private static class SampleObjectCodec implements ObjectCodec<SampleObject>
+    {
+        public void encode(SampleObject element, DataOutputStream out)
+                throws IOException
+        {
+            out.writeInt(element.getI());
+            out.writeUTF(element.getS());
+            out.writeDouble(element.getD());
+        }
+
+        public SampleObject decode(DataInputStream in) throws IOException
+        {
+            return new SampleObject(in.readInt(), in.readUTF(),
+                    in.readDouble());
+        }
+    }
+
     /**
      * Create test directory, removing any previous directory.
      */
@@ -39,6 +39,21 @@ public class SampleObject implements Serializable
         this.d = d;
     }
 
+    int getI()
+    {
+        return i;
+    }
+
+    String getS()
+    {
+        return s;
+    }
+
+    double getD()
+    {
+        return d;
+    }
+
     @Override
     public boolean equals(Object o)
     {
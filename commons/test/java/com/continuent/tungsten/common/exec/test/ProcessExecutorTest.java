@@ -22,10 +22,13 @@ package com.continuent.tungsten.common.exec.test;
 
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 
 import org.junit.Assert;
@@ -239,6 +242,37 @@ public class ProcessExecutorTest
         }
     }
 
+    /**
+     * Verify that stdout can be written to a stream, which is left open, and
+     * that a failure to write the stream fails the command.
+     */
+    @Test
+    public void testStdOutStream() throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ProcessExecutor pe = new ProcessExecutor();
+        pe.setCommands(new String[]{"echo", "streamed"});
+        pe.setStdOut(out);
+        pe.run();
+        Assert.assertTrue("Checking success", pe.isSuccessful());
+        Assert.assertEquals("Checking output", "streamed",
+                new String(out.toByteArray()).trim());
+
+        OutputStream broken = new OutputStream()
+        {
+            public void write(int b) throws IOException
+            {
+                throw new IOException("Disk full");
+            }
+        };
+        pe = new ProcessExecutor();
+        pe.setCommands(new String[]{"echo", "streamed"});
+        pe.setStdOut(broken);
+        pe.run();
+        Assert.assertFalse("Checking failure", pe.isSuccessful());
+        Assert.assertTrue("Checking error", pe.getError() instanceof IOException);
+    }
+
     // Utility routine to check stdout string from a successful execution.
     private void assertSuccessfulStdout(ProcessExecutor pe,
             String expectedStdout)
@@ -26,6 +26,10 @@ import static org.junit.Assert.assertTrue;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CountDownLatch;
 
 import javax.net.ssl.SSLHandshakeException;
 
@@ -107,6 +111,82 @@ public class SocketWrapperTest
         verifyConnection(2113, false, null, null, null, false);
     }
 
+    /**
+     * Verify that writes to a socket created from a channel do not wait for
+     * the channel's blocking lock, which a thread blocked in a read holds on
+     * Java 8 and 11.
+     */
+    @Test
+    public void testWriteWhileReading() throws Exception
+    {
+        logger.info("### testWriteWhileReading");
+        ServerSocketChannel serverChannel = ServerSocketChannel.open();
+        serverChannel.socket().bind(new InetSocketAddress("127.0.0.1", 0));
+        final SocketChannel client = SocketChannel.open(serverChannel
+                .socket().getLocalSocketAddress());
+        SocketChannel accepted = serverChannel.accept();
+        try
+        {
+            // Hold the blocking lock as a blocked reader does.
+            final CountDownLatch locked = new CountDownLatch(1);
+            final CountDownLatch release = new CountDownLatch(1);
+            Thread reader = new Thread()
+            {
+                public void run()
+                {
+                    synchronized (client.blockingLock())
+                    {
+                        locked.countDown();
+                        try
+                        {
+                            release.await();
+                        }
+                        catch (InterruptedException e)
+                        {
+                        }
+                    }
+                }
+            };
+            reader.setDaemon(true);
+            reader.start();
+            locked.await();
+
+            final SocketWrapper wrapper = new SocketWrapper(client.socket());
+            Thread writer = new Thread()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        OutputStream out = wrapper.getOutputStream();
+                        out.write(new byte[1000]);
+                        out.flush();
+                    }
+                    catch (Exception e)
+                    {
+                        logger.warn("Write failed", e);
+                    }
+                }
+            };
+            writer.setDaemon(true);
+            writer.start();
+            writer.join(5000);
+            assertFalse("Write blocked by reader", writer.isAlive());
+            release.countDown();
+
+            ByteBuffer received = ByteBuffer.allocate(1000);
+            while (received.hasRemaining() && accepted.read(received) >= 0)
+                ;
+            Assert.assertEquals("Bytes received", 1000, received.position());
+        }
+        finally
+        {
+            accepted.close();
+            client.close();
+            serverChannel.close();
+        }
+    }
+
     /**
      * Verify that we can connect using an SSL socket and get a value back from
      * a server that also speaks SSL.
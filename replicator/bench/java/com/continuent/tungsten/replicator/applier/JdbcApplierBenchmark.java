@@ -0,0 +1,166 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+
+package com.continuent.tungsten.replicator.applier;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+
+import com.continuent.tungsten.common.config.TungstenProperties;
+import com.continuent.tungsten.replicator.bench.Benchmark;
+import com.continuent.tungsten.replicator.bench.BenchmarkEvents;
+import com.continuent.tungsten.replicator.conf.ReplicatorConf;
+import com.continuent.tungsten.replicator.conf.ReplicatorMonitor;
+import com.continuent.tungsten.replicator.conf.ReplicatorRuntime;
+import com.continuent.tungsten.replicator.datasource.DataSourceService;
+import com.continuent.tungsten.replicator.datasource.SqlConnectionSpecGeneric;
+import com.continuent.tungsten.replicator.datasource.SqlDataSource;
+import com.continuent.tungsten.replicator.management.MockOpenReplicatorContext;
+import com.continuent.tungsten.replicator.pipeline.SingleThreadStageTask;
+import com.continuent.tungsten.replicator.storage.InMemoryQueueAdapter;
+import com.continuent.tungsten.replicator.storage.InMemoryQueueStore;
+
+/**
+ * Measures applying row events through the JDBC applier to an embedded Derby
+ * database. This covers statement construction, binding of column values and
+ * updates of the commit position, plus the cost of Derby itself, so results
+ * are most useful for comparing changes to the applier on the same host.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @version 1.0
+ */
+public class JdbcApplierBenchmark extends Benchmark
+{
+    private static final String SERVICE = "bench";
+    private static final String SCHEMA  = "bench";
+    private static final int    ROWS    = 10;
+
+    private ReplicatorRuntime   runtime;
+    private Applier             applier;
+    private File                dbDir;
+    private long                seqno;
+    private int                 nextId;
+
+    public JdbcApplierBenchmark()
+    {
+        super("JdbcApplierBenchmark.applyRows");
+    }
+
+    public void setUp() throws Exception
+    {
+        dbDir = createWorkDir("JdbcApplierBenchmark");
+        String url = "jdbc:derby:" + new File(dbDir, "db").getAbsolutePath()
+                + ";create=true";
+
+        // Create the table that events insert into.
+        Class.forName("org.apache.derby.jdbc.EmbeddedDriver");
+        Connection conn = DriverManager.getConnection(url);
+        try
+        {
+            Statement statement = conn.createStatement();
+            statement.execute("CREATE SCHEMA " + SCHEMA);
+            statement.execute("SET SCHEMA " + SCHEMA);
+            statement.execute(BenchmarkEvents.TABLE_DDL);
+            statement.close();
+        }
+        finally
+        {
+            conn.close();
+        }
+
+        runtime = new ReplicatorRuntime(createConfig(url),
+                new MockOpenReplicatorContext(),
+                ReplicatorMonitor.getInstance());
+        runtime.configure();
+        runtime.prepare();
+        applier = runtime.getPipeline().getTailApplier();
+        seqno = 0;
+        nextId = 1;
+    }
+
+    public int run() throws Exception
+    {
+        applier.apply(BenchmarkEvents.createRowEvent(seqno++, SCHEMA, nextId,
+                ROWS), true, false, false);
+        consume(applier.getLastEvent());
+        nextId += ROWS;
+        return ROWS;
+    }
+
+    public void tearDown() throws Exception
+    {
+        if (runtime != null)
+            runtime.release();
+        try
+        {
+            DriverManager.getConnection("jdbc:derby:;shutdown=true");
+        }
+        catch (Exception e)
+        {
+            // Derby signals a successful shutdown with an exception.
+        }
+        delete(dbDir);
+    }
+
+    // Builds a pipeline whose only stage applies to the Derby database.
+    private TungstenProperties createConfig(String url)
+    {
+        TungstenProperties conf = new TungstenProperties();
+        conf.setString(ReplicatorConf.SERVICE_NAME, SERVICE);
+        conf.setString(ReplicatorConf.ROLE, "slave");
+        conf.setString(ReplicatorConf.METADATA_SCHEMA, SCHEMA);
+        conf.setString(ReplicatorConf.PIPELINES, "slave");
+        conf.setString(ReplicatorConf.PIPELINE_ROOT + ".slave", "apply");
+        conf.setString(ReplicatorConf.PIPELINE_ROOT + ".slave.stores",
+                "queue");
+        conf.setString(ReplicatorConf.PIPELINE_ROOT + ".slave.services",
+                "datasource");
+
+        conf.setString("replicator.store.queue",
+                InMemoryQueueStore.class.getName());
+        conf.setString(ReplicatorConf.STAGE_ROOT + ".apply",
+                SingleThreadStageTask.class.getName());
+        conf.setString(ReplicatorConf.STAGE_ROOT + ".apply.extractor",
+                "queue");
+        conf.setString(ReplicatorConf.STAGE_ROOT + ".apply.applier", "jdbc");
+        conf.setString("replicator.extractor.queue",
+                InMemoryQueueAdapter.class.getName());
+        conf.setString("replicator.extractor.queue.storeName", "queue");
+        conf.setString("replicator.applier.jdbc", JdbcApplier.class.getName());
+        conf.setString("replicator.applier.jdbc.dataSource", "global");
+
+        conf.setString("replicator.service.datasource",
+                DataSourceService.class.getName());
+        conf.setString("replicator.datasources", "global");
+        conf.setString("replicator.datasource.global",
+                SqlDataSource.class.getName());
+        conf.setString("replicator.datasource.global.serviceName", SERVICE);
+        conf.setString("replicator.datasource.global.channels", "1");
+        conf.setString("replicator.datasource.global.connectionSpec",
+                SqlConnectionSpecGeneric.class.getName());
+        conf.setString("replicator.datasource.global.connectionSpec.url", url);
+        conf.setString("replicator.datasource.global.connectionSpec.schema",
+                SCHEMA);
+        return conf;
+    }
+}
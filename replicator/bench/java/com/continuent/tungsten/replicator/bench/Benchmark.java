@@ -0,0 +1,140 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+
+package com.continuent.tungsten.replicator.bench;
+
+import java.io.File;
+
+/**
+ * Denotes a benchmark of a replicator code path. The runner calls
+ * {@link #setUp()} once, then calls {@link #run()} repeatedly during warm-up
+ * and measurement iterations, and finally calls {@link #tearDown()}. Each call
+ * to {@link #run()} may perform several operations, for example writing a
+ * batch of events, and returns how many it performed so that throughput is
+ * reported per operation.
+ * <p>
+ * Benchmarks must pass results of the measured code to {@link #consume}, which
+ * prevents the JIT compiler from eliminating the work as dead code.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @version 1.0
+ */
+public abstract class Benchmark
+{
+    /** System property that sets the directory for benchmark files. */
+    public static final String WORK_DIR = "bench.work.dir";
+
+    /** System property that sets the directory of test data files. */
+    public static final String DATA_DIR = "bench.data.dir";
+
+    private final String       name;
+
+    // Sink for results, which is read once per iteration by the runner.
+    private long               sink;
+    private Object             lastResult;
+
+    /**
+     * Creates a new benchmark.
+     *
+     * @param name Name reported in results, usually the class name followed
+     *            by the variant
+     */
+    protected Benchmark(String name)
+    {
+        this.name = name;
+    }
+
+    /** Returns the name of this benchmark. */
+    public String getName()
+    {
+        return name;
+    }
+
+    /** Prepares data and resources before the first iteration. */
+    public void setUp() throws Exception
+    {
+    }
+
+    /**
+     * Performs one invocation of the measured code.
+     *
+     * @return Number of operations performed
+     */
+    public abstract int run() throws Exception;
+
+    /** Releases resources after the last iteration. */
+    public void tearDown() throws Exception
+    {
+    }
+
+    /** Consumes a value computed by the measured code. */
+    protected final void consume(long value)
+    {
+        sink += value;
+    }
+
+    /** Consumes an object computed by the measured code. */
+    protected final void consume(Object value)
+    {
+        lastResult = value;
+    }
+
+    /** Returns consumed values so that the runner can publish them. */
+    final long drain()
+    {
+        long value = sink + (lastResult == null ? 0 : 1);
+        lastResult = null;
+        return value;
+    }
+
+    /**
+     * Returns a clean directory for files of this benchmark.
+     */
+    protected File createWorkDir(String dirName)
+    {
+        File dir = new File(System.getProperty(WORK_DIR, "build/bench/work"),
+                dirName);
+        delete(dir);
+        dir.mkdirs();
+        return dir;
+    }
+
+    /**
+     * Returns a test data file, which is located in the replicator test data
+     * directory by default.
+     */
+    protected File getDataFile(String fileName)
+    {
+        return new File(System.getProperty(DATA_DIR, "test/data"), fileName);
+    }
+
+    /** Deletes a file or a directory and its contents. */
+    protected void delete(File file)
+    {
+        File[] children = file.listFiles();
+        if (children != null)
+        {
+            for (File child : children)
+                delete(child);
+        }
+        file.delete();
+    }
+}
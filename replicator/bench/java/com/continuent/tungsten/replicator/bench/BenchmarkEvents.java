@@ -0,0 +1,152 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+
+package com.continuent.tungsten.replicator.bench;
+
+import java.io.Serializable;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+
+import com.continuent.tungsten.replicator.dbms.DBMSData;
+import com.continuent.tungsten.replicator.dbms.OneRowChange;
+import com.continuent.tungsten.replicator.dbms.OneRowChange.ColumnSpec;
+import com.continuent.tungsten.replicator.dbms.OneRowChange.ColumnVal;
+import com.continuent.tungsten.replicator.dbms.RowChangeData;
+import com.continuent.tungsten.replicator.dbms.StatementData;
+import com.continuent.tungsten.replicator.event.DBMSEvent;
+import com.continuent.tungsten.replicator.event.ReplDBMSEvent;
+import com.continuent.tungsten.replicator.thl.THLEvent;
+
+/**
+ * Generates events used as benchmark input. Row events insert into a table
+ * modeled on the sysbench test table, with an integer key, an integer column
+ * and two character columns.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @version 1.0
+ */
+public class BenchmarkEvents
+{
+    /** Name of the table that row events change. */
+    public static final String   TABLE        = "sbtest";
+
+    /** Column names of the table. */
+    public static final String[] COLUMNS      = {"id", "k", "c", "filler"};
+
+    /** JDBC types of the columns. */
+    public static final int[]    COLUMN_TYPES = {Types.INTEGER,
+            Types.INTEGER, Types.VARCHAR, Types.VARCHAR};
+
+    /** DDL that creates the table, for benchmarks that apply events. */
+    public static final String   TABLE_DDL    = "CREATE TABLE " + TABLE
+            + " (id INT NOT NULL PRIMARY KEY, k INT NOT NULL,"
+            + " c VARCHAR(120) NOT NULL, filler VARCHAR(60) NOT NULL)";
+
+    private static final String  C_VALUE      = "68487932199-96439406143-93774651418-41631865787-96406072701-"
+            + "20604855487-25459966574-28203206787-41238978918-19503783441";
+    private static final String  FILLER_VALUE = "22195207048-70116052123-74140395089-76317954521-98694025897";
+
+    /**
+     * Creates an event that inserts rows with consecutive keys.
+     *
+     * @param seqno Sequence number of the event
+     * @param schema Schema of the table
+     * @param firstId Key of the first row
+     * @param rows Number of rows
+     */
+    public static ReplDBMSEvent createRowEvent(long seqno, String schema,
+            int firstId, int rows)
+    {
+        OneRowChange rowChange = new OneRowChange(schema, TABLE,
+                RowChangeData.ActionType.INSERT);
+        rowChange.setTableId(1);
+        ArrayList<ColumnSpec> specs = new ArrayList<ColumnSpec>();
+        for (int i = 0; i < COLUMNS.length; i++)
+        {
+            ColumnSpec spec = rowChange.new ColumnSpec();
+            spec.setIndex(i + 1);
+            spec.setName(COLUMNS[i]);
+            spec.setType(COLUMN_TYPES[i]);
+            specs.add(spec);
+        }
+        rowChange.setColumnSpec(specs);
+
+        ArrayList<ArrayList<ColumnVal>> values = new ArrayList<ArrayList<ColumnVal>>();
+        for (int row = 0; row < rows; row++)
+        {
+            ArrayList<ColumnVal> rowValues = new ArrayList<ColumnVal>();
+            int id = firstId + row;
+            rowValues.add(columnValue(rowChange, Integer.valueOf(id)));
+            rowValues.add(columnValue(rowChange, Integer.valueOf(id % 1000)));
+            rowValues.add(columnValue(rowChange, C_VALUE));
+            rowValues.add(columnValue(rowChange, FILLER_VALUE));
+            values.add(rowValues);
+        }
+        rowChange.setColumnValues(values);
+
+        RowChangeData rowChangeData = new RowChangeData();
+        rowChangeData.appendOneRowChange(rowChange);
+        ArrayList<DBMSData> data = new ArrayList<DBMSData>();
+        data.add(rowChangeData);
+        return createEvent(seqno, schema, data);
+    }
+
+    /**
+     * Creates an event that contains a single statement.
+     */
+    public static ReplDBMSEvent createStatementEvent(long seqno,
+            String schema, String query)
+    {
+        StatementData statement = new StatementData(query, null, schema);
+        ArrayList<DBMSData> data = new ArrayList<DBMSData>();
+        data.add(statement);
+        return createEvent(seqno, schema, data);
+    }
+
+    /**
+     * Wraps an event for storage in the log.
+     */
+    public static THLEvent createTHLEvent(ReplDBMSEvent event)
+    {
+        return new THLEvent(event.getEventId(), event);
+    }
+
+    private static ReplDBMSEvent createEvent(long seqno, String shardId,
+            ArrayList<DBMSData> data)
+    {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        DBMSEvent dbmsEvent = new DBMSEvent("mysql-bin.000001:"
+                + (seqno * 1000), null, data, true, now);
+        ReplDBMSEvent event = new ReplDBMSEvent(seqno, (short) 0, true,
+                "bench", 0, now, dbmsEvent);
+        event.setShardId(shardId);
+        return event;
+    }
+
+    private static ColumnVal columnValue(OneRowChange rowChange,
+            Serializable value)
+    {
+        ColumnVal columnVal = rowChange.new ColumnVal();
+        columnVal.setValue(value);
+        return columnVal;
+    }
+}
@@ -0,0 +1,188 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+
+package com.continuent.tungsten.replicator.bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds the throughput of each measurement iteration of a benchmark and
+ * computes summary statistics in the same way as JMH, so that results can be
+ * compared with tools that read JMH output.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @version 1.0
+ */
+public class BenchmarkResult
+{
+    /** Unit of scores. */
+    public static final String    SCORE_UNIT  = "ops/s";
+
+    // Two-sided 99.9% quantiles of Student's t distribution by degrees of
+    // freedom, starting at 1 degree of freedom.
+    private static final double[] T_999       = {636.619, 31.599, 12.924,
+            8.610, 6.869, 5.959, 5.408, 5.041, 4.781, 4.587, 4.437, 4.318,
+            4.221, 4.140, 4.073, 4.015, 3.965, 3.922, 3.883, 3.850};
+    private static final double   T_999_LARGE = 3.291;
+
+    private static final double[] PERCENTILES = {0.0, 50.0, 90.0, 95.0, 99.0,
+            100.0};
+
+    private final String          name;
+    private final int             warmupIterations;
+    private final long            iterationMillis;
+    private final List<Double>    scores      = new ArrayList<Double>();
+
+    /**
+     * Creates a result.
+     *
+     * @param name Benchmark name
+     * @param warmupIterations Number of warm-up iterations that were run
+     * @param iterationMillis Duration of each iteration in milliseconds
+     */
+    public BenchmarkResult(String name, int warmupIterations,
+            long iterationMillis)
+    {
+        this.name = name;
+        this.warmupIterations = warmupIterations;
+        this.iterationMillis = iterationMillis;
+    }
+
+    /** Adds the throughput of a measurement iteration. */
+    public void addScore(double opsPerSecond)
+    {
+        scores.add(opsPerSecond);
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public List<Double> getScores()
+    {
+        return scores;
+    }
+
+    /** Returns the mean throughput. */
+    public double getScore()
+    {
+        if (scores.isEmpty())
+            return Double.NaN;
+        double sum = 0;
+        for (double score : scores)
+            sum += score;
+        return sum / scores.size();
+    }
+
+    /**
+     * Returns the half-width of the 99.9% confidence interval of the mean, or
+     * NaN if there are too few iterations to compute it.
+     */
+    public double getScoreError()
+    {
+        int n = scores.size();
+        if (n < 2)
+            return Double.NaN;
+        double mean = getScore();
+        double squares = 0;
+        for (double score : scores)
+            squares += (score - mean) * (score - mean);
+        double stddev = Math.sqrt(squares / (n - 1));
+        int df = n - 1;
+        double t = (df <= T_999.length) ? T_999[df - 1] : T_999_LARGE;
+        return t * stddev / Math.sqrt(n);
+    }
+
+    /** Returns the given percentile of iteration scores. */
+    public double getPercentile(double percent)
+    {
+        if (scores.isEmpty())
+            return Double.NaN;
+        double[] sorted = new double[scores.size()];
+        for (int i = 0; i < sorted.length; i++)
+            sorted[i] = scores.get(i);
+        Arrays.sort(sorted);
+        if (percent <= 0)
+            return sorted[0];
+        int index = (int) Math.ceil(percent / 100 * sorted.length) - 1;
+        return sorted[Math.min(Math.max(index, 0), sorted.length - 1)];
+    }
+
+    /**
+     * Returns the result as a map in the layout of a JMH JSON result, which
+     * can be converted to JSON.
+     *
+     * @param jvmArgs Arguments of the JVM that ran the benchmark
+     */
+    public Map<String, Object> toJson(List<String> jvmArgs)
+    {
+        Map<String, Object> result = new LinkedHashMap<String, Object>();
+        result.put("jmhVersion", "compatible");
+        result.put("benchmark", name);
+        result.put("mode", "thrpt");
+        result.put("threads", 1);
+        result.put("forks", 1);
+        result.put("jvm", System.getProperty("java.home"));
+        result.put("jvmArgs", jvmArgs);
+        result.put("jdkVersion", System.getProperty("java.version"));
+        result.put("vmName", System.getProperty("java.vm.name"));
+        result.put("vmVersion", System.getProperty("java.vm.version"));
+        result.put("warmupIterations", warmupIterations);
+        result.put("warmupTime", iterationMillis + " ms");
+        result.put("measurementIterations", scores.size());
+        result.put("measurementTime", iterationMillis + " ms");
+
+        Map<String, Object> metric = new LinkedHashMap<String, Object>();
+        double score = getScore();
+        double error = getScoreError();
+        metric.put("score", number(score));
+        metric.put("scoreError", number(error));
+        List<Object> confidence = new ArrayList<Object>();
+        confidence.add(number(score - error));
+        confidence.add(number(score + error));
+        metric.put("scoreConfidence", confidence);
+        Map<String, Object> percentiles = new LinkedHashMap<String, Object>();
+        for (double percent : PERCENTILES)
+            percentiles.put(Double.toString(percent),
+                    number(getPercentile(percent)));
+        metric.put("scorePercentiles", percentiles);
+        metric.put("scoreUnit", SCORE_UNIT);
+        List<Object> rawData = new ArrayList<Object>();
+        rawData.add(new ArrayList<Double>(scores));
+        metric.put("rawData", rawData);
+        result.put("primaryMetric", metric);
+        result.put("secondaryMetrics", new LinkedHashMap<String, Object>());
+        return result;
+    }
+
+    // JSON has no NaN, so JMH writes it as a string.
+    private static Object number(double value)
+    {
+        if (Double.isNaN(value) || Double.isInfinite(value))
+            return "NaN";
+        return value;
+    }
+}
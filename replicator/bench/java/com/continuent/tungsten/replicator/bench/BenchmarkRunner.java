@@ -0,0 +1,351 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+
+package com.continuent.tungsten.replicator.bench;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.json.simple.JSONValue;
+
+import com.continuent.tungsten.common.exec.ArgvIterator;
+import com.continuent.tungsten.replicator.applier.JdbcApplierBenchmark;
+import com.continuent.tungsten.replicator.extractor.mysql.MySQLTransactionBufferBenchmark;
+import com.continuent.tungsten.replicator.extractor.mysql.RowsLogEventBenchmark;
+import com.continuent.tungsten.replicator.filter.FilterChainBenchmark;
+import com.continuent.tungsten.replicator.storage.parallel.PartitionerBenchmark;
+import com.continuent.tungsten.replicator.thl.ProtocolFramingBenchmark;
+import com.continuent.tungsten.replicator.thl.log.DiskLogBenchmark;
+import com.continuent.tungsten.replicator.thl.log.LogFileBenchmark;
+import com.continuent.tungsten.replicator.thl.log.LogRecordCrcBenchmark;
+import com.continuent.tungsten.replicator.thl.serializer.ProtobufSerializerBenchmark;
+
+/**
+ * Runs replicator benchmarks and writes results as JSON in the JMH result
+ * format. Each benchmark runs in a single thread with a number of timed
+ * warm-up iterations followed by timed measurement iterations, and reports
+ * throughput in operations per second.
+ * <p>
+ * This is a simple harness rather than JMH and has the following limits:
+ * <ul>
+ * <li>There is no fork isolation. All benchmarks run in the same JVM, so code
+ * profiles and garbage from earlier benchmarks affect later ones. Use
+ * -include to run one benchmark per JVM when comparing results.</li>
+ * <li>Warm-up is a fixed number of iterations rather than running until
+ * scores are steady. Raise -wi for code paths that take longer to
+ * compile.</li>
+ * <li>Dead code elimination is prevented by a simple sink. Benchmarks must
+ * pass every result of the measured code to {@link Benchmark#consume}, which
+ * the runner publishes to a volatile field after each iteration.</li>
+ * </ul>
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @version 1.0
+ */
+public class BenchmarkRunner
+{
+    private Pattern include          = null;
+    private int     warmupIterations = 3;
+    private int     iterations       = 5;
+    private long    iterationMillis  = 1000;
+    private File    outputFile       = new File("build/bench/results.json");
+
+    // Published sink that keeps consumed values alive.
+    static volatile long sink;
+
+    /**
+     * Returns all benchmarks.
+     */
+    public static List<Benchmark> createBenchmarks()
+    {
+        List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+        benchmarks.add(new ProtobufSerializerBenchmark(false));
+        benchmarks.add(new ProtobufSerializerBenchmark(true));
+        benchmarks.add(new LogRecordCrcBenchmark(1024));
+        benchmarks.add(new LogRecordCrcBenchmark(65536));
+        benchmarks.add(new LogFileBenchmark(false));
+        benchmarks.add(new LogFileBenchmark(true));
+        benchmarks.add(new DiskLogBenchmark(false));
+        benchmarks.add(new DiskLogBenchmark(true));
+        benchmarks.add(new ProtocolFramingBenchmark(false));
+        benchmarks.add(new ProtocolFramingBenchmark(true));
+        benchmarks.add(new RowsLogEventBenchmark());
+        benchmarks.add(new MySQLTransactionBufferBenchmark(5000));
+        benchmarks.add(new MySQLTransactionBufferBenchmark(20000));
+        benchmarks.add(new JdbcApplierBenchmark());
+        benchmarks.add(new PartitionerBenchmark("hash"));
+        benchmarks.add(new PartitionerBenchmark("round-robin"));
+        benchmarks.add(new PartitionerBenchmark("shard-list"));
+        benchmarks.add(new FilterChainBenchmark(false));
+        benchmarks.add(new FilterChainBenchmark(true));
+        return benchmarks;
+    }
+
+    public void setInclude(String regex)
+    {
+        this.include = Pattern.compile(regex);
+    }
+
+    public void setWarmupIterations(int warmupIterations)
+    {
+        this.warmupIterations = warmupIterations;
+    }
+
+    public void setIterations(int iterations)
+    {
+        this.iterations = iterations;
+    }
+
+    public void setIterationMillis(long iterationMillis)
+    {
+        this.iterationMillis = iterationMillis;
+    }
+
+    public void setOutputFile(File outputFile)
+    {
+        this.outputFile = outputFile;
+    }
+
+    /**
+     * Returns benchmarks whose names match the include pattern.
+     */
+    public List<Benchmark> selectBenchmarks()
+    {
+        List<Benchmark> selected = new ArrayList<Benchmark>();
+        for (Benchmark benchmark : createBenchmarks())
+        {
+            if (include == null || include.matcher(benchmark.getName()).find())
+                selected.add(benchmark);
+        }
+        return selected;
+    }
+
+    /**
+     * Runs the selected benchmarks, prints a summary and writes results to
+     * the output file.
+     *
+     * @return True if all benchmarks completed
+     */
+    public boolean runAll() throws Exception
+    {
+        List<BenchmarkResult> results = new ArrayList<BenchmarkResult>();
+        boolean succeeded = true;
+        for (Benchmark benchmark : selectBenchmarks())
+        {
+            println("# Benchmark: " + benchmark.getName());
+            try
+            {
+                results.add(run(benchmark));
+            }
+            catch (Exception e)
+            {
+                println("# Benchmark failed: " + benchmark.getName() + ": "
+                        + e);
+                e.printStackTrace();
+                succeeded = false;
+            }
+        }
+
+        printSummary(results);
+        writeJson(results);
+        return succeeded;
+    }
+
+    /**
+     * Runs a single benchmark.
+     */
+    public BenchmarkResult run(Benchmark benchmark) throws Exception
+    {
+        BenchmarkResult result = new BenchmarkResult(benchmark.getName(),
+                warmupIterations, iterationMillis);
+        benchmark.setUp();
+        try
+        {
+            for (int i = 1; i <= warmupIterations; i++)
+            {
+                double score = iterate(benchmark);
+                println(String.format("# Warmup Iteration %3d: %.3f %s", i,
+                        score, BenchmarkResult.SCORE_UNIT));
+            }
+            for (int i = 1; i <= iterations; i++)
+            {
+                double score = iterate(benchmark);
+                result.addScore(score);
+                println(String.format("Iteration %3d: %.3f %s", i, score,
+                        BenchmarkResult.SCORE_UNIT));
+            }
+        }
+        finally
+        {
+            benchmark.tearDown();
+        }
+        return result;
+    }
+
+    // Calls the benchmark until the iteration time is over and returns the
+    // throughput.
+    private double iterate(Benchmark benchmark) throws Exception
+    {
+        long ops = 0;
+        long iterationNanos = iterationMillis * 1000000;
+        long start = System.nanoTime();
+        long elapsed;
+        do
+        {
+            ops += benchmark.run();
+            elapsed = System.nanoTime() - start;
+        }
+        while (elapsed < iterationNanos);
+        sink = benchmark.drain();
+        return ops * 1000000000.0 / elapsed;
+    }
+
+    // Prints results in the same layout as JMH.
+    private void printSummary(List<BenchmarkResult> results)
+    {
+        int width = "Benchmark".length();
+        for (BenchmarkResult result : results)
+            width = Math.max(width, result.getName().length());
+        String format = "%-" + width + "s  %5s  %15s   %12s  %s";
+        println("");
+        println(String.format(format, "Benchmark", "Cnt", "Score", "Error",
+                "Units"));
+        for (BenchmarkResult result : results)
+        {
+            println(String.format(format, result.getName(),
+                    result.getScores().size(),
+                    String.format("%.3f", result.getScore()),
+                    String.format("+- %.3f", result.getScoreError()),
+                    BenchmarkResult.SCORE_UNIT));
+        }
+    }
+
+    // Writes results as a JSON array with one benchmark per line.
+    private void writeJson(List<BenchmarkResult> results) throws Exception
+    {
+        List<String> jvmArgs = ManagementFactory.getRuntimeMXBean()
+                .getInputArguments();
+        File dir = outputFile.getAbsoluteFile().getParentFile();
+        if (dir != null)
+            dir.mkdirs();
+        Writer writer = new OutputStreamWriter(new FileOutputStream(
+                outputFile), "UTF-8");
+        try
+        {
+            writer.write("[\n");
+            for (int i = 0; i < results.size(); i++)
+            {
+                if (i > 0)
+                    writer.write(",\n");
+                writer.write(JSONValue.toJSONString(results.get(i).toJson(
+                        jvmArgs)));
+            }
+            writer.write("\n]\n");
+        }
+        finally
+        {
+            writer.close();
+        }
+        println("Results written to " + outputFile.getAbsolutePath());
+    }
+
+    /**
+     * Main method to run benchmarks from the command line.
+     */
+    public static void main(String argv[])
+    {
+        BenchmarkRunner runner = new BenchmarkRunner();
+        boolean list = false;
+        try
+        {
+            ArgvIterator argvIterator = new ArgvIterator(argv);
+            String curArg = null;
+            while (argvIterator.hasNext())
+            {
+                curArg = argvIterator.next();
+                if ("-include".equals(curArg))
+                    runner.setInclude(argvIterator.next());
+                else if ("-wi".equals(curArg))
+                    runner.setWarmupIterations(Integer.parseInt(argvIterator
+                            .next()));
+                else if ("-i".equals(curArg))
+                    runner.setIterations(Integer.parseInt(argvIterator.next()));
+                else if ("-time".equals(curArg))
+                    runner.setIterationMillis(Long.parseLong(argvIterator
+                            .next()));
+                else if ("-out".equals(curArg))
+                    runner.setOutputFile(new File(argvIterator.next()));
+                else if ("-list".equals(curArg))
+                    list = true;
+                else if ("-help".equals(curArg))
+                {
+                    printHelp();
+                    System.exit(0);
+                }
+                else
+                {
+                    println("Unrecognized option: " + curArg);
+                    printHelp();
+                    System.exit(1);
+                }
+            }
+
+            if (list)
+            {
+                for (Benchmark benchmark : runner.selectBenchmarks())
+                    println(benchmark.getName());
+                System.exit(0);
+            }
+            System.exit(runner.runAll() ? 0 : 1);
+        }
+        catch (Throwable t)
+        {
+            println("Benchmark run failed: " + t);
+            t.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private static void printHelp()
+    {
+        println("Replicator Benchmarks");
+        println("Syntax: BenchmarkRunner [options]");
+        println("Options:");
+        println("  -include regex  - Run benchmarks whose names match regex");
+        println("  -wi n           - Warm-up iterations (default 3)");
+        println("  -i n            - Measurement iterations (default 5)");
+        println("  -time ms        - Duration of each iteration (default 1000)");
+        println("  -out file       - JSON result file (default build/bench/results.json)");
+        println("  -list           - List benchmarks and exit");
+        println("  -help           - Print this help");
+    }
+
+    private static void println(String msg)
+    {
+        System.out.println(msg);
+    }
+}
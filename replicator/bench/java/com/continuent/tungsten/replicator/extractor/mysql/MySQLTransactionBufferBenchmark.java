@@ -0,0 +1,93 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.extractor.mysql;
+
+import java.io.File;
+import java.util.ArrayList;
+
+import com.continuent.tungsten.common.cache.RawByteCache;
+import com.continuent.tungsten.replicator.bench.Benchmark;
+import com.continuent.tungsten.replicator.bench.BenchmarkEvents;
+import com.continuent.tungsten.replicator.dbms.DBMSData;
+
+/**
+ * Measures spilling a large transaction to the byte cache and reading it back
+ * as a single event, which is how the MySQL extractor buffers transactions
+ * above the buffer limit. Each entry is a rows event of 10 rows, and the cache
+ * keeps nothing in memory so that all spilled data go through storage.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @version 1.0
+ */
+public class MySQLTransactionBufferBenchmark extends Benchmark
+{
+    private static final int BUFFER_LIMIT = 1000;
+
+    private final int        entries;
+    private File             cacheDir;
+    private RawByteCache     cache;
+    private DBMSData         rowsEvent;
+
+    /**
+     * Creates a benchmark.
+     *
+     * @param entries Number of rows events in the transaction
+     */
+    public MySQLTransactionBufferBenchmark(int entries)
+    {
+        super("MySQLTransactionBufferBenchmark.spill_" + entries);
+        this.entries = entries;
+    }
+
+    public void setUp() throws Exception
+    {
+        rowsEvent = BenchmarkEvents.createRowEvent(0, "db0", 1, 10)
+                .getDBMSEvent().getData().get(0);
+        cacheDir = createWorkDir("transaction-buffer");
+        cache = new RawByteCache(cacheDir, 0, 0, 50);
+        cache.prepare();
+    }
+
+    public int run() throws Exception
+    {
+        MySQLTransactionBuffer buffer = new MySQLTransactionBuffer(cache,
+                BUFFER_LIMIT);
+        try
+        {
+            for (int i = 0; i < entries; i++)
+                buffer.add(rowsEvent);
+            ArrayList<DBMSData> data = buffer.readAll();
+            consume(data.size());
+            consume(data.get(data.size() - 1));
+        }
+        finally
+        {
+            buffer.release();
+        }
+        return entries;
+    }
+
+    public void tearDown() throws Exception
+    {
+        cache.release();
+        delete(cacheDir);
+    }
+}
@@ -0,0 +1,148 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+
+package com.continuent.tungsten.replicator.extractor.mysql;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.continuent.tungsten.replicator.bench.Benchmark;
+import com.continuent.tungsten.replicator.dbms.RowChangeData;
+import com.continuent.tungsten.replicator.extractor.mysql.conversion.LittleEndianConversion;
+
+/**
+ * Measures decoding of row events captured in a binlog fixture into row
+ * changes, which is the main cost of extracting row-based replication.
+ * Table map events are decoded once during setup.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @version 1.0
+ */
+public class RowsLogEventBenchmark extends Benchmark
+{
+    /** Binlog fixture with write, update and delete row events. */
+    public static final String            BINLOG      = "binlog_rbr_1.000001";
+
+    // Binlog files start with a 4-byte magic number.
+    private static final int              MAGIC_BYTES = 4;
+
+    private FormatDescriptionLogEvent     descriptionEvent;
+    private List<byte[]>                  rowsEvents;
+    private Map<Long, TableMapLogEvent>   tableMaps;
+
+    public RowsLogEventBenchmark()
+    {
+        super("RowsLogEventBenchmark.decode");
+    }
+
+    public void setUp() throws Exception
+    {
+        File file = getDataFile(BINLOG);
+        byte[] binlog = new byte[(int) file.length()];
+        DataInputStream in = new DataInputStream(new FileInputStream(file));
+        try
+        {
+            in.readFully(binlog);
+        }
+        finally
+        {
+            in.close();
+        }
+
+        // Split the binlog into events, keeping row events for the benchmark.
+        descriptionEvent = new FormatDescriptionLogEvent(4, 0);
+        rowsEvents = new ArrayList<byte[]>();
+        tableMaps = new HashMap<Long, TableMapLogEvent>();
+        int offset = MAGIC_BYTES;
+        while (offset + MysqlBinlog.EVENT_LEN_OFFSET + 4 <= binlog.length)
+        {
+            int length = (int) LittleEndianConversion.convert4BytesToLong(
+                    binlog, offset + MysqlBinlog.EVENT_LEN_OFFSET);
+            byte[] event = new byte[length];
+            System.arraycopy(binlog, offset, event, 0, length);
+            int type = event[MysqlBinlog.EVENT_TYPE_OFFSET];
+            String position = BINLOG + ":" + offset;
+            if (type == MysqlBinlog.FORMAT_DESCRIPTION_EVENT)
+            {
+                // As in the extractor, only the checksum algorithm is taken
+                // from the binlog.
+                FormatDescriptionLogEvent binlogDescription = new FormatDescriptionLogEvent(
+                        event, length, descriptionEvent, position);
+                descriptionEvent = new FormatDescriptionLogEvent(4,
+                        binlogDescription.getChecksumAlgo());
+            }
+            else if (type == MysqlBinlog.TABLE_MAP_EVENT)
+            {
+                TableMapLogEvent tableMap = new TableMapLogEvent(event,
+                        length, descriptionEvent, position);
+                tableMaps.put(tableMap.getTableId(), tableMap);
+            }
+            else if (decode(event) != null)
+            {
+                rowsEvents.add(event);
+            }
+            offset += length;
+        }
+        if (rowsEvents.isEmpty())
+            throw new Exception("No row events found in "
+                    + file.getAbsolutePath());
+    }
+
+    public int run() throws Exception
+    {
+        for (byte[] event : rowsEvents)
+        {
+            RowsLogEvent rowsEvent = decode(event);
+            RowChangeData rowChanges = new RowChangeData();
+            rowsEvent.processExtractedEvent(rowChanges,
+                    tableMaps.get(rowsEvent.getTableId()));
+            consume(rowChanges);
+        }
+        return rowsEvents.size();
+    }
+
+    // Decodes a row event or returns null if the event is of another type.
+    private RowsLogEvent decode(byte[] event) throws Exception
+    {
+        switch (event[MysqlBinlog.EVENT_TYPE_OFFSET])
+        {
+            case MysqlBinlog.WRITE_ROWS_EVENT :
+            case MysqlBinlog.NEW_WRITE_ROWS_EVENT :
+                return new WriteRowsLogEvent(event, event.length,
+                        descriptionEvent, false, null);
+            case MysqlBinlog.UPDATE_ROWS_EVENT :
+            case MysqlBinlog.NEW_UPDATE_ROWS_EVENT :
+                return new UpdateRowsLogEvent(event, event.length,
+                        descriptionEvent, false, null);
+            case MysqlBinlog.DELETE_ROWS_EVENT :
+            case MysqlBinlog.NEW_DELETE_ROWS_EVENT :
+                return new DeleteRowsLogEvent(event, event.length,
+                        descriptionEvent, false, null);
+            default :
+                return null;
+        }
+    }
+}
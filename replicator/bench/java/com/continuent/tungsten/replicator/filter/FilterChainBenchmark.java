@@ -0,0 +1,112 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+
+package com.continuent.tungsten.replicator.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.continuent.tungsten.replicator.bench.Benchmark;
+import com.continuent.tungsten.replicator.bench.BenchmarkEvents;
+import com.continuent.tungsten.replicator.event.ReplDBMSEvent;
+
+/**
+ * Measures passing row events through a chain of commonly used filters:
+ * replicate, database rename and update optimization. Filters may change
+ * events, so each invocation creates new events. The baseline variant creates
+ * the same events without filtering them and shows how much of the time goes
+ * to event creation.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @version 1.0
+ */
+public class FilterChainBenchmark extends Benchmark
+{
+    private static final int   EVENTS  = 10;
+    private static final int   ROWS    = 10;
+    private static final int   SHARDS  = 10;
+    private static final String SCHEMA = "tungsten_bench";
+
+    private final boolean      chain;
+    private List<Filter>       filters = new ArrayList<Filter>();
+    private long               seqno;
+
+    /**
+     * Creates a benchmark.
+     *
+     * @param chain If true, filter events, otherwise only create them
+     */
+    public FilterChainBenchmark(boolean chain)
+    {
+        super("FilterChainBenchmark." + (chain ? "chain" : "baseline"));
+        this.chain = chain;
+    }
+
+    public void setUp() throws Exception
+    {
+        if (chain)
+        {
+            ReplicateFilter replicate = new ReplicateFilter();
+            replicate.setTungstenSchema(SCHEMA);
+            replicate.setIgnore("db" + (SHARDS - 1) + ".*");
+            filters.add(replicate);
+
+            DatabaseTransformFilter rename = new DatabaseTransformFilter();
+            rename.setFromRegex1("db(.*)");
+            rename.setToRegex1("shard$1");
+            rename.setTransformTables(false);
+            filters.add(rename);
+
+            OptimizeUpdatesFilter optimize = new OptimizeUpdatesFilter();
+            optimize.setTungstenSchema(SCHEMA);
+            filters.add(optimize);
+        }
+
+        // Filters used here do not need a context once the schema is set.
+        for (Filter filter : filters)
+            filter.configure(null);
+        for (Filter filter : filters)
+            filter.prepare(null);
+    }
+
+    public int run() throws Exception
+    {
+        for (int i = 0; i < EVENTS; i++)
+        {
+            ReplDBMSEvent event = BenchmarkEvents.createRowEvent(seqno++, "db"
+                    + (i % SHARDS), i * ROWS, ROWS);
+            for (Filter filter : filters)
+            {
+                event = filter.filter(event);
+                if (event == null)
+                    break;
+            }
+            consume(event);
+        }
+        return EVENTS;
+    }
+
+    public void tearDown() throws Exception
+    {
+        for (Filter filter : filters)
+            filter.release(null);
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+
+package com.continuent.tungsten.replicator.storage.parallel;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+import com.continuent.tungsten.common.config.TungstenProperties;
+import com.continuent.tungsten.replicator.bench.Benchmark;
+import com.continuent.tungsten.replicator.bench.BenchmarkEvents;
+import com.continuent.tungsten.replicator.event.ReplDBMSEvent;
+
+/**
+ * Measures assignment of events to parallel apply partitions. Events are
+ * spread over a fixed set of shards, a few of which have explicit assignments
+ * in the shard list.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @version 1.0
+ */
+public class PartitionerBenchmark extends Benchmark
+{
+    private static final int   EVENTS     = 1000;
+    private static final int   SHARDS     = 50;
+    private static final int   PARTITIONS = 8;
+
+    private final String       method;
+    private Partitioner        partitioner;
+    private ReplDBMSEvent[]    events;
+
+    /**
+     * Creates a benchmark.
+     *
+     * @param method Partitioner to measure: "hash", "round-robin" or
+     *            "shard-list"
+     */
+    public PartitionerBenchmark(String method)
+    {
+        super("PartitionerBenchmark." + method);
+        this.method = method;
+    }
+
+    public void setUp() throws Exception
+    {
+        if ("hash".equals(method))
+            partitioner = new HashPartitioner();
+        else if ("round-robin".equals(method))
+            partitioner = new RoundRobinPartitioner();
+        else if ("shard-list".equals(method))
+        {
+            ShardListPartitioner shardList = new ShardListPartitioner();
+            shardList.setShardMap(createShardMap());
+            partitioner = shardList;
+        }
+        else
+            throw new IllegalArgumentException("Unknown partitioner: "
+                    + method);
+        partitioner.setPartitions(PARTITIONS);
+        partitioner.setContext(null);
+
+        events = new ReplDBMSEvent[EVENTS];
+        for (int i = 0; i < EVENTS; i++)
+        {
+            String shard = "db" + (i % SHARDS);
+            events[i] = BenchmarkEvents.createStatementEvent(i, shard,
+                    "INSERT INTO t1 VALUES (" + i + ")");
+        }
+    }
+
+    public int run() throws Exception
+    {
+        for (int i = 0; i < EVENTS; i++)
+            consume(partitioner.partition(events[i], 0).getPartition());
+        return EVENTS;
+    }
+
+    // Writes a shard list that assigns a few shards explicitly and hashes
+    // the rest.
+    private File createShardMap() throws Exception
+    {
+        TungstenProperties shardMap = new TungstenProperties();
+        for (int i = 0; i < 5; i++)
+            shardMap.setInt("db" + i, i % PARTITIONS);
+        shardMap.setInt("(*)", -1);
+        shardMap.setString("(critical)", "db0");
+
+        File file = new File(createWorkDir("PartitionerBenchmark"),
+                "shard.list");
+        FileOutputStream out = new FileOutputStream(file);
+        try
+        {
+            shardMap.store(out);
+        }
+        finally
+        {
+            out.close();
+        }
+        return file;
+    }
+}
@@ -0,0 +1,183 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+
+package com.continuent.tungsten.replicator.thl;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+
+import com.continuent.tungsten.replicator.bench.Benchmark;
+import com.continuent.tungsten.replicator.bench.BenchmarkEvents;
+import com.continuent.tungsten.replicator.event.ReplEvent;
+
+/**
+ * Compares the two framings of the THL protocol by sending batches of events
+ * through an in-memory stream and reading them back. Java framing writes
+ * serialized objects and resets the stream after each message, as the
+ * protocol does by default. Binary framing uses {@link ProtocolFrameCodec}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @version 1.0
+ */
+public class ProtocolFramingBenchmark extends Benchmark
+{
+    private static final int   BATCH = 10;
+
+    private final boolean      binary;
+    private ProtocolMessage    message;
+    private Loopback           loopback;
+    private ObjectOutputStream oos;
+    private ObjectInputStream  ois;
+    private DataOutputStream   dataOut;
+    private DataInputStream    dataIn;
+    private ProtocolFrameCodec writer;
+    private ProtocolFrameCodec reader;
+
+    /**
+     * Creates a benchmark.
+     *
+     * @param binary If true, use binary framing, otherwise Java framing
+     */
+    public ProtocolFramingBenchmark(boolean binary)
+    {
+        super("ProtocolFramingBenchmark." + (binary ? "binary" : "java"));
+        this.binary = binary;
+    }
+
+    public void setUp() throws Exception
+    {
+        ArrayList<ReplEvent> batch = new ArrayList<ReplEvent>();
+        for (int i = 0; i < BATCH; i++)
+            batch.add(BenchmarkEvents.createRowEvent(i, "db0", i * 10, 10));
+        message = new ProtocolMessage(batch);
+
+        loopback = new Loopback();
+        if (binary)
+        {
+            writer = new ProtocolFrameCodec();
+            reader = new ProtocolFrameCodec();
+            dataOut = new DataOutputStream(loopback);
+            dataIn = new DataInputStream(loopback.getInput());
+        }
+        else
+        {
+            oos = new ObjectOutputStream(loopback);
+            oos.flush();
+            ois = new ObjectInputStream(loopback.getInput());
+        }
+    }
+
+    public int run() throws Exception
+    {
+        if (binary)
+        {
+            writer.encode(message, dataOut);
+            dataOut.flush();
+            consume(reader.decode(dataIn.readByte(), dataIn));
+        }
+        else
+        {
+            oos.writeObject(message);
+            oos.flush();
+            oos.reset();
+            consume(ois.readObject());
+        }
+        return BATCH;
+    }
+
+    /**
+     * An in-memory stream whose input returns the bytes written to it. Each
+     * message is written completely before it is read, so reads never need
+     * to wait.
+     */
+    private static class Loopback extends OutputStream
+    {
+        private byte[] buffer = new byte[65536];
+        private int    readPos;
+        private int    writePos;
+
+        public void write(int b)
+        {
+            ensureCapacity(1);
+            buffer[writePos++] = (byte) b;
+        }
+
+        public void write(byte[] b, int off, int len)
+        {
+            ensureCapacity(len);
+            System.arraycopy(b, off, buffer, writePos, len);
+            writePos += len;
+        }
+
+        InputStream getInput()
+        {
+            return new InputStream()
+            {
+                public int read()
+                {
+                    if (readPos == writePos)
+                        return -1;
+                    return buffer[readPos++] & 0xff;
+                }
+
+                public int read(byte[] b, int off, int len)
+                {
+                    int available = writePos - readPos;
+                    if (available == 0)
+                        return -1;
+                    int count = Math.min(len, available);
+                    System.arraycopy(buffer, readPos, b, off, count);
+                    readPos += count;
+                    return count;
+                }
+
+                public int available()
+                {
+                    return writePos - readPos;
+                }
+            };
+        }
+
+        // Discards bytes that were read and grows the buffer if needed.
+        private void ensureCapacity(int len)
+        {
+            if (readPos > 0)
+            {
+                System.arraycopy(buffer, readPos, buffer, 0, writePos
+                        - readPos);
+                writePos -= readPos;
+                readPos = 0;
+            }
+            if (writePos + len > buffer.length)
+            {
+                byte[] larger = new byte[Math.max(buffer.length * 2, writePos
+                        + len)];
+                System.arraycopy(buffer, 0, larger, 0, writePos);
+                buffer = larger;
+            }
+        }
+    }
+}
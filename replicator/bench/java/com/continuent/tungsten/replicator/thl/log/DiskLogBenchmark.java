@@ -0,0 +1,144 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+
+package com.continuent.tungsten.replicator.thl.log;
+
+import java.io.File;
+
+import com.continuent.tungsten.replicator.bench.Benchmark;
+import com.continuent.tungsten.replicator.bench.BenchmarkEvents;
+import com.continuent.tungsten.replicator.event.DBMSEvent;
+import com.continuent.tungsten.replicator.event.ReplDBMSEvent;
+import com.continuent.tungsten.replicator.thl.THLEvent;
+
+/**
+ * Measures storing events in the disk log and reading them back through a
+ * log connection, which includes serialization, checksums and file rotation.
+ * Writes commit after each batch of events without fsync.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @version 1.0
+ */
+public class DiskLogBenchmark extends Benchmark
+{
+    private static final int BATCH      = 100;
+    private static final int EVENTS     = 20000;
+    private static final int MAX_EVENTS = 100000;
+
+    private final boolean    read;
+    private File             logDir;
+    private DiskLog          log;
+    private LogConnection    conn;
+    private DBMSEvent        dbmsEvent;
+    private long             seqno;
+
+    /**
+     * Creates a benchmark.
+     *
+     * @param read If true, measure reads, otherwise measure writes
+     */
+    public DiskLogBenchmark(boolean read)
+    {
+        super("DiskLogBenchmark." + (read ? "read" : "write"));
+        this.read = read;
+    }
+
+    public void setUp() throws Exception
+    {
+        dbmsEvent = BenchmarkEvents.createRowEvent(0, "db0", 1, 10)
+                .getDBMSEvent();
+        openLog();
+        if (read)
+        {
+            writeBatch(EVENTS);
+            conn.release();
+            conn = log.connect(true);
+            conn.seek(0);
+            seqno = 0;
+        }
+    }
+
+    public int run() throws Exception
+    {
+        if (read)
+        {
+            for (int i = 0; i < BATCH; i++)
+            {
+                if (seqno == EVENTS)
+                {
+                    // Start over at the first event.
+                    conn.seek(0);
+                    seqno = 0;
+                }
+                consume(conn.next());
+                seqno++;
+            }
+        }
+        else
+        {
+            if (seqno >= MAX_EVENTS)
+            {
+                // Start a new log to bound disk usage.
+                closeLog();
+                openLog();
+            }
+            writeBatch(BATCH);
+            consume(log.getMaxSeqno());
+        }
+        return BATCH;
+    }
+
+    public void tearDown() throws Exception
+    {
+        closeLog();
+    }
+
+    // Creates an empty log and a writable connection.
+    private void openLog() throws Exception
+    {
+        logDir = createWorkDir("DiskLogBenchmark");
+        log = new DiskLog();
+        log.setLogDir(logDir.getAbsolutePath());
+        log.setReadOnly(false);
+        log.prepare();
+        conn = log.connect(false);
+        seqno = 0;
+    }
+
+    private void closeLog() throws Exception
+    {
+        conn.release();
+        log.release();
+        delete(logDir);
+    }
+
+    // Stores events with consecutive sequence numbers and commits.
+    private void writeBatch(int count) throws Exception
+    {
+        for (int i = 0; i < count; i++)
+        {
+            ReplDBMSEvent event = new ReplDBMSEvent(seqno++, (short) 0, true,
+                    "bench", 0, dbmsEvent.getSourceTstamp(), dbmsEvent);
+            conn.store(new THLEvent(event.getEventId(), event), false);
+        }
+        conn.commit();
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+
+package com.continuent.tungsten.replicator.thl.log;
+
+import java.io.File;
+
+import com.continuent.tungsten.replicator.bench.Benchmark;
+import com.continuent.tungsten.replicator.bench.BenchmarkEvents;
+import com.continuent.tungsten.replicator.thl.THLEvent;
+import com.continuent.tungsten.replicator.thl.serializer.ProtobufSerializer;
+
+/**
+ * Measures writing and reading of serialized event records in a single log
+ * file, which isolates file I/O from the log index and connection logic.
+ * Writes flush after each batch of records without fsync.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @version 1.0
+ */
+public class LogFileBenchmark extends Benchmark
+{
+    private static final int  BATCH         = 100;
+    private static final int  RECORDS       = 20000;
+    private static final long MAX_FILE_SIZE = 256L * 1024 * 1024;
+
+    private final boolean     read;
+    private File              file;
+    private LogFile           logFile;
+    private LogRecord         record;
+
+    /**
+     * Creates a benchmark.
+     *
+     * @param read If true, measure reads, otherwise measure writes
+     */
+    public LogFileBenchmark(boolean read)
+    {
+        super("LogFileBenchmark." + (read ? "read" : "write"));
+        this.read = read;
+    }
+
+    public void setUp() throws Exception
+    {
+        File dir = createWorkDir("LogFileBenchmark");
+        file = new File(dir, "thl.data.0000000001");
+        THLEvent event = BenchmarkEvents.createTHLEvent(BenchmarkEvents
+                .createRowEvent(1, "db0", 1, 10));
+        record = new LogEventReplWriter(event, new ProtobufSerializer(), true,
+                null).write();
+
+        logFile = new LogFile(file);
+        logFile.create(0);
+        if (read)
+        {
+            for (int i = 0; i < RECORDS; i++)
+                logFile.writeRecord(record, 0);
+            logFile.flush();
+            logFile.close();
+            logFile = new LogFile(file);
+            logFile.openRead();
+        }
+    }
+
+    public int run() throws Exception
+    {
+        if (read)
+        {
+            for (int i = 0; i < BATCH; i++)
+            {
+                LogRecord next = logFile.readRecord(0);
+                if (next.isEmpty())
+                {
+                    // Start over at the first record.
+                    logFile.seekOffset(LogFile.HEADER_LENGTH);
+                    next = logFile.readRecord(0);
+                }
+                consume(next.getRecordLength());
+            }
+        }
+        else
+        {
+            if (logFile.getOffset() > MAX_FILE_SIZE)
+            {
+                // Start a new file to bound disk usage.
+                logFile.close();
+                file.delete();
+                logFile = new LogFile(file);
+                logFile.create(0);
+            }
+            for (int i = 0; i < BATCH; i++)
+                logFile.writeRecord(record, 0);
+            logFile.flush();
+            consume(logFile.getOffset());
+        }
+        return BATCH;
+    }
+
+    public void tearDown() throws Exception
+    {
+        logFile.close();
+        delete(file.getParentFile());
+    }
+}
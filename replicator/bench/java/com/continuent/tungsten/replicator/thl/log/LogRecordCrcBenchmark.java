@@ -0,0 +1,61 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+
+package com.continuent.tungsten.replicator.thl.log;
+
+import java.util.Random;
+
+import com.continuent.tungsten.replicator.bench.Benchmark;
+
+/**
+ * Measures computation of the CRC-32 checksum that protects each log record.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @version 1.0
+ */
+public class LogRecordCrcBenchmark extends Benchmark
+{
+    private final int size;
+    private byte[]    bytes;
+
+    /**
+     * Creates a benchmark.
+     *
+     * @param size Size of the record data in bytes
+     */
+    public LogRecordCrcBenchmark(int size)
+    {
+        super("LogRecordCrcBenchmark.crc32_" + size);
+        this.size = size;
+    }
+
+    public void setUp() throws Exception
+    {
+        bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+    }
+
+    public int run() throws Exception
+    {
+        consume(LogRecord.computeCrc32(bytes));
+        return 1;
+    }
+}
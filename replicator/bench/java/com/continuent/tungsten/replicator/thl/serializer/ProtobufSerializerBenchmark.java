@@ -0,0 +1,81 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+
+package com.continuent.tungsten.replicator.thl.serializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import com.continuent.tungsten.replicator.bench.Benchmark;
+import com.continuent.tungsten.replicator.bench.BenchmarkEvents;
+import com.continuent.tungsten.replicator.event.ReplDBMSEvent;
+import com.continuent.tungsten.replicator.thl.THLEvent;
+
+/**
+ * Measures a round trip of an event through the protobuf serializer, which
+ * is done for every event written to or read from the log.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @version 1.0
+ */
+public class ProtobufSerializerBenchmark extends Benchmark
+{
+    private final boolean         rows;
+    private ProtobufSerializer    serializer;
+    private THLEvent              event;
+    private ByteArrayOutputStream bytes;
+
+    /**
+     * Creates a benchmark.
+     *
+     * @param rows If true, use an event with ten row inserts, otherwise an
+     *            event with a single statement
+     */
+    public ProtobufSerializerBenchmark(boolean rows)
+    {
+        super("ProtobufSerializerBenchmark.roundTrip"
+                + (rows ? "Rows" : "Statement"));
+        this.rows = rows;
+    }
+
+    public void setUp() throws Exception
+    {
+        serializer = new ProtobufSerializer();
+        ReplDBMSEvent replEvent;
+        if (rows)
+            replEvent = BenchmarkEvents.createRowEvent(1, "db0", 1, 10);
+        else
+            replEvent = BenchmarkEvents.createStatementEvent(1, "db0",
+                    "UPDATE sbtest SET k=k+1 WHERE id=4271");
+        event = BenchmarkEvents.createTHLEvent(replEvent);
+        bytes = new ByteArrayOutputStream(16384);
+    }
+
+    public int run() throws Exception
+    {
+        bytes.reset();
+        serializer.serializeEvent(event, bytes);
+        THLEvent copy = serializer.deserializeEvent(new ByteArrayInputStream(
+                bytes.toByteArray()));
+        consume(copy);
+        return 1;
+    }
+}
@@ -10,3 +10,13 @@ replicator.applier.dbms.optimizeRowEvents=@{REPL_SVC_APPLIER_OPTIMIZE_ROW_EVENTS
 # This option should only be enabled for upgrades if there is a chance of 
 # processing an older replicator log. 
 replicator.applier.dbms.supportNonTzAwareMode=false
+
+# Primary key chunk size used to track rows changed since the last consistency
+# check, so that 'datascan -recently-changed' only re-hashes those chunks. Must
+# match the -chunk option of datascan. 0 disables tracking.  Row changes mark
+# the chunks of the changed keys.  Statement-based DML marks all chunks of the
+# tables it touches and statements that cannot be mapped to tables, such as
+# procedure calls, mark all chunks.  Only changes applied by a JDBC applier
+# with tracking enabled are seen; do not use -recently-changed if the slave
+# tables are also changed by other appliers or directly by clients.
+replicator.applier.dbms.consistencyChunkSize=0
@@ -9,4 +9,9 @@ replicator.backup.agent.pg_dump.pgdumpOptions=-Fc
 replicator.backup.agent.pg_dump.pgrestoreOptions=-Fc
 replicator.backup.agent.pg_dump.ignoreDatabaseList=postgres template0 template1
 replicator.backup.agent.pg_dump.databaseToConnect=template1
-replicator.backup.agent.pg_dump.hotBackupEnabled=true
\ No newline at end of file
+replicator.backup.agent.pg_dump.hotBackupEnabled=true
+# Set to true to stream pg_dump output directly into storage instead of
+# writing a temporary dump file that is then copied.
+replicator.backup.agent.pg_dump.streamingEnabled=false
+# Number of databases restored at once.
+replicator.backup.agent.pg_dump.restoreThreads=1
\ No newline at end of file
@@ -22,6 +22,46 @@ replicator.extractor.dbms.usingBytesForString=@{REPL_MYSQL_USE_BYTES_FOR_STRING}
 # will occur.  1M bytes is a good size for most installations.
 replicator.extractor.dbms.transaction_frag_size=1000000
 
+# Number of rows events and statements per transaction to hold as Java
+# objects when transactions are not fragmented (transaction_frag_size=0).
+# Above this number transactions spill to a byte array cache in storage and
+# are read back into a single event at commit.  0 disables spilling.
+# Spilling alone does not bound heap use: the whole transaction is loaded
+# back onto the heap at commit unless fragmentSpilledTransactions=true.
+replicator.extractor.dbms.transactionBufferLimit=10000
+
+# If true, transactions that spilled to the byte cache are returned in
+# fragments of at most transactionBufferLimit entries rather than as a
+# single event.  This is the only way to keep very large transactions off
+# the heap, but they arrive fragmented even though transaction_frag_size=0.
+replicator.extractor.dbms.fragmentSpilledTransactions=false
+
+# Location of cache used to buffer large transactions.  The required storage
+# space is potentially in the range of multiple gigabytes.
+replicator.extractor.dbms.cacheDir=@{HOME_DIRECTORY}/tmp/@{SERVICE.DEPLOYMENT_SERVICE}/bytecache-mysql
+
+# Number of bytes to read ahead of the extractor on a background thread.
+# This helps when catching up on old binlogs stored on slow or network
+# storage.  When a binlog has been rotated, the head of the next binlog is
+# read as well.  0 disables read-ahead.
+replicator.extractor.dbms.readAheadSize=0
+
+# Number of threads used to extract completed binlogs in parallel when the
+# extractor is more than one binlog behind, for example when provisioning
+# from archived binlogs.  Transactions are still returned in binlog order.
+# 0 or 1 disables parallel extraction.  Not used with relay logs.
+replicator.extractor.dbms.catchUpThreads=0
+
+# Maximum number of extracted transactions buffered per binlog file during
+# parallel catch-up.  At most catchUpThreads files are in flight, so up to
+# catchUpThreads * catchUpBufferSize transactions are held in memory.
+replicator.extractor.dbms.catchUpBufferSize=100
+
+# If true, row changes on tables that are dropped by the first filters in
+# the extraction stage (for example the replicate filter) are not decoded.
+# Transactions that only touch dropped tables are extracted as empty events.
+replicator.extractor.dbms.projectionPushdown=false
+
 # When using relay logs we download from the master into binlog_dir.  This
 # is used for off-board replication.
 replicator.extractor.dbms.useRelayLogs=@{EXTRACTOR.REPL_DISABLE_RELAY_LOGS}
@@ -51,6 +91,13 @@ replicator.extractor.dbms.relayLogRetention=10
 # same server ID. 
 replicator.extractor.dbms.serverId=@{REPL_MYSQL_SERVER_ID}
 
+# Directory where table metadata history is kept.  Table definitions are
+# recorded by binlog position so that after a restart or during catch-up the
+# extractor uses the definition in effect at the position being read rather
+# than querying the database.  If unset, history is kept in memory only.
+#replicator.extractor.dbms.schemaHistoryDir=
+replicator.extractor.dbms.schemaHistoryMaxVersions=10
+
 # Reading from binlog will block until everything expected was read or 
 # throw an exception when this timeout is reached
 # This defines the timeout in seconds
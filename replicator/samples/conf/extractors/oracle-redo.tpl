@@ -19,6 +19,16 @@ replicator.extractor.dbms.transactionFragSize=@{REPL_ORACLE_REDO_MINER_TRANSACTI
 # remain as Java objects.  
 replicator.extractor.dbms.lcrBufferLimit=10000
 
+# Number of threads that convert committed transactions to row changes.
+# The plog reader keeps reading LCRs and tracking open transactions while
+# transactions are converted in parallel, and events are still posted in
+# commit order. Values below 2 convert transactions on the reader thread. 
+replicator.extractor.dbms.parseThreads=0
+
+# Number of converted events (transaction fragments) to buffer per 
+# transaction when converting on several threads. 
+replicator.extractor.dbms.parseBufferSize=10
+
 # Location of cache used to buffer large Oracle transactions while waiting for
 # a commit in order to serialize. The required storage space is potentially 
 # in the range of multiple gigabytes
@@ -90,6 +90,22 @@ replicator.storage.agent.fs.directory=@{SERVICE.REPL_BACKUP_STORAGE_DIR}
 replicator.storage.agent.fs.retention=@{REPL_BACKUP_RETENTION}
 replicator.storage.agent.fs.crcCheckingEnabled=true
 
+# Backup agents with streamingEnabled=true write directly into the storage
+# directory as gzip files.  Data are compressed in blocks of
+# compressionBlockSize bytes on compressionThreads threads, which also
+# decompress them on restore.  Block CRCs are checked while restoring, so
+# compressed files skip the separate CRC pass.  compressionLevel ranges from 1
+# (fastest) to 9 (smallest).
+replicator.storage.agent.fs.compressionThreads=4
+replicator.storage.agent.fs.compressionLevel=6
+replicator.storage.agent.fs.compressionBlockSize=1048576
+
+# Other backup files are stored with the CRC of each chunk of chunkSize bytes.
+# With CRC checking, restore reads and checks chunks on restoreThreads threads
+# and starts loading as soon as the first chunk is verified.
+replicator.storage.agent.fs.chunkSize=4194304
+replicator.storage.agent.fs.restoreThreads=4
+
 ###########################
 # OPEN REPLICATOR PLUGINS #
 ###########################
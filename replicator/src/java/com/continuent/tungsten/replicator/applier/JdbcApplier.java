@@ -44,6 +44,7 @@ import com.continuent.tungsten.replicator.conf.FailurePolicy;
 import com.continuent.tungsten.replicator.conf.ReplicatorRuntime;
 import com.continuent.tungsten.replicator.consistency.ConsistencyCheck;
 import com.continuent.tungsten.replicator.consistency.ConsistencyCheckFactory;
+import com.continuent.tungsten.replicator.consistency.ConsistencyChunkTracker;
 import com.continuent.tungsten.replicator.consistency.ConsistencyException;
 import com.continuent.tungsten.replicator.consistency.ConsistencyTable;
 import com.continuent.tungsten.replicator.database.Column;
@@ -99,6 +100,11 @@ public class JdbcApplier implements RawApplier
     protected Statement statement            = null;
     protected Pattern   ignoreSessionPattern = null;
 
+    // Tracks PK chunks touched by row changes for incremental consistency
+    // checks. Disabled if the chunk size is 0.
+    protected int                     consistencyChunkSize = 0;
+    protected ConsistencyChunkTracker chunkTracker         = null;
+
     protected Database            conn                = null;
     protected CommitSeqno         commitSeqno         = null;
     protected CommitSeqnoAccessor commitSeqnoAccessor = null;
@@ -213,6 +219,18 @@ public class JdbcApplier implements RawApplier
         this.getColumnInformationFromDB = getColumnInformationFromDB;
     }
 
+    /**
+     * Sets the PK chunk size used to track rows changed since the last
+     * consistency check. Must match the chunk size of incremental checks. 0
+     * disables tracking. Row changes mark the chunks of the changed keys;
+     * statements mark all chunks of the tables they touch. Only changes
+     * applied by this applier are tracked.
+     */
+    public void setConsistencyChunkSize(int consistencyChunkSize)
+    {
+        this.consistencyChunkSize = consistencyChunkSize;
+    }
+
     /**
      * Trim whitespace. Needed, because of different DBMS policies on returning
      * trailing whitespace from char(x) fields (PostgreSQL) or not (MySQL).
@@ -585,6 +603,15 @@ public class JdbcApplier implements RawApplier
         logger.warn("No applier for rowid data specified");
     }
 
+    // Returns the text of a statement.
+    private String getQuery(StatementData data)
+    {
+        String query = data.getQuery();
+        if (query == null)
+            query = new String(data.getQueryAsBytes());
+        return query;
+    }
+
     protected void applyStatementData(StatementData data)
             throws ReplicatorException
     {
@@ -1362,6 +1389,22 @@ public class JdbcApplier implements RawApplier
         for (OneRowChange row : data.getRowChanges())
         {
             applyOneRowChangePrepared(row, sourceDbmsType);
+            if (chunkTracker != null
+                    && !metadataSchema.equals(row.getSchemaName()))
+            {
+                try
+                {
+                    chunkTracker.record(row, getTableMetadata(row));
+                }
+                catch (SQLException e)
+                {
+                    throw new ApplierException(
+                            "Unable to track consistency chunks of table "
+                                    + row.getSchemaName() + "."
+                                    + row.getTableName(),
+                            e);
+                }
+            }
         }
     }
 
@@ -1483,6 +1526,10 @@ public class JdbcApplier implements RawApplier
                     {
                         LoadDataFileQuery fileQuery = (LoadDataFileQuery) dataElem;
                         applyLoadFile(fileQuery);
+                        if (chunkTracker != null)
+                            chunkTracker.record(
+                                    sqlMatcher.match(getQuery(fileQuery)),
+                                    fileQuery.getDefaultSchema());
                     }
                     else if (dataElem instanceof LoadDataFileDelete)
                     {
@@ -1495,11 +1542,15 @@ public class JdbcApplier implements RawApplier
                         applyStatementData(sdata);
 
                         // Check for table metadata cache invalidation.
-                        String query = sdata.getQuery();
-                        if (query == null)
-                            query = new String(sdata.getQueryAsBytes());
+                        String query = getQuery(sdata);
                         SqlOperation sqlOperation = sqlMatcher.match(query);
 
+                        // Statements do not tell us which rows changed, so
+                        // all chunks of the tables they touch become stale.
+                        if (chunkTracker != null)
+                            chunkTracker.record(sqlOperation,
+                                    sdata.getDefaultSchema());
+
                         int invalidated = tableMetadataCache.invalidate(
                                 sqlOperation, sdata.getDefaultSchema());
                         if (invalidated > 0)
@@ -1651,6 +1702,8 @@ public class JdbcApplier implements RawApplier
                 appliedLatency = 0;
 
             updateCommitSeqno(lastProcessedEvent, appliedLatency);
+            if (chunkTracker != null)
+                chunkTracker.flush(conn);
             commitTransaction();
             transactionStarted = false;
         }
@@ -1671,6 +1724,8 @@ public class JdbcApplier implements RawApplier
         try
         {
             releasePendingBatch();
+            if (chunkTracker != null)
+                chunkTracker.clear();
             rollbackTransaction();
         }
         catch (SQLException e)
@@ -1976,6 +2031,13 @@ public class JdbcApplier implements RawApplier
         metadataSchema = context.getReplicatorSchemaName();
         consistencyTable = metadataSchema + "." + ConsistencyTable.TABLE_NAME;
         consistencySelect = "SELECT * FROM " + consistencyTable + " ";
+        if (consistencyChunkSize > 0)
+        {
+            chunkTracker = new ConsistencyChunkTracker(metadataSchema,
+                    consistencyChunkSize);
+            logger.info("Tracking changed consistency check chunks: chunkSize="
+                    + consistencyChunkSize);
+        }
         fileTable = new Hashtable<Integer, File>();
         if (ignoreSessionVars != null)
         {
@@ -2013,6 +2075,13 @@ public class JdbcApplier implements RawApplier
             tableMetadataCache.invalidateAll();
             tableMetadataCache = null;
         }
+
+        if (chunkTracker != null)
+        {
+            logger.info("Consistency chunk tracking statistics: "
+                    + chunkTracker);
+            chunkTracker = null;
+        }
     }
 
     protected void applyVariables(Long timestamp, List<ReplOption> options)
@@ -30,8 +30,10 @@ import java.sql.Statement;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -116,6 +118,17 @@ public class JdbcPrefetcher implements RawApplier
 
     // Statistics.
     protected long                    eventCount           = 0;
+    private long                      rowCount             = 0;
+    private long                      batchQueryCount      = 0;
+    private long                      singleQueryCount     = 0;
+    private long                      totalLatencyMillis   = 0;
+    private long                      lastLatencyMillis    = 0;
+
+    // Maximum number of rows looked up by a single query. Key values of an
+    // event are grouped by table and key until the batch is full or the
+    // event ends.
+    protected int                     batchSize            = 100;
+    private Map<String, PrefetchKeyBatch> pendingBatches   = new LinkedHashMap<String, PrefetchKeyBatch>();
 
     /**
      * Maximum length of SQL string to log in case of an error. This is needed
@@ -172,6 +185,15 @@ public class JdbcPrefetcher implements RawApplier
         this.ignoreSessionVars = ignoreSessionVars;
     }
 
+    /**
+     * Sets the maximum number of rows looked up by a single prefetch query. A
+     * value of 1 or less prefetches rows one at a time.
+     */
+    public void setBatchSize(int batchSize)
+    {
+        this.batchSize = batchSize;
+    }
+
     enum PrintMode
     {
         ASSIGNMENT, NAMES_ONLY, VALUES_ONLY, PLACE_HOLDER
@@ -831,6 +853,13 @@ public class JdbcPrefetcher implements RawApplier
                 return;
             }
 
+            // Add rows to key batches unless batching is disabled.
+            if (batchSize > 1)
+            {
+                batchRowChange(oneRowChange);
+                return;
+            }
+
             StringBuffer stmt = null;
 
             ArrayList<OneRowChange.ColumnSpec> key = oneRowChange.getKeySpec();
@@ -916,6 +945,168 @@ public class JdbcPrefetcher implements RawApplier
         }
     }
 
+    /**
+     * Adds the keys of rows in a change to the batch for its table and key,
+     * executing the batch whenever it is full. Rows with null key values are
+     * prefetched individually.
+     */
+    private void batchRowChange(OneRowChange oneRowChange)
+            throws ReplicatorException
+    {
+        ArrayList<OneRowChange.ColumnSpec> key = oneRowChange.getKeySpec();
+        if (key.isEmpty())
+            return;
+
+        String batchName = PrefetchKeyBatch.batchName(oneRowChange);
+        for (ArrayList<OneRowChange.ColumnVal> keyValues : oneRowChange
+                .getKeyValues())
+        {
+            if (!PrefetchKeyBatch.isBatchable(keyValues))
+            {
+                prefetchSingleRow(oneRowChange, keyValues);
+                continue;
+            }
+
+            PrefetchKeyBatch batch = pendingBatches.get(batchName);
+            if (batch == null)
+            {
+                batch = new PrefetchKeyBatch(oneRowChange.getSchemaName(),
+                        oneRowChange.getTableName(), key);
+                pendingBatches.put(batchName, batch);
+            }
+            batch.add(keyValues);
+            if (batch.size() >= batchSize)
+                executeBatch(batch);
+        }
+    }
+
+    /**
+     * Executes all pending key batches. This is called at the end of each
+     * event.
+     */
+    private void flushBatches() throws ReplicatorException
+    {
+        try
+        {
+            for (PrefetchKeyBatch batch : pendingBatches.values())
+            {
+                if (batch.size() > 0)
+                    executeBatch(batch);
+            }
+        }
+        finally
+        {
+            pendingBatches.clear();
+        }
+    }
+
+    /**
+     * Looks up all rows of a batch with a single query and empties the batch.
+     */
+    private void executeBatch(PrefetchKeyBatch batch)
+            throws ReplicatorException
+    {
+        String query = batch.buildSelectQuery(conn);
+        PreparedStatement prepStatement = null;
+        ResultSet rs = null;
+        try
+        {
+            prepStatement = conn.prepareStatement(query);
+            int bindLoc = 1;
+            for (ArrayList<OneRowChange.ColumnVal> keyValues : batch.getRows())
+            {
+                bindLoc = bindValues(prepStatement, keyValues, bindLoc,
+                        batch.getKeySpec(), true);
+            }
+            rs = prepStatement.executeQuery();
+            batchQueryCount++;
+            rowCount += batch.size();
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Prefetched key batch: table="
+                        + batch.getTableName() + " rows=" + batch.size());
+            }
+        }
+        catch (SQLWarning e)
+        {
+            logger.warn("While prefetching key batch:\n" + query
+                    + "\nWarning: " + e.getMessage());
+        }
+        catch (SQLException e)
+        {
+            ApplierException applierException = new ApplierException(e);
+            String log = "Failing statement : " + query;
+            if (log.length() > maxSQLLogLength)
+                log = log.substring(0, maxSQLLogLength);
+            applierException.setExtraData(log);
+            throw applierException;
+        }
+        finally
+        {
+            batch.clear();
+            close(rs, prepStatement);
+        }
+    }
+
+    /**
+     * Looks up a single row, which is used for keys with null values.
+     */
+    private void prefetchSingleRow(OneRowChange oneRowChange,
+            ArrayList<OneRowChange.ColumnVal> keyValues)
+            throws ReplicatorException
+    {
+        ArrayList<OneRowChange.ColumnSpec> key = oneRowChange.getKeySpec();
+        StringBuffer stmt = buildSelectQuery(oneRowChange.getSchemaName(),
+                oneRowChange.getTableName(), key, keyValues);
+        PreparedStatement prepStatement = null;
+        ResultSet rs = null;
+        try
+        {
+            prepStatement = conn.prepareStatement(stmt.toString());
+            bindValues(prepStatement, keyValues, 1, key, true);
+            rs = prepStatement.executeQuery();
+            singleQueryCount++;
+            rowCount++;
+        }
+        catch (SQLWarning e)
+        {
+            logger.warn("While prefetching row:\n" + stmt.toString()
+                    + "\nWarning: " + e.getMessage());
+        }
+        catch (SQLException e)
+        {
+            ApplierException applierException = new ApplierException(e);
+            applierException.setExtraData(logFailedRowChangeSQL(stmt,
+                    oneRowChange));
+            throw applierException;
+        }
+        finally
+        {
+            close(rs, prepStatement);
+        }
+    }
+
+    // Closes a result set and statement, ignoring errors.
+    private void close(ResultSet rs, PreparedStatement prepStatement)
+    {
+        try
+        {
+            if (rs != null)
+                rs.close();
+        }
+        catch (SQLException ignore)
+        {
+        }
+        try
+        {
+            if (prepStatement != null)
+                prepStatement.close();
+        }
+        catch (SQLException ignore)
+        {
+        }
+    }
+
     /**
      * Logs prepared statement and it's arguments into error log stream. Trims
      * the message if it exceeds maxSQLLogLength.
@@ -1105,14 +1296,28 @@ public class JdbcPrefetcher implements RawApplier
                         applyRowIdData((RowIdData) dataElem);
                     }
                 }
+
+                // Look up keys still pending for this event.
+                flushBatches();
             }
         }
         catch (ReplicatorException e)
         {
+            pendingBatches.clear();
             logger.warn("Failed to prefetch event " + header.getSeqno()
                     + "... Skipping", e);
         }
 
+        // Track how far behind the master we are when we prefetch. The
+        // applier lags by its own latency, so the difference is how far ahead
+        // of it prefetching runs.
+        if (header.getExtractedTstamp() != null)
+        {
+            lastLatencyMillis = System.currentTimeMillis()
+                    - header.getExtractedTstamp().getTime();
+            totalLatencyMillis += lastLatencyMillis;
+        }
+
         // Update the last processed
         lastProcessedEvent = header;
 
@@ -1184,6 +1389,10 @@ public class JdbcPrefetcher implements RawApplier
             // Create table metadata cache.
             tableMetadataCache = new TableMetadataCache(5000);
             eventCount = 0;
+            rowCount = 0;
+            batchQueryCount = 0;
+            singleQueryCount = 0;
+            totalLatencyMillis = 0;
         }
         catch (SQLException e)
         {
@@ -1223,6 +1432,20 @@ public class JdbcPrefetcher implements RawApplier
 
         currentOptions = null;
 
+        // Report prefetch statistics.
+        if (eventCount > 0)
+        {
+            logger.info("Prefetch statistics: events=" + eventCount + " rows="
+                    + rowCount + " batchQueries=" + batchQueryCount
+                    + " singleQueries=" + singleQueryCount + " batchSize="
+                    + batchSize + " avgPrefetchLatency="
+                    + String.format("%.3f", totalLatencyMillis / 1000.0
+                            / eventCount)
+                    + " lastPrefetchLatency="
+                    + String.format("%.3f", lastLatencyMillis / 1000.0));
+        }
+        pendingBatches.clear();
+
         statement = null;
         if (conn != null)
         {
@@ -0,0 +1,176 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.applier;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.continuent.tungsten.replicator.database.Database;
+import com.continuent.tungsten.replicator.dbms.OneRowChange;
+import com.continuent.tungsten.replicator.dbms.OneRowChange.ColumnSpec;
+import com.continuent.tungsten.replicator.dbms.OneRowChange.ColumnVal;
+
+/**
+ * Collects key values of rows touched in one table so that they can be
+ * prefetched with a single query. A single column key is looked up with an IN
+ * list and a multi-column key with a disjunction of equality conditions, both
+ * of which resolve to range scans on the key index. Rows with null key values
+ * cannot be matched this way and must be prefetched individually.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+class PrefetchKeyBatch
+{
+    private final String                      schemaName;
+    private final String                      tableName;
+    private final ArrayList<ColumnSpec>       keySpec;
+    private final List<ArrayList<ColumnVal>> rows = new ArrayList<ArrayList<ColumnVal>>();
+
+    /**
+     * Creates a new batch.
+     *
+     * @param schemaName Schema of the table
+     * @param tableName Table name
+     * @param keySpec Key columns, whose names must be filled in
+     */
+    PrefetchKeyBatch(String schemaName, String tableName,
+            ArrayList<ColumnSpec> keySpec)
+    {
+        this.schemaName = schemaName;
+        this.tableName = tableName;
+        this.keySpec = keySpec;
+    }
+
+    /**
+     * Returns the name under which rows of a change are batched. Changes with
+     * the same table and key columns share a batch.
+     */
+    static String batchName(OneRowChange change)
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append(change.getSchemaName()).append(".")
+                .append(change.getTableName());
+        for (ColumnSpec col : change.getKeySpec())
+            sb.append(":").append(col.getIndex());
+        return sb.toString();
+    }
+
+    /**
+     * Returns true if the key values can be added to a batch, which requires
+     * that none is null.
+     */
+    static boolean isBatchable(ArrayList<ColumnVal> keyValues)
+    {
+        for (ColumnVal value : keyValues)
+        {
+            if (value.getValue() == null)
+                return false;
+        }
+        return true;
+    }
+
+    /** Adds the key values of a row. */
+    void add(ArrayList<ColumnVal> keyValues)
+    {
+        rows.add(keyValues);
+    }
+
+    /** Returns the number of rows in the batch. */
+    int size()
+    {
+        return rows.size();
+    }
+
+    /** Returns the key specification. */
+    ArrayList<ColumnSpec> getKeySpec()
+    {
+        return keySpec;
+    }
+
+    /** Returns key values of rows in the order in which they were added. */
+    List<ArrayList<ColumnVal>> getRows()
+    {
+        return rows;
+    }
+
+    /** Returns the qualified table name. */
+    String getTableName()
+    {
+        return schemaName + "." + tableName;
+    }
+
+    /**
+     * Builds the lookup query for the rows in the batch. Values are bound in
+     * row order and, within a row, in key order.
+     *
+     * @param conn Database used to quote names and generate placeholders
+     */
+    String buildSelectQuery(Database conn)
+    {
+        StringBuffer stmt = new StringBuffer();
+        stmt.append("SELECT * FROM ");
+        stmt.append(conn.getDatabaseObjectName(schemaName) + "."
+                + conn.getDatabaseObjectName(tableName));
+        stmt.append(" WHERE ");
+
+        if (keySpec.size() == 1)
+        {
+            ColumnSpec col = keySpec.get(0);
+            stmt.append(conn.getDatabaseObjectName(col.getName()));
+            stmt.append(" IN (");
+            for (int row = 0; row < rows.size(); row++)
+            {
+                if (row > 0)
+                    stmt.append(",");
+                stmt.append(conn.getPlaceHolder(col, rows.get(row).get(0)
+                        .getValue(), col.getTypeDescription()));
+            }
+            stmt.append(")");
+        }
+        else
+        {
+            for (int row = 0; row < rows.size(); row++)
+            {
+                if (row > 0)
+                    stmt.append(" OR ");
+                stmt.append("(");
+                for (int i = 0; i < keySpec.size(); i++)
+                {
+                    ColumnSpec col = keySpec.get(i);
+                    if (i > 0)
+                        stmt.append(" AND ");
+                    stmt.append(conn.getDatabaseObjectName(col.getName()));
+                    stmt.append(" = ");
+                    stmt.append(conn.getPlaceHolder(col, rows.get(row).get(i)
+                            .getValue(), col.getTypeDescription()));
+                }
+                stmt.append(")");
+            }
+        }
+        return stmt.toString();
+    }
+
+    /** Removes all rows from the batch. */
+    void clear()
+    {
+        rows.clear();
+    }
+}
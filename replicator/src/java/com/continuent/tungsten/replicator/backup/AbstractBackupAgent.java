@@ -21,6 +21,13 @@
 package com.continuent.tungsten.replicator.backup;
 
 import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.log4j.Logger;
 
@@ -40,6 +47,24 @@ public abstract class AbstractBackupAgent implements BackupAgent
     protected ProcessHelper      processHelper;
     protected boolean            restoreCompleted;
     protected BackupCapabilities capabilities;
+    protected int                restoreThreads = 1;
+
+    /**
+     * Returns the number of databases restored at once.
+     */
+    public int getRestoreThreads()
+    {
+        return restoreThreads;
+    }
+
+    /**
+     * Sets the number of databases restored at once. Backups are restored one
+     * file at a time unless every file belongs to a single database.
+     */
+    public void setRestoreThreads(int restoreThreads)
+    {
+        this.restoreThreads = restoreThreads;
+    }
 
     /**
      * {@inheritDoc}
@@ -61,35 +86,109 @@ public abstract class AbstractBackupAgent implements BackupAgent
         {
             restoreCompleted = false;
             initRestore();
-            for (BackupLocator locator : bspec.getBackupLocators())
+            List<BackupLocator> locators = bspec.getBackupLocators();
+            if (restoreThreads > 1 && locators.size() > 1
+                    && isPerDatabase(locators))
             {
-                try
+                restoreInParallel(locators);
+            }
+            else
+            {
+                for (BackupLocator locator : locators)
                 {
-                    // Load the backup storage.
-                    locator.open();
+                    restoreLocator(locator);
+                }
+            }
+            restoreCompleted = true;
+        }
+        finally
+        {
+            completeRestore();
+        }
+    }
 
-                    restoreOneLocator(locator);
+    // Returns true if each locator holds a single database.
+    private boolean isPerDatabase(List<BackupLocator> locators)
+    {
+        for (BackupLocator locator : locators)
+        {
+            if (locator.getDatabaseName() == null)
+                return false;
+        }
+        return true;
+    }
 
-                }
-                catch (BackupException e)
+    // Restores one locator and checks that it was read intact.
+    private void restoreLocator(BackupLocator locator) throws BackupException
+    {
+        try
+        {
+            // Load the backup storage.
+            locator.open();
+
+            restoreOneLocator(locator);
+
+            // Restore utilities may not report a stream that failed
+            // verification, so check it once loading is done.
+            locator.verify();
+        }
+        catch (BackupException e)
+        {
+            throw e;
+        }
+        catch (Exception e)
+        {
+            throw new BackupException("Unexpected error on restore: "
+                    + e.getMessage(), e);
+        }
+        finally
+        {
+            locator.release();
+        }
+    }
+
+    // Restores databases on several threads, cancelling the remaining ones
+    // if one fails.
+    private void restoreInParallel(List<BackupLocator> locators)
+            throws BackupException, InterruptedException
+    {
+        int threads = Math.min(restoreThreads, locators.size());
+        logger.info("Restoring databases in parallel: databases="
+                + locators.size() + " threads=" + threads);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try
+        {
+            List<Future<Void>> restores = new ArrayList<Future<Void>>();
+            for (final BackupLocator locator : locators)
+            {
+                restores.add(pool.submit(new Callable<Void>()
                 {
-                    throw e;
-                }
-                catch (Exception e)
+                    public Void call() throws BackupException
+                    {
+                        restoreLocator(locator);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> restore : restores)
+            {
+                try
                 {
-                    throw new BackupException("Unexpected error on restore: "
-                            + e.getMessage(), e);
+                    restore.get();
                 }
-                finally
+                catch (ExecutionException e)
                 {
-                    locator.release();
+                    Throwable cause = e.getCause();
+                    if (cause instanceof BackupException)
+                        throw (BackupException) cause;
+                    throw new BackupException("Unexpected error on restore: "
+                            + cause.getMessage(), cause);
                 }
             }
-            restoreCompleted = true;
         }
         finally
         {
-            completeRestore();
+            pool.shutdownNow();
         }
     }
 
@@ -28,6 +28,7 @@ package com.continuent.tungsten.replicator.backup;
 public class BackupCapabilities
 {
     private boolean hotBackupEnabled;
+    private boolean streamingRestoreEnabled;
     
     public BackupCapabilities()
     {
@@ -49,4 +50,22 @@ public class BackupCapabilities
     {
         this.hotBackupEnabled = hotBackupEnabled;
     }
+
+    /**
+     * If true this agent reads backups only through
+     * BackupLocator.getInputStream(), so storage can check them while they
+     * are loaded instead of before the restore starts.
+     */
+    public boolean isStreamingRestoreEnabled()
+    {
+        return streamingRestoreEnabled;
+    }
+
+    /**
+     * Sets whether this agent reads backups only as streams.
+     */
+    public void setStreamingRestoreEnabled(boolean streamingRestoreEnabled)
+    {
+        this.streamingRestoreEnabled = streamingRestoreEnabled;
+    }
 }
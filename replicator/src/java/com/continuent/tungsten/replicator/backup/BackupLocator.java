@@ -20,6 +20,8 @@
 package com.continuent.tungsten.replicator.backup;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * Maintains references to storage used during backups.  Encapsulates
@@ -42,6 +44,22 @@ public interface BackupLocator
      */
     public File getContents();
 
+    /**
+     * Returns a stream to read the backup, decompressing it if it was
+     * compressed in storage. The caller must close the stream.
+     */
+    public InputStream getInputStream() throws IOException;
+
+    /**
+     * Checks the backup against checksums kept in storage, if any, reading it
+     * if a stream from {@link #getInputStream()} has not already checked all
+     * of it. Agents that read the file returned by {@link #getContents()} must
+     * call this first.
+     * 
+     * @throws BackupException If the backup is corrupt or cannot be read
+     */
+    public void verify() throws BackupException;
+
     /**
      * Releases the storage.  This must be called after using the storage
      * to ensure all resources are released. 
@@ -0,0 +1,44 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.backup;
+
+import java.io.OutputStream;
+
+/**
+ * Receives backup files written directly into storage by a
+ * {@link StreamingBackupAgent}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public interface BackupSink
+{
+    /**
+     * Opens a new backup file in storage. The agent must close the returned
+     * stream once it has written the file; closing completes the file and
+     * records it in the backup.
+     *
+     * @param name Base name of the file, such as mysqldump.sql
+     * @param databaseName Name of the database in the file or null if the file
+     *            is not specific to one database
+     */
+    public OutputStream openFile(String name, String databaseName)
+            throws BackupException;
+}
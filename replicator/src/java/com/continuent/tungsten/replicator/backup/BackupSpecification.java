@@ -73,6 +73,8 @@ public class BackupSpecification
 
     public void releaseLocators()
     {
+        if (backupLocators == null)
+            return;
         for (BackupLocator locator : backupLocators)
         {
             locator.release();
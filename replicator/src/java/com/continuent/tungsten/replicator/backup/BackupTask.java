@@ -52,6 +52,14 @@ public class BackupTask implements Callable<String>
         this.storageAgent = storageAgent;
     }
 
+    // Returns true if the backup can be written directly to storage.
+    private boolean isStreaming()
+    {
+        return backupAgent instanceof StreamingBackupAgent
+                && ((StreamingBackupAgent) backupAgent).isStreamingEnabled()
+                && storageAgent instanceof StreamingStorageAgent;
+    }
+
     /**
      * Execute the backup task.
      */
@@ -66,13 +74,23 @@ public class BackupTask implements Callable<String>
             logger.info("Starting backup using agent: "
                     + backupAgent.getClass().getName());
 
-            // Create a backup specification for storage.
-            bspec = backupAgent.backup();
+            if (isStreaming())
+            {
+                // Let the agent write straight into storage.
+                logger.info("Streaming backup to storage...");
+                uri = ((StreamingStorageAgent) storageAgent).store(
+                        (StreamingBackupAgent) backupAgent, backupAgentName);
+            }
+            else
+            {
+                // Create a backup specification for storage.
+                bspec = backupAgent.backup();
 
-            // Turn the resulting file over to storage.
-            logger.info("Storing backup result...");
-            bspec.setAgentName(backupAgentName);
-            uri = storageAgent.store(bspec);
+                // Turn the resulting file over to storage.
+                logger.info("Storing backup result...");
+                bspec.setAgentName(backupAgentName);
+                uri = storageAgent.store(bspec);
+            }
         }
         catch (InterruptedException e)
         {
@@ -0,0 +1,109 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.backup;
+
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Computes the CRC32 of a file together with the CRC32 of each fixed-size
+ * chunk of it in a single pass, so that a restore can verify chunks as they
+ * are read instead of checking the whole file before loading it.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class ChunkChecksums
+{
+    private final int   chunkSize;
+    private final CRC32 crc      = new CRC32();
+    private final CRC32 chunkCrc = new CRC32();
+    private long[]      chunkCrcs = new long[16];
+    private int         chunks;
+    private int         chunkLength;
+    private long        length;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param chunkSize Number of bytes in each chunk
+     */
+    public ChunkChecksums(int chunkSize)
+    {
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Adds bytes that follow those already added.
+     */
+    public void update(byte[] b, int off, int len)
+    {
+        crc.update(b, off, len);
+        length += len;
+        while (len > 0)
+        {
+            int count = Math.min(len, chunkSize - chunkLength);
+            chunkCrc.update(b, off, count);
+            chunkLength += count;
+            off += count;
+            len -= count;
+            if (chunkLength == chunkSize)
+                endChunk();
+        }
+    }
+
+    /** Returns the chunk size. */
+    public int getChunkSize()
+    {
+        return chunkSize;
+    }
+
+    /** Returns the CRC32 of all bytes added. */
+    public long getCrc()
+    {
+        return crc.getValue();
+    }
+
+    /** Returns the number of bytes added. */
+    public long getLength()
+    {
+        return length;
+    }
+
+    /**
+     * Returns the CRC32 of each chunk, the last one possibly shorter than the
+     * chunk size.
+     */
+    public long[] getChunkCrcs()
+    {
+        if (chunkLength > 0)
+            endChunk();
+        return Arrays.copyOf(chunkCrcs, chunks);
+    }
+
+    private void endChunk()
+    {
+        if (chunks == chunkCrcs.length)
+            chunkCrcs = Arrays.copyOf(chunkCrcs, chunks * 2);
+        chunkCrcs[chunks++] = chunkCrc.getValue();
+        chunkCrc.reset();
+        chunkLength = 0;
+    }
+}
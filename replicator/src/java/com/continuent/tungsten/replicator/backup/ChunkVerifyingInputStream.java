@@ -0,0 +1,237 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.backup;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+/**
+ * Reads a file whose chunk CRCs were recorded by {@link ChunkChecksums},
+ * reading and checking chunks ahead of the reader on a pool of threads. Each
+ * chunk is returned as soon as it and the chunks before it are verified, so a
+ * restore can start loading data before the whole file has been checked.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class ChunkVerifyingInputStream extends InputStream
+{
+    private final File                       file;
+    private final FileChannel                channel;
+    private final int                        chunkSize;
+    private final long[]                     chunkCrcs;
+    private final long                       length;
+    private final int                        maxPending;
+    private final ExecutorService            pool;
+    private final LinkedList<Future<byte[]>> pending = new LinkedList<Future<byte[]>>();
+
+    private int                              nextChunk;
+    private int                              verifiedChunks;
+    private boolean                          closed;
+
+    // Data of the current chunk.
+    private byte[]                           chunk   = new byte[0];
+    private int                              chunkOffset;
+
+    /**
+     * Creates a new stream.
+     *
+     * @param file File to read
+     * @param chunkSize Number of bytes in each chunk
+     * @param chunkCrcs CRC32 of each chunk, the last one possibly shorter than
+     *            the chunk size
+     * @param threads Number of threads that read and verify chunks
+     * @throws IOException If the file cannot be opened or its length does not
+     *             match the chunks
+     */
+    public ChunkVerifyingInputStream(File file, int chunkSize,
+            long[] chunkCrcs, int threads) throws IOException
+    {
+        this.file = file;
+        this.chunkSize = chunkSize;
+        this.chunkCrcs = chunkCrcs;
+        this.channel = new RandomAccessFile(file, "r").getChannel();
+        this.length = channel.size();
+        long expectedChunks = (length + chunkSize - 1) / chunkSize;
+        if (chunkSize <= 0 || expectedChunks != chunkCrcs.length)
+        {
+            channel.close();
+            throw new IOException(
+                    "File length does not match recorded chunks: file="
+                            + file.getAbsolutePath() + " length=" + length
+                            + " chunkSize=" + chunkSize + " chunks="
+                            + chunkCrcs.length);
+        }
+
+        int poolSize = Math.max(threads, 1);
+        this.maxPending = poolSize * 2;
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(poolSize, new ThreadFactory()
+        {
+            public Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, "backup-verify-"
+                        + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.io.InputStream#read()
+     */
+    public int read() throws IOException
+    {
+        byte[] b = new byte[1];
+        int len;
+        while ((len = read(b, 0, 1)) == 0)
+            ;
+        return len < 0 ? -1 : b[0] & 0xff;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.io.InputStream#read(byte[], int, int)
+     */
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        if (closed)
+            throw new IOException("Stream closed");
+        if (len == 0)
+            return 0;
+
+        while (chunkOffset >= chunk.length)
+        {
+            readAhead();
+            if (pending.isEmpty())
+                return -1;
+            chunk = nextChunk();
+            chunkOffset = 0;
+            verifiedChunks++;
+        }
+
+        int count = Math.min(len, chunk.length - chunkOffset);
+        System.arraycopy(chunk, chunkOffset, b, off, count);
+        chunkOffset += count;
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.io.InputStream#close()
+     */
+    public void close() throws IOException
+    {
+        if (closed)
+            return;
+        closed = true;
+        pool.shutdownNow();
+        channel.close();
+    }
+
+    /**
+     * Returns true once every chunk of the file has been read and verified.
+     */
+    public boolean isVerified()
+    {
+        return verifiedChunks == chunkCrcs.length;
+    }
+
+    // Submits chunks for reading until enough are pending.
+    private void readAhead()
+    {
+        while (pending.size() < maxPending && nextChunk < chunkCrcs.length)
+        {
+            final int index = nextChunk++;
+            pending.add(pool.submit(new Callable<byte[]>()
+            {
+                public byte[] call() throws IOException
+                {
+                    return readChunk(index);
+                }
+            }));
+        }
+    }
+
+    // Returns the data of the oldest pending chunk.
+    private byte[] nextChunk() throws IOException
+    {
+        try
+        {
+            return pending.removeFirst().get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while verifying data");
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            throw new IOException("Chunk verification failed: "
+                    + cause.getMessage(), cause);
+        }
+    }
+
+    // Reads one chunk with a positional read and checks its CRC.
+    private byte[] readChunk(int index) throws IOException
+    {
+        long position = (long) index * chunkSize;
+        int size = (int) Math.min(chunkSize, length - position);
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        while (buf.hasRemaining())
+        {
+            if (channel.read(buf, position + buf.position()) < 0)
+                throw new EOFException("Unexpected end of file: file="
+                        + file.getAbsolutePath() + " chunk=" + index);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), 0, size);
+        if (crc.getValue() != chunkCrcs[index])
+            throw new IOException(
+                    "Backup file chunk CRC does not match CRC in storage properties: file="
+                            + file.getAbsolutePath() + " chunk=" + index
+                            + " current crc=" + crc.getValue()
+                            + " storage crc=" + chunkCrcs[index]);
+        return buf.array();
+    }
+}
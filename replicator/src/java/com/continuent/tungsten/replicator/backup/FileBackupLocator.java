@@ -20,13 +20,26 @@
 
 package com.continuent.tungsten.replicator.backup;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 
 public class FileBackupLocator implements BackupLocator
 {
     private final File    backup;
     private final boolean deleteOnRelease;
     private String        databaseName;
+    private final boolean compressed;
+    private final int     threads;
+    private final int     chunkSize;
+    private final long[]  chunkCrcs;
+
+    // Outcome of checking the contents while they are read.
+    private volatile boolean     verified;
+    private volatile IOException failure;
 
     public FileBackupLocator(File backup, boolean deleteOnRelease)
     {
@@ -35,10 +48,45 @@ public class FileBackupLocator implements BackupLocator
 
     public FileBackupLocator(String databaseName, File backup,
             boolean deleteOnRelease)
+    {
+        this(databaseName, backup, deleteOnRelease, false, 1);
+    }
+
+    /**
+     * Creates a locator for a file that may be gzip compressed.
+     *
+     * @param threads Number of threads used to decompress the file
+     */
+    public FileBackupLocator(String databaseName, File backup,
+            boolean deleteOnRelease, boolean compressed, int threads)
     {
         this.backup = backup;
         this.deleteOnRelease = deleteOnRelease;
         this.databaseName = databaseName;
+        this.compressed = compressed;
+        this.threads = threads;
+        this.chunkSize = 0;
+        this.chunkCrcs = null;
+    }
+
+    /**
+     * Creates a locator for an uncompressed file whose chunks are checked
+     * against their CRCs as they are read.
+     *
+     * @param chunkSize Number of bytes in each chunk
+     * @param chunkCrcs CRC32 of each chunk of the file
+     * @param threads Number of threads used to read and check chunks
+     */
+    public FileBackupLocator(String databaseName, File backup, int chunkSize,
+            long[] chunkCrcs, int threads)
+    {
+        this.backup = backup;
+        this.deleteOnRelease = false;
+        this.databaseName = databaseName;
+        this.compressed = false;
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+        this.chunkCrcs = chunkCrcs;
     }
 
     public File getContents()
@@ -46,6 +94,58 @@ public class FileBackupLocator implements BackupLocator
         return backup;
     }
 
+    public InputStream getInputStream() throws IOException
+    {
+        if (chunkCrcs != null)
+            return new VerifyingInputStream(new ChunkVerifyingInputStream(
+                    backup, chunkSize, chunkCrcs, threads));
+
+        InputStream in = new BufferedInputStream(new FileInputStream(backup),
+                65536);
+        if (compressed)
+            return new VerifyingInputStream(new ParallelGzipInputStream(in,
+                    threads));
+        else
+            return in;
+    }
+
+    public void verify() throws BackupException
+    {
+        if (failure == null && !verified && (compressed || chunkCrcs != null))
+        {
+            InputStream in = null;
+            try
+            {
+                in = getInputStream();
+                byte[] buf = new byte[65536];
+                while (in.read(buf) >= 0)
+                    ;
+            }
+            catch (IOException e)
+            {
+                if (failure == null)
+                    failure = e;
+            }
+            finally
+            {
+                if (in != null)
+                {
+                    try
+                    {
+                        in.close();
+                    }
+                    catch (IOException e)
+                    {
+                    }
+                }
+            }
+        }
+        if (failure != null)
+            throw new BackupException("Backup file verification failed: file="
+                    + backup.getAbsolutePath() + " : " + failure.getMessage(),
+                    failure);
+    }
+
     public String getDatabaseName()
     {
         return databaseName;
@@ -63,4 +163,46 @@ public class FileBackupLocator implements BackupLocator
             backup.delete();
         }
     }
+
+    // Records whether a stream that checks the contents reached the end or
+    // failed, since the process reading it may not report read errors.
+    private class VerifyingInputStream extends FilterInputStream
+    {
+        VerifyingInputStream(InputStream in)
+        {
+            super(in);
+        }
+
+        public int read() throws IOException
+        {
+            try
+            {
+                int b = super.read();
+                if (b < 0)
+                    verified = true;
+                return b;
+            }
+            catch (IOException e)
+            {
+                failure = e;
+                throw e;
+            }
+        }
+
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            try
+            {
+                int count = super.read(b, off, len);
+                if (count < 0)
+                    verified = true;
+                return count;
+            }
+            catch (IOException e)
+            {
+                failure = e;
+                throw e;
+            }
+        }
+    }
 }
@@ -25,9 +25,12 @@ import java.io.FileFilter;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.zip.CRC32;
 
 import org.apache.log4j.Logger;
@@ -38,11 +41,20 @@ import com.continuent.tungsten.common.config.TungstenProperties;
  * Implements a storage agent to store files in a directory on the file system.
  * This could be on a shared file system, e.g., using NFS. To use this storage
  * clients must at least set the directory location to hold files.
+ * <p>
+ * Backups from a {@link StreamingBackupAgent} are written directly into the
+ * storage directory as gzip files, compressed on several threads, and their
+ * CRC is computed as they are written.
+ * <p>
+ * Other backup files are stored with the CRC of each chunk of chunkSize bytes.
+ * When CRC checking is enabled, retrieved files are read and checked chunk by
+ * chunk on several threads as the backup agent loads them, so that loading
+ * starts as soon as the first chunk is verified.
  * 
  * @author <a href="mailto:robert.hodges@continuent.com">Robert Hodges</a>
  * @version 1.0
  */
-public class FileSystemStorageAgent implements StorageAgent
+public class FileSystemStorageAgent implements StreamingStorageAgent
 {
     private static final Logger logger                       = Logger.getLogger(FileSystemStorageAgent.class);
     private static final String SCHEME                       = "storage";
@@ -52,11 +64,22 @@ public class FileSystemStorageAgent implements StorageAgent
 
     private static final String STORAGE_SPECIFICATION_PREFIX = "store-";
     private static final String STORAGE_SPECIFICATION_SUFFIX = ".properties";
+    private static final String GZIP                         = "gzip";
+    private static final String GZIP_SUFFIX                  = ".gz";
 
     // Storage properties.
     private int                 retention                    = 3;
     private File                directory;
     private boolean             crcCheckingEnabled;
+    private int                 compressionThreads           = Runtime
+                                                                     .getRuntime()
+                                                                     .availableProcessors();
+    private int                 compressionLevel             = 6;
+    private int                 compressionBlockSize         = 1048576;
+    private int                 chunkSize                    = 4194304;
+    private int                 restoreThreads               = Runtime
+                                                                     .getRuntime()
+                                                                     .availableProcessors();
 
     private long                lastFileNumber;
 
@@ -127,6 +150,93 @@ public class FileSystemStorageAgent implements StorageAgent
         this.crcCheckingEnabled = crcCheckingEnabled;
     }
 
+    /**
+     * Returns the number of threads that compress and decompress streamed
+     * backups.
+     */
+    public int getCompressionThreads()
+    {
+        return compressionThreads;
+    }
+
+    /**
+     * Sets the number of threads that compress and decompress streamed
+     * backups.
+     */
+    public void setCompressionThreads(int compressionThreads)
+    {
+        this.compressionThreads = compressionThreads;
+    }
+
+    /**
+     * Returns the gzip compression level of streamed backups.
+     */
+    public int getCompressionLevel()
+    {
+        return compressionLevel;
+    }
+
+    /**
+     * Sets the gzip compression level of streamed backups, from 0 (no
+     * compression) to 9 (best compression).
+     */
+    public void setCompressionLevel(int compressionLevel)
+    {
+        this.compressionLevel = compressionLevel;
+    }
+
+    /**
+     * Returns the number of bytes compressed as one block.
+     */
+    public int getCompressionBlockSize()
+    {
+        return compressionBlockSize;
+    }
+
+    /**
+     * Sets the number of bytes compressed as one block. Each compression
+     * thread holds up to two blocks in memory.
+     */
+    public void setCompressionBlockSize(int compressionBlockSize)
+    {
+        this.compressionBlockSize = compressionBlockSize;
+    }
+
+    /**
+     * Returns the number of bytes covered by each chunk CRC of a stored file.
+     */
+    public int getChunkSize()
+    {
+        return chunkSize;
+    }
+
+    /**
+     * Sets the number of bytes covered by each chunk CRC of a stored file.
+     * Each restore thread holds up to two chunks in memory.
+     */
+    public void setChunkSize(int chunkSize)
+    {
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Returns the number of threads that read and verify chunks of a file
+     * during restore.
+     */
+    public int getRestoreThreads()
+    {
+        return restoreThreads;
+    }
+
+    /**
+     * Sets the number of threads that read and verify chunks of a file during
+     * restore.
+     */
+    public void setRestoreThreads(int restoreThreads)
+    {
+        this.restoreThreads = restoreThreads;
+    }
+
     /**
      * {@inheritDoc}
      * 
@@ -259,7 +369,15 @@ public class FileSystemStorageAgent implements StorageAgent
                                 + backupFile.getAbsolutePath());
 
             // If user asks for CRC checking, compute and check the CRC.
-            if (isCrcCheckingEnabled())
+            // Compressed files check the CRC of each block as they are
+            // read and files with chunk CRCs check each chunk as it is
+            // read, which makes a separate pass unnecessary.
+            boolean compressed = GZIP.equals(storageSpec
+                    .getFileCompression(fileIndex));
+            long[] chunkCrcs = null;
+            if (isCrcCheckingEnabled() && !compressed)
+                chunkCrcs = storageSpec.getFileChunkCrcs(fileIndex);
+            if (isCrcCheckingEnabled() && !compressed && chunkCrcs == null)
             {
                 long backupFileCrc = computeFileCrc(backupFile);
                 long storedFileCrc = storageSpec.getFileCrc(fileIndex);
@@ -275,8 +393,13 @@ public class FileSystemStorageAgent implements StorageAgent
             }
 
             String dbName = storageSpec.getDatabaseName(fileIndex);
-            backupSpec.addBackupLocator(new FileBackupLocator(dbName,
-                    backupFile, false));
+            if (chunkCrcs != null)
+                backupSpec.addBackupLocator(new FileBackupLocator(dbName,
+                        backupFile, storageSpec.getFileChunkSize(fileIndex),
+                        chunkCrcs, restoreThreads));
+            else
+                backupSpec.addBackupLocator(new FileBackupLocator(dbName,
+                        backupFile, false, compressed, compressionThreads));
             logger.info("Retrieved backup file: file="
                     + backupFile.getAbsolutePath());
 
@@ -324,10 +447,10 @@ public class FileSystemStorageAgent implements StorageAgent
             toFile = new File(directory, prefix + "-" + fromFile.getName());
 
             // Attempt to rename the file first, otherwise copy it
-            long crc = renameFile(fromFile, toFile);
-            if (crc == -1)
+            ChunkChecksums checksums = renameFile(fromFile, toFile);
+            if (checksums == null)
             {
-                crc = copyFile(fromFile, toFile);
+                checksums = copyFile(fromFile, toFile);
             }
 
             logger.info("Stored backup storage file: file="
@@ -335,7 +458,9 @@ public class FileSystemStorageAgent implements StorageAgent
             // Fill out and write the storage specification.
             storageSpec.setFileName(toFile.getName());
             storageSpec.setFileLength(toFile.length());
-            storageSpec.setFileCrc(crc);
+            storageSpec.setFileCrc(checksums.getCrc());
+            storageSpec.setFileChunkCrcs(checksums.getChunkSize(),
+                    checksums.getChunkCrcs());
             if (locator.getDatabaseName() != null)
             {
                 storageSpec.setDatabaseName(locator.getDatabaseName());
@@ -349,8 +474,101 @@ public class FileSystemStorageAgent implements StorageAgent
         logger.info("Stored backup storage properties: file="
                 + specFile.getAbsolutePath() + " length=" + specFile.length());
 
-        // Delete files if we have exceeded the retention.
-        // Don't forget to add the newly created backup to the count
+        purgeOldBackups(allSpecs);
+
+        // Return the URI.
+        return uri;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see com.continuent.tungsten.replicator.backup.StreamingStorageAgent#store(com.continuent.tungsten.replicator.backup.StreamingBackupAgent,
+     *      java.lang.String)
+     */
+    public URI store(StreamingBackupAgent agent, String agentName)
+            throws BackupException, InterruptedException
+    {
+        // Getting file list prior to backup
+        StorageSpecification[] allSpecs = list();
+
+        // Get the storage index file and allocate a new backup number.
+        StorageIndex index = loadAndIncrementStorageIndex();
+
+        // Generate file names.
+        String prefix = STORAGE_SPECIFICATION_PREFIX
+                + String.format("%010d", index.getIndex());
+        String specFileName = prefix + STORAGE_SPECIFICATION_SUFFIX;
+        File specFile = new File(directory, specFileName);
+        URI uri = createUri(specFile);
+        logger.info("Allocated backup location for streaming: uri =" + uri
+                + " compressionThreads=" + compressionThreads
+                + " compressionLevel=" + compressionLevel);
+
+        // Run the backup, writing files straight into storage. Remove
+        // whatever was written if it does not complete.
+        StreamingSink sink = new StreamingSink(prefix);
+        BackupSpecification backupSpec = null;
+        boolean stored = false;
+        try
+        {
+            backupSpec = agent.backup(sink);
+
+            StorageSpecification storageSpec = new StorageSpecification();
+            storageSpec.setAgent(agentName);
+            storageSpec.setBackupDate(backupSpec.getBackupDate());
+            storageSpec.setUri(uri.toString());
+            for (StreamedFile streamed : sink.files)
+            {
+                if (!streamed.out.isClosed())
+                    throw new BackupException(formatErrorMessage(
+                            "Backup file was not closed by backup agent", uri,
+                            streamed.file));
+                if (streamed.file.length() != streamed.out.getLength())
+                    throw new BackupException(
+                            "Written file length does not match length of compressed data: file="
+                                    + streamed.file.getAbsolutePath()
+                                    + " file length="
+                                    + streamed.file.length()
+                                    + " written length="
+                                    + streamed.out.getLength());
+
+                logger.info("Stored backup storage file: file="
+                        + streamed.file.getAbsolutePath() + " length="
+                        + streamed.out.getLength() + " uncompressed length="
+                        + streamed.out.getUncompressedLength());
+                storageSpec.setFileName(streamed.file.getName());
+                storageSpec.setFileLength(streamed.out.getLength());
+                storageSpec.setFileCrc(streamed.out.getCrc());
+                storageSpec.setFileCompression(GZIP);
+                if (streamed.databaseName != null)
+                {
+                    storageSpec.setDatabaseName(streamed.databaseName);
+                }
+            }
+            storageSpec.setFilesCount(sink.files.size());
+            storeProperties(specFile, storageSpec.toProperties(),
+                    "Unable to write storage properties");
+            stored = true;
+        }
+        finally
+        {
+            if (!stored)
+                sink.discard();
+        }
+
+        logger.info("Stored backup storage properties: file="
+                + specFile.getAbsolutePath() + " length=" + specFile.length());
+
+        purgeOldBackups(allSpecs);
+        return uri;
+    }
+
+    // Delete backups if we have exceeded the retention. Don't forget to add
+    // the newly created backup to the count.
+    private void purgeOldBackups(StorageSpecification[] allSpecs)
+            throws BackupException
+    {
         if (allSpecs.length + 1 > retention)
         {
             int numberToDelete = allSpecs.length + 1 - retention;
@@ -361,9 +579,73 @@ public class FileSystemStorageAgent implements StorageAgent
                 delete(URI.create(allSpecs[i].getUri()));
             }
         }
+    }
 
-        // Return the URI.
-        return uri;
+    // A file written directly into storage.
+    private static class StreamedFile
+    {
+        File                     file;
+        String                   databaseName;
+        ParallelGzipOutputStream out;
+    }
+
+    // Receives files from a streaming backup agent.
+    private class StreamingSink implements BackupSink
+    {
+        private final String             prefix;
+        private final List<StreamedFile> files = new ArrayList<StreamedFile>();
+
+        StreamingSink(String prefix)
+        {
+            this.prefix = prefix;
+        }
+
+        public OutputStream openFile(String name, String databaseName)
+                throws BackupException
+        {
+            StreamedFile streamed = new StreamedFile();
+            streamed.file = new File(directory, prefix + "-" + name
+                    + GZIP_SUFFIX);
+            streamed.databaseName = databaseName;
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Opening streamed backup file: file="
+                        + streamed.file.getAbsolutePath());
+            }
+            try
+            {
+                streamed.out = new ParallelGzipOutputStream(
+                        new FileOutputStream(streamed.file),
+                        compressionThreads, compressionLevel,
+                        compressionBlockSize);
+            }
+            catch (IOException e)
+            {
+                throw new BackupException(formatErrorMessage(
+                        "Unable to open output file for writing", null,
+                        streamed.file), e);
+            }
+            files.add(streamed);
+            return streamed.out;
+        }
+
+        // Closes and removes files of a failed backup.
+        void discard()
+        {
+            for (StreamedFile streamed : files)
+            {
+                try
+                {
+                    streamed.out.close();
+                }
+                catch (IOException e)
+                {
+                }
+                if (streamed.file.exists() && !streamed.file.delete())
+                    logger.warn("Unable to delete partial backup file: file="
+                            + streamed.file.getAbsolutePath());
+            }
+        }
     }
 
     /**
@@ -593,13 +875,13 @@ public class FileSystemStorageAgent implements StorageAgent
         }
     }
 
-    // Attempt to rename the file and return the CRC, return -1 if
+    // Attempt to rename the file and return its checksums, return null if
     // there is a failure
-    protected long renameFile(File fromFile, File toFile)
+    protected ChunkChecksums renameFile(File fromFile, File toFile)
             throws BackupException
     {
         FileInputStream fis = null;
-        CRC32 crc = new CRC32();
+        ChunkChecksums crc = new ChunkChecksums(chunkSize);
 
         if (logger.isDebugEnabled())
         {
@@ -612,7 +894,7 @@ public class FileSystemStorageAgent implements StorageAgent
         // if the paths are on the same filesystem
         if (fromFile.renameTo(toFile) != true)
         {
-            return -1;
+            return null;
         }
 
         // Open the destination path to calculate the CRC
@@ -664,16 +946,17 @@ public class FileSystemStorageAgent implements StorageAgent
                             + fromFileLength + " read length=" + read);
         }
 
-        // Return the CRC value.
-        return crc.getValue();
+        // Return the checksums.
+        return crc;
     }
 
-    // Copy from one file to another, returning the CRC of the file.
-    protected long copyFile(File fromFile, File toFile) throws BackupException
+    // Copy from one file to another, returning the checksums of the file.
+    protected ChunkChecksums copyFile(File fromFile, File toFile)
+            throws BackupException
     {
         FileOutputStream fos = null;
         FileInputStream fis = null;
-        CRC32 crc = new CRC32();
+        ChunkChecksums crc = new ChunkChecksums(chunkSize);
 
         if (logger.isDebugEnabled())
         {
@@ -747,8 +1030,8 @@ public class FileSystemStorageAgent implements StorageAgent
                             + fromFile.length() + " written length=" + written);
         }
 
-        // Return the CRC value.
-        return crc.getValue();
+        // Return the checksums.
+        return crc;
     }
 
     // Creates an error message.
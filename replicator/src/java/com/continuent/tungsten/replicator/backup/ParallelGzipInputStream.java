@@ -0,0 +1,334 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.backup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Reads gzip data written by {@link ParallelGzipOutputStream}, decompressing
+ * members ahead of the reader on a pool of threads. The CRC and length of each
+ * member are checked as it is decompressed, so corruption is reported while
+ * the data is read rather than in a separate pass over the file.
+ * <p>
+ * Members that do not carry their compressed length, such as those written by
+ * gzip itself, are read sequentially from that point on.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class ParallelGzipInputStream extends InputStream
+{
+    // Upper bound on the size of a member, to reject corrupt headers.
+    private static final int                 MAX_MEMBER_SIZE = 256 * 1024 * 1024;
+
+    private final InputStream                in;
+    private final int                        maxPending;
+    private final ExecutorService            pool;
+    private final LinkedList<Future<byte[]>> pending         = new LinkedList<Future<byte[]>>();
+
+    // Sequential reader used once a member cannot be read in parallel.
+    private InputStream                      fallback;
+    private boolean                          eof;
+    private boolean                          closed;
+
+    // Data of the current member.
+    private byte[]                           block           = new byte[0];
+    private int                              blockOffset;
+    private long                             members;
+
+    /**
+     * Creates a new stream.
+     *
+     * @param in Stream containing gzip data
+     * @param threads Number of decompression threads
+     */
+    public ParallelGzipInputStream(InputStream in, int threads)
+    {
+        this.in = in;
+        int poolSize = Math.max(threads, 1);
+        this.maxPending = poolSize * 2;
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(poolSize, new ThreadFactory()
+        {
+            public Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, "backup-decompress-"
+                        + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.io.InputStream#read()
+     */
+    public int read() throws IOException
+    {
+        byte[] b = new byte[1];
+        int len;
+        while ((len = read(b, 0, 1)) == 0)
+            ;
+        return len < 0 ? -1 : b[0] & 0xff;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.io.InputStream#read(byte[], int, int)
+     */
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        if (closed)
+            throw new IOException("Stream closed");
+        if (len == 0)
+            return 0;
+
+        while (blockOffset >= block.length)
+        {
+            readAhead();
+            if (!pending.isEmpty())
+            {
+                block = nextBlock();
+                blockOffset = 0;
+                members++;
+            }
+            else if (fallback != null)
+                return fallback.read(b, off, len);
+            else
+                return -1;
+        }
+
+        int count = Math.min(len, block.length - blockOffset);
+        System.arraycopy(block, blockOffset, b, off, count);
+        blockOffset += count;
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.io.InputStream#close()
+     */
+    public void close() throws IOException
+    {
+        if (closed)
+            return;
+        closed = true;
+        pool.shutdownNow();
+        if (fallback != null)
+            fallback.close();
+        else
+            in.close();
+    }
+
+    /**
+     * Returns the number of members read in parallel so far.
+     */
+    public long getMembers()
+    {
+        return members;
+    }
+
+    // Reads members and submits them for decompression until enough are
+    // pending.
+    private void readAhead() throws IOException
+    {
+        while (pending.size() < maxPending && !eof && fallback == null)
+        {
+            final byte[] member = readMember();
+            if (member == null)
+                break;
+            pending.add(pool.submit(new Callable<byte[]>()
+            {
+                public byte[] call() throws IOException
+                {
+                    return decompress(member);
+                }
+            }));
+        }
+    }
+
+    // Returns the data of the oldest pending member.
+    private byte[] nextBlock() throws IOException
+    {
+        try
+        {
+            return pending.removeFirst().get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while decompressing data");
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            throw new IOException("Decompression failed: "
+                    + cause.getMessage(), cause);
+        }
+    }
+
+    // Reads the next member as compressed payload followed by its trailer.
+    // Returns null at end of input or if the member has no length, in which
+    // case the remaining input is read sequentially.
+    private byte[] readMember() throws IOException
+    {
+        byte[] header = new byte[ParallelGzipOutputStream.HEADER_SIZE];
+        int first = in.read();
+        if (first < 0)
+        {
+            eof = true;
+            return null;
+        }
+        header[0] = (byte) first;
+        int headerLength = 1 + readFully(header, 1, 11);
+        if (headerLength < 12 || (header[0] & 0xff) != 0x1f
+                || (header[1] & 0xff) != 0x8b || header[2] != 8)
+            throw new IOException("Not in gzip format");
+
+        int xlen = getShort(header, 10);
+        if (header[3] == 4 && xlen == 8)
+        {
+            headerLength += readFully(header, 12, 8);
+            if (headerLength == header.length
+                    && header[12] == ParallelGzipOutputStream.SI1
+                    && header[13] == ParallelGzipOutputStream.SI2
+                    && getShort(header, 14) == 4)
+            {
+                int payloadLength = getInt(header, 16);
+                if (payloadLength < 0 || payloadLength > MAX_MEMBER_SIZE)
+                    throw new IOException("Invalid gzip member length: "
+                            + payloadLength);
+                byte[] member = new byte[payloadLength
+                        + ParallelGzipOutputStream.TRAILER_SIZE];
+                if (readFully(member, 0, member.length) < member.length)
+                    throw new EOFException("Unexpected end of gzip data");
+                return member;
+            }
+        }
+
+        // Read this member and the rest of the input sequentially.
+        ByteArrayOutputStream consumed = new ByteArrayOutputStream();
+        consumed.write(header, 0, headerLength);
+        fallback = new GZIPInputStream(new SequenceInputStream(
+                new ByteArrayInputStream(consumed.toByteArray()), in));
+        return null;
+    }
+
+    private int readFully(byte[] b, int off, int len) throws IOException
+    {
+        int total = 0;
+        while (total < len)
+        {
+            int count = in.read(b, off + total, len - total);
+            if (count < 0)
+                break;
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Decompresses a member payload and checks it against its trailer.
+     */
+    static byte[] decompress(byte[] member) throws IOException
+    {
+        int payloadLength = member.length
+                - ParallelGzipOutputStream.TRAILER_SIZE;
+        long expectedCrc = getInt(member, payloadLength) & 0xffffffffL;
+        int size = getInt(member, payloadLength + 4);
+        if (size < 0 || size > MAX_MEMBER_SIZE)
+            throw new IOException("Invalid gzip member size: " + size);
+
+        byte[] data = new byte[size];
+        Inflater inflater = new Inflater(true);
+        try
+        {
+            inflater.setInput(member, 0, payloadLength);
+            int pos = 0;
+            byte[] overflow = new byte[1];
+            while (!inflater.finished())
+            {
+                // Once the data is complete only the end of the stream may
+                // remain.
+                int count;
+                if (pos < size)
+                    count = inflater.inflate(data, pos, size - pos);
+                else if ((count = inflater.inflate(overflow)) > 0)
+                    throw new IOException(
+                            "Corrupt gzip member: data exceeds size=" + size);
+                if (count == 0
+                        && (inflater.needsInput() || inflater.needsDictionary()))
+                    break;
+                pos += count;
+            }
+            if (pos != size || !inflater.finished())
+                throw new IOException("Corrupt gzip member: expected size="
+                        + size + " actual size=" + pos);
+        }
+        catch (DataFormatException e)
+        {
+            throw new IOException("Corrupt gzip member: " + e.getMessage(), e);
+        }
+        finally
+        {
+            inflater.end();
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        if (crc.getValue() != expectedCrc)
+            throw new IOException("Corrupt gzip member: expected crc="
+                    + expectedCrc + " actual crc=" + crc.getValue());
+        return data;
+    }
+
+    private static int getShort(byte[] buf, int off)
+    {
+        return (buf[off] & 0xff) | ((buf[off + 1] & 0xff) << 8);
+    }
+
+    private static int getInt(byte[] buf, int off)
+    {
+        return getShort(buf, off) | (getShort(buf, off + 2) << 16);
+    }
+}
@@ -0,0 +1,331 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.backup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses data on a pool of threads and writes it as a series of gzip
+ * members, one per block of input, in the order in which data was written.
+ * The result is a regular gzip file that gunzip and GZIPInputStream can read.
+ * Each member header also carries the compressed length of the member in an
+ * extra field, which lets {@link ParallelGzipInputStream} find the next member
+ * without inflating the current one and decompress members in parallel.
+ * <p>
+ * The stream computes the CRC and length of the compressed bytes as they are
+ * written so that callers storing the output do not need a second pass over
+ * it. At most two blocks per thread are held in memory.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class ParallelGzipOutputStream extends OutputStream
+{
+    // Extra field subfield identifying the member length.
+    static final byte                   SI1         = 'T';
+    static final byte                   SI2         = 'B';
+
+    // Header is the fixed gzip header, XLEN and one 8 byte subfield.
+    static final int                    HEADER_SIZE = 20;
+    static final int                    TRAILER_SIZE = 8;
+
+    private final OutputStream          out;
+    private final int                   level;
+    private final int                   maxPending;
+    private final ExecutorService       pool;
+    private final LinkedList<Future<byte[]>> pending = new LinkedList<Future<byte[]>>();
+
+    private byte[]                      block;
+    private int                         blockLength;
+    private boolean                     written;
+    private boolean                     closed;
+
+    // Checksum and length of the compressed output.
+    private final CRC32                 crc         = new CRC32();
+    private long                        length;
+    private long                        uncompressedLength;
+
+    /**
+     * Creates a new stream.
+     *
+     * @param out Stream to which compressed data is written
+     * @param threads Number of compression threads
+     * @param level Deflate compression level, 0 to 9
+     * @param blockSize Number of bytes of input compressed as one member
+     */
+    public ParallelGzipOutputStream(OutputStream out, int threads, int level,
+            int blockSize)
+    {
+        this.out = out;
+        this.level = level;
+        int poolSize = Math.max(threads, 1);
+        this.maxPending = poolSize * 2;
+        this.block = new byte[Math.max(blockSize, 1024)];
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(poolSize, new ThreadFactory()
+        {
+            public Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, "backup-compress-"
+                        + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.io.OutputStream#write(int)
+     */
+    public void write(int b) throws IOException
+    {
+        ensureOpen();
+        block[blockLength++] = (byte) b;
+        if (blockLength == block.length)
+            submitBlock();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.io.OutputStream#write(byte[], int, int)
+     */
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+        ensureOpen();
+        while (len > 0)
+        {
+            int count = Math.min(len, block.length - blockLength);
+            System.arraycopy(b, off, block, blockLength, count);
+            blockLength += count;
+            off += count;
+            len -= count;
+            if (blockLength == block.length)
+                submitBlock();
+        }
+    }
+
+    /**
+     * Compresses buffered data and writes all pending blocks. {@inheritDoc}
+     *
+     * @see java.io.OutputStream#flush()
+     */
+    public void flush() throws IOException
+    {
+        ensureOpen();
+        if (blockLength > 0)
+            submitBlock();
+        while (!pending.isEmpty())
+            writeNext();
+        out.flush();
+    }
+
+    /**
+     * Writes remaining data and closes the underlying stream. An empty stream
+     * is written as a single empty member so that the output is still a valid
+     * gzip file. {@inheritDoc}
+     *
+     * @see java.io.OutputStream#close()
+     */
+    public void close() throws IOException
+    {
+        if (closed)
+            return;
+        try
+        {
+            if (blockLength > 0 || !written)
+                submitBlock();
+            flush();
+        }
+        finally
+        {
+            closed = true;
+            pool.shutdownNow();
+            out.close();
+        }
+    }
+
+    /**
+     * Returns true if the stream has been closed.
+     */
+    public boolean isClosed()
+    {
+        return closed;
+    }
+
+    /**
+     * Returns the CRC32 of the compressed bytes written so far.
+     */
+    public long getCrc()
+    {
+        return crc.getValue();
+    }
+
+    /**
+     * Returns the number of compressed bytes written so far.
+     */
+    public long getLength()
+    {
+        return length;
+    }
+
+    /**
+     * Returns the number of bytes of input accepted so far.
+     */
+    public long getUncompressedLength()
+    {
+        return uncompressedLength + blockLength;
+    }
+
+    private void ensureOpen() throws IOException
+    {
+        if (closed)
+            throw new IOException("Stream closed");
+    }
+
+    // Hands the current block to the pool, first writing the oldest block if
+    // too many are pending.
+    private void submitBlock() throws IOException
+    {
+        while (pending.size() >= maxPending)
+            writeNext();
+
+        final byte[] data = block;
+        final int dataLength = blockLength;
+        pending.add(pool.submit(new Callable<byte[]>()
+        {
+            public byte[] call()
+            {
+                return compress(data, dataLength, level);
+            }
+        }));
+        uncompressedLength += dataLength;
+        written = true;
+        block = new byte[block.length];
+        blockLength = 0;
+    }
+
+    // Writes the oldest pending block.
+    private void writeNext() throws IOException
+    {
+        byte[] member;
+        try
+        {
+            member = pending.removeFirst().get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compressing data");
+        }
+        catch (ExecutionException e)
+        {
+            throw new IOException("Compression failed: "
+                    + e.getCause().getMessage(), e.getCause());
+        }
+        out.write(member);
+        crc.update(member);
+        length += member.length;
+    }
+
+    /**
+     * Compresses a block into a complete gzip member.
+     */
+    static byte[] compress(byte[] data, int dataLength, int level)
+    {
+        Deflater deflater = new Deflater(level, true);
+        try
+        {
+            deflater.setInput(data, 0, dataLength);
+            deflater.finish();
+
+            // Leave room for incompressible data.
+            byte[] buf = new byte[HEADER_SIZE + dataLength + dataLength / 1000
+                    + 64 + TRAILER_SIZE];
+            int pos = HEADER_SIZE;
+            while (!deflater.finished())
+            {
+                if (pos == buf.length - TRAILER_SIZE)
+                {
+                    byte[] bigger = new byte[buf.length * 2];
+                    System.arraycopy(buf, 0, bigger, 0, pos);
+                    buf = bigger;
+                }
+                pos += deflater.deflate(buf, pos, buf.length - TRAILER_SIZE
+                        - pos);
+            }
+            int payloadLength = pos - HEADER_SIZE;
+
+            // Header: magic, deflate, FEXTRA, no time, unknown OS.
+            buf[0] = (byte) 0x1f;
+            buf[1] = (byte) 0x8b;
+            buf[2] = 8;
+            buf[3] = 4;
+            buf[9] = (byte) 0xff;
+            putShort(buf, 10, 8);
+            buf[12] = SI1;
+            buf[13] = SI2;
+            putShort(buf, 14, 4);
+            putInt(buf, 16, payloadLength);
+
+            // Trailer: CRC and length of uncompressed data.
+            CRC32 blockCrc = new CRC32();
+            blockCrc.update(data, 0, dataLength);
+            putInt(buf, pos, (int) blockCrc.getValue());
+            putInt(buf, pos + 4, dataLength);
+
+            int memberLength = pos + TRAILER_SIZE;
+            if (memberLength == buf.length)
+                return buf;
+            byte[] member = new byte[memberLength];
+            System.arraycopy(buf, 0, member, 0, memberLength);
+            return member;
+        }
+        finally
+        {
+            deflater.end();
+        }
+    }
+
+    private static void putShort(byte[] buf, int off, int value)
+    {
+        buf[off] = (byte) value;
+        buf[off + 1] = (byte) (value >>> 8);
+    }
+
+    private static void putInt(byte[] buf, int off, int value)
+    {
+        putShort(buf, off, value);
+        putShort(buf, off + 2, value >>> 16);
+    }
+}
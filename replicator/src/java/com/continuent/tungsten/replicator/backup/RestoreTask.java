@@ -65,6 +65,15 @@ public class RestoreTask implements Callable<String>
             logger.info("Retrieving backup file: uri=" + uri);
             BackupSpecification bspec = storageAgent.retrieve(uri);
 
+            // Agents that read backup files directly need them checked
+            // first; others check each file as they load it.
+            if (!backupAgent.capabilities().isStreamingRestoreEnabled())
+            {
+                logger.info("Verifying backup files: uri=" + uri);
+                for (BackupLocator locator : bspec.getBackupLocators())
+                    locator.verify();
+            }
+
             // Restore database.
             logger.info("Restoring database from file: uri=" + uri);
             backupAgent.restore(bspec);
@@ -35,16 +35,19 @@ import com.continuent.tungsten.common.config.TungstenProperties;
 public class StorageSpecification implements Comparable<StorageSpecification>
 {
     // Property serialization information.
-    private static final String VERSION_NO  = "1.0";
-    private static final String VERSION     = "version";
-    private static final String AGENT       = "agent";
-    private static final String FILE_NAME   = "file_name";
-    private static final String FILE_LENGTH = "file_length";
-    private static final String FILE_CRC    = "file_crc";
-    private static final String BACKUP_DATE = "backup_date";
-    private static final String URI         = "uri";
-    private static final String FILE_COUNT  = "archive.file_count";
-    private static final String DB_NAME     = "database_name";
+    private static final String VERSION_NO       = "1.0";
+    private static final String VERSION          = "version";
+    private static final String AGENT            = "agent";
+    private static final String FILE_NAME        = "file_name";
+    private static final String FILE_LENGTH      = "file_length";
+    private static final String FILE_CRC         = "file_crc";
+    private static final String BACKUP_DATE      = "backup_date";
+    private static final String URI              = "uri";
+    private static final String FILE_COUNT       = "archive.file_count";
+    private static final String DB_NAME          = "database_name";
+    private static final String FILE_COMPRESSION = "file_compression";
+    private static final String FILE_CHUNK_SIZE  = "file_chunk_size";
+    private static final String FILE_CHUNK_CRCS  = "file_chunk_crcs";
 
     // Specification values.
     private String              version;
@@ -56,6 +59,9 @@ public class StorageSpecification implements Comparable<StorageSpecification>
     private String              uri;
     private int                 filesCount;
     private List<String>        databaseNames;
+    private List<String>        fileCompressions;
+    private List<Integer>       fileChunkSizes;
+    private List<long[]>        fileChunkCrcs;
 
     /**
      * Creates a storage specification from existing properties.
@@ -84,6 +90,12 @@ public class StorageSpecification implements Comparable<StorageSpecification>
                 {
                     this.databaseNames.add(dbName);
                 }
+                this.fileCompressions.add(props.getString(buildPropertyName(
+                        FILE_COMPRESSION, i)));
+                this.fileChunkSizes.add(props.getInt(
+                        buildPropertyName(FILE_CHUNK_SIZE, i), "0", false));
+                this.fileChunkCrcs.add(parseChunkCrcs(props
+                        .getString(buildPropertyName(FILE_CHUNK_CRCS, i))));
             }
         }
         else
@@ -107,6 +119,9 @@ public class StorageSpecification implements Comparable<StorageSpecification>
         fileLengths = new ArrayList<Long>();
         fileCrcs = new ArrayList<Long>();
         databaseNames = new ArrayList<String>();
+        fileCompressions = new ArrayList<String>();
+        fileChunkSizes = new ArrayList<Integer>();
+        fileChunkCrcs = new ArrayList<long[]>();
     }
 
     public String getAgent()
@@ -192,6 +207,20 @@ public class StorageSpecification implements Comparable<StorageSpecification>
             {
                 props.setString(buildPropertyName(DB_NAME, i), dbName);
             }
+            String compression = getFileCompression(i);
+            if (compression != null)
+            {
+                props.setString(buildPropertyName(FILE_COMPRESSION, i),
+                        compression);
+            }
+            long[] chunkCrcs = getFileChunkCrcs(i);
+            if (chunkCrcs != null)
+            {
+                props.setInt(buildPropertyName(FILE_CHUNK_SIZE, i),
+                        getFileChunkSize(i));
+                props.setString(buildPropertyName(FILE_CHUNK_CRCS, i),
+                        formatChunkCrcs(chunkCrcs));
+            }
         }
 
         props.setInt(FILE_COUNT, this.filesCount);
@@ -225,6 +254,89 @@ public class StorageSpecification implements Comparable<StorageSpecification>
         return this.databaseNames.get(index);
     }
 
+    /**
+     * Sets the compression of the next file, or null if it is not compressed.
+     * Must be called for every file of a backup that has compressed files.
+     */
+    public void setFileCompression(String compression)
+    {
+        this.fileCompressions.add(compression);
+    }
+
+    /**
+     * Returns the compression of a file, or null if it is not compressed.
+     */
+    public String getFileCompression(int index)
+    {
+        if (fileCompressions.size() <= index)
+            return null;
+        return this.fileCompressions.get(index);
+    }
+
+    /**
+     * Sets the chunk CRCs of the next file, or null if none were computed.
+     * Must be called for every file of a backup that has chunk CRCs.
+     * 
+     * @param chunkSize Number of bytes in each chunk
+     * @param chunkCrcs CRC32 of each chunk of the file
+     */
+    public void setFileChunkCrcs(int chunkSize, long[] chunkCrcs)
+    {
+        this.fileChunkSizes.add(chunkSize);
+        this.fileChunkCrcs.add(chunkCrcs);
+    }
+
+    /**
+     * Returns the number of bytes in each chunk of a file, or 0 if the file
+     * has no chunk CRCs.
+     */
+    public int getFileChunkSize(int index)
+    {
+        if (fileChunkCrcs.size() <= index || fileChunkCrcs.get(index) == null)
+            return 0;
+        return this.fileChunkSizes.get(index);
+    }
+
+    /**
+     * Returns the CRC32 of each chunk of a file, or null if the file has no
+     * chunk CRCs.
+     */
+    public long[] getFileChunkCrcs(int index)
+    {
+        if (fileChunkCrcs.size() <= index)
+            return null;
+        return this.fileChunkCrcs.get(index);
+    }
+
+    // Formats chunk CRCs as a comma-separated list.
+    private String formatChunkCrcs(long[] chunkCrcs)
+    {
+        StringBuffer sb = new StringBuffer();
+        for (int i = 0; i < chunkCrcs.length; i++)
+        {
+            if (i > 0)
+                sb.append(",");
+            sb.append(chunkCrcs[i]);
+        }
+        return sb.toString();
+    }
+
+    // Parses a comma-separated list of chunk CRCs, returning null if there
+    // is no list.
+    private long[] parseChunkCrcs(String value)
+    {
+        if (value == null)
+            return null;
+        value = value.trim();
+        if (value.length() == 0)
+            return new long[0];
+        String[] crcs = value.split(",");
+        long[] chunkCrcs = new long[crcs.length];
+        for (int i = 0; i < crcs.length; i++)
+            chunkCrcs[i] = Long.parseLong(crcs[i].trim());
+        return chunkCrcs;
+    }
+
     @Override
     public int compareTo(StorageSpecification o)
 
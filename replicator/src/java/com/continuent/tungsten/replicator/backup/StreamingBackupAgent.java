@@ -0,0 +1,43 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.backup;
+
+/**
+ * Denotes a backup agent that can write its backup directly into storage
+ * instead of producing files that are then copied to storage.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public interface StreamingBackupAgent extends BackupAgent
+{
+    /**
+     * Returns true if backups should be written directly to storage.
+     */
+    public boolean isStreamingEnabled();
+
+    /**
+     * Back up the database, writing each file to the given sink.
+     *
+     * @return A specification for the backup, without locators
+     */
+    public BackupSpecification backup(BackupSink sink) throws BackupException,
+            InterruptedException;
+}
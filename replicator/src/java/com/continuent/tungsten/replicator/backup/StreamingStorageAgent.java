@@ -0,0 +1,42 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.backup;
+
+import java.net.URI;
+
+/**
+ * Denotes a storage agent that can receive backup files as they are written by
+ * a {@link StreamingBackupAgent}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public interface StreamingStorageAgent extends StorageAgent
+{
+    /**
+     * Runs a backup that writes its files directly to storage, returning the
+     * URI of the backup. Files of a backup that fails are removed.
+     *
+     * @param agent Agent that writes the backup
+     * @param agentName Name of the backup agent
+     */
+    public URI store(StreamingBackupAgent agent, String agentName)
+            throws BackupException, InterruptedException;
+}
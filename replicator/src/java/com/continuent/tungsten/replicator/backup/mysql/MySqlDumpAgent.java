@@ -22,10 +22,11 @@ package com.continuent.tungsten.replicator.backup.mysql;
 
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Date;
 
 import org.apache.log4j.Logger;
@@ -34,22 +35,31 @@ import com.continuent.tungsten.replicator.backup.AbstractBackupAgent;
 import com.continuent.tungsten.replicator.backup.BackupCapabilities;
 import com.continuent.tungsten.replicator.backup.BackupException;
 import com.continuent.tungsten.replicator.backup.BackupLocator;
+import com.continuent.tungsten.replicator.backup.BackupSink;
 import com.continuent.tungsten.replicator.backup.BackupSpecification;
 import com.continuent.tungsten.replicator.backup.FileBackupLocator;
+import com.continuent.tungsten.replicator.backup.StreamingBackupAgent;
 import com.continuent.tungsten.replicator.util.ProcessHelper;
 
 /**
  * Implements a backup agent that works using mysqldump to dump data and mysql
- * to restore.
+ * to restore. If streaming is enabled, mysqldump output is written directly
+ * to storage.
  * 
  * @author <a href="mailto:robert.hodges@continuent.com">Robert Hodges</a>
  * @version 1.0
  */
 public class MySqlDumpAgent extends AbstractBackupAgent
+        implements
+            StreamingBackupAgent
 {
     private static Logger      logger           = Logger
                                                         .getLogger(MySqlDumpAgent.class);
 
+    // Commands to turn off logging on restore.
+    private static final String DUMP_HEADER      = "-- Tungsten database dump - should not be logged on restore\n"
+                                                        + "SET SESSION SQL_LOG_BIN=0;\n";
+
     // Backup parameters.
     private String             host             = "localhost";
     private int                port             = 3306;
@@ -59,6 +69,7 @@ public class MySqlDumpAgent extends AbstractBackupAgent
     private String             mysqldumpOptions = "--all-databases --skip-lock-tables";
     private String             mysqlOptions     = "";
     private boolean            hotBackupEnabled = false;
+    private boolean            streamingEnabled = false;
 
     // Private data.
     private File               dumpDir;
@@ -150,6 +161,16 @@ public class MySqlDumpAgent extends AbstractBackupAgent
         this.hotBackupEnabled = hotBackupEnabled;
     }
 
+    public boolean isStreamingEnabled()
+    {
+        return streamingEnabled;
+    }
+
+    public void setStreamingEnabled(boolean streamingEnabled)
+    {
+        this.streamingEnabled = streamingEnabled;
+    }
+
     public BackupSpecification backup() throws BackupException
     {
         BackupSpecification spec = new BackupSpecification();
@@ -166,11 +187,7 @@ public class MySqlDumpAgent extends AbstractBackupAgent
 
             fw = new FileWriter(dumpFile);
             BufferedWriter bw = new BufferedWriter(fw);
-            bw
-                    .write("-- Tungsten database dump - should not be logged on restore");
-            bw.newLine();
-            bw.write("SET SESSION SQL_LOG_BIN=0;");
-            bw.newLine();
+            bw.write(DUMP_HEADER);
             bw.flush();
             fw.close();
 
@@ -205,6 +222,32 @@ public class MySqlDumpAgent extends AbstractBackupAgent
         return spec;
     }
 
+    /**
+     * {@inheritDoc}
+     * 
+     * @see com.continuent.tungsten.replicator.backup.StreamingBackupAgent#backup(com.continuent.tungsten.replicator.backup.BackupSink)
+     */
+    public BackupSpecification backup(BackupSink sink) throws BackupException
+    {
+        BackupSpecification spec = new BackupSpecification();
+        spec.setBackupDate(new Date());
+
+        OutputStream out = sink.openFile("mysqldump.sql", null);
+        try
+        {
+            out.write(DUMP_HEADER.getBytes("UTF-8"));
+            processHelper.exec("Dumping database using mysqldump",
+                    mysqldumpCommandArray, null, out, null, false);
+            out.close();
+        }
+        catch (IOException e)
+        {
+            throw new BackupException("Unable to write database dump: "
+                    + e.getMessage(), e);
+        }
+        return spec;
+    }
+
     /**
      * {@inheritDoc}
      * 
@@ -242,6 +285,7 @@ public class MySqlDumpAgent extends AbstractBackupAgent
         // Record capabilities.
         capabilities = new BackupCapabilities();
         capabilities.setHotBackupEnabled(hotBackupEnabled);
+        capabilities.setStreamingRestoreEnabled(true);
     }
 
     /**
@@ -263,7 +307,7 @@ public class MySqlDumpAgent extends AbstractBackupAgent
     protected void restoreOneLocator(BackupLocator locator)
             throws BackupException, FileNotFoundException
     {
-        FileInputStream fis = null;
+        InputStream fis = null;
         try
         {
             // Load the backup storage.
@@ -272,7 +316,7 @@ public class MySqlDumpAgent extends AbstractBackupAgent
             // Execute mysql utility to restore.
             logger.info("Restoring database file: "
                     + locator.getContents().getAbsolutePath());
-            fis = new FileInputStream(locator.getContents());
+            fis = locator.getInputStream();
             processHelper.exec("Restoring database using mysql",
                     mysqlCommandArray, fis, null, null, false, false);
         }
@@ -21,10 +21,11 @@
 package com.continuent.tungsten.replicator.backup.postgresql;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
@@ -32,23 +33,29 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 import com.continuent.tungsten.replicator.backup.AbstractBackupAgent;
 import com.continuent.tungsten.replicator.backup.BackupCapabilities;
 import com.continuent.tungsten.replicator.backup.BackupException;
 import com.continuent.tungsten.replicator.backup.BackupLocator;
+import com.continuent.tungsten.replicator.backup.BackupSink;
 import com.continuent.tungsten.replicator.backup.BackupSpecification;
 import com.continuent.tungsten.replicator.backup.FileBackupLocator;
+import com.continuent.tungsten.replicator.backup.StreamingBackupAgent;
 import com.continuent.tungsten.replicator.util.ProcessHelper;
 
 /**
  * Implements a backup agent that works using pg_dump to dump data and
- * pg_restore to restore.
+ * pg_restore to restore. If streaming is enabled, pg_dump output is written
+ * directly to storage.
  * 
  * @author <a href="mailto:stephane.giron@continuent.com">Stephane Giron</a>
  * @version 1.0
  */
 public class PostgreSqlDumpAgent extends AbstractBackupAgent
+        implements
+            StreamingBackupAgent
 {
     // Backup parameters.
     private String   host               = "localhost";
@@ -61,6 +68,7 @@ public class PostgreSqlDumpAgent extends AbstractBackupAgent
     private String   ignoreDatabaseList = "postgres template0 template1";
     private String   databaseToConnect  = "template1";
     private boolean  hotBackupEnabled   = true;
+    private boolean  streamingEnabled   = false;
     private String   url                = null;
     private String   driver             = "org.postgresql.Driver";
 
@@ -176,6 +184,24 @@ public class PostgreSqlDumpAgent extends AbstractBackupAgent
         this.hotBackupEnabled = hotBackupEnabled;
     }
 
+    /**
+     * {@inheritDoc}
+     * 
+     * @see com.continuent.tungsten.replicator.backup.StreamingBackupAgent#isStreamingEnabled()
+     */
+    public boolean isStreamingEnabled()
+    {
+        return streamingEnabled;
+    }
+
+    /**
+     * If true, pg_dump output is written directly to storage.
+     */
+    public void setStreamingEnabled(boolean streamingEnabled)
+    {
+        this.streamingEnabled = streamingEnabled;
+    }
+
     /**
      * Sets the URL used to connect to the PostgreSQL instance. If unset, this
      * value is generated automatically.
@@ -209,31 +235,9 @@ public class PostgreSqlDumpAgent extends AbstractBackupAgent
 
         try
         {
-            ArrayList<String> databaseList = new ArrayList<String>();
-            Connection conn = null;
-            try
-            {
-                logger.info("Fetching list of databases to dump");
-                conn = getConnection();
-                Statement stmt = conn.createStatement();
-                ResultSet rs = stmt.executeQuery(dbSelect);
-                while (rs.next())
-                {
-                    databaseList.add(rs.getString(1));
-                }
-            }
-            finally
-            {
-                releaseConnection(conn);
-            }
-
             // For each database, run pg_dump command
-            for (String databaseName : databaseList)
+            for (String databaseName : getDatabaseList())
             {
-                databaseName = databaseName.trim();
-                if (databaseName.length() == 0)
-                    continue;
-
                 // Create temp file and add it with commands to turn off
                 // logging.
                 dumpFile = File.createTempFile("postgresqldump-" + databaseName
@@ -276,6 +280,69 @@ public class PostgreSqlDumpAgent extends AbstractBackupAgent
         return spec;
     }
 
+    /**
+     * {@inheritDoc}
+     * 
+     * @see com.continuent.tungsten.replicator.backup.StreamingBackupAgent#backup(com.continuent.tungsten.replicator.backup.BackupSink)
+     */
+    public BackupSpecification backup(BackupSink sink) throws BackupException
+    {
+        BackupSpecification spec = new BackupSpecification();
+        spec.setBackupDate(new Date());
+
+        try
+        {
+            // For each database, stream pg_dump output to storage.
+            for (String databaseName : getDatabaseList())
+            {
+                logger.warn("Dumping database " + databaseName);
+                OutputStream out = sink.openFile("postgresqldump-"
+                        + databaseName + ".sql", databaseName);
+                processHelper.exec("Dumping database using pgdump",
+                        processHelper.mergeArrays(pgdumpCommandArray,
+                                new String[]{databaseName}), null, out, null,
+                        false);
+                out.close();
+            }
+        }
+        catch (BackupException e)
+        {
+            throw e;
+        }
+        catch (Exception e)
+        {
+            throw new BackupException("Unexpected error on backup: "
+                    + e.getMessage(), e);
+        }
+        return spec;
+    }
+
+    // Returns the names of the databases to dump.
+    private List<String> getDatabaseList() throws BackupException,
+            SQLException
+    {
+        ArrayList<String> databaseList = new ArrayList<String>();
+        Connection conn = null;
+        try
+        {
+            logger.info("Fetching list of databases to dump");
+            conn = getConnection();
+            Statement stmt = conn.createStatement();
+            ResultSet rs = stmt.executeQuery(dbSelect);
+            while (rs.next())
+            {
+                String databaseName = rs.getString(1).trim();
+                if (databaseName.length() > 0)
+                    databaseList.add(databaseName);
+            }
+        }
+        finally
+        {
+            releaseConnection(conn);
+        }
+        return databaseList;
+    }
+
     /**
      * {@inheritDoc}
      * 
@@ -284,7 +351,7 @@ public class PostgreSqlDumpAgent extends AbstractBackupAgent
     protected void restoreOneLocator(BackupLocator locator)
             throws BackupException, FileNotFoundException
     {
-        FileInputStream fis = null;
+        InputStream fis = null;
 
         String databaseName = locator.getDatabaseName();
         logger.info("Dropping database " + databaseName + " before restoring");
@@ -312,12 +379,17 @@ public class PostgreSqlDumpAgent extends AbstractBackupAgent
 
         try
         {
-            fis = new FileInputStream(locator.getContents());
+            fis = locator.getInputStream();
             processHelper.exec("Restoring database " + databaseName
                     + " using pg_restore", processHelper.mergeArrays(
                     pgrestoreCommandArray, new String[]{"-d" + databaseName}),
                     fis, null, null, false, false);
         }
+        catch (IOException e)
+        {
+            throw new BackupException("Unable to read database dump: "
+                    + e.getMessage(), e);
+        }
         finally
         {
             if (fis != null)
@@ -399,6 +471,7 @@ public class PostgreSqlDumpAgent extends AbstractBackupAgent
         // Define capabilities.
         capabilities = new BackupCapabilities();
         capabilities.setHotBackupEnabled(hotBackupEnabled);
+        capabilities.setStreamingRestoreEnabled(true);
     }
 
     /**
@@ -161,6 +161,35 @@ public class ReplicatorConf
     static public final String   RMI_PORT                              = "replicator.rmi_port";
     static public final String   RMI_HOST                              = "replicator.rmi_host";
 
+    /**
+     * Port of the HTTP endpoint that serves metrics in Prometheus format. 0
+     * disables the endpoint.
+     */
+    static public final String   METRICS_HTTP_PORT                     = "replicator.metrics.http_port";
+    static public final String   METRICS_HTTP_PORT_DEFAULT             = "0";
+
+    /** Host name or address the metrics endpoint listens on. */
+    static public final String   METRICS_HTTP_HOST                     = "replicator.metrics.http_host";
+    static public final String   METRICS_HTTP_HOST_DEFAULT             = "localhost";
+
+    /**
+     * Whether to stamp events with the time they cross each pipeline boundary
+     * and report a breakdown of replication lag.
+     */
+    static public final String   LINEAGE_ENABLED                       = "replicator.lineage.enabled";
+    static public final String   LINEAGE_ENABLED_DEFAULT               = "false";
+
+    /**
+     * Trace the steps of one in this many events in every pipeline stage. 0
+     * disables tracing. The rate may be changed at runtime with trepctl.
+     */
+    static public final String   TRACE_SAMPLE_RATE                     = "replicator.trace.sample_rate";
+    static public final String   TRACE_SAMPLE_RATE_DEFAULT             = "0";
+
+    /** Number of traced steps kept for each stage task. */
+    static public final String   TRACE_BUFFER_SIZE                     = "replicator.trace.buffer_size";
+    static public final String   TRACE_BUFFER_SIZE_DEFAULT             = "4096";
+
     /** Extension parameter names. */
     static public final String   EXTENSIONS                            = "replicator.extensions";
     static public final String   EXTENSION_ROOT                        = "replicator.extension";
@@ -245,6 +274,14 @@ public class ReplicatorConf
     public static final String   THL_PROTOCOL_DEFAULT                  = "com.continuent.tungsten.replicator.thl.Connector";
     public static final String   THL_PROTOCOL_BUFFER_SIZE              = "replicator.thl.protocol.buffer_size";
     public static final String   THL_PROTOCOL_BUFFER_SIZE_DEFAULT      = "0";
+    public static final String   THL_PROTOCOL_COMPRESSION              = "replicator.thl.protocol.compression";
+    public static final String   THL_PROTOCOL_COMPRESSION_DEFAULT      = "none";
+    public static final String   THL_PROTOCOL_COMPRESSION_ADAPTIVE     = "replicator.thl.protocol.compression_adaptive";
+    public static final String   THL_PROTOCOL_COMPRESSION_ADAPTIVE_DEFAULT = "true";
+    public static final String   THL_PROTOCOL_CREDIT_BYTES             = "replicator.thl.protocol.credit_bytes";
+    public static final String   THL_PROTOCOL_CREDIT_BYTES_DEFAULT     = "0";
+    public static final String   THL_PROTOCOL_FRAMING                  = "replicator.thl.protocol.framing";
+    public static final String   THL_PROTOCOL_FRAMING_DEFAULT          = "binary";
 
     static public final String   MONITOR_DETAIL_ENABLED                = "replicator.monitor.detail_enabled";
 
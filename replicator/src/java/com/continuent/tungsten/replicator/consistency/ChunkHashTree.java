@@ -0,0 +1,172 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.consistency;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hash tree (Merkle tree) over the consistency check results of consecutive
+ * primary key chunks of a table. Leaves hold the CRC and row count of a chunk,
+ * inner nodes hash their two children, so two trees built from the master and
+ * slave results of the same chunks have equal roots if and only if all chunks
+ * match. Mismatching chunks are found by descending only into subtrees whose
+ * hashes differ.
+ * <p>
+ * Leaves are stored at the bottom of a complete binary tree laid out as an
+ * array: node i has children 2i and 2i+1 and the root is node 1. Missing
+ * chunks (never checked) are represented by a null leaf value.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class ChunkHashTree
+{
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final int      leafCount;
+    private final int      width;
+    private final byte[][] nodes;
+
+    // Number of nodes compared by the last call to diff().
+    private int            compared;
+
+    /**
+     * Builds a tree from chunk results.
+     *
+     * @param leaves Leaf values in chunk order, as returned by
+     *            {@link #leafValue(String, int)}, or null for missing chunks
+     */
+    public ChunkHashTree(List<String> leaves)
+    {
+        leafCount = leaves.size();
+        int w = 1;
+        while (w < leafCount)
+            w <<= 1;
+        width = w;
+        nodes = new byte[2 * width][];
+
+        MessageDigest md = newDigest();
+        for (int i = 0; i < width; i++)
+        {
+            md.reset();
+            String leaf = i < leafCount ? leaves.get(i) : null;
+            if (leaf == null)
+                md.update((byte) 0);
+            else
+            {
+                md.update((byte) 1);
+                md.update(leaf.getBytes(UTF8));
+            }
+            nodes[width + i] = md.digest();
+        }
+        for (int i = width - 1; i >= 1; i--)
+        {
+            md.reset();
+            md.update(nodes[2 * i]);
+            md.update(nodes[2 * i + 1]);
+            nodes[i] = md.digest();
+        }
+    }
+
+    /**
+     * Returns the leaf value of a chunk.
+     *
+     * @param crc Chunk CRC, or null if the chunk has not been checked
+     * @param cnt Chunk row count
+     */
+    public static String leafValue(String crc, int cnt)
+    {
+        if (crc == null)
+            return null;
+        return crc.trim() + "/" + cnt;
+    }
+
+    /** Returns the number of leaves (chunks) in the tree. */
+    public int getLeafCount()
+    {
+        return leafCount;
+    }
+
+    /** Returns the root hash as a hexadecimal string. */
+    public String getRootHash()
+    {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : nodes[1])
+            sb.append(String.format("%02x", b & 0xff));
+        return sb.toString();
+    }
+
+    /**
+     * Returns the indexes of the leaves that differ between this tree and
+     * another one built over the same chunks, in ascending order.
+     *
+     * @param other Tree to compare to
+     */
+    public List<Integer> diff(ChunkHashTree other)
+    {
+        if (other.leafCount != leafCount)
+            throw new IllegalArgumentException(
+                    "Cannot compare hash trees of different sizes: "
+                            + leafCount + " and " + other.leafCount);
+        List<Integer> mismatches = new ArrayList<Integer>();
+        compared = 0;
+        diff(other, 1, mismatches);
+        return mismatches;
+    }
+
+    /** Returns the number of nodes compared by the last diff. */
+    public int getCompared()
+    {
+        return compared;
+    }
+
+    // Descends into node i if it differs between the two trees.
+    private void diff(ChunkHashTree other, int i, List<Integer> mismatches)
+    {
+        compared++;
+        if (Arrays.equals(nodes[i], other.nodes[i]))
+            return;
+        if (i >= width)
+        {
+            if (i - width < leafCount)
+                mismatches.add(i - width);
+            return;
+        }
+        diff(other, 2 * i, mismatches);
+        diff(other, 2 * i + 1, mismatches);
+    }
+
+    private static MessageDigest newDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance("MD5");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException("MD5 digest is not available", e);
+        }
+    }
+}
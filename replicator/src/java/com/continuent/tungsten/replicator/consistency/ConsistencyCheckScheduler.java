@@ -0,0 +1,589 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.consistency;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+import com.continuent.tungsten.replicator.database.Table;
+
+/**
+ * Scans tables chunk by chunk with consistency checks issued concurrently by a
+ * pool of threads, while results are collected from the slaves asynchronously
+ * by the calling thread. Chunks of all tables are handed out round-robin, so
+ * several tables are scanned at the same time. Checks are paced by a
+ * {@link ScanThrottle} and the number of checks waiting for slave results is
+ * bounded, so the scan never runs far ahead of replication.
+ * <p>
+ * If a target latency is set, the chunk size of each table adapts to the
+ * observed time from issuing each of its checks until all slaves report the
+ * result: it doubles while checks take less than half the target and halves
+ * while they take more than twice the target. Latency includes the time for
+ * checks to replicate, so it is only accurate to the poll interval.
+ * Chunk sizes stay powers of two as long as the initial size is one, which
+ * keeps mismatching chunks suitable for drilling down.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class ConsistencyCheckScheduler
+{
+    private static Logger logger = Logger.getLogger(ConsistencyCheckScheduler.class);
+
+    /**
+     * Issues consistency checks. Must be safe to call from several threads.
+     */
+    public interface CheckIssuer
+    {
+        /**
+         * Issues a consistency check of a chunk.
+         *
+         * @return ID of the check
+         */
+        int issue(Table table, long row, int range) throws Exception;
+    }
+
+    /**
+     * Reads consistency check results from the slaves. Only called from the
+     * thread running the scheduler.
+     */
+    public interface ResultCollector
+    {
+        /**
+         * Returns the results of the given checks that are complete on a
+         * slave, true for checks that passed. Checks that did not arrive yet
+         * are left out.
+         */
+        Map<Integer, Boolean> collect(int slave, Collection<Integer> ids)
+                throws Exception;
+    }
+
+    /**
+     * A chunk that did not match on a slave, or whose result did not arrive
+     * in time.
+     */
+    public static class Mismatch
+    {
+        private final Table   table;
+        private final long    row;
+        private final int     range;
+        private final int     slave;
+        private final int     id;
+        private final boolean timedOut;
+
+        Mismatch(PendingCheck check, int slave, boolean timedOut)
+        {
+            this.table = check.scan.table;
+            this.row = check.row;
+            this.range = check.range;
+            this.id = check.id;
+            this.slave = slave;
+            this.timedOut = timedOut;
+        }
+
+        public Table getTable()
+        {
+            return table;
+        }
+
+        public long getRow()
+        {
+            return row;
+        }
+
+        public int getRange()
+        {
+            return range;
+        }
+
+        public int getSlave()
+        {
+            return slave;
+        }
+
+        public int getId()
+        {
+            return id;
+        }
+
+        public boolean isTimedOut()
+        {
+            return timedOut;
+        }
+    }
+
+    // Scan position of one table.
+    private static class TableScan
+    {
+        private final Table table;
+        private final long  till;
+        private long        next;
+        private int         chunkSize;
+
+        TableScan(Table table, long from, long till, int chunkSize)
+        {
+            this.table = table;
+            this.next = from;
+            this.till = till;
+            this.chunkSize = chunkSize;
+        }
+    }
+
+    // Check of a chunk, waiting for results from the slaves.
+    private static class PendingCheck
+    {
+        private final TableScan scan;
+        private final long      row;
+        private final int       range;
+        private int             id;
+        private long            start;
+        private long            issued;
+        private int             unresolved;
+        private boolean         failed;
+
+        PendingCheck(TableScan scan, long row, int range)
+        {
+            this.scan = scan;
+            this.row = row;
+            this.range = range;
+        }
+    }
+
+    private final CheckIssuer                       issuer;
+    private final ResultCollector                   collector;
+    private final int                               slaveCount;
+
+    // Settings.
+    private int                                     threads       = 1;
+    private ScanThrottle                            throttle;
+    private long                                    targetLatency = 0;
+    private int                                     minChunkSize  = 1;
+    private int                                     maxChunkSize  = 1 << 24;
+    private int                                     timeout       = 30;
+    private int                                     maxPending    = 0;
+    private long                                    pollInterval  = 100;
+
+    // Scan state, guarded by the lock.
+    private final Object                            lock          = new Object();
+    private final List<TableScan>                   scans         = new ArrayList<TableScan>();
+    private final List<Map<Integer, PendingCheck>> pending       = new ArrayList<Map<Integer, PendingCheck>>();
+    private final List<Mismatch>                    mismatches    = new ArrayList<Mismatch>();
+    private int                                     nextScan      = 0;
+    private int                                     pendingChecks = 0;
+    private int                                     activeWorkers = 0;
+    private Exception                               failure;
+
+    // Statistics.
+    private long                                    issued;
+    private long                                    passed;
+    private long                                    completed;
+    private long                                    totalLatency;
+
+    /**
+     * Creates a new scheduler.
+     *
+     * @param issuer Issues checks on the master
+     * @param collector Reads check results from the slaves
+     * @param slaveCount Number of slaves to collect results from
+     */
+    public ConsistencyCheckScheduler(CheckIssuer issuer,
+            ResultCollector collector, int slaveCount)
+    {
+        this.issuer = issuer;
+        this.collector = collector;
+        this.slaveCount = slaveCount;
+        this.throttle = new ScanThrottle(0, 0);
+        for (int i = 0; i < slaveCount; i++)
+            pending.add(new LinkedHashMap<Integer, PendingCheck>());
+    }
+
+    /** Sets the number of threads issuing checks. */
+    public void setThreads(int threads)
+    {
+        this.threads = Math.max(threads, 1);
+    }
+
+    /** Sets the throttle pacing checks. */
+    public void setThrottle(ScanThrottle throttle)
+    {
+        this.throttle = throttle;
+    }
+
+    /**
+     * Sets the target time in milliseconds from issuing a check until all
+     * slaves report its result, which enables adaptive chunk sizes. 0 keeps
+     * chunk sizes fixed.
+     */
+    public void setTargetLatency(long targetLatency)
+    {
+        this.targetLatency = targetLatency;
+    }
+
+    /** Sets the bounds of adaptive chunk sizes. */
+    public void setChunkSizeLimits(int minChunkSize, int maxChunkSize)
+    {
+        this.minChunkSize = Math.max(minChunkSize, 1);
+        this.maxChunkSize = Math.max(maxChunkSize, this.minChunkSize);
+    }
+
+    /** Sets how long to wait for a check to arrive to a slave, in seconds. */
+    public void setTimeout(int timeout)
+    {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Sets the maximum number of checks waiting for slave results. 0 allows 16
+     * per thread.
+     */
+    public void setMaxPending(int maxPending)
+    {
+        this.maxPending = maxPending;
+    }
+
+    /** Sets how long to wait between polls of slave results, in milliseconds. */
+    public void setPollInterval(long pollInterval)
+    {
+        this.pollInterval = pollInterval;
+    }
+
+    /**
+     * Adds a table to scan.
+     *
+     * @param table Table to scan
+     * @param from First row (PK value or position) to check
+     * @param till Row at which to stop, exclusive
+     * @param chunkSize Initial chunk size
+     */
+    public void addTable(Table table, long from, long till, int chunkSize)
+    {
+        scans.add(new TableScan(table, from, till, chunkSize));
+    }
+
+    /**
+     * Scans all tables and waits for the results of all checks.
+     *
+     * @return Chunks that did not match, ordered by table and row
+     * @throws Exception Thrown if a check could not be issued or results could
+     *             not be read
+     */
+    public List<Mismatch> run() throws Exception
+    {
+        final int pendingLimit = maxPending > 0 ? maxPending : threads * 16;
+        final AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads,
+                new ThreadFactory()
+                {
+                    public Thread newThread(Runnable r)
+                    {
+                        Thread t = new Thread(r, "datascan-check-"
+                                + threadCount.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        activeWorkers = threads;
+        for (int i = 0; i < threads; i++)
+        {
+            pool.execute(new Runnable()
+            {
+                public void run()
+                {
+                    issueChecks(pendingLimit);
+                }
+            });
+        }
+
+        try
+        {
+            collectResults();
+        }
+        catch (Exception e)
+        {
+            fail(e);
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+
+        if (failure != null)
+            throw failure;
+        logger.info("Consistency check scan completed: " + toString());
+
+        Collections.sort(mismatches, new Comparator<Mismatch>()
+        {
+            public int compare(Mismatch a, Mismatch b)
+            {
+                int c = a.table.getName().compareTo(b.table.getName());
+                if (c == 0)
+                    c = Long.valueOf(a.row).compareTo(b.row);
+                if (c == 0)
+                    c = a.slave - b.slave;
+                return c;
+            }
+        });
+        return mismatches;
+    }
+
+    // Issues checks until all chunks are handed out or the scan fails.
+    private void issueChecks(int pendingLimit)
+    {
+        try
+        {
+            while (true)
+            {
+                PendingCheck check;
+                synchronized (lock)
+                {
+                    while (pendingChecks >= pendingLimit && failure == null)
+                        lock.wait();
+                    if (failure != null)
+                        return;
+                    check = nextChunk();
+                    if (check == null)
+                        return;
+                    // Reserve room for the check while it is being issued.
+                    pendingChecks++;
+                }
+
+                throttle.acquire(check.range);
+                check.start = System.currentTimeMillis();
+                check.id = issuer.issue(check.scan.table, check.row,
+                        check.range);
+                check.issued = System.currentTimeMillis();
+
+                synchronized (lock)
+                {
+                    issued++;
+                    check.unresolved = slaveCount;
+                    if (slaveCount == 0)
+                        pendingChecks--;
+                    for (Map<Integer, PendingCheck> slavePending : pending)
+                        slavePending.put(check.id, check);
+                    lock.notifyAll();
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            // We are being stopped.
+        }
+        catch (Exception e)
+        {
+            fail(e);
+        }
+        finally
+        {
+            synchronized (lock)
+            {
+                activeWorkers--;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    // Returns the next chunk to check, taking tables in turn.
+    private PendingCheck nextChunk()
+    {
+        for (int i = 0; i < scans.size(); i++)
+        {
+            int index = (nextScan + i) % scans.size();
+            TableScan scan = scans.get(index);
+            if (scan.next < scan.till)
+            {
+                nextScan = (index + 1) % scans.size();
+                PendingCheck check = new PendingCheck(scan, scan.next,
+                        scan.chunkSize);
+                scan.next += scan.chunkSize;
+                return check;
+            }
+        }
+        return null;
+    }
+
+    // Adjusts the chunk size of a table to the latency of one of its checks,
+    // measured from issue until all slaves reported the result.
+    private void adapt(PendingCheck check, long latency)
+    {
+        TableScan scan = check.scan;
+        if (targetLatency <= 0 || check.range != scan.chunkSize)
+            return;
+        if (latency < targetLatency / 2 && scan.chunkSize <= maxChunkSize / 2)
+            scan.chunkSize *= 2;
+        else if (latency > targetLatency * 2
+                && scan.chunkSize >= minChunkSize * 2)
+            scan.chunkSize /= 2;
+    }
+
+    // Polls slaves for results until all checks are resolved.
+    private void collectResults() throws Exception
+    {
+        while (true)
+        {
+            List<List<Integer>> ids = new ArrayList<List<Integer>>(slaveCount);
+            synchronized (lock)
+            {
+                if (failure != null
+                        || (activeWorkers == 0 && pendingChecks == 0))
+                    return;
+                for (Map<Integer, PendingCheck> slavePending : pending)
+                    ids.add(new ArrayList<Integer>(slavePending.keySet()));
+            }
+
+            for (int slave = 0; slave < slaveCount; slave++)
+            {
+                if (ids.get(slave).isEmpty())
+                    continue;
+                Map<Integer, Boolean> results = collector.collect(slave,
+                        ids.get(slave));
+                synchronized (lock)
+                {
+                    for (Map.Entry<Integer, Boolean> result : results
+                            .entrySet())
+                    {
+                        PendingCheck check = pending.get(slave).remove(
+                                result.getKey());
+                        if (check == null)
+                            continue;
+                        if (!result.getValue())
+                            mismatches.add(new Mismatch(check, slave, false));
+                        resolve(check, result.getValue());
+                    }
+                }
+            }
+
+            // Give up on checks that did not arrive in time.
+            synchronized (lock)
+            {
+                long expiry = System.currentTimeMillis() - timeout * 1000L;
+                for (int slave = 0; slave < slaveCount; slave++)
+                {
+                    Iterator<PendingCheck> i = pending.get(slave).values()
+                            .iterator();
+                    while (i.hasNext())
+                    {
+                        PendingCheck check = i.next();
+                        if (check.issued < expiry)
+                        {
+                            i.remove();
+                            logger.warn("Consistency check did not arrive in time: id="
+                                    + check.id + " slave=" + slave);
+                            mismatches.add(new Mismatch(check, slave, true));
+                            resolve(check, false);
+                        }
+                    }
+                }
+            }
+
+            Thread.sleep(pollInterval);
+        }
+    }
+
+    // Records the result of a check on one slave.
+    private void resolve(PendingCheck check, boolean ok)
+    {
+        if (!ok)
+            check.failed = true;
+        if (--check.unresolved == 0)
+        {
+            pendingChecks--;
+            if (!check.failed)
+                passed++;
+            long latency = System.currentTimeMillis() - check.start;
+            completed++;
+            totalLatency += latency;
+            adapt(check, latency);
+            lock.notifyAll();
+        }
+    }
+
+    private void fail(Exception e)
+    {
+        synchronized (lock)
+        {
+            if (failure == null)
+                failure = e;
+            lock.notifyAll();
+        }
+    }
+
+    /** Returns the number of checks issued. */
+    public long getIssued()
+    {
+        synchronized (lock)
+        {
+            return issued;
+        }
+    }
+
+    /** Returns the number of checks that passed on all slaves. */
+    public long getPassed()
+    {
+        synchronized (lock)
+        {
+            return passed;
+        }
+    }
+
+    /** Returns the current chunk size of a table. */
+    public int getChunkSize(Table table)
+    {
+        synchronized (lock)
+        {
+            for (TableScan scan : scans)
+            {
+                if (scan.table == table)
+                    return scan.chunkSize;
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Object#toString()
+     */
+    public String toString()
+    {
+        synchronized (lock)
+        {
+            return this.getClass().getSimpleName() + " tables="
+                    + scans.size() + " threads=" + threads + " issued="
+                    + issued + " passed=" + passed + " mismatches="
+                    + mismatches.size() + " avgLatencyMillis="
+                    + (completed == 0 ? 0 : totalLatency / completed) + " "
+                    + throttle;
+        }
+    }
+}
@@ -0,0 +1,438 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.consistency;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.continuent.tungsten.replicator.database.Database;
+import com.continuent.tungsten.replicator.database.Key;
+import com.continuent.tungsten.replicator.database.SqlObject;
+import com.continuent.tungsten.replicator.database.SqlOperation;
+import com.continuent.tungsten.replicator.database.Table;
+import com.continuent.tungsten.replicator.dbms.OneRowChange;
+
+/**
+ * Tracks the primary key chunks touched by applied row changes so that
+ * incremental consistency checks only need to re-hash those chunks. Chunks
+ * are aligned on multiples of the chunk size, chunk c covering keys from c *
+ * chunkSize to (c + 1) * chunkSize - 1, which matches the PK method chunks
+ * used by DataScanCtrl in incremental mode.
+ * <p>
+ * Touched chunks are collected during a transaction and flushed at commit by
+ * clearing the local CRC of the matching rows of the consistency table, which
+ * marks the persisted chunk results as stale. Only tables with a
+ * single-column numeric primary key are tracked by key.
+ * <p>
+ * Statements do not tell us which rows they change, so DML and DDL statements
+ * mark all chunks of the tables they name as stale, DROP DATABASE marks all
+ * chunks of the schema and statements that cannot be mapped to a table, such
+ * as procedure calls, mark all chunks of all tables. Changes that are not
+ * applied through an applier using this tracker are not seen at all.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class ConsistencyChunkTracker
+{
+    private final String                   metadataSchema;
+    private final int                      chunkSize;
+    private final String                   update;
+    private final String                   updateTable;
+    private final String                   updateSchema;
+    private final String                   updateAll;
+
+    // Chunk offsets touched by the current transaction, by table.
+    private final Map<String, TableChunks> pending = new LinkedHashMap<String, TableChunks>();
+
+    // Schemas all of whose chunks are stale, and whether all chunks are.
+    private final Set<String>              pendingSchemas = new LinkedHashSet<String>();
+    private boolean                        pendingAll;
+
+    // Statistics.
+    private long                           trackedRows;
+    private long                           flushedChunks;
+    private long                           trackedStatements;
+
+    /**
+     * Creates a new tracker.
+     *
+     * @param metadataSchema Schema holding the consistency table
+     * @param chunkSize Chunk size, in primary key values
+     */
+    public ConsistencyChunkTracker(String metadataSchema, int chunkSize)
+    {
+        this.metadataSchema = metadataSchema;
+        this.chunkSize = chunkSize;
+        String clear = String.format("UPDATE %s.%s SET %s = NULL WHERE ",
+                metadataSchema, ConsistencyTable.TABLE_NAME,
+                ConsistencyTable.thisCrcColumnName);
+        String chunks = String.format("%s = ? AND %s = ?",
+                ConsistencyTable.limitColumnName,
+                ConsistencyTable.methodColumnName);
+        this.update = clear
+                + String.format("%s = ? AND %s = ? AND %s = ? AND ",
+                        ConsistencyTable.dbColumnName,
+                        ConsistencyTable.tblColumnName,
+                        ConsistencyTable.offsetColumnName) + chunks;
+        this.updateTable = clear
+                + String.format("%s = ? AND %s = ? AND ",
+                        ConsistencyTable.dbColumnName,
+                        ConsistencyTable.tblColumnName) + chunks;
+        this.updateSchema = clear
+                + String.format("%s = ? AND ", ConsistencyTable.dbColumnName)
+                + chunks;
+        this.updateAll = clear + chunks;
+    }
+
+    /**
+     * Returns the offset of the chunk holding the given key.
+     */
+    public static long chunkOffset(long key, int chunkSize)
+    {
+        long offset = key - (key % chunkSize);
+        if (key < 0 && offset != key)
+            offset -= chunkSize;
+        return offset;
+    }
+
+    /**
+     * Records the chunks touched by a row change.
+     *
+     * @param change Row change being applied
+     * @param table Metadata of the changed table
+     */
+    public void record(OneRowChange change, Table table)
+    {
+        Key pk = table.getPrimaryKey();
+        if (pk == null || pk.getColumns().size() != 1
+                || !DataScanCtrl.isNumericCol(pk.getColumns().get(0)))
+            return;
+        int position = pk.getColumns().get(0).getPosition();
+
+        String name = change.getSchemaName() + "." + change.getTableName();
+        TableChunks chunks = pending.get(name);
+        if (chunks == null)
+        {
+            chunks = new TableChunks(change.getSchemaName(),
+                    change.getTableName());
+            pending.put(name, chunks);
+        }
+        else if (chunks.all)
+            return;
+
+        // Keys identify the rows before the change, column values after it,
+        // so that both chunks are marked if the key itself is updated.
+        record(chunks, change.getKeySpec(), change.getKeyValues(), position);
+        record(chunks, change.getColumnSpec(), change.getColumnValues(),
+                position);
+        if (chunks.offsets.isEmpty() && !chunks.all)
+            pending.remove(name);
+    }
+
+    /**
+     * Records the chunks touched by a statement. As the changed rows are not
+     * known, all chunks of the affected tables are marked.
+     *
+     * @param sqlOperation Parsed statement being applied
+     * @param defaultSchema Default schema of the statement
+     */
+    public void record(SqlOperation sqlOperation, String defaultSchema)
+    {
+        int type = sqlOperation.getObjectType();
+        int op = sqlOperation.getOperation();
+        if (type == SqlOperation.TRANSACTION || type == SqlOperation.SESSION
+                || op == SqlOperation.SELECT)
+            return;
+
+        if (type == SqlOperation.TABLE)
+        {
+            // DML or DDL on named tables.
+            recordTable(sqlOperation.getSchema(), defaultSchema,
+                    sqlOperation.getName());
+            if (sqlOperation.hasMoreDatabaseObjects())
+            {
+                for (SqlObject sqlObject : sqlOperation
+                        .getMoreDatabaseObjects())
+                    recordTable(sqlObject.getSchema(), defaultSchema,
+                            sqlObject.getName());
+            }
+        }
+        else if (type == SqlOperation.SCHEMA)
+        {
+            String schema = sqlOperation.getSchema();
+            if (schema == null)
+                schema = sqlOperation.getName();
+            if (op == SqlOperation.DROP && schema != null
+                    && !metadataSchema.equals(schema))
+            {
+                pendingSchemas.add(schema);
+                trackedStatements++;
+            }
+        }
+        else if (type == SqlOperation.VIEW || type == SqlOperation.INDEX
+                || type == SqlOperation.TRIGGER || type == SqlOperation.DBMS)
+        {
+            // These do not change table contents.
+            return;
+        }
+        else
+        {
+            // Procedure calls, blocks and unrecognized statements may change
+            // any table.
+            pendingAll = true;
+            trackedStatements++;
+        }
+    }
+
+    // Marks all chunks of a single table.
+    private void recordTable(String schema, String defaultSchema,
+            String tableName)
+    {
+        if (schema == null)
+            schema = defaultSchema;
+        if (schema == null || tableName == null)
+        {
+            pendingAll = true;
+            trackedStatements++;
+            return;
+        }
+        if (metadataSchema.equals(schema))
+            return;
+
+        String name = schema + "." + tableName;
+        TableChunks chunks = pending.get(name);
+        if (chunks == null)
+        {
+            chunks = new TableChunks(schema, tableName);
+            pending.put(name, chunks);
+        }
+        chunks.all = true;
+        chunks.offsets.clear();
+        trackedStatements++;
+    }
+
+    private void record(TableChunks chunks,
+            List<OneRowChange.ColumnSpec> specs,
+            List<ArrayList<OneRowChange.ColumnVal>> values, int position)
+    {
+        int idx = -1;
+        for (int i = 0; i < specs.size(); i++)
+        {
+            if (specs.get(i).getIndex() == position)
+            {
+                idx = i;
+                break;
+            }
+        }
+        if (idx < 0)
+            return;
+
+        for (ArrayList<OneRowChange.ColumnVal> row : values)
+        {
+            if (idx >= row.size())
+                continue;
+            Object value = row.get(idx).getValue();
+            if (!(value instanceof Number))
+                continue;
+            long offset = chunkOffset(((Number) value).longValue(), chunkSize);
+
+            // Consistency check offsets are integers.
+            if (offset < Integer.MIN_VALUE || offset > Integer.MAX_VALUE)
+                continue;
+            chunks.offsets.add(offset);
+            trackedRows++;
+        }
+    }
+
+    /**
+     * Marks the chunks touched since the last flush as stale. Must be called
+     * within the transaction that applied the changes.
+     *
+     * @param conn Connection on which changes were applied
+     * @return Number of chunks flushed
+     */
+    public int flush(Database conn) throws SQLException
+    {
+        if (pending.isEmpty() && pendingSchemas.isEmpty() && !pendingAll)
+            return 0;
+
+        int count = 0;
+        try
+        {
+            if (pendingAll)
+            {
+                // Nothing else matters if all chunks are stale.
+                count += clearChunks(conn, updateAll);
+                return count;
+            }
+            for (String schema : pendingSchemas)
+                count += clearChunks(conn, updateSchema, schema);
+
+            PreparedStatement ps = null;
+            try
+            {
+                ps = conn.prepareStatement(update);
+                int batched = 0;
+                for (TableChunks chunks : pending.values())
+                {
+                    if (chunks.all)
+                    {
+                        count += clearChunks(conn, updateTable,
+                                chunks.schema, chunks.table);
+                        continue;
+                    }
+                    for (long offset : chunks.offsets)
+                    {
+                        ps.setString(1, chunks.schema);
+                        ps.setString(2, chunks.table);
+                        ps.setInt(3, (int) offset);
+                        ps.setInt(4, chunkSize);
+                        ps.setString(5, ConsistencyCheck.Method.MD5PK);
+                        ps.addBatch();
+                        batched++;
+                    }
+                }
+                if (batched > 0)
+                    ps.executeBatch();
+                count += batched;
+            }
+            finally
+            {
+                close(ps);
+            }
+        }
+        finally
+        {
+            clear();
+            flushedChunks += count;
+        }
+        return count;
+    }
+
+    // Clears the CRC of all chunks that match a statement, whose leading
+    // parameters are the given values.
+    private int clearChunks(Database conn, String sql, String... values)
+            throws SQLException
+    {
+        PreparedStatement ps = null;
+        try
+        {
+            ps = conn.prepareStatement(sql);
+            int i = 1;
+            for (String value : values)
+                ps.setString(i++, value);
+            ps.setInt(i++, chunkSize);
+            ps.setString(i, ConsistencyCheck.Method.MD5PK);
+            return ps.executeUpdate();
+        }
+        finally
+        {
+            close(ps);
+        }
+    }
+
+    private void close(PreparedStatement ps)
+    {
+        if (ps != null)
+        {
+            try
+            {
+                ps.close();
+            }
+            catch (SQLException e)
+            {
+            }
+        }
+    }
+
+    /** Forgets chunks touched by a transaction that was rolled back. */
+    public void clear()
+    {
+        pending.clear();
+        pendingSchemas.clear();
+        pendingAll = false;
+    }
+
+    /** Returns the number of pending chunks of tables tracked by key. */
+    public int getPendingChunks()
+    {
+        int count = 0;
+        for (TableChunks chunks : pending.values())
+            count += chunks.offsets.size();
+        return count;
+    }
+
+    /**
+     * Returns the names of tables all of whose chunks are pending, as
+     * schema.table, or "schema.*" for whole schemas and "*" if all chunks are
+     * pending.
+     */
+    public List<String> getPendingTables()
+    {
+        List<String> names = new ArrayList<String>();
+        if (pendingAll)
+            names.add("*");
+        for (String schema : pendingSchemas)
+            names.add(schema + ".*");
+        for (Map.Entry<String, TableChunks> entry : pending.entrySet())
+        {
+            if (entry.getValue().all)
+                names.add(entry.getKey());
+        }
+        return names;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Object#toString()
+     */
+    public String toString()
+    {
+        return this.getClass().getSimpleName() + " chunkSize=" + chunkSize
+                + " trackedRows=" + trackedRows + " trackedStatements="
+                + trackedStatements + " flushedChunks=" + flushedChunks;
+    }
+
+    // Chunks touched in one table.
+    private static class TableChunks
+    {
+        private final String        schema;
+        private final String        table;
+        private final TreeSet<Long> offsets = new TreeSet<Long>();
+
+        // If true, all chunks of the table are stale.
+        private boolean             all;
+
+        TableChunks(String schema, String table)
+        {
+            this.schema = schema;
+            this.table = table;
+        }
+    }
+}
@@ -28,9 +28,13 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
 
 import javax.management.remote.JMXConnector;
 
@@ -97,6 +101,22 @@ public class DataScanCtrl
     int                                chunkPause       = -1;
     private int                        granularity      = 1;
 
+    /**
+     * Only re-hash chunks changed since the last check and compare chunk
+     * results with hash trees.
+     */
+    private boolean                    recentlyChanged  = false;
+
+    /** Number of threads issuing checks concurrently. */
+    private int                        parallel         = 1;
+
+    /** Throttles of checks issued to the master, 0 - unlimited. */
+    private double                     maxQps           = 0;
+    private long                       maxRowsPerSecond = 0;
+
+    /** Target time to issue a check, 0 - fixed chunk size. */
+    private long                       targetLatency    = 0;
+
     /** Where to start scanning the table. Used with a single table. */
     private long                       rowFrom          = ConsistencyTable.ROW_UNSET;
     /** Where to stop scanning the table. Used with a single table. */
@@ -259,6 +279,32 @@ public class DataScanCtrl
                 if (rowTill < 0)
                     fatal("-till option requires a non-negative number", null);
             }
+            else if ("-recently-changed".equals(curArg))
+            {
+                recentlyChanged = true;
+            }
+            else if ("-parallel".equals(curArg))
+            {
+                if (argvIterator.hasNext())
+                    parallel = Integer.parseInt(argvIterator.next());
+                if (parallel < 1)
+                    fatal("-parallel option requires a positive number", null);
+            }
+            else if ("-max-qps".equals(curArg))
+            {
+                if (argvIterator.hasNext())
+                    maxQps = Double.parseDouble(argvIterator.next());
+            }
+            else if ("-max-rows".equals(curArg))
+            {
+                if (argvIterator.hasNext())
+                    maxRowsPerSecond = Long.parseLong(argvIterator.next());
+            }
+            else if ("-target-latency".equals(curArg))
+            {
+                if (argvIterator.hasNext())
+                    targetLatency = Long.parseLong(argvIterator.next());
+            }
             else if ("-verbose".equals(curArg))
             {
                 verbose = true;
@@ -730,10 +776,18 @@ public class DataScanCtrl
             println("Database: " + schema);
             println("Table(s): " + tables);
 
-            Table table = masterDbUser.findTable(schema, tables, true);
-            if (tables == null || table == null)
-                fatal("Table not found (note: multiple tables not supported yet)",
-                        null);
+            List<Table> tableList = findTables();
+            if (tableList.isEmpty())
+                fatal("Table not found", null);
+            if (tableList.size() > 1 || isScheduled())
+            {
+                scheduledCheck(tableList);
+                println("");
+                println("Checking completed.");
+                return;
+            }
+
+            Table table = tableList.get(0);
             if (printValues)
             {
                 println("Columns:");
@@ -754,6 +808,19 @@ public class DataScanCtrl
                                 rowTill));
             }
 
+            if (recentlyChanged)
+            {
+                // Chunks must match the ones tracked by slave appliers.
+                if (!methodPk || chunkSize == -1)
+                    fatal("-recently-changed requires -method pk and a fixed -chunk size",
+                            null);
+                println("Chunk size: " + chunkSize + " (aligned)");
+                incrementalCheck(table);
+                println("");
+                println("Checking completed.");
+                return;
+            }
+
             String chunkNote = "";
             if (chunkSize == -1 || chunkSize > (rowTill - rowFrom))
             {
@@ -781,10 +848,7 @@ public class DataScanCtrl
                         print("-");
                     if (!consistent)
                     {
-                        String host = slaveDbTungsten[c].getDatabaseMetaData()
-                                .getURL();
-                        if (!checkDirect && slaves != null)
-                            host = slaves.get(c).get(ProtocolParams.RMI_HOST);
+                        String host = slaveHost(c);
                         println("x");
                         printvln("Inconsistent chunk @ " + host + ": row=" + r
                                 + " range=" + chunkSize + " check=" + id);
@@ -809,6 +873,399 @@ public class DataScanCtrl
         }
     }
 
+    /**
+     * Returns the tables to check: the table named by -tables if it exists,
+     * otherwise the tables whose name matches -tables as a regular expression,
+     * or all tables of the database if -tables is not given.
+     */
+    private List<Table> findTables() throws SQLException
+    {
+        List<Table> found = new ArrayList<Table>();
+        if (tables != null)
+        {
+            Table table = masterDbUser.findTable(schema, tables, true);
+            if (table != null)
+            {
+                found.add(table);
+                return found;
+            }
+        }
+
+        Pattern pattern = tables == null ? null : Pattern.compile(tables);
+        for (Table table : masterDbUser.getTables(schema, true, true))
+        {
+            if (pattern == null || pattern.matcher(table.getName()).matches())
+                found.add(table);
+        }
+        return found;
+    }
+
+    /**
+     * Returns true if checks should be run by the scheduler rather than one at
+     * a time.
+     */
+    private boolean isScheduled()
+    {
+        return parallel > 1 || maxQps > 0 || maxRowsPerSecond > 0
+                || targetLatency > 0;
+    }
+
+    /**
+     * Scheduled check of one or more tables. Checks are issued concurrently
+     * and throttled, their results are collected from the slaves
+     * asynchronously and mismatching chunks are drilled down once the scan
+     * completes. See {@link ConsistencyCheckScheduler}.
+     */
+    private void scheduledCheck(List<Table> tableList) throws Exception
+    {
+        if (recentlyChanged)
+            fatal("-recently-changed works with a single table and without -parallel or throttling",
+                    null);
+        if (chunkSize == -1)
+            fatal("Checking several tables or in parallel requires a fixed -chunk size",
+                    null);
+
+        ConsistencyCheckScheduler scheduler = new ConsistencyCheckScheduler(
+                new ConsistencyCheckScheduler.CheckIssuer()
+                {
+                    public int issue(Table table, long row, int range)
+                            throws Exception
+                    {
+                        if (!checkDirect)
+                            return consistencyCheck(table, row, range);
+
+                        // Direct checks share the slave connection with the
+                        // result collector.
+                        synchronized (slaveDbTungsten[0])
+                        {
+                            return consistencyCheck(table, row, range);
+                        }
+                    }
+                }, new ConsistencyCheckScheduler.ResultCollector()
+                {
+                    public Map<Integer, Boolean> collect(int slave,
+                            Collection<Integer> ids) throws Exception
+                    {
+                        return retrieveCheckResults(slaveDbTungsten[slave],
+                                ids);
+                    }
+                }, slaveDbTungsten.length);
+
+        // Direct checks go through a single master connection.
+        int threads = checkDirect ? 1 : parallel;
+        scheduler.setThreads(threads);
+        scheduler.setThrottle(new ScanThrottle(maxQps, maxRowsPerSecond));
+        scheduler.setTargetLatency(targetLatency);
+        scheduler.setChunkSizeLimits(findClosestChunk(granularity - 1),
+                1 << 24);
+        scheduler.setTimeout(checkTimeout);
+
+        println("Method: " + (methodPk ? "pk" : "limit"));
+        println("Chunk size: " + chunkSize
+                + (targetLatency > 0 ? " (adaptive, target latency "
+                        + targetLatency + " ms)" : ""));
+        println("Parallel: " + threads);
+        if (maxQps > 0)
+            println("Max checks per second: " + maxQps);
+        if (maxRowsPerSecond > 0)
+            println("Max rows per second: " + maxRowsPerSecond);
+
+        for (Table table : tableList)
+        {
+            if (!validateTable(table) && methodPk)
+            {
+                println("Skipping table: " + table.getName());
+                continue;
+            }
+            long from;
+            long till;
+            if (methodPk)
+            {
+                from = rowFrom >= 0 ? rowFrom : retrieveMaxMinPK(
+                        masterDbUser, table, false);
+                till = rowTill >= 0 ? rowTill : retrieveMaxMinPK(
+                        masterDbUser, table, true) + 1;
+            }
+            else
+            {
+                from = rowFrom >= 0 ? rowFrom : 0;
+                till = rowTill >= 0 ? rowTill : retrieveRowCount(
+                        masterDbUser, table);
+            }
+            println(String.format("Table %s: rows %d-%d", table.getName(),
+                    from, till));
+            scheduler.addTable(table, from, till, chunkSize);
+        }
+
+        println("Checking (scheduled)...");
+        List<ConsistencyCheckScheduler.Mismatch> mismatches = scheduler.run();
+        println(String.format("Checks issued: %d, passed: %d",
+                scheduler.getIssued(), scheduler.getPassed()));
+
+        for (ConsistencyCheckScheduler.Mismatch m : mismatches)
+        {
+            String host = slaveHost(m.getSlave());
+            if (m.isTimedOut())
+            {
+                println("Check did not arrive in time @ " + host + ": table="
+                        + m.getTable().getName() + " row=" + m.getRow()
+                        + " range=" + m.getRange() + " check=" + m.getId());
+                continue;
+            }
+            println("Inconsistent chunk @ " + host + ": table="
+                    + m.getTable().getName() + " row=" + m.getRow()
+                    + " range=" + m.getRange() + " check=" + m.getId());
+            printvln("Drilling down (binary search):");
+            drillDown(m.getTable(), m.getRow(), m.getRange(),
+                    slaveDbTungsten[m.getSlave()], host);
+            printvln("");
+        }
+    }
+
+    /**
+     * Returns the results of the given checks that are complete on a slave,
+     * true for checks that passed.
+     */
+    private Map<Integer, Boolean> retrieveCheckResults(Database conn,
+            Collection<Integer> ids) throws SQLException
+    {
+        StringBuilder in = new StringBuilder();
+        for (Integer id : ids)
+        {
+            if (in.length() > 0)
+                in.append(',');
+            in.append(id);
+        }
+        String query = String.format(
+                "SELECT %s,%s,%s,%s,%s FROM %s.%s WHERE %s IN (%s)",
+                ConsistencyTable.idColumnName,
+                ConsistencyTable.thisCrcColumnName,
+                ConsistencyTable.thisCntColumnName,
+                ConsistencyTable.masterCrcColumnName,
+                ConsistencyTable.masterCntColumnName, serviceSchema,
+                ConsistencyTable.TABLE_NAME, ConsistencyTable.idColumnName,
+                in);
+
+        Map<Integer, Boolean> results = new HashMap<Integer, Boolean>();
+        synchronized (conn)
+        {
+            Statement st = null;
+            ResultSet rs = null;
+            try
+            {
+                st = conn.createStatement();
+                rs = st.executeQuery(query);
+                while (rs.next())
+                {
+                    String thisLeaf = ChunkHashTree.leafValue(
+                            rs.getString(ConsistencyTable.thisCrcColumnName),
+                            rs.getInt(ConsistencyTable.thisCntColumnName));
+                    String masterLeaf = ChunkHashTree.leafValue(
+                            rs.getString(ConsistencyTable.masterCrcColumnName),
+                            rs.getInt(ConsistencyTable.masterCntColumnName));
+
+                    // The check is not complete until both sides are known.
+                    if (thisLeaf == null || masterLeaf == null)
+                        continue;
+                    results.put(rs.getInt(ConsistencyTable.idColumnName),
+                            thisLeaf.equals(masterLeaf));
+                }
+            }
+            finally
+            {
+                if (rs != null)
+                {
+                    try
+                    {
+                        rs.close();
+                    }
+                    catch (SQLException e)
+                    {
+                    }
+                }
+                if (st != null)
+                {
+                    try
+                    {
+                        st.close();
+                    }
+                    catch (SQLException e)
+                    {
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Incremental check. Chunks are aligned on multiples of the chunk size, so
+     * that their results persisted in the consistency table can be reused
+     * across runs. Only chunks that were never checked, were changed since
+     * (slave appliers clear their CRC, see {@link ConsistencyChunkTracker}) or
+     * did not match last time are checked again. Master and slave results of
+     * all chunks are then compared with hash trees and mismatching chunks are
+     * drilled down to the requested granularity.
+     */
+    private void incrementalCheck(Table table) throws Exception
+    {
+        long first = ConsistencyChunkTracker.chunkOffset(rowFrom, chunkSize);
+        long last = ConsistencyChunkTracker.chunkOffset(rowTill, chunkSize);
+        int chunks = (int) ((last - first) / chunkSize + 1);
+
+        // Find chunks to re-hash on any of the slaves.
+        TreeSet<Long> stale = new TreeSet<Long>();
+        for (int c = 0; c < slaveDbTungsten.length; c++)
+        {
+            Map<Long, String[]> results = retrieveChunkResults(
+                    slaveDbTungsten[c], table, first, last);
+            for (long r = first; r <= last; r += chunkSize)
+            {
+                String[] result = results.get(r);
+                if (result == null || result[0] == null
+                        || !result[0].equals(result[1]))
+                    stale.add(r);
+            }
+        }
+        println("Changed chunks: " + stale.size() + " of " + chunks);
+
+        printvln("Checking changed chunks:");
+        long done = 0;
+        for (long r : stale)
+        {
+            int id = consistencyCheck(table, r, chunkSize);
+
+            // Wait for the check to arrive to the slaves.
+            for (int c = 0; c < slaveDbTungsten.length; c++)
+            {
+                if (didCheckPass(slaveDbTungsten[c], id))
+                    printv("-");
+                else
+                    printv("x");
+            }
+            done++;
+            if (!verbose && done % 100 == 0)
+                print(String.format("%d%%", (int) (done * 100 / stale.size())));
+
+            if (chunkPause > 0)
+                Thread.sleep(chunkPause * 1000);
+        }
+        printvln("");
+
+        // Compare master and slave results of all chunks.
+        for (int c = 0; c < slaveDbTungsten.length; c++)
+        {
+            Map<Long, String[]> results = retrieveChunkResults(
+                    slaveDbTungsten[c], table, first, last);
+            List<String> slaveLeaves = new ArrayList<String>(chunks);
+            List<String> masterLeaves = new ArrayList<String>(chunks);
+            for (long r = first; r <= last; r += chunkSize)
+            {
+                String[] result = results.get(r);
+                slaveLeaves.add(result == null ? null : result[0]);
+                masterLeaves.add(result == null ? null : result[1]);
+            }
+            ChunkHashTree slaveTree = new ChunkHashTree(slaveLeaves);
+            ChunkHashTree masterTree = new ChunkHashTree(masterLeaves);
+            List<Integer> mismatches = masterTree.diff(slaveTree);
+
+            String host = slaveHost(c);
+            printvln(String.format(
+                    "Root hash @ %s: master=%s slave=%s (compared %d nodes)",
+                    host, masterTree.getRootHash(), slaveTree.getRootHash(),
+                    masterTree.getCompared()));
+            for (int leaf : mismatches)
+            {
+                long r = first + (long) leaf * chunkSize;
+                println("Inconsistent chunk @ " + host + ": row=" + r
+                        + " range=" + chunkSize);
+                printvln("Drilling down (binary search):");
+                drillDown(table, r, chunkSize, slaveDbTungsten[c], host);
+                printvln("");
+            }
+        }
+    }
+
+    /**
+     * Returns the latest aligned chunk results of a table persisted in the
+     * consistency table of a slave, as {slave, master} hash tree leaf values
+     * keyed by chunk offset.
+     */
+    private Map<Long, String[]> retrieveChunkResults(Database conn,
+            Table table, long first, long last) throws SQLException
+    {
+        String query = String.format(
+                "SELECT %s,%s,%s,%s,%s FROM %s.%s WHERE %s = '%s' AND %s = '%s'"
+                        + " AND %s = %d AND %s = '%s' AND %s >= %d AND %s <= %d ORDER BY %s",
+                ConsistencyTable.offsetColumnName,
+                ConsistencyTable.thisCrcColumnName,
+                ConsistencyTable.thisCntColumnName,
+                ConsistencyTable.masterCrcColumnName,
+                ConsistencyTable.masterCntColumnName, serviceSchema,
+                ConsistencyTable.TABLE_NAME, ConsistencyTable.dbColumnName,
+                table.getSchema(), ConsistencyTable.tblColumnName,
+                table.getName(), ConsistencyTable.limitColumnName, chunkSize,
+                ConsistencyTable.methodColumnName, ConsistencyCheck.Method.MD5PK,
+                ConsistencyTable.offsetColumnName, first,
+                ConsistencyTable.offsetColumnName, last,
+                ConsistencyTable.idColumnName);
+
+        Map<Long, String[]> results = new HashMap<Long, String[]>();
+        Statement st = null;
+        ResultSet rs = null;
+        try
+        {
+            st = conn.createStatement();
+            rs = st.executeQuery(query);
+            while (rs.next())
+            {
+                // Later checks of the same chunk replace earlier ones.
+                String thisLeaf = ChunkHashTree.leafValue(
+                        rs.getString(ConsistencyTable.thisCrcColumnName),
+                        rs.getInt(ConsistencyTable.thisCntColumnName));
+                String masterLeaf = ChunkHashTree.leafValue(
+                        rs.getString(ConsistencyTable.masterCrcColumnName),
+                        rs.getInt(ConsistencyTable.masterCntColumnName));
+                results.put(rs.getLong(ConsistencyTable.offsetColumnName),
+                        new String[]{thisLeaf, masterLeaf});
+            }
+        }
+        finally
+        {
+            if (rs != null)
+            {
+                try
+                {
+                    rs.close();
+                }
+                catch (SQLException e)
+                {
+                }
+            }
+            if (st != null)
+            {
+                try
+                {
+                    st.close();
+                }
+                catch (SQLException e)
+                {
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Returns the name of a slave to print.
+     */
+    private String slaveHost(int c) throws SQLException
+    {
+        if (!checkDirect && slaves != null)
+            return slaves.get(c).get(ProtocolParams.RMI_HOST);
+        return slaveDbTungsten[c].getDatabaseMetaData().getURL();
+    }
+
     /**
      * Render (print) progress bar.
      */
@@ -1426,11 +1883,17 @@ public class DataScanCtrl
         println("                        Default: 0 - don't pause");
         println("  [-granularity rows] - When to stop? Use to adjust level of detail of algorithms");
         println("                        Default: 1 - drill down to a single row");
-        println("  [-parallel threads] - How much to parallelize");
+        println("  [-parallel threads] - Number of checks to issue concurrently, across tables and chunks");
         println("                        Default: 1 - no parallelization");
+        println("  [-max-qps checks]   - Maximum number of checks issued per second");
+        println("  [-max-rows rows]    - Maximum number of rows checked per second");
+        println("                        Default: 0 - no throttling");
+        println("  [-target-latency ms] - Adapt chunk size so that slaves report a check after about this long");
+        println("                        Default: 0 - fixed chunk size");
         println("  [-optimistic-lock]  - Don't lock, but afterwards check for related changes in the THL");
-        println("  [-recently-changed] - Looks up THL for what has changed until the last time and checks");
-        println("                        only those rows and tables");
+        println("  [-recently-changed] - Checks only PK chunks changed since the last check, as tracked by");
+        println("                        slave appliers (consistencyChunkSize must match -chunk). Changes");
+        println("                        made outside of the JDBC applier are not tracked");
         println("  [-thl]              - Try to find references of inconsistent rows in THL");
         println("  [-timeout s]        - Time to wait for a single consistency check call to return");
         println("                        Default: 30");
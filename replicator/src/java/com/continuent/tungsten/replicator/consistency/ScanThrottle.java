@@ -0,0 +1,114 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.consistency;
+
+/**
+ * Paces consistency checks issued against a server so that a scan stays below
+ * a maximum number of checks per second and a maximum number of rows read per
+ * second. Callers reserve a slot before issuing a check and sleep until the
+ * slot starts; slots are handed out in order, so concurrent callers share the
+ * rates. A limit of 0 or less disables the corresponding throttle.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class ScanThrottle
+{
+    private final double maxQps;
+    private final double maxRowsPerSecond;
+
+    // Time at which the next slot starts, in nanoseconds.
+    private long         nextSlot;
+
+    // Statistics.
+    private long         throttled;
+    private long         waitMillis;
+
+    /**
+     * Creates a new throttle.
+     *
+     * @param maxQps Maximum number of checks per second
+     * @param maxRowsPerSecond Maximum number of rows read per second
+     */
+    public ScanThrottle(double maxQps, double maxRowsPerSecond)
+    {
+        this.maxQps = maxQps;
+        this.maxRowsPerSecond = maxRowsPerSecond;
+        this.nextSlot = System.nanoTime();
+    }
+
+    /** Returns true if any throttle is enabled. */
+    public boolean isEnabled()
+    {
+        return maxQps > 0 || maxRowsPerSecond > 0;
+    }
+
+    /**
+     * Waits until a check reading the given number of rows may be issued.
+     *
+     * @param rows Number of rows the check reads
+     * @return Time waited in milliseconds
+     */
+    public long acquire(long rows) throws InterruptedException
+    {
+        long waitNanos = reserve(rows);
+        if (waitNanos <= 0)
+            return 0;
+        long millis = waitNanos / 1000000;
+        Thread.sleep(millis, (int) (waitNanos % 1000000));
+        return millis;
+    }
+
+    // Reserves the next slot and returns how long to wait for it.
+    private synchronized long reserve(long rows)
+    {
+        double cost = 0;
+        if (maxQps > 0)
+            cost = 1000000000d / maxQps;
+        if (maxRowsPerSecond > 0)
+            cost = Math.max(cost, rows * 1000000000d / maxRowsPerSecond);
+
+        // Unused time is not saved up, which would allow bursts.
+        long now = System.nanoTime();
+        if (nextSlot < now)
+            nextSlot = now;
+        long waitNanos = nextSlot - now;
+        nextSlot += (long) cost;
+
+        if (waitNanos > 0)
+        {
+            throttled++;
+            waitMillis += waitNanos / 1000000;
+        }
+        return waitNanos;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Object#toString()
+     */
+    public synchronized String toString()
+    {
+        return this.getClass().getSimpleName() + " maxQps=" + maxQps
+                + " maxRowsPerSecond=" + maxRowsPerSecond + " throttled="
+                + throttled + " waitMillis=" + waitMillis;
+    }
+}
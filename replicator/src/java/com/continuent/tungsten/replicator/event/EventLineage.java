@@ -0,0 +1,161 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.event;
+
+import java.util.LinkedList;
+
+import com.continuent.tungsten.common.config.TungstenProperties;
+import com.continuent.tungsten.replicator.conf.ReplicatorConf;
+import com.continuent.tungsten.replicator.plugin.PluginContext;
+
+/**
+ * Reads and writes lineage stamps, which record when an event crossed each
+ * boundary on its way from the source DBMS to the target. Stamps are metadata
+ * options holding a time in milliseconds, so they are stored in the log and
+ * travel with the event to downstream replicators. Stamps are only added when
+ * lineage is enabled with {@link ReplicatorConf#LINEAGE_ENABLED}.
+ * <p>
+ * The extracted and stored stamps are set once by the replicator that first
+ * extracts the event. The sent and received stamps are overwritten on each hop
+ * so that they describe the last network transfer. Stamps written on
+ * different hosts are subject to clock differences between the hosts.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @version 1.0
+ */
+public class EventLineage
+{
+    /** Time the event was extracted from the source DBMS. */
+    public static final String EXTRACTED = "lineage_extracted";
+
+    /** Time the event was first stored in the log. */
+    public static final String STORED    = "lineage_stored";
+
+    /** Time the event was sent to a downstream replicator. */
+    public static final String SENT      = "lineage_sent";
+
+    /** Time the event was received from an upstream replicator. */
+    public static final String RECEIVED  = "lineage_received";
+
+    /**
+     * Returns true if lineage stamps should be added by components that use
+     * the given context.
+     */
+    public static boolean isEnabled(PluginContext context)
+    {
+        TungstenProperties props = context.getReplicatorProperties();
+        if (props == null)
+            return false;
+        return props.getBoolean(ReplicatorConf.LINEAGE_ENABLED,
+                ReplicatorConf.LINEAGE_ENABLED_DEFAULT, false);
+    }
+
+    /**
+     * Returns true if an event is a transaction that carries lineage stamps.
+     */
+    public static boolean isTraced(ReplDBMSEvent event)
+    {
+        return !(event instanceof ReplDBMSFilteredEvent)
+                && getStamp(event.getDBMSEvent(), EXTRACTED) >= 0;
+    }
+
+    /**
+     * Adds a stamp with the current time unless the event already has one.
+     * Filtered and empty events are not stamped.
+     */
+    public static void stampIfAbsent(ReplDBMSEvent event, String name)
+    {
+        DBMSEvent dbmsEvent = event.getDBMSEvent();
+        if (isStampable(event)
+                && dbmsEvent.getMetadataOptionValue(name) == null)
+        {
+            dbmsEvent.addMetadataOption(name,
+                    Long.toString(System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Sets a stamp to the current time on an event that has lineage stamps,
+     * replacing any previous value.
+     */
+    public static void stamp(ReplDBMSEvent event, String name)
+    {
+        if (isStampable(event) && isTraced(event))
+        {
+            event.getDBMSEvent().setMetaDataOption(name,
+                    Long.toString(System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Returns a copy of an event with a stamp set to the current time. The
+     * copy has its own metadata but shares row data with the original, so an
+     * event that is shared with other threads can be stamped safely. Events
+     * without lineage stamps are returned unchanged.
+     */
+    public static ReplDBMSEvent copyWithStamp(ReplDBMSEvent event, String name)
+    {
+        if (!isStampable(event) || !isTraced(event))
+            return event;
+
+        DBMSEvent dbmsEvent = event.getDBMSEvent();
+        DBMSEvent dbmsCopy = new DBMSEvent(dbmsEvent.getEventId(),
+                new LinkedList<ReplOption>(dbmsEvent.getMetadata()),
+                dbmsEvent.getData(), dbmsEvent.isLastFrag(),
+                dbmsEvent.getSourceTstamp());
+        dbmsCopy.setOptions(new LinkedList<ReplOption>(dbmsEvent.getOptions()));
+        dbmsCopy.setMetaDataOption(name,
+                Long.toString(System.currentTimeMillis()));
+
+        ReplDBMSEvent copy = new ReplDBMSEvent(event.getSeqno(),
+                event.getFragno(), event.getLastFrag(), event.getSourceId(),
+                event.getEpochNumber(), event.getExtractedTstamp(), dbmsCopy);
+        copy.setEstimatedSize(event.getEstimatedSize());
+        return copy;
+    }
+
+    /**
+     * Returns the value of a stamp in milliseconds or -1 if the event does not
+     * have a valid stamp of that name.
+     */
+    public static long getStamp(DBMSEvent event, String name)
+    {
+        String value = event.getMetadataOptionValue(name);
+        if (value == null)
+            return -1;
+        try
+        {
+            return Long.parseLong(value);
+        }
+        catch (NumberFormatException e)
+        {
+            return -1;
+        }
+    }
+
+    // Only plain transactions are stamped; filtered events and the empty
+    // events used for heartbeats and control carry no data worth tracing.
+    private static boolean isStampable(ReplDBMSEvent event)
+    {
+        return event.getClass() == ReplDBMSEvent.class
+                && event.getDBMSEvent().getClass() == DBMSEvent.class;
+    }
+}
@@ -38,6 +38,7 @@ import com.continuent.tungsten.replicator.ReplicatorException;
 import com.continuent.tungsten.replicator.conf.ReplicatorConf;
 import com.continuent.tungsten.replicator.consistency.ConsistencyCheckFilter;
 import com.continuent.tungsten.replicator.event.DBMSEvent;
+import com.continuent.tungsten.replicator.event.EventLineage;
 import com.continuent.tungsten.replicator.event.EventMetadataFilter;
 import com.continuent.tungsten.replicator.event.ReplDBMSEvent;
 import com.continuent.tungsten.replicator.event.ReplDBMSHeader;
@@ -65,6 +66,7 @@ public class ExtractorWrapper implements Extractor
     private long          epochNumber             = 0;
     private List<Filter>  autoFilters             = new ArrayList<Filter>();
     private boolean       autoMasterRepositioning = true;
+    private boolean       lineage                 = false;
 
     /**
      * Create a new instance to wrap Creates a new <code>ExtractorWrapper</code>
@@ -108,6 +110,8 @@ public class ExtractorWrapper implements Extractor
         if (logger.isDebugEnabled())
             logger.debug("Source timestamp = " + dbmsEvent.getSourceTstamp()
                     + " - Extracted timestamp = " + extractTimestamp);
+        if (lineage)
+            EventLineage.stampIfAbsent(replEvent, EventLineage.EXTRACTED);
 
         for (Filter filter : autoFilters)
         {
@@ -287,6 +291,7 @@ public class ExtractorWrapper implements Extractor
         logger.info("Configuring raw extractor and heartbeat filter");
         this.pluginContext = context;
         sourceId = context.getSourceId();
+        lineage = EventLineage.isEnabled(context);
         extractor.configure(pluginContext);
         for (Filter filter : autoFilters)
             filter.configure(pluginContext);
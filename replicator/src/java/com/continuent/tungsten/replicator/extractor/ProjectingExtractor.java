@@ -0,0 +1,46 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.extractor;
+
+import java.util.List;
+
+import com.continuent.tungsten.replicator.filter.ProjectionFilter;
+
+/**
+ * Denotes a raw extractor that can skip decoding row changes that filters in
+ * the same stage would drop anyway. Events must still be generated for every
+ * transaction so that restart positions advance normally.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public interface ProjectingExtractor extends RawExtractor
+{
+    /**
+     * Sets the filters whose table projections may be applied during
+     * extraction. The list contains only the filters that run first in the
+     * stage, so no other filter sees row changes before they do. This method
+     * is called after the extractor and filters are prepared and before
+     * extraction starts.
+     *
+     * @param filters Projection filters in stage order, possibly empty
+     */
+    public void setProjectionFilters(List<ProjectionFilter> filters);
+}
@@ -0,0 +1,299 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.extractor.mysql;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+import com.continuent.tungsten.replicator.ReplicatorException;
+import com.continuent.tungsten.replicator.event.DBMSEvent;
+
+/**
+ * Extracts a range of completed binlog files in parallel. Each file is decoded
+ * by a separate file extractor on a pool of worker threads into a bounded
+ * per-file buffer. Callers read events back strictly in file order using
+ * {@link #next()}, so the pipeline sees exactly the same sequence of events
+ * as with serial extraction and assigns seqnos as usual.
+ * <p>
+ * At most one file per thread is in flight: the file being read by the caller
+ * and the files that follow it. A worker for the next file is only started
+ * once the caller has read past a file, and workers block once their buffer
+ * is full, which bounds memory to the number of threads times the buffer
+ * size.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+class BinlogCatchUp
+{
+    private static Logger logger = Logger.getLogger(BinlogCatchUp.class);
+
+    /**
+     * Extracts events from a single binlog file.
+     */
+    interface FileExtractor
+    {
+        /**
+         * Returns the next event in the file or null at the end of the file.
+         */
+        DBMSEvent extract() throws ReplicatorException, InterruptedException;
+
+        /** Releases resources. */
+        void release();
+    }
+
+    /**
+     * Creates file extractors.
+     */
+    interface FileExtractorFactory
+    {
+        /**
+         * Creates an extractor positioned on a binlog file.
+         *
+         * @param fileName Binlog file name
+         * @param offset Offset from which to start reading
+         */
+        FileExtractor create(String fileName, long offset)
+                throws ReplicatorException;
+    }
+
+    // Marks the end of a file buffer.
+    private static final Object                       END_OF_FILE = new Object();
+
+    private final FileExtractorFactory                factory;
+    private final List<String>                        files;
+    private final long                                startOffset;
+    private final int                                 threads;
+    private final int                                 bufferSize;
+
+    private List<LinkedBlockingQueue<Object>>         buffers;
+    private ExecutorService                           pool;
+    private int                                       currentIndex;
+    private int                                       nextIndex;
+    private long                                      eventCount;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param factory Factory for per-file extractors
+     * @param files Binlog file names in index order
+     * @param startOffset Offset from which to start in the first file
+     * @param threads Number of worker threads
+     * @param bufferSize Maximum number of events buffered per file
+     */
+    BinlogCatchUp(FileExtractorFactory factory, List<String> files,
+            long startOffset, int threads, int bufferSize)
+    {
+        this.factory = factory;
+        this.files = files;
+        this.startOffset = startOffset;
+        this.threads = Math.max(threads, 1);
+        this.bufferSize = Math.max(bufferSize, 1);
+    }
+
+    /**
+     * Starts worker threads.
+     */
+    void start()
+    {
+        logger.info("Starting parallel binlog catch-up: files=" + files.size()
+                + " first=" + files.get(0) + " last="
+                + files.get(files.size() - 1) + " threads=" + threads);
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(threads, new ThreadFactory()
+        {
+            public Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, "binlog-catch-up-"
+                        + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+
+        buffers = new ArrayList<LinkedBlockingQueue<Object>>(files.size());
+        for (int i = 0; i < files.size(); i++)
+            buffers.add(null);
+        currentIndex = 0;
+        nextIndex = 0;
+        while (nextIndex < files.size() && nextIndex < threads)
+            startNextFile();
+    }
+
+    // Starts a worker on the next file that is not in flight yet.
+    private void startNextFile()
+    {
+        LinkedBlockingQueue<Object> buffer = new LinkedBlockingQueue<Object>(
+                bufferSize);
+        buffers.set(nextIndex, buffer);
+        long offset = (nextIndex == 0) ? startOffset : 4;
+        pool.execute(new Worker(files.get(nextIndex), offset, buffer));
+        nextIndex++;
+    }
+
+    /**
+     * Returns the next event in file order or null once all files have been
+     * read.
+     *
+     * @throws ReplicatorException Thrown if a worker failed
+     * @throws InterruptedException Thrown if we are interrupted while waiting
+     */
+    DBMSEvent next() throws ReplicatorException, InterruptedException
+    {
+        while (currentIndex < files.size())
+        {
+            Object item = buffers.get(currentIndex).take();
+            if (item == END_OF_FILE)
+            {
+                // Let go of the buffer, move on to the next file and put
+                // the free worker on the first file not in flight yet.
+                if (logger.isDebugEnabled())
+                    logger.debug("Finished catch-up file: "
+                            + files.get(currentIndex));
+                buffers.set(currentIndex, null);
+                currentIndex++;
+                if (nextIndex < files.size())
+                    startNextFile();
+            }
+            else if (item instanceof ReplicatorException)
+            {
+                throw (ReplicatorException) item;
+            }
+            else
+            {
+                eventCount++;
+                return (DBMSEvent) item;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the name of the file currently being read or null if done.
+     */
+    String getCurrentFile()
+    {
+        return currentIndex < files.size() ? files.get(currentIndex) : null;
+    }
+
+    /**
+     * Returns true if all files have been read.
+     */
+    boolean isDone()
+    {
+        return currentIndex >= files.size();
+    }
+
+    /**
+     * Stops worker threads and discards buffered events.
+     */
+    void stop()
+    {
+        if (pool != null)
+        {
+            pool.shutdownNow();
+            try
+            {
+                if (!pool.awaitTermination(10, TimeUnit.SECONDS))
+                    logger.warn("Timed out waiting for binlog catch-up workers to stop");
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            pool = null;
+            logger.info("Stopped parallel binlog catch-up: events="
+                    + eventCount + " filesRead=" + currentIndex + "/"
+                    + files.size());
+        }
+    }
+
+    /**
+     * Decodes a single file into its buffer.
+     */
+    private class Worker implements Runnable
+    {
+        private final String                      fileName;
+        private final long                        offset;
+        private final LinkedBlockingQueue<Object> buffer;
+
+        Worker(String fileName, long offset, LinkedBlockingQueue<Object> buffer)
+        {
+            this.fileName = fileName;
+            this.offset = offset;
+            this.buffer = buffer;
+        }
+
+        public void run()
+        {
+            FileExtractor extractor = null;
+            try
+            {
+                extractor = factory.create(fileName, offset);
+                DBMSEvent event;
+                while ((event = extractor.extract()) != null)
+                    buffer.put(event);
+                buffer.put(END_OF_FILE);
+            }
+            catch (InterruptedException e)
+            {
+                // We are being stopped.
+            }
+            catch (ReplicatorException e)
+            {
+                offerFailure(e);
+            }
+            catch (RuntimeException e)
+            {
+                offerFailure(new MySQLExtractException(
+                        "Binlog catch-up failed: file=" + fileName, e));
+            }
+            finally
+            {
+                if (extractor != null)
+                    extractor.release();
+            }
+        }
+
+        // Hands an error to the reader, which will see it after any events
+        // that were extracted before the failure.
+        private void offerFailure(ReplicatorException e)
+        {
+            logger.error("Binlog catch-up worker failed: file=" + fileName, e);
+            try
+            {
+                buffer.put(e);
+            }
+            catch (InterruptedException e1)
+            {
+                // We are being stopped.
+            }
+        }
+    }
+}
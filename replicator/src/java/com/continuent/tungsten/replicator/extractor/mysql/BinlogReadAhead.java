@@ -0,0 +1,488 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.extractor.mysql;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import com.continuent.tungsten.replicator.ReplicatorException;
+
+/**
+ * Reads binlog data ahead of the extractor on a background thread so that
+ * parsing does not alternate with waiting on slow or network-attached storage.
+ * The thread uses positional reads on a separate file channel to pull up to
+ * the read-ahead size beyond the current reader offset into the operating
+ * system page cache. When it reaches the end of a binlog that has already been
+ * rotated it also reads the head of the next binlog in the index.
+ * <p>
+ * Read-ahead is purely advisory: the {@link BinlogReader} continues to read
+ * through its own buffered stream, so a slow or failed read-ahead never
+ * affects correctness. If reading ahead on a binlog fails, the failure is
+ * logged and read-ahead resumes when the reader moves to the next binlog.
+ * Readers report their reads so that we can count how many of them fell
+ * inside the prefetched window.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class BinlogReadAhead implements Runnable
+{
+    private static Logger    logger             = Logger.getLogger(BinlogReadAhead.class);
+
+    // Size of each positional read.
+    private static final int CHUNK_SIZE         = 256 * 1024;
+
+    // Minimum interval between binlog index checks at the end of a file.
+    private static final int INDEX_CHECK_MILLIS = 5000;
+
+    // Parameters.
+    private final String     directory;
+    private final String     baseName;
+    private final long       readAheadSize;
+
+    // Current file and offsets. The reader sets the file and reader offset;
+    // the read-ahead thread advances the prefetched offset.
+    private volatile File    currentFile;
+    private volatile long    readerOffset;
+    private volatile long    prefetchedOffset;
+    private volatile long    generation;
+
+    // Next binlog file and how far its head has been read.
+    private File             nextFile;
+    private long             nextFilePrefetched;
+    private boolean          nextFileDone;
+    private long             lastIndexCheck;
+
+    // Thread control.
+    private final Object     lock               = new Object();
+    private volatile boolean waiting;
+    private volatile boolean cancelled;
+    private Thread           thread;
+
+    // Statistics.
+    private final AtomicLong hits               = new AtomicLong();
+    private final AtomicLong misses             = new AtomicLong();
+    private final AtomicLong bytesPrefetched    = new AtomicLong();
+    private final AtomicLong filesPrefetched    = new AtomicLong();
+    private final AtomicLong failures           = new AtomicLong();
+
+    /**
+     * Creates a new read-ahead instance.
+     *
+     * @param directory Binlog directory
+     * @param baseName Binlog file base name, used to locate the index
+     * @param readAheadSize Number of bytes to read ahead of the reader
+     */
+    public BinlogReadAhead(String directory, String baseName,
+            long readAheadSize)
+    {
+        this.directory = directory;
+        this.baseName = baseName;
+        this.readAheadSize = readAheadSize;
+    }
+
+    /**
+     * Starts the read-ahead thread.
+     */
+    public synchronized void start()
+    {
+        if (thread == null)
+        {
+            cancelled = false;
+            thread = new Thread(this, "binlog-read-ahead");
+            thread.setDaemon(true);
+            thread.start();
+            logger.info("Started binlog read-ahead: size=" + readAheadSize);
+        }
+    }
+
+    /**
+     * Stops the read-ahead thread and logs statistics.
+     */
+    public synchronized void stop() throws InterruptedException
+    {
+        if (thread != null)
+        {
+            cancelled = true;
+            thread.interrupt();
+            thread.join(5000);
+            thread = null;
+            logger.info("Stopped binlog read-ahead: " + toString());
+        }
+    }
+
+    /**
+     * Notifies the read-ahead that the reader is now positioned on a new file
+     * or offset, for example after opening a binlog or following a rotation.
+     *
+     * @param file Binlog file the reader has open
+     * @param offset Current reader offset
+     */
+    public void position(File file, long offset)
+    {
+        synchronized (lock)
+        {
+            if (!file.equals(currentFile))
+            {
+                // If we already read the head of this file, start from there.
+                // Index entries may spell the directory differently, so we
+                // only compare names.
+                if (nextFile != null
+                        && file.getName().equals(nextFile.getName()))
+                    prefetchedOffset = nextFilePrefetched;
+                else
+                    prefetchedOffset = 0;
+                nextFile = null;
+                nextFilePrefetched = 0;
+                nextFileDone = false;
+                lastIndexCheck = 0;
+                currentFile = file;
+            }
+            else if (offset > prefetchedOffset)
+                prefetchedOffset = offset;
+            readerOffset = offset;
+            generation++;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Records a read by the reader. This is called on every read and must be
+     * cheap; it only takes the lock when the read-ahead thread is waiting and
+     * the reader has used up half the read-ahead window.
+     *
+     * @param offset Offset of the first byte read
+     * @param length Number of bytes read
+     */
+    public void recordRead(long offset, int length)
+    {
+        long end = offset + length;
+        if (end <= prefetchedOffset)
+            hits.incrementAndGet();
+        else
+            misses.incrementAndGet();
+        readerOffset = end;
+
+        if (waiting && end + readAheadSize / 2 > prefetchedOffset)
+        {
+            synchronized (lock)
+            {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /** Returns the number of reads served from the prefetched window. */
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    /** Returns the number of reads beyond the prefetched window. */
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    /** Returns the total number of bytes read ahead. */
+    public long getBytesPrefetched()
+    {
+        return bytesPrefetched.get();
+    }
+
+    /** Returns the number of next binlog files whose head was read ahead. */
+    public long getFilesPrefetched()
+    {
+        return filesPrefetched.get();
+    }
+
+    /** Returns the number of binlogs on which reading ahead failed. */
+    public long getFailures()
+    {
+        return failures.get();
+    }
+
+    /**
+     * Returns the percentage of reads served from the prefetched window.
+     */
+    public double getHitRatio()
+    {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.0 : (100.0 * h) / total;
+    }
+
+    /**
+     * Reads ahead until cancelled. {@inheritDoc}
+     *
+     * @see java.lang.Runnable#run()
+     */
+    public void run()
+    {
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) Math.min(
+                CHUNK_SIZE, readAheadSize));
+        File channelFile = null;
+        FileInputStream input = null;
+        FileChannel channel = null;
+        File failedFile = null;
+
+        try
+        {
+            while (!cancelled)
+            {
+                File file;
+                long gen;
+                long start;
+                long target;
+                synchronized (lock)
+                {
+                    file = currentFile;
+                    gen = generation;
+                    start = Math.max(prefetchedOffset, readerOffset);
+                    target = readerOffset + readAheadSize;
+                }
+
+                boolean worked = false;
+                if (file != null && !file.equals(failedFile))
+                {
+                    try
+                    {
+                        // Reopen the channel if the reader moved to another
+                        // file.
+                        if (!file.equals(channelFile))
+                        {
+                            closeQuietly(input);
+                            input = null;
+                            channel = null;
+                            channelFile = null;
+                            if (file.exists())
+                            {
+                                input = new FileInputStream(file);
+                                channel = input.getChannel();
+                                channelFile = file;
+                            }
+                        }
+
+                        if (channel != null && start < target)
+                            worked = prefetch(file, channel, buffer, start,
+                                    target);
+                    }
+                    catch (IOException e)
+                    {
+                        // Read-ahead is only advisory, so the reader carries
+                        // on unbuffered. Try again on the next binlog.
+                        failures.incrementAndGet();
+                        logger.warn("Binlog read-ahead failed; reads of this binlog are not read ahead: file="
+                                + file.getName() + " error=" + e.getMessage());
+                        closeQuietly(input);
+                        input = null;
+                        channel = null;
+                        channelFile = null;
+                        failedFile = file;
+                    }
+                }
+
+                if (!worked)
+                {
+                    synchronized (lock)
+                    {
+                        if (gen == generation && !cancelled)
+                        {
+                            waiting = true;
+                            lock.wait(100);
+                            waiting = false;
+                        }
+                    }
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            if (!cancelled)
+                logger.warn("Binlog read-ahead interrupted unexpectedly");
+        }
+        finally
+        {
+            closeQuietly(input);
+        }
+    }
+
+    // Reads the next chunk of the current file or, at the end of a rotated
+    // file, the head of the next binlog. Returns true if any data were read.
+    private boolean prefetch(File file, FileChannel channel,
+            ByteBuffer buffer, long start, long target) throws IOException
+    {
+        long size = channel.size();
+        if (start >= size)
+        {
+            // We are at the end of the file. If the binlog has been rotated,
+            // read the head of the next one.
+            return prefetchNextFile(file, buffer);
+        }
+
+        int length = (int) Math.min(buffer.capacity(), Math.min(target, size)
+                - start);
+        int read = readAt(channel, buffer, start, length);
+        if (read <= 0)
+            return false;
+        synchronized (lock)
+        {
+            if (file.equals(currentFile) && start + read > prefetchedOffset)
+                prefetchedOffset = start + read;
+        }
+        bytesPrefetched.addAndGet(read);
+        return true;
+    }
+
+    // Reads the head of the binlog following the given file once it appears in
+    // the index. Returns true if any data were read.
+    private boolean prefetchNextFile(File file, ByteBuffer buffer)
+            throws IOException
+    {
+        File next;
+        synchronized (lock)
+        {
+            next = nextFile;
+            if (next != null && nextFileDone)
+                return false;
+        }
+
+        if (next == null)
+        {
+            long now = System.currentTimeMillis();
+            if (now - lastIndexCheck < INDEX_CHECK_MILLIS)
+                return false;
+            lastIndexCheck = now;
+            try
+            {
+                BinlogIndex index = new BinlogIndex(directory, baseName, true);
+                next = index.nextBinlog(file.getName());
+            }
+            catch (ReplicatorException e)
+            {
+                if (logger.isDebugEnabled())
+                    logger.debug("Unable to read binlog index for read-ahead: "
+                            + e.getMessage());
+                return false;
+            }
+            if (next == null || !next.exists())
+                return false;
+            synchronized (lock)
+            {
+                if (!file.equals(currentFile))
+                    return false;
+                nextFile = next;
+                nextFilePrefetched = 0;
+                nextFileDone = false;
+            }
+            filesPrefetched.incrementAndGet();
+            if (logger.isDebugEnabled())
+                logger.debug("Reading ahead into next binlog: "
+                        + next.getName());
+        }
+
+        FileInputStream input = new FileInputStream(next);
+        try
+        {
+            FileChannel channel = input.getChannel();
+            long start = nextFilePrefetched;
+            long end = Math.min(readAheadSize, channel.size());
+            int read = 0;
+            if (start < end)
+            {
+                read = readAt(channel, buffer, start,
+                        (int) Math.min(buffer.capacity(), end - start));
+            }
+            synchronized (lock)
+            {
+                if (next.equals(nextFile))
+                {
+                    if (read > 0)
+                        nextFilePrefetched = start + read;
+                    else
+                        nextFileDone = true;
+                }
+            }
+            if (read > 0)
+                bytesPrefetched.addAndGet(read);
+            return read > 0;
+        }
+        finally
+        {
+            closeQuietly(input);
+        }
+    }
+
+    // Reads up to length bytes at the given position.
+    private int readAt(FileChannel channel, ByteBuffer buffer, long position,
+            int length) throws IOException
+    {
+        buffer.clear();
+        buffer.limit(length);
+        int total = 0;
+        while (buffer.hasRemaining())
+        {
+            int read = channel.read(buffer, position + total);
+            if (read <= 0)
+                break;
+            total += read;
+        }
+        return total;
+    }
+
+    private void closeQuietly(FileInputStream input)
+    {
+        if (input != null)
+        {
+            try
+            {
+                input.close();
+            }
+            catch (IOException e)
+            {
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Object#toString()
+     */
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append(this.getClass().getSimpleName());
+        sb.append(" size=").append(readAheadSize);
+        sb.append(" hits=").append(hits.get());
+        sb.append(" misses=").append(misses.get());
+        sb.append(" hitRatio=").append(String.format("%.1f", getHitRatio()));
+        sb.append(" bytesPrefetched=").append(bytesPrefetched.get());
+        sb.append(" filesPrefetched=").append(filesPrefetched.get());
+        sb.append(" failures=").append(failures.get());
+        return sb.toString();
+    }
+}
@@ -76,6 +76,9 @@ public class BinlogReader implements FilenameFilter, Cloneable
     // Delay in milliseconds to wait for binlog writes to flush fully.
     private int                   binlogFlushDelayMillis = 5000;
 
+    // Optional read-ahead, which is notified of our reads.
+    private BinlogReadAhead       readAhead;
+
     /**
      * Defines only binlog directory and binlog file base name.
      * 
@@ -276,6 +279,10 @@ public class BinlogReader implements FilenameFilter, Cloneable
             {
                 bfdi.reset();
             }
+
+            // Let the read-ahead know where we are reading from.
+            if (readAhead != null)
+                readAhead.position(file, bfdi.getOffset());
         }
         catch (FileNotFoundException e)
         {
@@ -345,7 +352,10 @@ public class BinlogReader implements FilenameFilter, Cloneable
      */
     public long skip(long bytes) throws IOException
     {
-        return bfdi.skip(bytes);
+        long skipped = bfdi.skip(bytes);
+        if (readAhead != null)
+            readAhead.recordRead(bfdi.getOffset() - skipped, (int) skipped);
+        return skipped;
     }
 
     /**
@@ -392,7 +402,14 @@ public class BinlogReader implements FilenameFilter, Cloneable
      */
     public void read(byte[] buf, int offset, int len) throws IOException
     {
-        bfdi.readFully(buf, offset, len);
+        if (readAhead == null)
+            bfdi.readFully(buf, offset, len);
+        else
+        {
+            long position = bfdi.getOffset();
+            bfdi.readFully(buf, offset, len);
+            readAhead.recordRead(position, len);
+        }
     }
 
     /**
@@ -426,6 +443,15 @@ public class BinlogReader implements FilenameFilter, Cloneable
     }
 
     /* member getters and setters */
+    /**
+     * Sets the read-ahead to notify of reads on this binlog. Clones do not
+     * inherit the read-ahead, as they are used for short look-ahead scans.
+     */
+    public void setReadAhead(BinlogReadAhead readAhead)
+    {
+        this.readAhead = readAhead;
+    }
+
     public void setStartPosition(long newPosition)
     {
         startPosition = newPosition;
@@ -30,14 +30,18 @@ import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.concurrent.LinkedBlockingQueue;
 
 import org.apache.log4j.Logger;
 
+import com.continuent.tungsten.common.cache.RawByteCache;
 import com.continuent.tungsten.common.commands.FileCommands;
+import com.continuent.tungsten.common.config.TungstenProperties;
 import com.continuent.tungsten.replicator.ReplicatorException;
 import com.continuent.tungsten.replicator.conf.FailurePolicy;
 import com.continuent.tungsten.replicator.conf.ReplicatorRuntime;
+import com.continuent.tungsten.replicator.conf.ReplicatorRuntimeConf;
 import com.continuent.tungsten.replicator.database.Database;
 import com.continuent.tungsten.replicator.database.MySQLOperationMatcher;
 import com.continuent.tungsten.replicator.database.SqlOperation;
@@ -59,7 +63,8 @@ import com.continuent.tungsten.replicator.event.ReplDBMSHeader;
 import com.continuent.tungsten.replicator.event.ReplOption;
 import com.continuent.tungsten.replicator.event.ReplOptionParams;
 import com.continuent.tungsten.replicator.extractor.ExtractorException;
-import com.continuent.tungsten.replicator.extractor.RawExtractor;
+import com.continuent.tungsten.replicator.extractor.ProjectingExtractor;
+import com.continuent.tungsten.replicator.filter.ProjectionFilter;
 import com.continuent.tungsten.replicator.plugin.PluginContext;
 
 /**
@@ -68,7 +73,7 @@ import com.continuent.tungsten.replicator.plugin.PluginContext;
  * @author <a href="mailto:seppo.jaakola@continuent.com">Seppo Jaakola</a>
  * @version 1.0
  */
-public class MySQLExtractor implements RawExtractor
+public class MySQLExtractor implements ProjectingExtractor
 {
     private static Logger                   logger                    = Logger.getLogger(MySQLExtractor.class);
 
@@ -159,6 +164,47 @@ public class MySQLExtractor implements RawExtractor
     private int                             reconnectTimeoutInSeconds = 180;
     private long                            lastConnectionTime        = 0;
 
+    // Schema history, consulted before going to the database for metadata.
+    private String                          schemaHistoryDir          = null;
+    private int                             schemaHistoryMaxVersions  = 10;
+    private SchemaHistoryStore              schemaHistory;
+
+    // Cache used to spill large transactions when they are not fragmented.
+    // Transactions above the buffer limit are stored in the cache and read
+    // back at commit, either as a single event or, if enabled, in fragments
+    // of at most that many entries.
+    private int                             transactionBufferLimit    = 0;
+    private boolean                         fragmentSpilledTransactions = false;
+    private RawByteCache                    byteCache;
+    private File                            cacheDir;
+    private long                            cacheMaxTotalBytes        = 0;
+    private long                            cacheMaxObjectBytes       = 0;
+    private int                             cacheMaxOpenFiles         = 50;
+    private MySQLTransactionBuffer          pendingTransaction;
+    private DBMSEvent                       pendingEvent;
+    private boolean                         pendingLastFrag;
+
+    // Asynchronous read-ahead on binlog files. 0 disables read-ahead.
+    private int                             readAheadSize             = 0;
+    private BinlogReadAhead                 readAhead;
+
+    // Parallel extraction of completed binlogs when catching up. 0 or 1
+    // disables parallel extraction.
+    private int                             catchUpThreads            = 0;
+    private int                             catchUpBufferSize         = 100;
+    private BinlogCatchUp                   catchUp;
+    private String                          catchUpResumeFile;
+
+    // Filters whose table projections are applied during extraction, if
+    // pushdown is enabled.
+    private boolean                         projectionPushdown        = false;
+    private List<ProjectionFilter>          projectionFilters;
+    private long                            skippedRowsEvents         = 0;
+
+    // Set on catch-up workers, which stop at the end of a single file.
+    private String                          catchUpStopFile;
+    private boolean                         reachedStopFile;
+
     public String getDatabaseSource()
     {
         return dataSource;
@@ -324,6 +370,123 @@ public class MySQLExtractor implements RawExtractor
         bufferSize = size;
     }
 
+    public int getReadAheadSize()
+    {
+        return readAheadSize;
+    }
+
+    /**
+     * Number of bytes to read ahead of the extractor on a background thread,
+     * including the head of the next binlog once the current one is rotated.
+     * 0 disables read-ahead.
+     */
+    public void setReadAheadSize(int readAheadSize)
+    {
+        this.readAheadSize = readAheadSize;
+    }
+
+    public int getCatchUpThreads()
+    {
+        return catchUpThreads;
+    }
+
+    /**
+     * Number of threads used to extract completed binlogs in parallel when
+     * catching up. Events are still returned in binlog order. 0 or 1 disables
+     * parallel extraction.
+     */
+    public void setCatchUpThreads(int catchUpThreads)
+    {
+        this.catchUpThreads = catchUpThreads;
+    }
+
+    public int getCatchUpBufferSize()
+    {
+        return catchUpBufferSize;
+    }
+
+    /**
+     * Maximum number of extracted transactions buffered per binlog file during
+     * parallel catch-up. At most catchUpThreads files are in flight at a
+     * time.
+     */
+    public void setCatchUpBufferSize(int catchUpBufferSize)
+    {
+        this.catchUpBufferSize = catchUpBufferSize;
+    }
+
+    public boolean isProjectionPushdown()
+    {
+        return projectionPushdown;
+    }
+
+    /**
+     * If true, skip decoding row changes on tables that the first filters in
+     * the extraction stage would drop anyway.
+     */
+    public void setProjectionPushdown(boolean projectionPushdown)
+    {
+        this.projectionPushdown = projectionPushdown;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see com.continuent.tungsten.replicator.extractor.ProjectingExtractor#setProjectionFilters(java.util.List)
+     */
+    public void setProjectionFilters(List<ProjectionFilter> filters)
+    {
+        if (!projectionPushdown || filters.isEmpty())
+        {
+            projectionFilters = null;
+            return;
+        }
+
+        StringBuffer names = new StringBuffer();
+        for (ProjectionFilter filter : filters)
+        {
+            if (names.length() > 0)
+                names.append(",");
+            names.append(filter.getClass().getSimpleName());
+        }
+        logger.info("Skipping extraction of row changes dropped by filters: "
+                + names);
+        projectionFilters = filters;
+    }
+
+    /** Returns the number of rows events skipped due to projection. */
+    public long getSkippedRowsEvents()
+    {
+        return skippedRowsEvents;
+    }
+
+    /** Returns the binlog read-ahead or null if read-ahead is disabled. */
+    public BinlogReadAhead getReadAhead()
+    {
+        return readAhead;
+    }
+
+    /**
+     * Returns binlog read-ahead counters for status displays, or empty
+     * properties if read-ahead is disabled.
+     */
+    public TungstenProperties getStatistics()
+    {
+        TungstenProperties stats = new TungstenProperties();
+        BinlogReadAhead ra = readAhead;
+        if (ra != null)
+        {
+            stats.setLong("readAheadHits", ra.getHits());
+            stats.setLong("readAheadMisses", ra.getMisses());
+            stats.setString("readAheadHitRatio",
+                    String.format("%.1f", ra.getHitRatio()));
+            stats.setLong("readAheadBytes", ra.getBytesPrefetched());
+            stats.setLong("readAheadFiles", ra.getFilesPrefetched());
+            stats.setLong("readAheadFailures", ra.getFailures());
+        }
+        return stats;
+    }
+
     /**
      * @return the binlogReadTimeout
      */
@@ -340,6 +503,98 @@ public class MySQLExtractor implements RawExtractor
         this.binlogReadTimeout = binlogReadTimeout;
     }
 
+    /**
+     * Maximum number of entries to buffer per transaction as Java objects
+     * before spilling to the byte cache. 0 disables spilling. Only used if
+     * transactionFragSize is 0.
+     */
+    public void setTransactionBufferLimit(int transactionBufferLimit)
+    {
+        this.transactionBufferLimit = transactionBufferLimit;
+    }
+
+    /**
+     * If true, transactions that spilled to the byte cache are returned in
+     * fragments of at most transactionBufferLimit entries instead of a single
+     * event. This is the only setting that bounds heap use for very large
+     * transactions, but it means that unfragmented transactions can arrive
+     * fragmented. If false, which is the default, a spilled transaction is
+     * read back whole at commit, so it is held on the heap in full and
+     * spilling only bounds memory while the transaction is read from the
+     * binlog.
+     */
+    public void setFragmentSpilledTransactions(
+            boolean fragmentSpilledTransactions)
+    {
+        this.fragmentSpilledTransactions = fragmentSpilledTransactions;
+    }
+
+    /** Directory that contains the byte cache files. */
+    public void setCacheDir(File cacheDir)
+    {
+        this.cacheDir = cacheDir;
+    }
+
+    /**
+     * Total number of bytes in the byte cache for in-memory objects. Any write
+     * that would exceed this limit goes to storage.
+     */
+    public void setCacheMaxTotalBytes(long cacheMaxTotalBytes)
+    {
+        this.cacheMaxTotalBytes = cacheMaxTotalBytes;
+    }
+
+    /**
+     * Maximum in-memory size for a single object. After this point, writes to
+     * the object go to storage.
+     */
+    public void setCacheMaxObjectBytes(long cacheMaxObjectBytes)
+    {
+        this.cacheMaxObjectBytes = cacheMaxObjectBytes;
+    }
+
+    /**
+     * Maximum number of cache files open for writing at any given time.
+     */
+    public void setCacheMaxOpenFiles(int cacheMaxOpenFiles)
+    {
+        this.cacheMaxOpenFiles = cacheMaxOpenFiles;
+    }
+
+    // Sets the byte cache for large transactions, which is otherwise created
+    // in prepare(). Used by unit tests.
+    void setByteCache(RawByteCache byteCache)
+    {
+        this.byteCache = byteCache;
+    }
+
+    public String getSchemaHistoryDir()
+    {
+        return schemaHistoryDir;
+    }
+
+    /**
+     * Sets the directory where table metadata history is persisted. If not
+     * set, history is kept in memory only and lost on restart.
+     */
+    public void setSchemaHistoryDir(String schemaHistoryDir)
+    {
+        this.schemaHistoryDir = schemaHistoryDir;
+    }
+
+    public int getSchemaHistoryMaxVersions()
+    {
+        return schemaHistoryMaxVersions;
+    }
+
+    /**
+     * Sets the number of metadata versions kept per table in schema history.
+     */
+    public void setSchemaHistoryMaxVersions(int schemaHistoryMaxVersions)
+    {
+        this.schemaHistoryMaxVersions = schemaHistoryMaxVersions;
+    }
+
     // Reads the next log from the file.
     private LogEvent processFile(BinlogReader position)
             throws ReplicatorException, InterruptedException
@@ -546,7 +801,7 @@ public class MySQLExtractor implements RawExtractor
         Timestamp startTime = null;
 
         long sessionId = -1;
-        ArrayList<DBMSData> dataArray = new ArrayList<DBMSData>();
+        MySQLTransactionBuffer dataArray = newTransactionBuffer();
 
         boolean foundRowsLogEvent = false;
         LinkedList<ReplOption> savedOptions = new LinkedList<ReplOption>();
@@ -653,6 +908,11 @@ public class MySQLExtractor implements RawExtractor
                     SqlOperation sqlOperation = sqlMatcher.match(query);
                     statement.setParsingMetadata(sqlOperation);
 
+                    // Record DDL in the schema history so that later table
+                    // map events fetch fresh metadata.
+                    invalidateMetadata(sqlOperation, event.getDefaultDb(),
+                            position);
+
                     // We must commit on DDLs and the like except for BEGIN or
                     // START TRANSACTION, since they start new transaction at
                     // the same time
@@ -914,6 +1174,12 @@ public class MySQLExtractor implements RawExtractor
                         logger.info("Ignored superfluous master rotate log event: file="
                                 + newBinlogFilename);
                     }
+                    else if (catchUpStopFile != null)
+                    {
+                        // Catch-up workers extract a single file, so we stay
+                        // at the end of it.
+                        reachedStopFile = true;
+                    }
                     else
                     {
                         // It's real so we need to rotate the log.
@@ -921,6 +1187,7 @@ public class MySQLExtractor implements RawExtractor
                         position.setFileName(((RotateLogEvent) logEvent)
                                 .getNewBinlogFilename());
                         position.open();
+                        checkSchemaHistory(position);
                         // Kick off an asynchronous scan for old relay logs.
                         if (useRelayLogs)
                             purgeRelayLogs(false);
@@ -930,6 +1197,8 @@ public class MySQLExtractor implements RawExtractor
                         doCommit = true;
                         inTransaction = !autocommitMode;
                     }
+                    else if (reachedStopFile)
+                        return null;
                 }
                 else if (logEvent.getClass() == TableMapLogEvent.class)
                 {
@@ -939,7 +1208,7 @@ public class MySQLExtractor implements RawExtractor
                     tableEvents.put(tableEvent.getTableId(), tableEvent);
                     if (isMaria10)
                     {
-                        fetchMetadata(tableEvent);
+                        fetchMetadata(tableEvent, position);
                     }
                 }
                 else if (logEvent instanceof RowsLogEvent)
@@ -947,18 +1216,28 @@ public class MySQLExtractor implements RawExtractor
                     if (logger.isDebugEnabled())
                         logger.debug("got rows log event - event size = "
                                 + ((RowsLogEvent) logEvent).getEventSize());
-                    rowChangeData = new RowChangeData();
                     RowsLogEvent rowsEvent = (RowsLogEvent) logEvent;
                     TableMapLogEvent tableEvent = tableEvents.get(rowsEvent
                             .getTableId());
-                    rowsEvent.processExtractedEvent(rowChangeData, tableEvent);
-                    rowChangeData.addOption("time_zone", "'+00:00'");
-                    if (useBytesForStrings)
+                    if (isProjectedOut(tableEvent))
                     {
-                        rowChangeData.addOption("##charset", Charset
-                                .defaultCharset().displayName());
+                        // Filters would drop these rows, so we skip decoding
+                        // them. The event position still advances.
+                        skippedRowsEvents++;
+                    }
+                    else
+                    {
+                        rowChangeData = new RowChangeData();
+                        rowsEvent.processExtractedEvent(rowChangeData,
+                                tableEvent);
+                        rowChangeData.addOption("time_zone", "'+00:00'");
+                        if (useBytesForStrings)
+                        {
+                            rowChangeData.addOption("##charset", Charset
+                                    .defaultCharset().displayName());
+                        }
+                        dataArray.add(rowChangeData);
                     }
-                    dataArray.add(rowChangeData);
                     foundRowsLogEvent = true;
                 }
                 else if (logEvent instanceof BeginLoadQueryLogEvent)
@@ -1110,7 +1389,8 @@ public class MySQLExtractor implements RawExtractor
                     runtime.getMonitor().incrementEvents(dataArray.size());
                     String eventId = getDBMSEventId(position, sessionId);
 
-                    dbmsEvent = new DBMSEvent(eventId, dataArray, startTime);
+                    dbmsEvent = newDBMSEvent(eventId, dataArray, true,
+                            startTime);
                     if (foundRowsLogEvent)
                         dbmsEvent.setOptions(savedOptions);
 
@@ -1131,7 +1411,7 @@ public class MySQLExtractor implements RawExtractor
                     // fragmented as they are not handled by the following code
                     runtime.getMonitor().incrementEvents(dataArray.size());
                     String eventId = getDBMSEventId(position, sessionId);
-                    dbmsEvent = new DBMSEvent(eventId, dataArray, false,
+                    dbmsEvent = newDBMSEvent(eventId, dataArray, false,
                             startTime);
                     if (foundRowsLogEvent)
                         dbmsEvent.setOptions(savedOptions);
@@ -1151,7 +1431,7 @@ public class MySQLExtractor implements RawExtractor
                     doFileFragment = false;
                     runtime.getMonitor().incrementEvents(dataArray.size());
                     String eventId = getDBMSEventId(position, sessionId);
-                    dbmsEvent = new DBMSEvent(eventId, dataArray, false,
+                    dbmsEvent = newDBMSEvent(eventId, dataArray, false,
                             startTime);
                     if (foundRowsLogEvent)
                         dbmsEvent.setOptions(savedOptions);
@@ -1209,17 +1489,117 @@ public class MySQLExtractor implements RawExtractor
                         + position, e);
 
         }
+        finally
+        {
+            // Free cache resources unless the transaction is still being
+            // returned in fragments.
+            if (dataArray != pendingTransaction)
+                dataArray.release();
+        }
         return null;
     }
 
     /**
-     * Fetches metadata for the table from the cache or from the database if
-     * needed
+     * Allocates a buffer for the data of the next transaction. Transactions
+     * spill to the byte cache if it is enabled and they are not fragmented
+     * while reading the binlog.
+     */
+    MySQLTransactionBuffer newTransactionBuffer()
+    {
+        if (byteCache != null && transactionFragSize == 0)
+            return new MySQLTransactionBuffer(byteCache,
+                    transactionBufferLimit);
+        else
+            return new MySQLTransactionBuffer();
+    }
+
+    /**
+     * Creates an event from transaction data. A transaction that spilled to
+     * the byte cache is read back into a single event on the heap, unless
+     * fragmenting of spilled transactions is enabled. In that case the event only holds the
+     * first fragment and the rest is returned by subsequent calls to
+     * extract().
+     */
+    DBMSEvent newDBMSEvent(String eventId,
+            MySQLTransactionBuffer buffer, boolean lastFrag,
+            Timestamp startTime) throws IOException
+    {
+        if (!buffer.isSpilled())
+            return new DBMSEvent(eventId, buffer.toList(), lastFrag,
+                    startTime);
+        else if (!fragmentSpilledTransactions)
+            return new DBMSEvent(eventId, buffer.readAll(), lastFrag,
+                    startTime);
+
+        ArrayList<DBMSData> data = buffer.nextFragment();
+        boolean moreFragments = buffer.hasMoreFragments();
+        DBMSEvent event = new DBMSEvent(eventId, data, lastFrag
+                && !moreFragments, startTime);
+        if (moreFragments)
+        {
+            logger.info("Transaction spilled to byte cache, returning it in fragments: eventId="
+                    + eventId + " rows events=" + buffer.size());
+            pendingTransaction = buffer;
+            pendingEvent = event;
+            pendingLastFrag = lastFrag;
+        }
+        return event;
+    }
+
+    /**
+     * Returns the next fragment of a transaction that spilled to the byte
+     * cache. Fragments share the event ID, metadata and options of the first
+     * fragment.
+     */
+    private DBMSEvent nextPendingFragment() throws ReplicatorException
+    {
+        try
+        {
+            ArrayList<DBMSData> data = pendingTransaction.nextFragment();
+            boolean moreFragments = pendingTransaction.hasMoreFragments();
+            runtime.getMonitor().incrementEvents(data.size());
+
+            DBMSEvent event = new DBMSEvent(pendingEvent.getEventId(),
+                    new LinkedList<ReplOption>(pendingEvent.getMetadata()),
+                    data, pendingLastFrag && !moreFragments,
+                    pendingEvent.getSourceTstamp());
+            event.setOptions(new LinkedList<ReplOption>(pendingEvent
+                    .getOptions()));
+
+            if (!moreFragments)
+                releasePendingTransaction();
+            return event;
+        }
+        catch (IOException e)
+        {
+            String eventId = pendingEvent.getEventId();
+            releasePendingTransaction();
+            throw new ExtractorException(
+                    "Unable to read spilled transaction from byte cache: eventId="
+                            + eventId, e);
+        }
+    }
+
+    // Frees a spilled transaction.
+    private void releasePendingTransaction()
+    {
+        if (pendingTransaction != null)
+        {
+            pendingTransaction.release();
+            pendingTransaction = null;
+            pendingEvent = null;
+        }
+    }
+
+    /**
+     * Fetches metadata for the table from the cache, then from the schema
+     * history, or from the database if needed
      * 
      * @param tableEvent the table event that is currently handled
+     * @param position the binlog position of the table event
      */
-    private void fetchMetadata(TableMapLogEvent tableEvent)
-            throws SQLException, ReplicatorException
+    private void fetchMetadata(TableMapLogEvent tableEvent,
+            BinlogReader position) throws SQLException, ReplicatorException
     {
         if (metadataCache == null)
             metadataCache = new TableMetadataCache(5000);
@@ -1229,18 +1609,40 @@ public class MySQLExtractor implements RawExtractor
 
         if (table == null || table.getTableId() != tableEvent.getTableId())
         {
-            // If table is not in the cache or the table identifier changed, we
-            // need to fetch it from database
-            prepareMetadataConnection();
-
-            table = metadataConnection.findTable(tableEvent.getDatabaseName(),
-                    tableEvent.getTableName(), false);
-
-            if (table != null)
+            // If table is not in the cache or the table identifier changed,
+            // look for the definition in effect at this binlog position.
+            SchemaHistoryStore.Position historyPosition = new SchemaHistoryStore.Position(
+                    position.getFileName(), position.getPosition());
+            Table version = schemaHistory.lookup(
+                    tableEvent.getDatabaseName(), tableEvent.getTableName(),
+                    historyPosition);
+
+            if (version != null)
             {
+                if (logger.isDebugEnabled())
+                    logger.debug("Table " + tableEvent.getDatabaseName() + "."
+                            + tableEvent.getTableName()
+                            + " found in schema history.");
+                table = version.clone();
                 table.setTableId(tableEvent.getTableId());
                 metadataCache.store(table);
             }
+            else
+            {
+                // Fall back to the database.
+                prepareMetadataConnection();
+
+                table = metadataConnection.findTable(
+                        tableEvent.getDatabaseName(),
+                        tableEvent.getTableName(), false);
+
+                if (table != null)
+                {
+                    table.setTableId(tableEvent.getTableId());
+                    metadataCache.store(table);
+                    schemaHistory.store(table, historyPosition);
+                }
+            }
         }
         else if (logger.isDebugEnabled())
             logger.debug("Table " + tableEvent.getDatabaseName() + "."
@@ -1258,6 +1660,75 @@ public class MySQLExtractor implements RawExtractor
         }
     }
 
+    /**
+     * Discards the schema history if it belongs to a different binlog sequence
+     * than the binlog we are about to read.
+     */
+    private void checkSchemaHistory(BinlogReader position)
+            throws ReplicatorException
+    {
+        if (schemaHistory == null)
+            return;
+        String lastFileName = null;
+        try
+        {
+            List<File> binlogs = new BinlogIndex(binlogDir, binlogFilePattern,
+                    true).getBinlogFiles();
+            if (!binlogs.isEmpty())
+                lastFileName = binlogs.get(binlogs.size() - 1).getName();
+        }
+        catch (ReplicatorException e)
+        {
+            logger.warn("Unable to read binlog index to check schema history: "
+                    + e.getMessage());
+        }
+        schemaHistory.checkSequence(new SchemaHistoryStore.Position(
+                position.getFileName(), position.getPosition()), lastFileName);
+    }
+
+    /**
+     * Drops cached metadata for tables affected by a DDL statement and records
+     * the change in the schema history at the statement position.
+     */
+    private void invalidateMetadata(SqlOperation sqlOperation,
+            String defaultSchema, BinlogReader position)
+            throws ReplicatorException
+    {
+        if (metadataCache != null)
+            metadataCache.invalidate(sqlOperation, defaultSchema);
+        if (schemaHistory != null)
+        {
+            int count = schemaHistory.invalidate(sqlOperation, defaultSchema,
+                    new SchemaHistoryStore.Position(position.getFileName(),
+                            position.getPosition()));
+            if (count > 0 && logger.isDebugEnabled())
+                logger.debug("Invalidated schema history for DDL: objects="
+                        + count + " position=" + position.getFileName() + ":"
+                        + position.getPosition());
+        }
+    }
+
+    /**
+     * Returns true if one of the projection filters drops all row changes on
+     * the table. Filters are not thread-safe, so calls from catch-up workers
+     * are serialized.
+     */
+    private boolean isProjectedOut(TableMapLogEvent tableEvent)
+    {
+        if (projectionFilters == null || tableEvent == null)
+            return false;
+        synchronized (projectionFilters)
+        {
+            for (ProjectionFilter filter : projectionFilters)
+            {
+                if (filter.dropsRowChanges(tableEvent.getDatabaseName(),
+                        tableEvent.getTableName()))
+                    return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Prepare the metadata connection for use : connect or reconnect if needed.
      */
@@ -1281,6 +1752,160 @@ public class MySQLExtractor implements RawExtractor
         }
     }
 
+    /**
+     * Starts parallel extraction of completed binlogs from the current
+     * position. The last binlog in the index is still being written, so it is
+     * left to normal extraction.
+     */
+    private void startCatchUp() throws ReplicatorException
+    {
+        if (useRelayLogs || !MODE_MASTER.equals(binlogMode))
+        {
+            logger.info("Parallel binlog catch-up is only supported when reading binlogs directly from a master");
+            return;
+        }
+
+        BinlogIndex index = new BinlogIndex(binlogDir, binlogFilePattern, true);
+        List<File> binlogs = index.getBinlogFiles();
+        List<String> files = new ArrayList<String>();
+        boolean found = false;
+        for (int i = 0; i < binlogs.size() - 1; i++)
+        {
+            String name = binlogs.get(i).getName();
+            if (name.equals(binlogPosition.getFileName()))
+                found = true;
+            if (found)
+                files.add(name);
+        }
+
+        // Only bother if there is more than one completed file to read.
+        if (files.size() < 2)
+            return;
+
+        catchUpResumeFile = binlogs.get(binlogs.size() - 1).getName();
+        catchUp = new BinlogCatchUp(new BinlogCatchUp.FileExtractorFactory()
+        {
+            public BinlogCatchUp.FileExtractor create(String fileName,
+                    long offset)
+            {
+                return newCatchUpWorker(fileName, offset);
+            }
+        }, files, binlogPosition.getPosition(), catchUpThreads,
+                catchUpBufferSize);
+        catchUp.start();
+    }
+
+    /**
+     * Returns the next event from parallel catch-up. Once all completed
+     * binlogs are read, we switch back to normal extraction at the start of
+     * the binlog that follows them.
+     */
+    private DBMSEvent nextCatchUpEvent() throws ReplicatorException,
+            InterruptedException
+    {
+        DBMSEvent event = catchUp.next();
+        if (event == null)
+        {
+            stopCatchUp();
+            logger.info("Parallel binlog catch-up complete; resuming normal extraction: file="
+                    + catchUpResumeFile);
+            binlogPosition = new BinlogReader(4, catchUpResumeFile, binlogDir,
+                    binlogFilePattern, bufferSize);
+            binlogPosition.setReadAhead(readAhead);
+            event = extractEvent(binlogPosition);
+        }
+        return event;
+    }
+
+    private void stopCatchUp()
+    {
+        if (catchUp != null)
+        {
+            catchUp.stop();
+            catchUp = null;
+        }
+    }
+
+    // Wraps a catch-up extractor for use by parallel catch-up.
+    private BinlogCatchUp.FileExtractor newCatchUpWorker(String fileName,
+            long offset)
+    {
+        final MySQLExtractor worker = newCatchUpExtractor(fileName, offset);
+        return new BinlogCatchUp.FileExtractor()
+        {
+            public DBMSEvent extract() throws ReplicatorException,
+                    InterruptedException
+            {
+                return worker.extract();
+            }
+
+            public void release()
+            {
+                worker.releaseCatchUpWorker();
+            }
+        };
+    }
+
+    /**
+     * Creates an extractor for a single binlog file that shares our settings,
+     * data source, schema history, and byte cache for large transactions.
+     */
+    MySQLExtractor newCatchUpExtractor(String fileName, long offset)
+    {
+        MySQLExtractor worker = new MySQLExtractor();
+        worker.runtime = runtime;
+        worker.dataSource = dataSource;
+        worker.dataSourceImpl = dataSourceImpl;
+        worker.connectionSpec = connectionSpec;
+        worker.url = url;
+        worker.user = user;
+        worker.password = password;
+        worker.strictVersionChecking = false;
+        worker.parseStatements = parseStatements;
+        worker.binlogMode = binlogMode;
+        worker.binlogDir = binlogDir;
+        worker.binlogFilePattern = binlogFilePattern;
+        worker.binlogReadTimeout = binlogReadTimeout;
+        worker.deterministicIo = deterministicIo;
+        worker.useBytesForStrings = useBytesForStrings;
+        worker.transactionFragSize = transactionFragSize;
+        worker.transactionBufferLimit = transactionBufferLimit;
+        worker.fragmentSpilledTransactions = fragmentSpilledTransactions;
+        worker.byteCache = byteCache;
+        worker.prefetchSchemaNameLDI = prefetchSchemaNameLDI;
+        worker.jdbcHeader = jdbcHeader;
+        worker.urlOptions = urlOptions;
+        worker.bufferSize = bufferSize;
+        worker.isMaria10 = isMaria10;
+        worker.reconnectTimeoutInSeconds = reconnectTimeoutInSeconds;
+        worker.schemaHistory = schemaHistory;
+        worker.projectionFilters = projectionFilters;
+        worker.catchUpStopFile = fileName;
+        worker.binlogPosition = new BinlogReader(offset, fileName, binlogDir,
+                binlogFilePattern, bufferSize);
+        return worker;
+    }
+
+    // Releases resources held by a catch-up worker. Shared resources belong to
+    // the parent extractor.
+    private void releaseCatchUpWorker()
+    {
+        try
+        {
+            if (binlogPosition != null)
+                binlogPosition.close();
+        }
+        catch (ReplicatorException e)
+        {
+            logger.warn("Unable to close binlog: " + e.getMessage());
+        }
+        if (metadataConnection != null)
+        {
+            metadataConnection.close();
+            metadataConnection = null;
+        }
+    }
+
     /**
      * {@inheritDoc}
      * 
@@ -1289,6 +1914,11 @@ public class MySQLExtractor implements RawExtractor
     public synchronized DBMSEvent extract() throws InterruptedException,
             ReplicatorException
     {
+        // Catch-up workers return nothing once they reach the end of their
+        // file.
+        if (reachedStopFile)
+            return null;
+
         // If we are using relay logs make sure they are enabled.
         assertRelayLogsEnabled();
 
@@ -1305,19 +1935,26 @@ public class MySQLExtractor implements RawExtractor
                     binlogDir, binlogFilePattern, bufferSize));
         }
 
-        // Extract the next event.
-        DBMSEvent event = extractEvent(binlogPosition);
+        // Extract the next event, unless we are still returning fragments of
+        // a transaction that spilled to the byte cache.
+        DBMSEvent event;
+        if (pendingTransaction != null)
+            event = nextPendingFragment();
+        else if (catchUp != null)
+            event = nextCatchUpEvent();
+        else
+            event = extractEvent(binlogPosition);
 
         // Mark the event as coming from MySQL and that it is time-zone aware.
         if (event != null)
         {
-            event.addMetadataOption(ReplOptionParams.DBMS_TYPE, Database.MYSQL);
-            event.addMetadataOption(ReplOptionParams.TIME_ZONE_AWARE, "true");
+            event.setMetaDataOption(ReplOptionParams.DBMS_TYPE, Database.MYSQL);
+            event.setMetaDataOption(ReplOptionParams.TIME_ZONE_AWARE, "true");
         }
 
         // If strings are converted to UTF8 rather than using bytes, mark
         // settings accordingly.
-        if (!useBytesForStrings)
+        if (event != null && !useBytesForStrings)
             event.setMetaDataOption(ReplOptionParams.STRINGS, "utf8");
 
         // Return the completed event.
@@ -1344,6 +1981,10 @@ public class MySQLExtractor implements RawExtractor
      */
     public void setLastEventId(String eventId) throws ReplicatorException
     {
+        // Drop any partially returned transaction, as we are repositioning.
+        releasePendingTransaction();
+        stopCatchUp();
+
         if (eventId != null)
         {
             logger.info("Starting from an explicit event ID: " + eventId);
@@ -1391,6 +2032,13 @@ public class MySQLExtractor implements RawExtractor
                 binlogPosition = positionBinlogMaster(true);
             }
         }
+        binlogPosition.setReadAhead(readAhead);
+        checkSchemaHistory(binlogPosition);
+
+        // If we are behind by more than one binlog, extract completed binlogs
+        // in parallel.
+        if (catchUpThreads > 1)
+            startCatchUp();
     }
 
     /**
@@ -1402,6 +2050,12 @@ public class MySQLExtractor implements RawExtractor
     {
         runtime = (ReplicatorRuntime) context;
 
+        if (cacheDir == null)
+        {
+            File home = ReplicatorRuntimeConf.locateReplicatorHomeDir();
+            cacheDir = new File(home, "var/cache/" + context.getServiceName());
+        }
+
         // See if we are operating in native slave takeover mode.
         nativeSlaveTakeover = context.nativeSlaveTakeover();
         if (nativeSlaveTakeover)
@@ -1500,6 +2154,32 @@ public class MySQLExtractor implements RawExtractor
                     + dataSource);
         }
 
+        // Set up the byte cache for large transactions, which is only used if
+        // transactions are not fragmented.
+        if (transactionBufferLimit > 0 && transactionFragSize == 0)
+        {
+            byteCache = new RawByteCache(cacheDir, cacheMaxTotalBytes,
+                    cacheMaxObjectBytes, cacheMaxOpenFiles);
+            byteCache.prepare();
+            logger.info("Number of rows events that will be buffered per transaction in Java before flushing to byte cache: "
+                    + transactionBufferLimit);
+            if (!fragmentSpilledTransactions)
+                logger.info("Spilled transactions are read back into a single event; set fragmentSpilledTransactions=true to bound heap use for large transactions");
+        }
+
+        // Start reading ahead on binlogs if desired.
+        if (readAheadSize > 0)
+        {
+            readAhead = new BinlogReadAhead(binlogDir, binlogFilePattern,
+                    readAheadSize);
+            readAhead.start();
+        }
+
+        // Load the schema history used to resolve table metadata.
+        schemaHistory = new SchemaHistoryStore(schemaHistoryDir,
+                schemaHistoryMaxVersions);
+        schemaHistory.open();
+
         // Compute our MySQL DBMS URL.
         connectionSpec = dataSourceImpl.getConnectionSpec();
         url = connectionSpec.createUrl(false);
@@ -1889,6 +2569,30 @@ public class MySQLExtractor implements RawExtractor
             metadataConnection.close();
             metadataConnection = null;
         }
+        if (schemaHistory != null)
+        {
+            schemaHistory.close();
+            schemaHistory = null;
+        }
+        releasePendingTransaction();
+        stopCatchUp();
+        if (byteCache != null)
+        {
+            byteCache.release();
+            byteCache = null;
+        }
+        if (readAhead != null)
+        {
+            try
+            {
+                readAhead.stop();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            readAhead = null;
+        }
         stopRelayLogs();
     }
 
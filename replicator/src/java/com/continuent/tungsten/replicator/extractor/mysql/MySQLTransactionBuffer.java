@@ -0,0 +1,189 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.extractor.mysql;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+import com.continuent.tungsten.common.cache.LargeObjectArray;
+import com.continuent.tungsten.common.cache.LargeObjectScanner;
+import com.continuent.tungsten.common.cache.RawByteCache;
+import com.continuent.tungsten.replicator.dbms.DBMSData;
+
+/**
+ * Holds the data of the transaction currently being extracted from the binlog.
+ * If a byte cache is supplied, data are kept in a large object array so that
+ * transactions larger than the buffer limit spill to storage instead of
+ * filling the heap while the transaction is read from the binlog. Spilled
+ * transactions are read back either whole or in fragments of at most buffer
+ * limit entries. Only fragments keep heap use bounded. Reading a spilled
+ * transaction back whole puts all of it on the heap, in addition to the cost
+ * of writing it to storage and reading it again. Buffers <em>must</em> be
+ * released to avoid leaking cache resources.
+ */
+class MySQLTransactionBuffer
+{
+    // In-memory list used when there is no cache.
+    private ArrayList<DBMSData>           list;
+
+    // Large object array and scanner used when there is a cache.
+    private LargeObjectArray<DBMSData>    array;
+    private LargeObjectScanner<DBMSData> scanner;
+    private final int                     bufferLimit;
+
+    /**
+     * Creates a buffer that holds all data in memory.
+     */
+    public MySQLTransactionBuffer()
+    {
+        this.list = new ArrayList<DBMSData>();
+        this.bufferLimit = -1;
+    }
+
+    /**
+     * Creates a buffer that spills to a byte cache.
+     *
+     * @param cache Backing storage
+     * @param bufferLimit Number of entries to hold as Java objects before
+     *            spilling to cache; also the maximum number of entries in a
+     *            fragment read back from the cache
+     */
+    public MySQLTransactionBuffer(RawByteCache cache, int bufferLimit)
+    {
+        this.bufferLimit = Math.max(bufferLimit, 1);
+        this.array = new LargeObjectArray<DBMSData>(cache, this.bufferLimit);
+    }
+
+    /**
+     * Adds data to the end of the transaction.
+     */
+    public void add(DBMSData data)
+    {
+        if (list != null)
+            list.add(data);
+        else
+            array.add(data);
+    }
+
+    /**
+     * Returns the number of entries in the transaction.
+     */
+    public int size()
+    {
+        if (list != null)
+            return list.size();
+        else
+            return array.size();
+    }
+
+    public boolean isEmpty()
+    {
+        return size() == 0;
+    }
+
+    /**
+     * Returns true if the transaction has spilled to storage and must be read
+     * back in fragments.
+     */
+    public boolean isSpilled()
+    {
+        return array != null && array.size() > bufferLimit;
+    }
+
+    /**
+     * Returns all data as a list. This must only be used if the transaction
+     * has not spilled to storage.
+     */
+    public ArrayList<DBMSData> toList()
+    {
+        if (list != null)
+            return list;
+
+        ArrayList<DBMSData> data = new ArrayList<DBMSData>(array.size());
+        for (int i = 0; i < array.size(); i++)
+            data.add(array.get(i));
+        return data;
+    }
+
+    /**
+     * Reads back all data of a spilled transaction in order. The whole
+     * transaction is held on the heap, so this does not bound memory use.
+     *
+     * @throws IOException Thrown if the cache cannot be read
+     */
+    public ArrayList<DBMSData> readAll() throws IOException
+    {
+        if (list != null)
+            return list;
+
+        ArrayList<DBMSData> data = new ArrayList<DBMSData>(array.size());
+        LargeObjectScanner<DBMSData> allScanner = array.scanner();
+        try
+        {
+            while (allScanner.hasNext())
+                data.add(allScanner.next());
+        }
+        finally
+        {
+            allScanner.close();
+        }
+        return data;
+    }
+
+    /**
+     * Reads the next fragment of a spilled transaction.
+     *
+     * @throws IOException Thrown if the cache cannot be read
+     */
+    public ArrayList<DBMSData> nextFragment() throws IOException
+    {
+        if (scanner == null)
+            scanner = array.scanner();
+        ArrayList<DBMSData> data = new ArrayList<DBMSData>(bufferLimit);
+        while (data.size() < bufferLimit && scanner.hasNext())
+            data.add(scanner.next());
+        return data;
+    }
+
+    /**
+     * Returns true if a spilled transaction has fragments left to read.
+     */
+    public boolean hasMoreFragments()
+    {
+        return scanner == null ? !isEmpty() : scanner.hasNext();
+    }
+
+    /**
+     * Releases cache resources. This operation is idempotent.
+     */
+    public void release()
+    {
+        if (scanner != null)
+        {
+            scanner.close();
+            scanner = null;
+        }
+        if (array != null)
+        {
+            array.release();
+        }
+    }
+}
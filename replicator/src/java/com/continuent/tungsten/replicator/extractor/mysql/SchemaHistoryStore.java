@@ -0,0 +1,725 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.extractor.mysql;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.log4j.Logger;
+
+import com.continuent.tungsten.replicator.ReplicatorException;
+import com.continuent.tungsten.replicator.database.Column;
+import com.continuent.tungsten.replicator.database.Key;
+import com.continuent.tungsten.replicator.database.SqlObject;
+import com.continuent.tungsten.replicator.database.SqlOperation;
+import com.continuent.tungsten.replicator.database.Table;
+
+/**
+ * Stores versions of table metadata keyed by the binlog position at which they
+ * became valid. The extractor consults the store before asking the live
+ * database for a table definition, which means that after a restart or during
+ * a long catch-up we use the definition that was in effect at the binlog
+ * position being read rather than the current one.
+ * <p>
+ * Versions are added when metadata is fetched from the database. DDL seen in
+ * the binlog adds a tombstone at the DDL position, so that the next lookup
+ * past the DDL goes back to the database for a fresh definition. When a store
+ * directory is set, all changes are appended to a history file on disk and
+ * reloaded on the next start.
+ * <p>
+ * History is only valid for a single binlog sequence. The extractor calls
+ * {@link #checkSequence(Position, String)} when it starts and when it rotates
+ * to a new binlog, and history is discarded if the binlog base name changed or
+ * the sequence restarted, for example after RESET MASTER.
+ * <p>
+ * Methods are synchronized, as parallel catch-up workers share a single store.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class SchemaHistoryStore
+{
+    private static Logger                                logger          = Logger.getLogger(SchemaHistoryStore.class);
+
+    /** Name of the history file within the store directory. */
+    public static final String                          HISTORY_FILE    = "schema-history.dat";
+
+    // Record types in the history file.
+    private static final byte                           TABLE_VERSION   = 1;
+    private static final byte                           TABLE_DROPPED   = 2;
+    private static final byte                           SCHEMA_DROPPED  = 3;
+
+    // History file header.
+    private static final int                            MAGIC           = 0x53484953;
+    private static final int                            VERSION         = 1;
+
+    private final File                                  directory;
+    private final int                                   maxVersions;
+
+    // Versions by schema.table name, ordered by binlog position. A null table
+    // is a tombstone.
+    private Map<String, TreeMap<Position, Table>>        tableHistory    = new HashMap<String, TreeMap<Position, Table>>();
+
+    // Schema-wide tombstones, ordered by binlog position.
+    private Map<String, TreeMap<Position, Boolean>>      schemaHistory   = new HashMap<String, TreeMap<Position, Boolean>>();
+
+    // Latest position in history, which tells us the binlog sequence it
+    // belongs to.
+    private Position                                     newest;
+
+    private DataOutputStream                             out;
+    private long                                         records         = 0;
+    private long                                         hits            = 0;
+    private long                                         misses          = 0;
+
+    /**
+     * Binlog position at which a table version becomes valid. Positions are
+     * ordered by the numeric suffix of the binlog file name and then offset,
+     * so that mysql-bin.1000000 follows mysql-bin.999999. File names without
+     * a numeric suffix or with different base names are ordered by name.
+     */
+    public static class Position implements Comparable<Position>
+    {
+        private final String fileName;
+        private final long   offset;
+        private final String baseName;
+        private final long   index;
+
+        public Position(String fileName, long offset)
+        {
+            this.fileName = fileName;
+            this.offset = offset;
+
+            // Split the name into base name and sequence number.
+            int dot = fileName.lastIndexOf('.');
+            long number = -1;
+            if (dot >= 0 && dot < fileName.length() - 1
+                    && fileName.length() - dot <= 19)
+            {
+                number = 0;
+                for (int i = dot + 1; i < fileName.length() && number >= 0; i++)
+                {
+                    char c = fileName.charAt(i);
+                    if (c >= '0' && c <= '9')
+                        number = number * 10 + (c - '0');
+                    else
+                        number = -1;
+                }
+            }
+            this.baseName = (number < 0) ? fileName : fileName.substring(0,
+                    dot);
+            this.index = number;
+        }
+
+        public String getFileName()
+        {
+            return fileName;
+        }
+
+        public long getOffset()
+        {
+            return offset;
+        }
+
+        /** Returns the binlog base name, e.g., mysql-bin. */
+        public String getBaseName()
+        {
+            return baseName;
+        }
+
+        /** Returns the binlog sequence number or -1 if there is none. */
+        public long getIndex()
+        {
+            return index;
+        }
+
+        public int compareTo(Position o)
+        {
+            int cmp = 0;
+            if (index >= 0 && o.index >= 0 && baseName.equals(o.baseName))
+                cmp = (index < o.index) ? -1 : ((index > o.index) ? 1 : 0);
+            if (cmp == 0)
+                cmp = fileName.compareTo(o.fileName);
+            if (cmp != 0)
+                return cmp;
+            else if (offset < o.offset)
+                return -1;
+            else if (offset > o.offset)
+                return 1;
+            else
+                return 0;
+        }
+
+        public boolean equals(Object o)
+        {
+            return (o instanceof Position) && compareTo((Position) o) == 0;
+        }
+
+        public int hashCode()
+        {
+            return fileName.hashCode() * 31 + (int) (offset ^ (offset >>> 32));
+        }
+
+        public String toString()
+        {
+            return fileName + ":" + offset;
+        }
+    }
+
+    /**
+     * Creates a new schema history store.
+     *
+     * @param directory Directory holding the history file or null to keep
+     *            history in memory only
+     * @param maxVersions Maximum number of versions kept per table; older
+     *            versions are discarded first
+     */
+    public SchemaHistoryStore(String directory, int maxVersions)
+    {
+        this.directory = (directory == null) ? null : new File(directory);
+        this.maxVersions = Math.max(maxVersions, 1);
+    }
+
+    /**
+     * Loads persisted history, if any, and opens the history file for
+     * appending. The file is compacted on load so that it only contains
+     * retained versions.
+     */
+    public synchronized void open() throws ReplicatorException
+    {
+        if (directory == null)
+        {
+            logger.info("Schema history will be kept in memory only");
+            return;
+        }
+
+        if (!directory.exists() && !directory.mkdirs())
+            throw new MySQLExtractException(
+                    "Unable to create schema history directory: "
+                            + directory.getAbsolutePath());
+
+        File historyFile = new File(directory, HISTORY_FILE);
+        if (historyFile.exists())
+            load(historyFile);
+
+        // Rewrite the retained history into a fresh file and swap it in.
+        File tempFile = new File(directory, HISTORY_FILE + ".tmp");
+        try
+        {
+            out = openOutput(tempFile);
+            records = 0;
+            for (Map.Entry<String, TreeMap<Position, Boolean>> schema : schemaHistory
+                    .entrySet())
+            {
+                for (Position pos : schema.getValue().keySet())
+                    writeRecord(SCHEMA_DROPPED, pos, schema.getKey(), "", null);
+            }
+            for (Map.Entry<String, TreeMap<Position, Table>> versions : tableHistory
+                    .entrySet())
+            {
+                String key = versions.getKey();
+                int dot = key.indexOf('.');
+                String schema = key.substring(0, dot);
+                String tableName = key.substring(dot + 1);
+                for (Map.Entry<Position, Table> version : versions.getValue()
+                        .entrySet())
+                {
+                    Table t = version.getValue();
+                    writeRecord(t == null ? TABLE_DROPPED : TABLE_VERSION,
+                            version.getKey(), schema, tableName, t);
+                }
+            }
+            out.flush();
+            out.close();
+
+            if (historyFile.exists() && !historyFile.delete())
+                throw new IOException("Unable to delete old history file: "
+                        + historyFile.getAbsolutePath());
+            if (!tempFile.renameTo(historyFile))
+                throw new IOException("Unable to rename history file: "
+                        + tempFile.getAbsolutePath());
+            out = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(historyFile, true)));
+        }
+        catch (IOException e)
+        {
+            throw new MySQLExtractException(
+                    "Unable to open schema history file: "
+                            + historyFile.getAbsolutePath(), e);
+        }
+
+        logger.info("Schema history opened: file="
+                + historyFile.getAbsolutePath() + " tables="
+                + tableHistory.size() + " records=" + records);
+    }
+
+    /**
+     * Releases the history file.
+     */
+    public synchronized void close()
+    {
+        if (out != null)
+        {
+            try
+            {
+                out.close();
+            }
+            catch (IOException e)
+            {
+                logger.warn("Unable to close schema history file", e);
+            }
+            out = null;
+        }
+        logger.info("Schema history closed: hits=" + hits + " misses="
+                + misses);
+    }
+
+    /**
+     * Returns the table definition in effect at the given binlog position or
+     * null if the history does not know it, in which case the caller must go
+     * to the database.
+     */
+    public synchronized Table lookup(String schema, String tableName,
+            Position position)
+    {
+        TreeMap<Position, Table> versions = tableHistory.get(generateKey(
+                schema, tableName));
+        if (versions == null)
+        {
+            misses++;
+            return null;
+        }
+
+        Map.Entry<Position, Table> version = versions.floorEntry(position);
+        if (version == null || version.getValue() == null)
+        {
+            misses++;
+            return null;
+        }
+
+        // A schema drop after the version makes it obsolete.
+        TreeMap<Position, Boolean> drops = schemaHistory.get(schema);
+        if (drops != null)
+        {
+            Position lastDrop = drops.floorKey(position);
+            if (lastDrop != null && lastDrop.compareTo(version.getKey()) >= 0)
+            {
+                misses++;
+                return null;
+            }
+        }
+
+        hits++;
+        return version.getValue();
+    }
+
+    /**
+     * Records a table definition as valid from the given position onwards.
+     */
+    public synchronized void store(Table table, Position position)
+            throws ReplicatorException
+    {
+        addVersion(table.getSchema(), table.getName(), position, table);
+        writeRecord(TABLE_VERSION, position, table.getSchema(),
+                table.getName(), table);
+    }
+
+    /**
+     * Records DDL seen in the binlog. Tables affected by the operation are
+     * marked as unknown from the given position so that their definition is
+     * fetched again.
+     *
+     * @param sqlOperation A SQLOperation from parsing
+     * @param defaultSchema Default schema in case it is not supplied by
+     *            sqlOperation
+     * @param position Position of the DDL in the binlog
+     * @return Number of tables or schemas invalidated
+     */
+    public synchronized int invalidate(SqlOperation sqlOperation,
+            String defaultSchema, Position position) throws ReplicatorException
+    {
+        int op = sqlOperation.getOperation();
+        int type = sqlOperation.getObjectType();
+        if (type == SqlOperation.SCHEMA && op == SqlOperation.DROP)
+        {
+            String schema = sqlOperation.getSchema();
+            if (schema == null)
+                schema = sqlOperation.getName();
+            if (schema == null)
+                return 0;
+            TreeMap<Position, Boolean> drops = schemaHistory.get(schema);
+            if (drops == null)
+            {
+                drops = new TreeMap<Position, Boolean>();
+                schemaHistory.put(schema, drops);
+            }
+            drops.put(position, Boolean.TRUE);
+            while (drops.size() > maxVersions)
+                drops.pollFirstEntry();
+            advance(position);
+            writeRecord(SCHEMA_DROPPED, position, schema, "", null);
+            return 1;
+        }
+        else if (type == SqlOperation.TABLE
+                && (op == SqlOperation.DROP || op == SqlOperation.ALTER
+                        || op == SqlOperation.CREATE || op == SqlOperation.RENAME))
+        {
+            int count = dropTable(sqlOperation.getSchema(), defaultSchema,
+                    sqlOperation.getName(), position);
+            if (sqlOperation.hasMoreDatabaseObjects())
+            {
+                for (SqlObject sqlObject : sqlOperation
+                        .getMoreDatabaseObjects())
+                {
+                    count += dropTable(sqlObject.getSchema(), defaultSchema,
+                            sqlObject.getName(), position);
+                }
+            }
+            return count;
+        }
+        return 0;
+    }
+
+    /**
+     * Discards history that belongs to a different binlog sequence than the
+     * one the extractor is reading. History is discarded if the base name of
+     * the binlog changed or if it holds positions in binlogs after the last
+     * one that exists, which means the sequence was restarted. Reading from
+     * an earlier binlog of the same sequence keeps history, as lookups are by
+     * position.
+     *
+     * @param position Position where the extractor is reading
+     * @param lastFileName Name of the last binlog in the binlog index or null
+     *            if not known
+     * @return True if history was discarded
+     */
+    public synchronized boolean checkSequence(Position position,
+            String lastFileName) throws ReplicatorException
+    {
+        if (newest == null)
+            return false;
+
+        String reason = null;
+        if (!newest.getBaseName().equals(position.getBaseName()))
+            reason = "binlog base name changed";
+        else
+        {
+            long lastIndex = position.getIndex();
+            if (lastFileName != null)
+                lastIndex = Math.max(lastIndex,
+                        new Position(lastFileName, 0).getIndex());
+            if (newest.getIndex() > lastIndex)
+                reason = "binlog sequence restarted";
+        }
+        if (reason == null)
+            return false;
+
+        logger.warn("Discarding schema history: reason=" + reason
+                + " history position=" + newest + " current position="
+                + position);
+        tableHistory.clear();
+        schemaHistory.clear();
+        newest = null;
+        if (out != null)
+        {
+            File historyFile = new File(directory, HISTORY_FILE);
+            try
+            {
+                out.close();
+                out = openOutput(historyFile);
+                out.flush();
+                records = 0;
+            }
+            catch (IOException e)
+            {
+                throw new MySQLExtractException(
+                        "Unable to truncate schema history file: "
+                                + historyFile.getAbsolutePath(), e);
+            }
+        }
+        return true;
+    }
+
+    /** Returns the number of lookups answered from history. */
+    public synchronized long getHits()
+    {
+        return hits;
+    }
+
+    /** Returns the number of lookups that had to go to the database. */
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    /** Returns the number of tables with history. */
+    public synchronized int size()
+    {
+        return tableHistory.size();
+    }
+
+    // Marks a single table as unknown from a position.
+    private int dropTable(String schema, String defaultSchema,
+            String tableName, Position position) throws ReplicatorException
+    {
+        if (schema == null)
+            schema = defaultSchema;
+        if (schema == null || tableName == null)
+            return 0;
+        addVersion(schema, tableName, position, null);
+        writeRecord(TABLE_DROPPED, position, schema, tableName, null);
+        return 1;
+    }
+
+    // Adds a version to memory, trimming the oldest versions if required.
+    private void addVersion(String schema, String tableName,
+            Position position, Table table)
+    {
+        String key = generateKey(schema, tableName);
+        TreeMap<Position, Table> versions = tableHistory.get(key);
+        if (versions == null)
+        {
+            versions = new TreeMap<Position, Table>();
+            tableHistory.put(key, versions);
+        }
+        versions.put(position, table);
+        while (versions.size() > maxVersions)
+            versions.pollFirstEntry();
+        advance(position);
+    }
+
+    // Remembers the latest position in history.
+    private void advance(Position position)
+    {
+        if (newest == null || position.compareTo(newest) > 0)
+            newest = position;
+    }
+
+    // Generate a key for table.
+    private String generateKey(String schema, String tableName)
+    {
+        StringBuffer key = new StringBuffer();
+        key.append(schema);
+        key.append(".");
+        key.append(tableName);
+        return key.toString();
+    }
+
+    // Opens a new history file and writes the header.
+    private DataOutputStream openOutput(File file) throws IOException
+    {
+        DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(file)));
+        dos.writeInt(MAGIC);
+        dos.writeInt(VERSION);
+        return dos;
+    }
+
+    // Appends a record to the history file, if there is one.
+    private void writeRecord(byte recordType, Position position,
+            String schema, String tableName, Table table)
+            throws ReplicatorException
+    {
+        if (out == null)
+            return;
+        try
+        {
+            out.writeByte(recordType);
+            out.writeUTF(position.getFileName());
+            out.writeLong(position.getOffset());
+            out.writeUTF(schema);
+            out.writeUTF(tableName);
+            if (recordType == TABLE_VERSION)
+                writeTable(table);
+            out.flush();
+            records++;
+        }
+        catch (IOException e)
+        {
+            throw new MySQLExtractException(
+                    "Unable to write schema history record: table=" + schema
+                            + "." + tableName + " position=" + position, e);
+        }
+    }
+
+    // Writes the column and key definitions of a table.
+    private void writeTable(Table table) throws IOException
+    {
+        List<Column> columns = table.getAllColumns();
+        out.writeInt(columns.size());
+        for (Column col : columns)
+        {
+            out.writeUTF(col.getName());
+            out.writeInt(col.getType());
+            out.writeUTF(col.getTypeDescription() == null ? "" : col
+                    .getTypeDescription());
+            out.writeInt(col.getPosition());
+            out.writeLong(col.getLength());
+            out.writeBoolean(col.isNotNull());
+            out.writeByte(col.isSignedSet() ? (col.isSigned() ? 1 : 0) : -1);
+            out.writeBoolean(col.isBlob());
+        }
+        List<Key> keys = table.getKeys();
+        out.writeInt(keys.size());
+        for (Key key : keys)
+        {
+            out.writeInt(key.getType());
+            out.writeUTF(key.getName() == null ? "" : key.getName());
+            out.writeInt(key.getColumns().size());
+            for (Column col : key.getColumns())
+                out.writeInt(columns.indexOf(col));
+        }
+    }
+
+    // Reads the column and key definitions of a table.
+    private Table readTable(DataInputStream in, String schema,
+            String tableName) throws IOException
+    {
+        Table table = new Table(schema, tableName);
+        int columnCount = in.readInt();
+        ArrayList<Column> columns = new ArrayList<Column>(columnCount);
+        for (int i = 0; i < columnCount; i++)
+        {
+            String name = in.readUTF();
+            int type = in.readInt();
+            String typeDescription = in.readUTF();
+            int position = in.readInt();
+            long length = in.readLong();
+            Column col = new Column(name, type, length, in.readBoolean(),
+                    null);
+            if (typeDescription.length() > 0)
+                col.setTypeDescription(typeDescription);
+            col.setPosition(position);
+            byte signed = in.readByte();
+            if (signed >= 0)
+                col.setSigned(signed == 1);
+            col.setBlob(in.readBoolean());
+            columns.add(col);
+            table.AddColumn(col);
+        }
+        int keyCount = in.readInt();
+        for (int i = 0; i < keyCount; i++)
+        {
+            Key key = new Key(in.readInt());
+            String keyName = in.readUTF();
+            if (keyName.length() > 0)
+                key.setName(keyName);
+            int keyColumns = in.readInt();
+            for (int j = 0; j < keyColumns; j++)
+            {
+                int index = in.readInt();
+                if (index >= 0 && index < columns.size())
+                    key.AddColumn(columns.get(index));
+            }
+            table.AddKey(key);
+        }
+        return table;
+    }
+
+    // Loads history from disk. A truncated trailing record, which may be left
+    // by a crash, is ignored.
+    private void load(File historyFile) throws ReplicatorException
+    {
+        DataInputStream in = null;
+        int loaded = 0;
+        try
+        {
+            in = new DataInputStream(new BufferedInputStream(
+                    new FileInputStream(historyFile)));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+            {
+                logger.warn("Ignoring schema history file with unknown format: "
+                        + historyFile.getAbsolutePath());
+                return;
+            }
+            while (true)
+            {
+                byte recordType;
+                try
+                {
+                    recordType = in.readByte();
+                }
+                catch (EOFException e)
+                {
+                    break;
+                }
+                Position position = new Position(in.readUTF(), in.readLong());
+                String schema = in.readUTF();
+                String tableName = in.readUTF();
+                if (recordType == TABLE_VERSION)
+                    addVersion(schema, tableName, position,
+                            readTable(in, schema, tableName));
+                else if (recordType == TABLE_DROPPED)
+                    addVersion(schema, tableName, position, null);
+                else if (recordType == SCHEMA_DROPPED)
+                {
+                    TreeMap<Position, Boolean> drops = schemaHistory
+                            .get(schema);
+                    if (drops == null)
+                    {
+                        drops = new TreeMap<Position, Boolean>();
+                        schemaHistory.put(schema, drops);
+                    }
+                    drops.put(position, Boolean.TRUE);
+                    advance(position);
+                }
+                else
+                    throw new IOException("Unknown record type: " + recordType);
+                loaded++;
+            }
+        }
+        catch (EOFException e)
+        {
+            logger.warn("Schema history file ends with a truncated record; ignoring it: records loaded="
+                    + loaded);
+        }
+        catch (IOException e)
+        {
+            throw new MySQLExtractException(
+                    "Unable to read schema history file: "
+                            + historyFile.getAbsolutePath(), e);
+        }
+        finally
+        {
+            if (in != null)
+            {
+                try
+                {
+                    in.close();
+                }
+                catch (IOException e)
+                {
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,303 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.extractor.oracle.redo;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+import com.continuent.tungsten.replicator.ReplicatorException;
+import com.continuent.tungsten.replicator.event.DBMSEvent;
+
+/**
+ * Converts committed plog transactions to events on a pool of threads while a
+ * single committer thread posts the events in the order in which transactions
+ * were submitted. The plog reader keeps framing LCRs and tracking open
+ * transactions on its own thread and submits transactions in commit SCN
+ * order, so the extractor queue sees exactly the same sequence of events as
+ * with serial conversion.
+ * <p>
+ * Conversions are started in submission order on a fixed pool. The oldest
+ * pending transaction has therefore always been started, and later ones block
+ * once their buffer of events is full, which bounds memory to the number of
+ * pending transactions times the buffer size.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+class PlogCommitPipeline implements Runnable
+{
+    private static Logger logger = Logger.getLogger(PlogCommitPipeline.class);
+
+    /**
+     * A committed transaction to convert.
+     */
+    interface Work
+    {
+        /**
+         * Converts the transaction and posts its events to the given queue.
+         *
+         * @return The ID of the last event posted
+         */
+        String pushContentsToQueue(BlockingQueue<DBMSEvent> out)
+                throws Exception;
+
+        /** Releases resources held by the transaction. */
+        void release();
+    }
+
+    // Marks the end of the events of a transaction.
+    private static final DBMSEvent                END_OF_TRANSACTION = new DBMSEvent(
+                                                                             "end-of-transaction");
+
+    private final BlockingQueue<DBMSEvent>        queue;
+    private final int                             threads;
+    private final int                             bufferSize;
+
+    private LinkedBlockingQueue<Pending>          pending;
+    private ExecutorService                       pool;
+    private Thread                                committer;
+
+    // Progress, updated by the committer.
+    private volatile String                       lastProcessedEventId;
+    private volatile ReplicatorException          failure;
+    private final Object                          lock               = new Object();
+    private long                                  submitted;
+    private long                                  committed;
+
+    /**
+     * Creates a new pipeline.
+     *
+     * @param queue Queue to which events are posted in order
+     * @param threads Number of conversion threads
+     * @param bufferSize Maximum number of events buffered per transaction
+     */
+    PlogCommitPipeline(BlockingQueue<DBMSEvent> queue, int threads,
+            int bufferSize)
+    {
+        this.queue = queue;
+        this.threads = Math.max(threads, 1);
+        this.bufferSize = Math.max(bufferSize, 1);
+    }
+
+    /**
+     * Starts the conversion threads and the committer.
+     */
+    void start()
+    {
+        logger.info("Starting plog commit pipeline: threads=" + threads
+                + " bufferSize=" + bufferSize);
+        final AtomicInteger threadCount = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(threads, new ThreadFactory()
+        {
+            public Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, "plog-convert-"
+                        + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        pending = new LinkedBlockingQueue<Pending>(threads * 2);
+        committer = new Thread(this, "plog-committer");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /**
+     * Submits a committed transaction. Blocks if too many transactions are
+     * pending. The pipeline releases the transaction once it is converted.
+     *
+     * @throws ReplicatorException Thrown if an earlier transaction failed
+     */
+    void submit(Work work) throws ReplicatorException, InterruptedException
+    {
+        checkFailure();
+        Pending p = new Pending(work, bufferSize);
+        synchronized (lock)
+        {
+            submitted++;
+        }
+        pending.put(p);
+        pool.execute(p);
+    }
+
+    /**
+     * Waits until all submitted transactions have been posted.
+     *
+     * @throws ReplicatorException Thrown if a transaction failed
+     */
+    void flush() throws ReplicatorException, InterruptedException
+    {
+        synchronized (lock)
+        {
+            while (committed < submitted && failure == null)
+                lock.wait(1000);
+        }
+        checkFailure();
+    }
+
+    /**
+     * Throws the failure of a transaction, if any. Once a transaction has
+     * failed, no further events are posted.
+     */
+    void checkFailure() throws ReplicatorException
+    {
+        if (failure != null)
+            throw failure;
+    }
+
+    /**
+     * Returns the ID of the last event posted, or null if none.
+     */
+    String getLastProcessedEventId()
+    {
+        return lastProcessedEventId;
+    }
+
+    /**
+     * Stops the pipeline and releases pending transactions.
+     */
+    void stop()
+    {
+        if (pool == null)
+            return;
+        committer.interrupt();
+
+        // Conversions that never started still hold their transaction.
+        for (Runnable notStarted : pool.shutdownNow())
+            ((Pending) notStarted).work.release();
+        try
+        {
+            committer.join(10000);
+            if (!pool.awaitTermination(10, TimeUnit.SECONDS))
+                logger.warn("Timed out waiting for plog conversion threads to stop");
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        pool = null;
+        logger.info("Stopped plog commit pipeline: transactions=" + committed);
+    }
+
+    /**
+     * Posts events of pending transactions in submission order until
+     * interrupted or a transaction fails. {@inheritDoc}
+     *
+     * @see java.lang.Runnable#run()
+     */
+    public void run()
+    {
+        try
+        {
+            while (true)
+            {
+                Pending p = pending.take();
+                DBMSEvent event;
+                while ((event = p.buffer.take()) != END_OF_TRANSACTION)
+                    queue.put(event);
+
+                if (p.failure != null)
+                {
+                    failure = p.failure;
+                    logger.error("Plog transaction conversion failed", failure);
+                    break;
+                }
+                lastProcessedEventId = p.lastEventId;
+                synchronized (lock)
+                {
+                    committed++;
+                    lock.notifyAll();
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            // We are being stopped.
+        }
+        finally
+        {
+            synchronized (lock)
+            {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Converts one transaction into its buffer.
+     */
+    private static class Pending implements Runnable
+    {
+        private final Work                           work;
+        private final LinkedBlockingQueue<DBMSEvent> buffer;
+        private volatile String                      lastEventId;
+        private volatile ReplicatorException         failure;
+
+        Pending(Work work, int bufferSize)
+        {
+            this.work = work;
+            this.buffer = new LinkedBlockingQueue<DBMSEvent>(bufferSize);
+        }
+
+        public void run()
+        {
+            try
+            {
+                lastEventId = work.pushContentsToQueue(buffer);
+            }
+            catch (InterruptedException e)
+            {
+                // We are being stopped.
+                return;
+            }
+            catch (ReplicatorException e)
+            {
+                failure = e;
+            }
+            catch (Exception e)
+            {
+                failure = new ReplicatorException(
+                        "Unable to convert plog transaction: "
+                                + e.getMessage(), e);
+            }
+            finally
+            {
+                work.release();
+            }
+
+            try
+            {
+                buffer.put(END_OF_TRANSACTION);
+            }
+            catch (InterruptedException e)
+            {
+                // We are being stopped.
+            }
+        }
+    }
+}
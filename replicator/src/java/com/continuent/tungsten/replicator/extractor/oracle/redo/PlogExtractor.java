@@ -114,6 +114,11 @@ public class PlogExtractor implements RawExtractor
     // Number of LCRs to buffer as Java objects before using the cache.
     private int lcrBufferLimit = 10000;
 
+    // Threads converting committed transactions to events, and number of
+    // events buffered per transaction while converting.
+    private int parseThreads    = 0;
+    private int parseBufferSize = 10;
+
     // Data source used to get DBMS connections.
     private SqlDataSource dataSourceImpl;
 
@@ -210,6 +215,8 @@ public class PlogExtractor implements RawExtractor
         readerThread.setHealthCheckInterval(healthCheckInterval);
         readerThread.setTransactionFragSize(transactionFragSize);
         readerThread.setLcrBufferLimit(lcrBufferLimit);
+        readerThread.setParseThreads(parseThreads);
+        readerThread.setParseBufferSize(parseBufferSize);
         readerThread.prepare();
     }
 
@@ -381,6 +388,24 @@ public class PlogExtractor implements RawExtractor
         this.lcrBufferLimit = lcrBufferLimit;
     }
 
+    /**
+     * Number of threads that convert committed transactions to events. With
+     * fewer than 2 threads the plog reader converts transactions itself.
+     */
+    public void setParseThreads(int parseThreads)
+    {
+        this.parseThreads = parseThreads;
+    }
+
+    /**
+     * Maximum number of converted events to buffer per transaction when
+     * converting on several threads.
+     */
+    public void setParseBufferSize(int parseBufferSize)
+    {
+        this.parseBufferSize = parseBufferSize;
+    }
+
     /**
      * {@inheritDoc}
      * 
@@ -0,0 +1,171 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.extractor.oracle.redo;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.sql.Timestamp;
+import java.util.LinkedList;
+
+import com.continuent.tungsten.common.cache.ObjectCodec;
+
+/**
+ * Writes LCRs that spill from large transactions in a compact binary form,
+ * which is much faster to write and read back than Java serialization. Only
+ * the fields filled in while reading the plog are written. Column values are
+ * parsed from the raw tags when the transaction is converted to events, so
+ * they are always empty at this point and are not written.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+class PlogLCRCodec implements ObjectCodec<PlogLCR>
+{
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see com.continuent.tungsten.common.cache.ObjectCodec#encode(java.lang.Object,
+     *      java.io.DataOutputStream)
+     */
+    public void encode(PlogLCR lcr, DataOutputStream out) throws IOException
+    {
+        if (lcr.rawTags == null)
+            out.writeInt(-1);
+        else
+        {
+            out.writeInt(lcr.rawTags.size());
+            for (PlogLCRTag tag : lcr.rawTags)
+            {
+                out.writeInt(tag.id);
+                out.writeInt(tag.length);
+                out.writeShort(tag.prchar);
+                if (tag.rawData == null)
+                    out.writeInt(-1);
+                else
+                {
+                    out.writeInt(tag.rawData.length);
+                    for (int value : tag.rawData)
+                        out.writeInt(value);
+                }
+            }
+        }
+
+        out.writeInt(lcr.length);
+        out.writeInt(lcr.type);
+        out.writeInt(lcr.subtype);
+        writeString(out, lcr.eventId);
+        writeString(out, lcr.XID);
+        out.writeLong(lcr.LCRid);
+        out.writeLong(lcr.LCRSavepointId);
+        out.writeLong(lcr.SCN);
+        if (lcr.timestamp == null)
+            out.writeBoolean(false);
+        else
+        {
+            out.writeBoolean(true);
+            out.writeLong(lcr.timestamp.getTime());
+            out.writeInt(lcr.timestamp.getNanos());
+        }
+        writeString(out, lcr.tableOwner);
+        writeString(out, lcr.tableName);
+        out.writeInt(lcr.tableId);
+        writeString(out, lcr.SQLText);
+        writeString(out, lcr.currentSchema);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see com.continuent.tungsten.common.cache.ObjectCodec#decode(java.io.DataInputStream)
+     */
+    public PlogLCR decode(DataInputStream in) throws IOException
+    {
+        PlogLCR lcr = new PlogLCR();
+        int tagCount = in.readInt();
+        if (tagCount >= 0)
+        {
+            lcr.rawTags = new LinkedList<PlogLCRTag>();
+            for (int i = 0; i < tagCount; i++)
+            {
+                PlogLCRTag tag = new PlogLCRTag();
+                tag.id = in.readInt();
+                tag.length = in.readInt();
+                tag.prchar = in.readShort();
+                int dataLength = in.readInt();
+                if (dataLength >= 0)
+                {
+                    tag.rawData = new int[dataLength];
+                    for (int j = 0; j < dataLength; j++)
+                        tag.rawData[j] = in.readInt();
+                }
+                lcr.rawTags.add(tag);
+            }
+        }
+
+        lcr.length = in.readInt();
+        lcr.type = in.readInt();
+        lcr.subtype = in.readInt();
+        lcr.eventId = readString(in);
+        lcr.XID = readString(in);
+        lcr.LCRid = in.readLong();
+        lcr.LCRSavepointId = in.readLong();
+        lcr.SCN = in.readLong();
+        if (in.readBoolean())
+        {
+            lcr.timestamp = new Timestamp(in.readLong());
+            lcr.timestamp.setNanos(in.readInt());
+        }
+        lcr.tableOwner = readString(in);
+        lcr.tableName = readString(in);
+        lcr.tableId = in.readInt();
+        lcr.SQLText = readString(in);
+        lcr.currentSchema = readString(in);
+        return lcr;
+    }
+
+    // Strings are written as a byte length, -1 for null, followed by UTF-8
+    // bytes. Unlike writeUTF() this has no 64K limit, which DDL may exceed.
+    private void writeString(DataOutputStream out, String value)
+            throws IOException
+    {
+        if (value == null)
+            out.writeInt(-1);
+        else
+        {
+            byte[] bytes = value.getBytes(UTF8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private String readString(DataInputStream in) throws IOException
+    {
+        int length = in.readInt();
+        if (length < 0)
+            return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF8);
+    }
+}
@@ -80,6 +80,12 @@ public class PlogReaderThread extends Thread
     private RawByteCache      cache;
     private int               lcrBufferLimit;
 
+    // Parallel conversion of committed transactions. Disabled if the number
+    // of threads is less than 2.
+    private int                parseThreads    = 0;
+    private int                parseBufferSize = 10;
+    private PlogCommitPipeline pipeline;
+
     /*
      * dict cache enabled / disabled for current plog
      */
@@ -828,9 +834,39 @@ public class PlogReaderThread extends Thread
         this.lcrBufferLimit = lcrBufferLimit;
     }
 
+    public int getParseThreads()
+    {
+        return parseThreads;
+    }
+
+    /**
+     * Sets the number of threads that convert committed transactions to
+     * events. With fewer than 2 threads, the reader converts them itself.
+     */
+    public void setParseThreads(int parseThreads)
+    {
+        this.parseThreads = parseThreads;
+    }
+
+    public int getParseBufferSize()
+    {
+        return parseBufferSize;
+    }
+
+    /**
+     * Sets the number of converted events to buffer per transaction when
+     * converting on several threads.
+     */
+    public void setParseBufferSize(int parseBufferSize)
+    {
+        this.parseBufferSize = parseBufferSize;
+    }
+
     /** Returns the last processed event ID. */
     public String getLastProcessedEventId()
     {
+        if (pipeline != null && pipeline.getLastProcessedEventId() != null)
+            return pipeline.getLastProcessedEventId();
         return lastProcessedEventId;
     }
 
@@ -890,6 +926,13 @@ public class PlogReaderThread extends Thread
             // Close current plog file, if any, to prevent file descriptor
             // leaks.
             closeFile();
+
+            // Stop converting transactions.
+            if (pipeline != null)
+            {
+                pipeline.stop();
+                pipeline = null;
+            }
         }
     }
 
@@ -979,6 +1022,14 @@ public class PlogReaderThread extends Thread
         // Get the starting plog file.
         plogFilename = findMostRecentPlogFile(plogDirectory, firstSequence);
 
+        // Start converting committed transactions in parallel if desired.
+        if (parseThreads > 1)
+        {
+            pipeline = new PlogCommitPipeline(queue, parseThreads,
+                    parseBufferSize);
+            pipeline.start();
+        }
+
         // This will be overwritten by parsing the header - that is, if it's
         // already in the file.
         plogId = firstSequence;
@@ -986,6 +1037,7 @@ public class PlogReaderThread extends Thread
         while (!cancelled)
         {
             // Report the last plog so that the MINE can clean up.
+            syncPipeline();
             int lastObsolePlog = getLastObsoletePlog();
             if (lastReportedObsolePlogSeq != lastObsolePlog
                     && lastObsolePlog > 0)
@@ -1155,6 +1207,7 @@ public class PlogReaderThread extends Thread
 
                                 // throw away all LCRs from open transactions.
                                 throwAwayAllLCRsInPlog(plogId);
+                                syncPipeline();
                                 setInternalLastEventId(lastProcessedEventId);
                                 plogFilename = latestPlogFilename;
                                 openFile(plogFilename);
@@ -1164,6 +1217,8 @@ public class PlogReaderThread extends Thread
 
 
                         checkRedoReaderState(retryCount);
+                        if (pipeline != null)
+                            pipeline.checkFailure();
 
                         // Update retries and sleep.
                         retryCount++;
@@ -1257,11 +1312,7 @@ public class PlogReaderThread extends Thread
                     {
                         if (!t.transactionIsDML)
                         {
-                            lastProcessedEventId = t.pushContentsToQueue(queue,
-                                    minimalSCNInOpenTransactions(),
-                                    transactionFragSize, oldestPlogId - 1);
-                            openTransactions.remove(t.XID);
-                            t.release();
+                            commitTransaction(t, oldestPlogId);
                         }
                     }
 
@@ -1271,11 +1322,7 @@ public class PlogReaderThread extends Thread
                     {
                         if (t.transactionIsDML)
                         {
-                            lastProcessedEventId = t.pushContentsToQueue(queue,
-                                    minimalSCNInOpenTransactions(),
-                                    transactionFragSize, oldestPlogId - 1);
-                            openTransactions.remove(t.XID);
-                            t.release();
+                            commitTransaction(t, oldestPlogId);
                         }
                     }
                     tranAtSameSCN.clear();
@@ -1412,6 +1459,65 @@ public class PlogReaderThread extends Thread
         }
     }
 
+    /**
+     * Posts a committed transaction and forgets it. The transaction is
+     * converted here or handed to the commit pipeline, which posts it after
+     * all previously committed transactions.
+     */
+    private void commitTransaction(final PlogTransaction t, long oldestPlogId)
+            throws InterruptedException, IOException, SerialException,
+            ReplicatorException, SQLException
+    {
+        final long minSCN = minimalSCNInOpenTransactions();
+        final long lastObsoletePlogSeq = oldestPlogId - 1;
+        final int fragSize = transactionFragSize;
+        openTransactions.remove(t.XID);
+        if (pipeline == null)
+        {
+            try
+            {
+                lastProcessedEventId = t.pushContentsToQueue(queue, minSCN,
+                        fragSize, lastObsoletePlogSeq);
+            }
+            finally
+            {
+                t.release();
+            }
+        }
+        else
+        {
+            pipeline.submit(new PlogCommitPipeline.Work()
+            {
+                public String pushContentsToQueue(
+                        BlockingQueue<DBMSEvent> out) throws Exception
+                {
+                    return t.pushContentsToQueue(out, minSCN, fragSize,
+                            lastObsoletePlogSeq);
+                }
+
+                public void release()
+                {
+                    t.release();
+                }
+            });
+        }
+    }
+
+    /**
+     * Waits until the commit pipeline has posted all transactions and picks
+     * up the last processed event ID, which we need to reposition.
+     */
+    private void syncPipeline() throws ReplicatorException,
+            InterruptedException
+    {
+        if (pipeline != null)
+        {
+            pipeline.flush();
+            if (pipeline.getLastProcessedEventId() != null)
+                lastProcessedEventId = pipeline.getLastProcessedEventId();
+        }
+    }
+
     private void checkRedoReaderState(int retries) throws ReplicatorException
     {
         // Check for a dead redo reader at each health check interval.
@@ -58,6 +58,9 @@ class PlogTransaction implements Comparable<PlogTransaction>
 
     private final LargeObjectArray<PlogLCR> LCRList;
 
+    // Codec for LCRs that spill to the cache. It is stateless and shared.
+    private static final PlogLCRCodec LCR_CODEC = new PlogLCRCodec();
+
     /**
      * XID is a unique ID for this transaction. Oracle assigns a different XID
      * to each transaction, unlike start or commit SCNs, which can be associated
@@ -100,7 +103,8 @@ class PlogTransaction implements Comparable<PlogTransaction>
     public PlogTransaction(RawByteCache cache, String XID, int lcrBufferLimit)
     {
         this.XID = XID;
-        this.LCRList = new LargeObjectArray<PlogLCR>(cache, lcrBufferLimit);
+        this.LCRList = new LargeObjectArray<PlogLCR>(cache, lcrBufferLimit,
+                LCR_CODEC);
     }
 
     /**
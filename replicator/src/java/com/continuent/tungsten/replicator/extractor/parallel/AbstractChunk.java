@@ -20,11 +20,16 @@
 
 package com.continuent.tungsten.replicator.extractor.parallel;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.Iterator;
 import java.util.List;
 
 import com.continuent.tungsten.replicator.database.Column;
 import com.continuent.tungsten.replicator.database.Database;
+import com.continuent.tungsten.replicator.database.MySQLDatabase;
+import com.continuent.tungsten.replicator.database.MySQLDrizzleDatabase;
 import com.continuent.tungsten.replicator.database.Table;
 
 /**
@@ -160,4 +165,44 @@ public abstract class AbstractChunk implements Chunk
         return "";
     }
 
+    /**
+     * Prepares a forward-only, read-only statement whose result set is
+     * streamed from the server rather than loaded in memory. MySQL
+     * Connector/J only streams rows with a fetch size of Integer.MIN_VALUE;
+     * other drivers fetch the given number of rows at a time.
+     * 
+     * @param conn Database connection
+     * @param sql Query to prepare
+     * @param fetchSize Number of rows to fetch per round trip
+     */
+    protected static PreparedStatement prepareStreamingStatement(
+            Database conn, String sql, int fetchSize) throws SQLException
+    {
+        PreparedStatement pstmt = conn.getConnection().prepareStatement(sql,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        if (conn instanceof MySQLDatabase
+                && !(conn instanceof MySQLDrizzleDatabase))
+            pstmt.setFetchSize(Integer.MIN_VALUE);
+        else if (fetchSize > 0)
+            pstmt.setFetchSize(fetchSize);
+        return pstmt;
+    }
+
+    /**
+     * Raises the MySQL net_write_timeout of the session. The server aborts a
+     * streamed query if the client does not read rows for longer than this
+     * timeout, which happens while a reader blocks handing off rows it has
+     * already read. Other databases are left unchanged.
+     * 
+     * @param conn Database connection
+     * @param netWriteTimeout Timeout in seconds, or 0 to keep the server
+     *            default
+     */
+    protected static void prepareStreamingSession(Database conn,
+            int netWriteTimeout) throws SQLException
+    {
+        if (netWriteTimeout > 0 && conn instanceof MySQLDatabase)
+            conn.execute("SET SESSION net_write_timeout=" + netWriteTimeout);
+    }
+
 }
@@ -0,0 +1,168 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.extractor.parallel;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects the row rate measured by extractor threads on each chunk and feeds
+ * it back into chunk generation and splitting. Once a rate is known, the
+ * generator sizes chunks so that each one takes about the target duration,
+ * within a factor of ten of the configured chunk size, and extractor threads
+ * only split chunks that are long enough to be worth sharing.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class ChunkFeedback
+{
+    // Chunks below this number of rows per half are never split.
+    private static final long MIN_SPLIT_ROWS   = 1000;
+
+    // Chunks expected to take less than this are never split.
+    private static final long MIN_SPLIT_MILLIS = 500;
+
+    // Weight of the latest measurement in the average rate.
+    private static final double WEIGHT         = 0.2;
+
+    private final long        targetMillis;
+
+    // Average rate in rows per millisecond, 0 until the first measurement.
+    private double            rate             = 0;
+
+    private final AtomicLong  chunks           = new AtomicLong();
+    private final AtomicLong  rows             = new AtomicLong();
+    private final AtomicLong  splits           = new AtomicLong();
+
+    // Number of extractor threads waiting for a chunk.
+    private final AtomicInteger idleThreads    = new AtomicInteger();
+
+    /**
+     * Creates a new instance.
+     *
+     * @param targetMillis Target duration of a chunk in milliseconds, or 0 to
+     *            keep the configured chunk size
+     */
+    public ChunkFeedback(long targetMillis)
+    {
+        this.targetMillis = targetMillis;
+    }
+
+    /**
+     * Records the processing of a chunk.
+     *
+     * @param chunkRows Number of rows read from the chunk
+     * @param millis Time taken to query and read the chunk
+     */
+    public synchronized void record(long chunkRows, long millis)
+    {
+        chunks.incrementAndGet();
+        rows.addAndGet(chunkRows);
+        if (chunkRows == 0)
+            return;
+
+        double chunkRate = (double) chunkRows / Math.max(millis, 1);
+        if (rate == 0)
+            rate = chunkRate;
+        else
+            rate = (1 - WEIGHT) * rate + WEIGHT * chunkRate;
+    }
+
+    /**
+     * Returns the average rate in rows per millisecond, or 0 if unknown.
+     */
+    public synchronized double getRate()
+    {
+        return rate;
+    }
+
+    /**
+     * Returns the number of rows a new chunk should hold.
+     *
+     * @param chunkSize Configured chunk size
+     */
+    public long getTargetRows(long chunkSize)
+    {
+        double currentRate = getRate();
+        if (targetMillis <= 0 || currentRate == 0)
+            return chunkSize;
+
+        long target = (long) (currentRate * targetMillis);
+        return Math.max(Math.max(chunkSize / 10, 1),
+                Math.min(target, chunkSize * 10));
+    }
+
+    /**
+     * Returns true if a chunk with the given estimated number of rows is large
+     * enough to be split between two threads.
+     */
+    public boolean isWorthSplitting(long estimatedRows)
+    {
+        if (estimatedRows < 2 * MIN_SPLIT_ROWS)
+            return false;
+        double currentRate = getRate();
+        return currentRate == 0
+                || estimatedRows / currentRate >= MIN_SPLIT_MILLIS;
+    }
+
+    /** Records that an extractor thread starts waiting for a chunk. */
+    public void threadIdle()
+    {
+        idleThreads.incrementAndGet();
+    }
+
+    /** Records that an extractor thread stops waiting for a chunk. */
+    public void threadBusy()
+    {
+        idleThreads.decrementAndGet();
+    }
+
+    /** Returns the number of extractor threads waiting for a chunk. */
+    public int getIdleThreads()
+    {
+        return idleThreads.get();
+    }
+
+    /** Records a chunk split. */
+    public void recordSplit()
+    {
+        splits.incrementAndGet();
+    }
+
+    /** Returns the number of chunks split by extractor threads. */
+    public long getSplits()
+    {
+        return splits.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Object#toString()
+     */
+    public String toString()
+    {
+        return this.getClass().getSimpleName() + " chunks=" + chunks.get()
+                + " rows=" + rows.get() + " splits=" + splits.get()
+                + " rate=" + String.format("%.1f", getRate() * 1000)
+                + " rows/s";
+    }
+}
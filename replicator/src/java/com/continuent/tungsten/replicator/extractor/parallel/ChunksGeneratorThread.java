@@ -32,6 +32,7 @@ import java.sql.Statement;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
 
 import org.apache.log4j.Logger;
@@ -123,6 +124,14 @@ public class ChunksGeneratorThread extends Thread
     private String               eventId   = null;
     private String               whereClause;
     private UniversalDataSource  dataSource;
+    private ChunkFeedback        feedback  = null;
+    private int                  fetchSize = 1000;
+
+    // Error that stopped chunk generation, if any.
+    private volatile ReplicatorException failure = null;
+
+    // Upper limit on the number of buckets of key histograms.
+    private static final int     MAX_HISTOGRAM_BUCKETS = 10000;
 
     /**
      * Creates a new <code>ChunksGeneratorThread</code> object
@@ -185,6 +194,53 @@ public class ChunksGeneratorThread extends Thread
             e.printStackTrace();
         }
 
+        try
+        {
+            generateChunks();
+        }
+        catch (ReplicatorException e)
+        {
+            // Extractor threads must not read a partial table set as if
+            // provisioning succeeded.
+            logger.error("Chunk generation failed; stopping provisioning", e);
+            failure = e;
+        }
+        catch (InterruptedException e)
+        {
+            logger.warn("Chunk generation interrupted");
+        }
+
+        // Stop threads
+        for (int i = 0; i < extractChannels; i++)
+        {
+            logger.info("Posting job complete request " + i);
+            try
+            {
+                chunks.put(new NumericChunk());
+            }
+            catch (InterruptedException e)
+            {
+                e.printStackTrace();
+            }
+        }
+
+        if (logger.isDebugEnabled())
+            logger.debug(this.getName() + " done.");
+    }
+
+    /**
+     * Returns the error that stopped chunk generation, or null if all chunks
+     * were generated.
+     */
+    public ReplicatorException getFailure()
+    {
+        return failure;
+    }
+
+    // Generates chunks from the chunk definition file or for all schemas.
+    private void generateChunks() throws ReplicatorException,
+            InterruptedException
+    {
         // Check whether we have to use a chunk definition file
         if (chunkDefFile != null)
         {
@@ -229,14 +285,6 @@ public class ChunksGeneratorThread extends Thread
                     {
                         e.printStackTrace();
                     }
-                    catch (ReplicatorException e)
-                    {
-                        e.printStackTrace();
-                    }
-                    catch (InterruptedException e)
-                    {
-                        e.printStackTrace();
-                    }
                 }
                 else if (chunkRequest.getSchema() != null)
                 {
@@ -267,28 +315,11 @@ public class ChunksGeneratorThread extends Thread
             {
                 logger.error(e);
             }
-            catch (Exception e)
+            catch (RuntimeException e)
             {
                 logger.error(e);
             }
         }
-
-        // Stop threads
-        for (int i = 0; i < extractChannels; i++)
-        {
-            logger.info("Posting job complete request " + i);
-            try
-            {
-                chunks.put(new NumericChunk());
-            }
-            catch (InterruptedException e)
-            {
-                e.printStackTrace();
-            }
-        }
-
-        if (logger.isDebugEnabled())
-            logger.debug(this.getName() + " done.");
     }
 
     /**
@@ -298,6 +329,7 @@ public class ChunksGeneratorThread extends Thread
      *            generated.
      */
     private void generateChunksForSchema(String schemaName)
+            throws ReplicatorException, InterruptedException
     {
         try
         {
@@ -317,10 +349,13 @@ public class ChunksGeneratorThread extends Thread
 
             }
         }
-        catch (Exception e)
+        catch (SQLException e)
+        {
+            e.printStackTrace();
+        }
+        catch (RuntimeException e)
         {
             e.printStackTrace();
-
         }
     }
 
@@ -361,12 +396,12 @@ public class ChunksGeneratorThread extends Thread
             logger.debug("Processing table " + table.getSchema() + "."
                     + table.getName());
 
-        if (pkType == null)
+        // Character keys are chunked by a keyset scan of the key, like
+        // tables without a usable primary key.
+        if (pkType == null || pkType == Types.VARCHAR)
             chunkLimit(table);
         else if (pkType == Types.NUMERIC)
             chunkNumericPK(table, columns, chunkSize);
-        else if (pkType == Types.VARCHAR)
-            chunkVarcharPK(table);
     }
 
     /**
@@ -395,9 +430,16 @@ public class ChunksGeneratorThread extends Thread
                 chunks.put(new NumericChunk(table, columns));
             else
             {
-                // Share the joy among threads,
-                // if primary key is evenly distributed
-                if (!minmax.isDecimal())
+                // Share the joy among threads, following the key
+                // distribution if adaptive chunking is enabled
+                if (!minmax.isDecimal() && feedback != null
+                        && chunkNumericPKFromHistogram(table, columns,
+                                chunkSize, minmax))
+                {
+                    return;
+                }
+                // Otherwise assume primary key is evenly distributed
+                else if (!minmax.isDecimal())
                 {
                     long gap = (Long) minmax.getMax() - (Long) minmax.getMin();
                     long blockSize = chunkSize * gap / minmax.getCount();
@@ -415,6 +457,7 @@ public class ChunksGeneratorThread extends Thread
                             end = (Long) minmax.getMax();
                         NumericChunk e = new NumericChunk(table, start, end,
                                 columns, nbBlocks);
+                        e.setEstimatedRows(minmax.getCount() / nbBlocks);
                         chunks.put(e);
                         start = end;
                     }
@@ -477,6 +520,104 @@ public class ChunksGeneratorThread extends Thread
         }
     }
 
+    /**
+     * Generates chunks of a long primary key from a histogram of key values,
+     * sized from the row rate measured by extractor threads.
+     * 
+     * @return true if chunks were generated, false if the caller should fall
+     *         back to even chunks
+     */
+    private boolean chunkNumericPKFromHistogram(Table table, String[] columns,
+            long chunkSize, MinMax minmax) throws InterruptedException
+    {
+        long min = (Long) minmax.getMin();
+        long max = (Long) minmax.getMax();
+        if (!KeyHistogram.isSupported(min, max))
+            return false;
+
+        long nbBlocks = minmax.getCount() / chunkSize + 1;
+        int bucketCount = (int) Math.min(MAX_HISTOGRAM_BUCKETS, nbBlocks * 4);
+        KeyHistogram histogram = new KeyHistogram(min, max, bucketCount);
+
+        String pkName = table.getPrimaryKey().getColumns().get(0).getName();
+        String fqnTable = connection.getDatabaseObjectName(table.getSchema())
+                + '.' + connection.getDatabaseObjectName(table.getName());
+        String bucket = histogram.getBucketExpression(pkName);
+        String sql = "SELECT " + bucket + " AS bkt, COUNT(*) AS cnt FROM "
+                + fqnTable
+                + AbstractChunk.getFlashbackQueryClause(connection, eventId)
+                + " GROUP BY " + bucket + " ORDER BY bkt";
+
+        Statement st = null;
+        ResultSet rs = null;
+        try
+        {
+            st = connection.createStatement();
+            if (logger.isDebugEnabled())
+                logger.debug("Running " + sql);
+            long start = System.currentTimeMillis();
+            rs = st.executeQuery(sql);
+            while (rs.next())
+            {
+                histogram.add(rs.getLong("bkt"), rs.getLong("cnt"));
+            }
+            if (logger.isDebugEnabled())
+                logger.debug("Computed key histogram for " + fqnTable
+                        + " in " + (System.currentTimeMillis() - start)
+                        + " ms.");
+        }
+        catch (SQLException e)
+        {
+            logger.warn("Failed to compute key histogram for table "
+                    + fqnTable + "; using even chunks", e);
+            return false;
+        }
+        finally
+        {
+            if (rs != null)
+            {
+                try
+                {
+                    rs.close();
+                }
+                catch (SQLException e)
+                {
+                    logger.warn("Error while closing resultset", e);
+                }
+            }
+            if (st != null)
+            {
+                try
+                {
+                    st.close();
+                }
+                catch (SQLException e)
+                {
+                    logger.warn("Error while closing statement", e);
+                }
+            }
+        }
+
+        if (histogram.getTotal() == 0)
+            return false;
+
+        long start = min - 1;
+        long count = 0;
+        while (histogram.hasNext())
+        {
+            long end = histogram.next(feedback.getTargetRows(chunkSize));
+            NumericChunk chunk = new NumericChunk(table, start, end, columns,
+                    nbBlocks);
+            chunk.setEstimatedRows(histogram.getLastRows());
+            chunks.put(chunk);
+            start = end;
+            count++;
+        }
+        logger.info("Generated " + count + " chunks for table " + fqnTable
+                + " from a histogram of " + bucketCount + " buckets");
+        return true;
+    }
+
     /**
      * Retrieve maximum or minimum value of a table's primary key. Table must
      * have a single-column numeric key for this to work correctly.
@@ -599,159 +740,8 @@ public class ChunksGeneratorThread extends Thread
         }
     }
 
-    private void chunkVarcharPK(Table table) throws InterruptedException
-    {
-        String pkName = table.getPrimaryKey().getColumns().get(0).getName();
-        String fqnTable = connection.getDatabaseObjectName(table.getSchema())
-                + '.' + connection.getDatabaseObjectName(table.getName());
-        // Get Count
-        String sql = String.format("SELECT COUNT(%s) as cnt FROM %s", pkName,
-                fqnTable);
-
-        sql += AbstractChunk.getFlashbackQueryClause(connection, eventId);
-
-        // if count <= Chunk size, we are done
-        long count = 0;
-        Statement st = null;
-        ResultSet rs = null;
-        try
-        {
-            st = connection.createStatement();
-            rs = st.executeQuery(sql);
-            if (rs.next())
-            {
-                count = rs.getLong("cnt");
-            }
-        }
-        catch (Exception e)
-        {
-            logger.warn("Failed to retrieve count value for PK " + pkName
-                    + " in table " + fqnTable, e);
-        }
-        finally
-        {
-            if (rs != null)
-            {
-                try
-                {
-                    rs.close();
-                }
-                catch (SQLException e)
-                {
-                    e.printStackTrace();
-                }
-            }
-            if (st != null)
-            {
-                try
-                {
-                    st.close();
-                }
-                catch (SQLException e)
-                {
-                    e.printStackTrace();
-                }
-            }
-        }
-
-        if (count == 0)
-            return;
-
-        if (count <= chunkSize)
-        {
-            chunks.put(new StringChunk(table, null, null));
-            return;
-        }
-
-        // Else (count > CHUNK_SIZE) : chunk again in smaller parts
-        long nbBlocks = count / chunkSize;
-
-        if (count % chunkSize > 0)
-            nbBlocks++;
-
-        long blockSize = count / nbBlocks;
-
-        PreparedStatement pstmt = null;
-
-        // Note : This does not perform very well. It is better to scan the
-        // index
-        // than to try to use a query based on rownum
-
-        StringBuffer sqlBuf = new StringBuffer("SELECT MIN(");
-        sqlBuf.append(pkName);
-        sqlBuf.append(") as min, MAX(");
-        sqlBuf.append(pkName);
-        sqlBuf.append(") as max, COUNT(");
-        sqlBuf.append(pkName);
-        sqlBuf.append(") as cnt FROM ( select sub.*, ROWNUM rnum from ( SELECT ");
-        sqlBuf.append(pkName);
-        sqlBuf.append(" FROM ");
-        sqlBuf.append(fqnTable);
-        sqlBuf.append(" ORDER BY ");
-        sqlBuf.append(pkName);
-
-        sqlBuf.append(AbstractChunk
-                .getFlashbackQueryClause(connection, eventId));
-
-        sqlBuf.append(") sub where ROWNUM <= ? ) where rnum >= ?");
-
-        sql = sqlBuf.toString();
-
-        try
-        {
-            pstmt = connection.prepareStatement(sql);
-        }
-        catch (SQLException e)
-        {
-            e.printStackTrace();
-        }
-
-        try
-        {
-            for (long i = 0; i < count; i += blockSize + 1)
-            {
-                try
-                {
-                    pstmt.setLong(1, i + blockSize);
-                    pstmt.setLong(2, i);
-                    rs = pstmt.executeQuery();
-
-                    if (rs.next())
-                        chunks.put(new StringChunk(table, rs.getString("min"),
-                                rs.getString("max"), nbBlocks));
-
-                }
-                catch (SQLException e)
-                {
-                    e.printStackTrace();
-                }
-                finally
-                {
-                    try
-                    {
-                        rs.close();
-                    }
-                    catch (SQLException e)
-                    {
-                        e.printStackTrace();
-                    }
-                }
-            }
-        }
-        finally
-        {
-            try
-            {
-                pstmt.close();
-            }
-            catch (SQLException e)
-            {
-                e.printStackTrace();
-            }
-        }
-    }
-
-    private void chunkLimit(Table table) throws InterruptedException
+    private void chunkLimit(Table table) throws ReplicatorException,
+            InterruptedException
     {
         PreparedStatement pStmt = null;
 
@@ -778,10 +768,11 @@ public class ChunksGeneratorThread extends Thread
                 count = rs.getLong("cnt");
             }
         }
-        catch (Exception e)
+        catch (SQLException e)
         {
-            logger.warn("Failed to retrieve row count values for table "
-                    + fqnTable, e);
+            throw new ReplicatorException(
+                    "Failed to retrieve row count values for table "
+                            + fqnTable, e);
         }
         finally
         {
@@ -838,9 +829,15 @@ public class ChunksGeneratorThread extends Thread
         }
         catch (SQLException e)
         {
-            logger.warn("Error while preparing chunking prepared statement", e);
+            throw new ReplicatorException(
+                    "Error while preparing chunking prepared statement for table "
+                            + fqnTable, e);
         }
 
+        // Read all chunk boundaries before posting chunks, as blocking on a
+        // full chunk queue with a streamed result set open would let the
+        // server time out.
+        List<LimitChunk> limitChunks = new ArrayList<LimitChunk>();
         Object[] fromValues = null, toValues = null;
 
         ResultSet result = null;
@@ -862,7 +859,7 @@ public class ChunksGeneratorThread extends Thread
                         toValues[j] = result.getObject(j + 1);
                     }
 
-                    chunks.put(new LimitChunk(table, 0, 0 + blockSize,
+                    limitChunks.add(new LimitChunk(table, 0, 0 + blockSize,
                             nbBlocks, fromValues, toValues, whereClause,
                             blockSize));
 
@@ -873,14 +870,16 @@ public class ChunksGeneratorThread extends Thread
                     // Last chunk : we eventually did not reach the chunk size,
                     // but the table was fully processed : send the last chunk
                     // definition.
-                    chunks.put(new LimitChunk(table, 0, 0 + blockSize,
+                    limitChunks.add(new LimitChunk(table, 0, 0 + blockSize,
                             nbBlocks, fromValues, null, whereClause, blockSize));
                 }
             }
         }
         catch (SQLException e1)
         {
-            logger.warn("Error while executing chunking query", e1);
+            throw new ReplicatorException(
+                    "Error while executing chunking query for table "
+                            + fqnTable, e1);
         }
         finally
         {
@@ -908,6 +907,9 @@ public class ChunksGeneratorThread extends Thread
                             e);
                 }
         }
+
+        for (LimitChunk limitChunk : limitChunks)
+            chunks.put(limitChunk);
     }
 
     private PreparedStatement generateChunkingPreparedStatement(Table table,
@@ -981,11 +983,9 @@ public class ChunksGeneratorThread extends Thread
         String sql = sqlBuffer.toString();
         if (logger.isDebugEnabled())
             logger.debug("Generated statement :" + sql);
-        PreparedStatement pStmt = connection.prepareStatement(sql);
-        // This should probably be a setting (fetch size). For now, let it be
-        // hardcoded.
-        pStmt.setFetchSize(100);
-        return pStmt;
+        // Stream the keys so that large tables do not fill the heap.
+        return AbstractChunk.prepareStreamingStatement(connection, sql,
+                fetchSize);
     }
 
     private String buildWhereClause(Column[] columns, int index)
@@ -1005,4 +1005,22 @@ public class ChunksGeneratorThread extends Thread
         this.eventId = eventId;
     }
 
+    /**
+     * Sets the number of rows fetched per round trip when scanning keys.
+     */
+    public void setFetchSize(int fetchSize)
+    {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Enables adaptive chunking using the given row rate feedback.
+     * 
+     * @param feedback Feedback shared with extractor threads
+     */
+    public void setFeedback(ChunkFeedback feedback)
+    {
+        this.feedback = feedback;
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,182 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.extractor.parallel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds an equal-width histogram of the values of a numeric primary key and
+ * walks it to produce chunk boundaries that hold roughly the same number of
+ * rows, however the keys are distributed. Buckets are numbered from 0, bucket
+ * b covering keys from min + b * width to min + (b + 1) * width - 1. Rows are
+ * assumed to be evenly spread within a bucket.
+ * <p>
+ * Boundaries follow {@link NumericChunk} conventions: the lower bound is
+ * exclusive and the upper bound inclusive. Walking starts at min - 1 and ends
+ * at max.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class KeyHistogram
+{
+    private final long       min;
+    private final long       max;
+    private final long       width;
+
+    private final List<Long> buckets = new ArrayList<Long>();
+    private final List<Long> counts  = new ArrayList<Long>();
+    private long             total;
+
+    // Walk state.
+    private long             from;
+    private int              index;
+    private long             lastRows;
+
+    /**
+     * Creates a new histogram.
+     *
+     * @param min Minimum key value
+     * @param max Maximum key value
+     * @param bucketCount Number of buckets to spread the key range over
+     */
+    public KeyHistogram(long min, long max, int bucketCount)
+    {
+        this.min = min;
+        this.max = max;
+        long range = max - min + 1;
+        long w = range / Math.max(bucketCount, 1);
+        if (range % Math.max(bucketCount, 1) != 0)
+            w++;
+        this.width = Math.max(w, 1);
+        this.from = min - 1;
+    }
+
+    /**
+     * Returns true if a histogram can be built for the given key range without
+     * overflowing long arithmetic.
+     */
+    public static boolean isSupported(long min, long max)
+    {
+        return max >= min && min > Long.MIN_VALUE / 4
+                && max < Long.MAX_VALUE / 4;
+    }
+
+    /** Returns the bucket width. */
+    public long getWidth()
+    {
+        return width;
+    }
+
+    /**
+     * Returns the SQL expression that computes the bucket of a key column.
+     *
+     * @param column Key column name
+     */
+    public String getBucketExpression(String column)
+    {
+        return "FLOOR((" + column + " - (" + min + ")) / " + width + ")";
+    }
+
+    /**
+     * Adds a bucket. Buckets must be added in increasing order and empty
+     * buckets may be omitted.
+     *
+     * @param bucket Bucket number
+     * @param count Number of rows in the bucket
+     */
+    public void add(long bucket, long count)
+    {
+        if (count <= 0)
+            return;
+        buckets.add(bucket);
+        counts.add(count);
+        total += count;
+    }
+
+    /** Returns the number of rows in the histogram. */
+    public long getTotal()
+    {
+        return total;
+    }
+
+    /** Returns true if there are more chunks to generate. */
+    public boolean hasNext()
+    {
+        return from < max;
+    }
+
+    /**
+     * Returns the upper bound of the next chunk, which starts right after the
+     * previous one, so that it holds about the requested number of rows.
+     *
+     * @param targetRows Number of rows wanted in the chunk
+     */
+    public long next(long targetRows)
+    {
+        double rows = 0;
+        while (index < buckets.size())
+        {
+            long bucketStart = min - 1 + buckets.get(index) * width;
+            long bucketEnd = Math.min(bucketStart + width, max);
+            long lower = Math.max(from, bucketStart);
+            if (lower >= bucketEnd)
+            {
+                index++;
+                continue;
+            }
+
+            long count = counts.get(index);
+            long bucketWidth = bucketEnd - bucketStart;
+            double available = (double) count * (bucketEnd - lower)
+                    / bucketWidth;
+            if (rows + available >= targetRows)
+            {
+                // Take only the part of the bucket we need.
+                double needed = targetRows - rows;
+                long span = (long) Math.ceil(needed * bucketWidth / count);
+                long to = Math.min(lower + Math.max(span, 1), bucketEnd);
+                if (to >= bucketEnd)
+                    index++;
+                from = to;
+                lastRows = Math.round(rows + (double) count * (to - lower)
+                        / bucketWidth);
+                return to;
+            }
+            rows += available;
+            index++;
+        }
+
+        // Whatever remains goes into the last chunk.
+        from = max;
+        lastRows = Math.round(rows);
+        return max;
+    }
+
+    /**
+     * Returns the estimated number of rows in the chunk last returned by
+     * {@link #next(long)}.
+     */
+    public long getLastRows()
+    {
+        return lastRows;
+    }
+}
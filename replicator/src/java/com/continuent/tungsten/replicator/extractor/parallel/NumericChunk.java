@@ -43,6 +43,8 @@ public class NumericChunk extends AbstractChunk implements Chunk
 
     private long         nbBlocks;
 
+    private long         estimatedRows = -1;
+
     public NumericChunk(Table table, Number from, Number to, String[] columns)
     {
         this.table = table;
@@ -73,6 +75,62 @@ public class NumericChunk extends AbstractChunk implements Chunk
         this.table = null;
     }
 
+    /**
+     * Returns the estimated number of rows in the chunk or -1 if unknown.
+     */
+    public long getEstimatedRows()
+    {
+        return estimatedRows;
+    }
+
+    /**
+     * Sets the estimated number of rows in the chunk.
+     */
+    public void setEstimatedRows(long estimatedRows)
+    {
+        this.estimatedRows = estimatedRows;
+    }
+
+    /**
+     * Splits the key range of this chunk in two, keeping the lower half and
+     * returning a new chunk for the upper half. Only chunks with a long key
+     * range can be split.
+     * 
+     * @return The upper half or null if the chunk cannot be split
+     */
+    public NumericChunk splitUpperHalf()
+    {
+        if (!(from instanceof Long) || !(to instanceof Long))
+            return null;
+        long lower = (Long) from;
+        long upper = (Long) to;
+        if (upper - lower < 2)
+            return null;
+
+        long middle = lower + (upper - lower) / 2;
+        NumericChunk half = new NumericChunk(table, middle, upper, null,
+                nbBlocks);
+        half.columns = columns;
+        this.to = middle;
+        if (estimatedRows > 0)
+        {
+            half.estimatedRows = estimatedRows / 2;
+            estimatedRows -= half.estimatedRows;
+        }
+        return half;
+    }
+
+    /**
+     * Gives back an upper half obtained from {@link #splitUpperHalf()}, for
+     * example when it could not be queued.
+     */
+    public void merge(NumericChunk upperHalf)
+    {
+        this.to = upperHalf.to;
+        if (estimatedRows > 0 && upperHalf.estimatedRows > 0)
+            estimatedRows += upperHalf.estimatedRows;
+    }
+
     /**
      * {@inheritDoc}
      * 
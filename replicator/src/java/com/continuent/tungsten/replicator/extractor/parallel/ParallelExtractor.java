@@ -22,9 +22,10 @@ package com.continuent.tungsten.replicator.extractor.parallel;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.Hashtable;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 
 import org.apache.log4j.Logger;
@@ -71,7 +72,18 @@ public class ParallelExtractor implements RawExtractor
     private PluginContext                 context;
     private String                        chunkDefinitionFile   = null;
 
-    private Hashtable<String, Long>       tableBlocks;
+    // Tables for which a TRUNCATE was already added.
+    private Set<String>                   truncatedTables;
+
+    // Adaptive chunking.
+    private boolean                       adaptiveChunking      = false;
+    private long                          chunkTargetMillis     = 2000;
+    private ChunkFeedback                 feedback              = null;
+
+    // Streaming reads.
+    private int                           rowCount              = 10000;
+    private int                           fetchSize             = 1000;
+    private int                           netWriteTimeout       = 3600;
 
     protected String                      eventId               = null;
 
@@ -95,6 +107,64 @@ public class ParallelExtractor implements RawExtractor
         this.chunkSize = chunkSize;
     }
 
+    /**
+     * Enables adaptive chunking. Chunks of tables with a numeric primary key
+     * are then sized from a histogram of key values and from the measured row
+     * rate, and threads split large chunks when others run out of work.
+     * 
+     * @param adaptiveChunking True to enable adaptive chunking
+     */
+    public void setAdaptiveChunking(boolean adaptiveChunking)
+    {
+        this.adaptiveChunking = adaptiveChunking;
+    }
+
+    /**
+     * Sets the target duration of a chunk when using adaptive chunking. If 0,
+     * chunks keep the configured chunk size.
+     * 
+     * @param chunkTargetMillis Target duration in milliseconds
+     */
+    public void setChunkTargetMillis(long chunkTargetMillis)
+    {
+        this.chunkTargetMillis = chunkTargetMillis;
+    }
+
+    /**
+     * Sets the maximum number of rows per extracted event. Chunks with more
+     * rows are posted as several events while they are being read, which
+     * bounds memory use regardless of the chunk size.
+     * 
+     * @param rowCount Maximum number of rows per event
+     */
+    public void setRowCount(int rowCount)
+    {
+        this.rowCount = rowCount;
+    }
+
+    /**
+     * Sets the number of rows fetched from the server per round trip. MySQL
+     * result sets are always streamed row by row.
+     * 
+     * @param fetchSize Fetch size
+     */
+    public void setFetchSize(int fetchSize)
+    {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Sets the MySQL net_write_timeout used by extractor threads. Streamed
+     * result sets stay open while threads wait for room in the event queue,
+     * so the server must wait at least that long for them to read rows.
+     * 
+     * @param netWriteTimeout Timeout in seconds, or 0 for the server default
+     */
+    public void setNetWriteTimeout(int netWriteTimeout)
+    {
+        this.netWriteTimeout = netWriteTimeout;
+    }
+
     public void setDataSource(String dataSource) throws ReplicatorException
     {
         this.datasourceName = dataSource;
@@ -158,7 +228,16 @@ public class ParallelExtractor implements RawExtractor
         chunksGeneratorThread = new ChunksGeneratorThread(dataSource,
                 extractChannels, chunks, chunkDefinitionFile, chunkSize);
 
-        tableBlocks = new Hashtable<String, Long>();
+        truncatedTables = new HashSet<String>();
+        chunksGeneratorThread.setFetchSize(fetchSize);
+
+        if (adaptiveChunking)
+        {
+            logger.info("Using adaptive chunking: chunkTargetMillis="
+                    + chunkTargetMillis);
+            feedback = new ChunkFeedback(chunkTargetMillis);
+            chunksGeneratorThread.setFeedback(feedback);
+        }
 
         threads = new ArrayList<ParallelExtractorThread>();
         for (int i = 0; i < extractChannels; i++)
@@ -167,6 +246,11 @@ public class ParallelExtractor implements RawExtractor
             ParallelExtractorThread extractorThread = new ParallelExtractorThread(
                     dataSource, chunks, queue);
             extractorThread.setName("ParallelExtractorThread-" + i);
+            extractorThread.setRowCount(rowCount);
+            extractorThread.setFetchSize(fetchSize);
+            extractorThread.setNetWriteTimeout(netWriteTimeout);
+            if (feedback != null)
+                extractorThread.setFeedback(feedback);
             activeThreads++;
             threads.add(extractorThread);
         }
@@ -245,9 +329,18 @@ public class ParallelExtractor implements RawExtractor
         DBMSEvent event = queue.take();
         if (event instanceof DBMSEmptyEvent)
         {
+            // Threads also finish when chunk generation fails, in which case
+            // provisioning is incomplete.
+            ReplicatorException failure = chunksGeneratorThread.getFailure();
+            if (failure != null)
+                throw new ReplicatorException(
+                        "Provisioning stopped as chunk generation failed: "
+                                + failure.getMessage(), failure);
             activeThreads--;
             if (activeThreads == 0)
             {
+                if (feedback != null)
+                    logger.info("Parallel extraction complete: " + feedback);
                 // Job is now complete. Check whether we can go back to offline
                 // state
                 context.getEventDispatcher().put(new InSequenceNotification());
@@ -262,18 +355,9 @@ public class ParallelExtractor implements RawExtractor
                 String entry = event.getMetadataOptionValue("schema") + "."
                         + event.getMetadataOptionValue("table");
 
-                Long blk = tableBlocks.remove(entry);
-                if (blk != null)
-                {
-                    // Table already in there... no need to add TRUNCATE, but
-                    // decrement number of remaining blocks
-                    if (blk > 1)
-                        // If the number reaches 0, table was fully processed :
-                        // no
-                        // need to put tables back in there
-                        tableBlocks.put(entry, blk - 1);
-                }
-                else
+                // Chunks may be split while tables are being extracted, so
+                // we remember truncated tables rather than counting blocks.
+                if (truncatedTables.add(entry))
                 {
                     // Issue 842 - do not hardcode schema name in SQL text.
                     // Instead, set it as default schema parameter.
@@ -282,13 +366,6 @@ public class ParallelExtractor implements RawExtractor
                             event.getMetadataOptionValue("schema"));
                     sd.addOption("foreign_key_checks", "0");
                     event.getData().add(0, sd);
-
-                    blk = Long
-                            .valueOf(event.getMetadataOptionValue("nbBlocks"));
-                    if (blk > 1)
-                    {
-                        tableBlocks.put(entry, blk - 1);
-                    }
                 }
             }
         }
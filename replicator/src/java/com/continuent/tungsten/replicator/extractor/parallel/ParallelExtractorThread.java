@@ -70,8 +70,17 @@ public class ParallelExtractorThread extends Thread
     // TODO : add a memory size limit to chunks instead ?
     private int                           rowCount   = 10000;
 
+    // Number of rows fetched from the server per round trip.
+    private int                           fetchSize  = 1000;
+
+    // Seconds the server waits for us to read streamed rows.
+    private int                           netWriteTimeout = 3600;
+
     private String                        eventId    = null;
 
+    // Adaptive chunking, disabled if null.
+    private ChunkFeedback                 feedback   = null;
+
     public ParallelExtractorThread(UniversalDataSource dataSource,
             ArrayBlockingQueue<Chunk> chunks,
             ArrayBlockingQueue<DBMSEvent> queue)
@@ -120,10 +129,23 @@ public class ParallelExtractorThread extends Thread
             // throw new ReplicatorException("Unable to connect to Oracle", e);
         }
 
+        // Result sets stay open while we block on a full event queue.
+        try
+        {
+            AbstractChunk.prepareStreamingSession(connection, netWriteTimeout);
+        }
+        catch (SQLException e)
+        {
+            logger.warn("Unable to set net_write_timeout for streaming reads",
+                    e);
+        }
+
         while (!cancelled)
         {
             // 1. get a table to process
             Chunk chunk;
+            if (feedback != null)
+                feedback.threadIdle();
             try
             {
                 chunk = chunks.take();
@@ -132,9 +154,28 @@ public class ParallelExtractorThread extends Thread
             {
                 continue;
             }
+            finally
+            {
+                if (feedback != null)
+                    feedback.threadBusy();
+            }
 
             // 2. Read the table content and generate events
-            if (chunk.getTable() == null)
+            if (chunk.getTable() == null && feedback != null
+                    && countPendingChunks() > 0)
+            {
+                // Other threads split chunks after the end of work was
+                // posted: requeue the marker and help with them first.
+                try
+                {
+                    chunks.put(chunk);
+                }
+                catch (InterruptedException e)
+                {
+                }
+                continue;
+            }
+            else if (chunk.getTable() == null)
             {
                 logger.info("No more table found ... Exiting.");
                 // Work complete : exit the loop
@@ -148,7 +189,11 @@ public class ParallelExtractorThread extends Thread
                 return;
             }
 
-            // 2.1. Build the statement
+            // 2.1. Share large chunks with idle threads
+            if (feedback != null && chunk instanceof NumericChunk)
+                splitForIdleThreads((NumericChunk) chunk);
+
+            // 2.2. Build the statement
             sql = buildSQLStatement(chunk);
 
             ArrayList<Column> allColumns = chunk.getTable().getAllColumns();
@@ -157,7 +202,10 @@ public class ParallelExtractorThread extends Thread
             ResultSet rs = null;
             try
             {
-                pstmt = connection.prepareStatement(sql);
+                // Stream the result set so that memory use depends on the
+                // number of rows per event rather than on the chunk size.
+                pstmt = AbstractChunk.prepareStreamingStatement(connection,
+                        sql, fetchSize);
                 int startValue = 1;
                 StringBuilder str = new StringBuilder();
 
@@ -199,6 +247,8 @@ public class ParallelExtractorThread extends Thread
                                 + sql);
 
                 long start = System.currentTimeMillis();
+                long chunkStart = start;
+                long rowsRead = 0;
                 rs = pstmt.executeQuery();
 
                 if (logger.isDebugEnabled())
@@ -334,6 +384,7 @@ public class ParallelExtractorThread extends Thread
                                     value.setValue((Serializable) val);
                             }
                             rowIndex++;
+                            rowsRead++;
 
                             if (rowIndex >= rowCount)
                             {
@@ -411,6 +462,10 @@ public class ParallelExtractorThread extends Thread
                     {
                     }
                 }
+
+                if (feedback != null)
+                    feedback.record(rowsRead, System.currentTimeMillis()
+                            - chunkStart);
             }
             catch (SQLException e)
             {
@@ -444,6 +499,43 @@ public class ParallelExtractorThread extends Thread
         }
     }
 
+    /**
+     * Splits the given chunk in halves and queues the upper ones while fewer
+     * chunks are waiting than there are threads waiting for work, so that
+     * those threads pick them up instead of staying idle until the end.
+     */
+    private void splitForIdleThreads(NumericChunk chunk)
+    {
+        while (countPendingChunks() < feedback.getIdleThreads()
+                && feedback.isWorthSplitting(chunk.getEstimatedRows()))
+        {
+            NumericChunk half = chunk.splitUpperHalf();
+            if (half == null)
+                return;
+            if (!chunks.offer(half))
+            {
+                chunk.merge(half);
+                return;
+            }
+            feedback.recordSplit();
+            if (logger.isDebugEnabled())
+                logger.debug("Thread " + this.getName() + " split chunk: "
+                        + chunk + " / " + half);
+        }
+    }
+
+    // Returns the number of queued chunks, not counting end markers.
+    private int countPendingChunks()
+    {
+        int pending = 0;
+        for (Chunk queued : chunks)
+        {
+            if (queued.getTable() != null)
+                pending++;
+        }
+        return pending;
+    }
+
     /**
      * TODO: buildDBMSEvent definition.
      * 
@@ -570,4 +662,49 @@ public class ParallelExtractorThread extends Thread
         this.eventId = eventId;
     }
 
+    /**
+     * Sets the maximum number of rows per extracted event. Larger chunks are
+     * posted as several events while they are being read.
+     * 
+     * @param rowCount Maximum number of rows per event
+     */
+    public void setRowCount(int rowCount)
+    {
+        if (rowCount > 0)
+            this.rowCount = rowCount;
+    }
+
+    /**
+     * Sets the number of rows fetched from the server per round trip.
+     * 
+     * @param fetchSize Fetch size
+     */
+    public void setFetchSize(int fetchSize)
+    {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Sets how long the server waits for us to read streamed rows while we
+     * block on a full event queue.
+     * 
+     * @param netWriteTimeout Timeout in seconds, or 0 for the server default
+     */
+    public void setNetWriteTimeout(int netWriteTimeout)
+    {
+        this.netWriteTimeout = netWriteTimeout;
+    }
+
+    /**
+     * Enables adaptive chunking: the thread reports its row rate and splits
+     * large chunks when other threads are waiting for work.
+     * 
+     * @param feedback Feedback shared with the chunk generator and the other
+     *            extractor threads
+     */
+    public void setFeedback(ChunkFeedback feedback)
+    {
+        this.feedback = feedback;
+    }
+
 }
@@ -0,0 +1,42 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.filter;
+
+/**
+ * Denotes a filter that drops row changes based only on schema and table name.
+ * Such filters can declare up front which tables they drop, which allows
+ * extractors in the same stage to skip decoding those row changes entirely.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @see com.continuent.tungsten.replicator.extractor.ProjectingExtractor
+ */
+public interface ProjectionFilter extends Filter
+{
+    /**
+     * Returns true if the filter drops all row changes on the given table. This
+     * method is called after the filter is prepared and must return the same
+     * answer that filter() would apply to row changes on the table.
+     *
+     * @param schema Schema name
+     * @param table Table name
+     */
+    public boolean dropsRowChanges(String schema, String table);
+}
@@ -52,7 +52,7 @@ import com.continuent.tungsten.replicator.plugin.PluginContext;
  * @author <a href="mailto:stephane.giron@continuent.com">Stephane Giron</a>
  * @version 1.0
  */
-public class ReplicateFilter implements Filter
+public class ReplicateFilter implements ProjectionFilter
 {
     private static Logger               logger = Logger.getLogger(ReplicateFilter.class);
 
@@ -217,6 +217,19 @@ public class ReplicateFilter implements Filter
         return event;
     }
 
+    /**
+     * {@inheritDoc}
+     * 
+     * @see com.continuent.tungsten.replicator.filter.ProjectionFilter#dropsRowChanges(java.lang.String,
+     *      java.lang.String)
+     */
+    public boolean dropsRowChanges(String schema, String table)
+    {
+        if (filter == null || schema == null)
+            return false;
+        return filterEvent(schema, table);
+    }
+
     // Returns true if the schema and table should be filtered using either a
     // cache look-up or a full scan based on filtering rules.
     private boolean filterEvent(String schema, String table)
@@ -0,0 +1,239 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.management;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.log4j.Logger;
+
+import com.continuent.tungsten.replicator.ReplicatorException;
+import com.continuent.tungsten.replicator.pipeline.PipelineMetrics;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves the metrics of all replication services over HTTP in the Prometheus
+ * text exposition format. Metrics are fetched from each service with the
+ * "metrics" status list, which is also available through JMX, and a service
+ * label is added to every sample.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @version 1.0
+ */
+public class MetricsHttpServer
+{
+    private static Logger                                 logger       = Logger
+            .getLogger(MetricsHttpServer.class);
+
+    /** Path at which metrics are served. */
+    public static final String                            PATH         = "/metrics";
+
+    private static final String                           CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final Charset                          UTF8         = Charset
+            .forName("UTF-8");
+
+    private final String                                  host;
+    private final int                                     port;
+    private final Map<String, OpenReplicatorManagerMBean> replicators;
+    private HttpServer                                    server;
+
+    /**
+     * Creates a new server.
+     *
+     * @param host Host name or address to listen on
+     * @param port Port to listen on
+     * @param replicators Map of service names to replicators, which must be
+     *            safe for concurrent reads
+     */
+    public MetricsHttpServer(String host, int port,
+            Map<String, OpenReplicatorManagerMBean> replicators)
+    {
+        this.host = host;
+        this.port = port;
+        this.replicators = replicators;
+    }
+
+    /**
+     * Starts listening for requests.
+     *
+     * @throws ReplicatorException Thrown if the port cannot be bound
+     */
+    public synchronized void start() throws ReplicatorException
+    {
+        try
+        {
+            server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        }
+        catch (IOException e)
+        {
+            throw new ReplicatorException("Unable to start metrics server: host="
+                    + host + " port=" + port, e);
+        }
+        server.createContext(PATH, new HttpHandler()
+        {
+            public void handle(HttpExchange exchange) throws IOException
+            {
+                handleRequest(exchange);
+            }
+        });
+        server.start();
+        logger.info("Serving metrics at http://" + host + ":" + getPort()
+                + PATH);
+    }
+
+    /**
+     * Stops the server.
+     */
+    public synchronized void stop()
+    {
+        if (server != null)
+        {
+            server.stop(0);
+            server = null;
+        }
+    }
+
+    /** Returns the port the server listens on, which is useful with port 0. */
+    public synchronized int getPort()
+    {
+        if (server == null)
+            return port;
+        else
+            return server.getAddress().getPort();
+    }
+
+    // Writes the metrics of all services.
+    private void handleRequest(HttpExchange exchange) throws IOException
+    {
+        try
+        {
+            Map<String, List<Map<String, String>>> serviceMetrics = new TreeMap<String, List<Map<String, String>>>();
+            for (Map.Entry<String, OpenReplicatorManagerMBean> entry : replicators
+                    .entrySet())
+            {
+                try
+                {
+                    serviceMetrics.put(entry.getKey(),
+                            entry.getValue().statusList("metrics"));
+                }
+                catch (Exception e)
+                {
+                    if (logger.isDebugEnabled())
+                        logger.debug("Unable to fetch metrics: service="
+                                + entry.getKey(), e);
+                }
+            }
+
+            byte[] body = format(serviceMetrics).getBytes(UTF8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(body);
+            out.close();
+        }
+        finally
+        {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Formats metric samples of services in the Prometheus text format.
+     * Samples of the same metric are grouped under a single TYPE line.
+     *
+     * @param serviceMetrics Map of service names to samples as returned by
+     *            {@link PipelineMetrics#collect}
+     * @return Metrics text
+     */
+    public static String format(
+            Map<String, List<Map<String, String>>> serviceMetrics)
+    {
+        Map<String, StringBuilder> families = new LinkedHashMap<String, StringBuilder>();
+        for (Map.Entry<String, List<Map<String, String>>> entry : serviceMetrics
+                .entrySet())
+        {
+            for (Map<String, String> sample : entry.getValue())
+            {
+                String name = sample.get(PipelineMetrics.NAME);
+                String type = sample.get(PipelineMetrics.TYPE);
+                String family = familyName(name, type);
+                StringBuilder text = families.get(family);
+                if (text == null)
+                {
+                    text = new StringBuilder();
+                    text.append("# TYPE ").append(family).append(' ')
+                            .append(type).append('\n');
+                    families.put(family, text);
+                }
+
+                text.append(name).append("{service=\"")
+                        .append(escape(entry.getKey())).append('"');
+                for (Map.Entry<String, String> label : sample.entrySet())
+                {
+                    String key = label.getKey();
+                    if (PipelineMetrics.NAME.equals(key)
+                            || PipelineMetrics.TYPE.equals(key)
+                            || PipelineMetrics.VALUE.equals(key))
+                        continue;
+                    text.append(',').append(key).append("=\"")
+                            .append(escape(label.getValue())).append('"');
+                }
+                text.append("} ").append(sample.get(PipelineMetrics.VALUE))
+                        .append('\n');
+            }
+        }
+
+        StringBuilder all = new StringBuilder();
+        for (StringBuilder text : families.values())
+            all.append(text);
+        return all.toString();
+    }
+
+    // Summary sums and counts belong to the family of the summary itself.
+    private static String familyName(String name, String type)
+    {
+        if ("summary".equals(type))
+        {
+            if (name.endsWith("_sum"))
+                return name.substring(0, name.length() - 4);
+            else if (name.endsWith("_count"))
+                return name.substring(0, name.length() - 6);
+        }
+        return name;
+    }
+
+    // Escapes a label value.
+    private static String escape(String value)
+    {
+        if (value == null)
+            return "";
+        return value.replace("\\", "\\\\").replace("\"", "\\\"")
+                .replace("\n", "\\n");
+    }
+}
@@ -1933,6 +1933,7 @@ public class OpenReplicatorManager extends NotificationBroadcasterSupport
                                 handler.getRmiHost());
                         client.put(ProtocolParams.RMI_PORT,
                                 handler.getRmiPort());
+                        client.putAll(handler.getStatistics().hashMap());
                         clients.add(client);
                     }
                 }
@@ -2299,6 +2300,19 @@ public class OpenReplicatorManager extends NotificationBroadcasterSupport
         return openReplicator.statusList(name);
     }
 
+    /**
+     * {@inheritDoc}
+     * 
+     * @see com.continuent.tungsten.replicator.management.OpenReplicatorManagerMBean#trace(java.util.Map)
+     */
+    @MethodDesc(description = "Controls tracing of sampled events and lists traced steps", usage = "trace <controlParams>")
+    public List<Map<String, String>> trace(
+            @ParamDesc(name = "controlParams", description = "Control parameters for tracing") Map<String, String> controlParams)
+            throws Exception
+    {
+        return openReplicator.trace(new TungstenProperties(controlParams));
+    }
+
     /**
      * Start Replicator Node Manager JMX service.
      */
@@ -175,8 +175,11 @@ public class OpenReplicatorManagerCtrl
         println("                                 Warning! This is deprecated and will be removed in a future release!");
         println("  setrole -role r [-uri u]     - Set replicator role");
         println("  load                         - Load and start replication service");
-        println("  status [-name {channel-assignments|services|shards|stages|stores|tasks|watches}] [-json]");
+        println("  status [-name {channel-assignments|lineage|metrics|services|shards|stages|stores|tasks|watches}] [-json]");
         println("                               - Print replicator status information");
+        println("  trace [-sample n] [-clear] [-json]");
+        println("                               - List step timings of sampled events, then trace one in n");
+        println("                                 events (0 disables tracing) or discard listed steps");
         println("  unload [-y]                  - Stop and unload replication service");
         println("  wait -state st [-limit s]    - Wait up to s seconds for replicator state st");
         println("  wait -applied x [-limit s]   - Wait up to s seconds for seqno x to be applied");
@@ -409,6 +412,8 @@ public class OpenReplicatorManagerCtrl
                 printVersion();
             else if (command.equals(Commands.CAPABILITIES))
                 doCapabilities();
+            else if (command.equals(Commands.TRACE))
+                doTrace();
 
             // Shard commands
             else if (command.equals(Commands.SHARD))
@@ -1570,6 +1575,52 @@ public class OpenReplicatorManagerCtrl
         }
     }
 
+    // Change event tracing and print traced steps.
+    private void doTrace() throws Exception
+    {
+        // Check for options.
+        HashMap<String, String> params = new HashMap<String, String>();
+        boolean json = false;
+        while (argvIterator.hasNext())
+        {
+            String curArg = argvIterator.next();
+            try
+            {
+                if ("-sample".equals(curArg))
+                    params.put(OpenReplicatorParams.TRACE_SAMPLE_RATE,
+                            Integer.toString(Integer.parseInt(argvIterator
+                                    .next())));
+                else if ("-clear".equals(curArg))
+                    params.put(OpenReplicatorParams.TRACE_CLEAR, "true");
+                else if ("-json".equals(curArg))
+                    json = true;
+                else
+                    fatal("Unrecognized option: " + curArg, null);
+            }
+            catch (Exception e)
+            {
+                fatal("Missing or invalid argument to flag: " + curArg, null);
+            }
+        }
+
+        List<Map<String, String>> traceList = getOpenReplicator()
+                .trace(params);
+        if (json)
+            printlnPropList(traceList, true);
+        else
+        {
+            String format = "%-12s %-6s %-24s %-32s %-23s %s\n";
+            printf(format, "SEQNO", "FRAGNO", "TASK", "STEP", "TIME",
+                    "DURATION");
+            for (Map<String, String> step : traceList)
+            {
+                printf(format, step.get("seqno"), step.get("fragno"),
+                        step.get("task"), step.get("step"), step.get("time"),
+                        step.get("duration"));
+            }
+        }
+    }
+
     // Handle a request to show plugin capabilities.
     private void doCapabilities() throws Exception
     {
@@ -2097,6 +2148,7 @@ public class OpenReplicatorManagerCtrl
         public static final String PROVISION        = "provision";
         public static final String CAPABILITIES     = "capabilities";
         public static final String RESET            = "reset";
+        public static final String TRACE            = "trace";
 
         // Shard commands (service-specific).
         public static final String SHARD            = "shard";
@@ -333,6 +333,18 @@ public interface OpenReplicatorManagerMBean
      */
     public List<Map<String, String>> statusList(String name) throws Exception;
 
+    /**
+     * Optionally changes tracing of sampled events and returns the steps
+     * traced so far, which shows where time is spent on a running replicator.
+     * 
+     * @param controlParams Optional sample rate and clear flag as defined in
+     *            OpenReplicatorParams
+     * @return List of traced steps ordered by seqno
+     * @throws Exception
+     */
+    public List<Map<String, String>> trace(Map<String, String> controlParams)
+            throws Exception;
+
     /**
      * Stops the OpenReplicatorManager
      * 
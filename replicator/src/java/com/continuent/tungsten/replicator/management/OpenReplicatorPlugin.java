@@ -164,6 +164,17 @@ public interface OpenReplicatorPlugin
      */
     public List<Map<String, String>> statusList(String name) throws Exception;
 
+    /**
+     * Optionally changes tracing of sampled events and returns the steps
+     * traced so far.
+     * 
+     * @param params Optional sample rate and clear flag
+     * @return List of traced steps ordered by seqno
+     * @throws Exception
+     */
+    public List<Map<String, String>> trace(TungstenProperties params)
+            throws Exception;
+
     /**
      * Performs a provision operation. The provision operation is invoked on the
      * replicator to be provisioned. The optional URI value provides the source
@@ -33,6 +33,7 @@ import java.util.Map;
 import java.util.TimeZone;
 import java.util.TreeMap;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import org.apache.log4j.Logger;
 
@@ -73,7 +74,7 @@ public class ReplicationServiceManager implements ReplicationServiceManagerMBean
     private static Logger                               logger                = Logger
             .getLogger(ReplicationServiceManager.class);
     private TungstenProperties                          serviceProps          = null;
-    private TreeMap<String, OpenReplicatorManagerMBean> replicators           = new TreeMap<String, OpenReplicatorManagerMBean>();
+    private Map<String, OpenReplicatorManagerMBean>     replicators           = new ConcurrentSkipListMap<String, OpenReplicatorManagerMBean>();
     private Map<String, TungstenProperties>             serviceConfigurations = new TreeMap<String, TungstenProperties>();
 
     private int masterListenPortStart = 2111;
@@ -86,6 +87,8 @@ public class ReplicationServiceManager implements ReplicationServiceManagerMBean
 
     private AuthenticationInfo securityInfo = null;
 
+    private MetricsHttpServer metricsServer = null;
+
     /**
      * Creates a new <code>ReplicatorManager</code> object
      * 
@@ -143,6 +146,27 @@ public class ReplicationServiceManager implements ReplicationServiceManagerMBean
                 ReplicatorConf.RMI_DEFAULT_SERVICE_NAME, securityInfo);
         jmxManager.start();
 
+        // Start the metrics endpoint if enabled.
+        int metricsPort = serviceProps.getInt(ReplicatorConf.METRICS_HTTP_PORT,
+                ReplicatorConf.METRICS_HTTP_PORT_DEFAULT, false);
+        if (metricsPort > 0)
+        {
+            String metricsHost = serviceProps.getString(
+                    ReplicatorConf.METRICS_HTTP_HOST,
+                    ReplicatorConf.METRICS_HTTP_HOST_DEFAULT, false);
+            metricsServer = new MetricsHttpServer(metricsHost, metricsPort,
+                    replicators);
+            try
+            {
+                metricsServer.start();
+            }
+            catch (ReplicatorException e)
+            {
+                logger.error("Unable to start metrics endpoint", e);
+                metricsServer = null;
+            }
+        }
+
         // Make sure we have configurations for the replicators to work with.
         loadServiceConfigurations();
         Vector<TungstenProperties> remoteServices = new Vector<TungstenProperties>();
@@ -659,6 +683,8 @@ public class ReplicationServiceManager implements ReplicationServiceManagerMBean
         {
             stopReplicationService(name);
         }
+        if (metricsServer != null)
+            metricsServer.stop();
         exitProcess(true, "Shutting down process after stopping services");
     }
 
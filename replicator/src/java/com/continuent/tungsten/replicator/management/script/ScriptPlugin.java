@@ -422,6 +422,18 @@ public class ScriptPlugin extends NotificationBroadcasterSupport
                 "Detailed status lists are not supported for script plugins");
     }
 
+    /**
+     * Tracing is not supported. {@inheritDoc}
+     * 
+     * @see com.continuent.tungsten.replicator.management.OpenReplicatorPlugin#trace(com.continuent.tungsten.common.config.TungstenProperties)
+     */
+    public List<Map<String, String>> trace(TungstenProperties params)
+            throws Exception
+    {
+        throw new ReplicatorException(
+                "Event tracing is not supported for script plugins");
+    }
+
     /**
      * Calls the provision method on the script. {@inheritDoc}
      * 
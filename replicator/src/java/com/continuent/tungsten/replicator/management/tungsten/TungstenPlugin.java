@@ -30,6 +30,7 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedSet;
@@ -77,7 +78,11 @@ import com.continuent.tungsten.replicator.management.OpenReplicatorContext;
 import com.continuent.tungsten.replicator.management.OpenReplicatorPlugin;
 import com.continuent.tungsten.replicator.management.events.GoOfflineEvent;
 import com.continuent.tungsten.replicator.management.events.OfflineNotification;
+import com.continuent.tungsten.replicator.pipeline.EventTracer;
+import com.continuent.tungsten.replicator.pipeline.LagBreakdown;
+import com.continuent.tungsten.replicator.pipeline.LatencyHistogram;
 import com.continuent.tungsten.replicator.pipeline.Pipeline;
+import com.continuent.tungsten.replicator.pipeline.PipelineMetrics;
 import com.continuent.tungsten.replicator.pipeline.ShardProgress;
 import com.continuent.tungsten.replicator.pipeline.Stage;
 import com.continuent.tungsten.replicator.pipeline.StageProgressTracker;
@@ -86,6 +91,7 @@ import com.continuent.tungsten.replicator.plugin.PluginSpecification;
 import com.continuent.tungsten.replicator.service.PipelineService;
 import com.continuent.tungsten.replicator.shard.ShardManager;
 import com.continuent.tungsten.replicator.storage.Store;
+import com.continuent.tungsten.replicator.thl.RemoteTHLExtractor;
 import com.continuent.tungsten.replicator.util.Watch;
 import com.continuent.tungsten.replicator.util.WatchAction;
 
@@ -113,6 +119,11 @@ public class TungstenPlugin extends NotificationBroadcasterSupport
     // Job services.
     private SimpleJobService<Integer> purgeService;
 
+    // Last consistency check ID handed out, so that concurrent checks do not
+    // get the same ID before their rows are inserted.
+    private final Object consistencyIdLock = new Object();
+    private int          lastConsistencyId = 0;
+
     /**
      * Set event dispatcher and instantiate the Tungsten monitor. {@inheritDoc}
      * 
@@ -251,7 +262,12 @@ public class TungstenPlugin extends NotificationBroadcasterSupport
             // Find the last consistency check id
             Table ct = findConsistencyTable(conn,
                     properties.getString("replicator.schema"));
-            id = findNextConsistencyId(conn, ct);
+            synchronized (consistencyIdLock)
+            {
+                id = Math.max(findNextConsistencyId(conn, ct),
+                        lastConsistencyId + 1);
+                lastConsistencyId = id;
+            }
 
             for (int i = 0; i < tables.size(); i++)
             {
@@ -1101,6 +1117,21 @@ public class TungstenPlugin extends NotificationBroadcasterSupport
 
             // Report the current number of channels.
             statusProps.setLong(Replicator.CHANNELS, pipeline.getChannels());
+
+            // Report average lag of each lineage segment if we have any.
+            LagBreakdown lagBreakdown = pipeline.getLagBreakdown();
+            if (lagBreakdown.hasData())
+            {
+                for (int i = 0; i < LagBreakdown.SEGMENTS.length; i++)
+                {
+                    LatencyHistogram segment = lagBreakdown.getSegment(i);
+                    long count = segment.getCount();
+                    double average = (count == 0) ? 0.0 : segment
+                            .getTotalMicros() / (count * 1000000.0);
+                    statusProps.setDouble("lineageLatency."
+                            + LagBreakdown.SEGMENTS[i], average);
+                }
+            }
         }
 
         // Fill out non-pipeline data.
@@ -1300,6 +1331,27 @@ public class TungstenPlugin extends NotificationBroadcasterSupport
                             stage.getExtractorSpec().getName());
                     props.put("extractor.class", stage.getExtractorSpec()
                             .getPluginClass().getName());
+                    if (stage.getExtractor0() instanceof RemoteTHLExtractor)
+                    {
+                        // Add statistics of the connection to the master.
+                        TungstenProperties stats = ((RemoteTHLExtractor) stage
+                                .getExtractor0()).getStatistics();
+                        for (String key : stats.keyNames())
+                            props.put("extractor." + key,
+                                    stats.getString(key));
+                    }
+                    else if (stage.getExtractor0() instanceof ExtractorWrapper)
+                    {
+                        // Add binlog read-ahead statistics.
+                        RawExtractor raw = ((ExtractorWrapper) stage
+                                .getExtractor0()).getExtractor();
+                        TungstenProperties stats = new TungstenProperties();
+                        if (raw instanceof MySQLExtractor)
+                            stats = ((MySQLExtractor) raw).getStatistics();
+                        for (String key : stats.keyNames())
+                            props.put("extractor." + key,
+                                    stats.getString(key));
+                    }
                     List<PluginSpecification> filters = stage.getFilterSpecs();
                     for (int i = 0; i < filters.size(); i++)
                     {
@@ -1321,6 +1373,35 @@ public class TungstenPlugin extends NotificationBroadcasterSupport
                     statusList.add(props);
                 }
             }
+            else if ("metrics".equals(name))
+            {
+                statusList.addAll(PipelineMetrics.collect(pipeline));
+            }
+            else if ("lineage".equals(name))
+            {
+                // List lag of each lineage segment in seconds.
+                LagBreakdown lagBreakdown = pipeline.getLagBreakdown();
+                for (int i = 0; i < LagBreakdown.SEGMENTS.length; i++)
+                {
+                    LatencyHistogram segment = lagBreakdown.getSegment(i);
+                    long count = segment.getCount();
+                    Map<String, String> props = new LinkedHashMap<String, String>();
+                    props.put("segment", LagBreakdown.SEGMENTS[i]);
+                    props.put("count", Long.toString(count));
+                    props.put("avg", Double.toString((count == 0)
+                            ? 0.0
+                            : segment.getTotalMicros() / (count * 1000000.0)));
+                    props.put("p50", Double.toString(
+                            segment.getPercentileMicros(50) / 1000000.0));
+                    props.put("p90", Double.toString(
+                            segment.getPercentileMicros(90) / 1000000.0));
+                    props.put("p99", Double.toString(
+                            segment.getPercentileMicros(99) / 1000000.0));
+                    props.put("max",
+                            Double.toString(segment.getMaxMicros() / 1000000.0));
+                    statusList.add(props);
+                }
+            }
             else if ("watches".equals(name))
             {
                 List<Stage> stages = pipeline.getStages();
@@ -1341,6 +1422,54 @@ public class TungstenPlugin extends NotificationBroadcasterSupport
         return statusList;
     }
 
+    /**
+     * {@inheritDoc}
+     * 
+     * @see com.continuent.tungsten.replicator.management.OpenReplicatorPlugin#trace(com.continuent.tungsten.common.config.TungstenProperties)
+     */
+    public List<Map<String, String>> trace(TungstenProperties params)
+            throws Exception
+    {
+        // Fetch the pipeline with attention to race conditions.
+        ReplicatorRuntime runtime2 = runtime;
+        Pipeline pipeline = null;
+        if (runtime2 != null)
+            pipeline = runtime2.getPipeline();
+        if (pipeline == null)
+            throw new ReplicatorException(
+                    "Event tracing is only available when the replicator is online");
+
+        // List steps traced so far with durations in seconds.
+        EventTracer tracer = pipeline.getEventTracer();
+        List<Map<String, String>> traceList = new ArrayList<Map<String, String>>();
+        for (EventTracer.Entry entry : tracer.dump())
+        {
+            Map<String, String> props = new LinkedHashMap<String, String>();
+            props.put("seqno", Long.toString(entry.getSeqno()));
+            props.put("fragno", Integer.toString(entry.getFragno()));
+            props.put("task", entry.getTask());
+            props.put("step", entry.getStep());
+            props.put("time",
+                    new Timestamp(entry.getStartMillis()).toString());
+            props.put("duration", Double.toString(entry.getDurationNanos()
+                    / 1000000000.0));
+            traceList.add(props);
+        }
+
+        // Apply changes after listing so that a clear returns the discarded
+        // steps.
+        if (params.getString(OpenReplicatorParams.TRACE_CLEAR) != null)
+            tracer.clear();
+        if (params.getString(OpenReplicatorParams.TRACE_SAMPLE_RATE) != null)
+        {
+            int sampleRate = params
+                    .getInt(OpenReplicatorParams.TRACE_SAMPLE_RATE);
+            tracer.setSampleRate(sampleRate);
+            logger.info("Set event trace sample rate: " + sampleRate);
+        }
+        return traceList;
+    }
+
     // Fetch watches and add list status list.
     private void addWatchStatus(Stage stage,
             List<Map<String, String>> statusList, boolean committed)
@@ -0,0 +1,321 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+
+package com.continuent.tungsten.replicator.pipeline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records how long each step of a pipeline takes for a sample of events, so
+ * that throughput problems can be diagnosed on a running replicator. An event
+ * is sampled if its seqno is a multiple of the sample rate. Every stage makes
+ * the same decision from the seqno alone, so sampled events are traced from
+ * extraction through filters and store to the final applier without carrying
+ * any trace context.
+ * <p>
+ * Each stage task records steps into its own ring buffer, which keeps the
+ * most recent entries. Buffers have a single writer and are read without
+ * locks, so tracing never blocks replication.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @version 1.0
+ */
+public class EventTracer
+{
+    /** Step in which a task extracts an event. */
+    public static final String  EXTRACT        = "extract";
+
+    /** Step in which a task applies an event. */
+    public static final String  APPLY          = "apply";
+
+    /** Step in which a task commits a block containing a sampled event. */
+    public static final String  COMMIT         = "commit";
+
+    /** Prefix of the steps in which a task runs a filter. */
+    public static final String  FILTER_PREFIX  = "filter:";
+
+    private volatile int        sampleRate     = 0;
+    private volatile int        bufferSize     = 4096;
+    private final List<Buffer>  buffers        = new CopyOnWriteArrayList<Buffer>();
+
+    /**
+     * Creates a new tracer with sampling disabled.
+     */
+    public EventTracer()
+    {
+    }
+
+    /** Returns the sample rate, where 0 means tracing is disabled. */
+    public int getSampleRate()
+    {
+        return sampleRate;
+    }
+
+    /**
+     * Sets the sample rate. Tasks pick up the new rate with the next event.
+     *
+     * @param sampleRate Trace one in this many events or 0 to disable tracing
+     */
+    public void setSampleRate(int sampleRate)
+    {
+        this.sampleRate = Math.max(sampleRate, 0);
+    }
+
+    /** Returns the number of entries kept by each buffer. */
+    public int getBufferSize()
+    {
+        return bufferSize;
+    }
+
+    /**
+     * Sets the number of entries kept by buffers created after this call,
+     * which is rounded up to a power of two.
+     */
+    public void setBufferSize(int bufferSize)
+    {
+        int size = 16;
+        while (size < bufferSize && size < (1 << 24))
+            size <<= 1;
+        this.bufferSize = size;
+    }
+
+    /** Returns true if tracing is enabled. */
+    public boolean isEnabled()
+    {
+        return sampleRate > 0;
+    }
+
+    /** Returns true if the event with the given seqno should be traced. */
+    public boolean isSampled(long seqno)
+    {
+        int rate = sampleRate;
+        return rate > 0 && seqno >= 0 && seqno % rate == 0;
+    }
+
+    /**
+     * Creates a buffer for a task. The buffer must only be written by the
+     * thread of that task.
+     *
+     * @param task Name of the task
+     * @param steps Names of the steps the task records
+     */
+    public Buffer newBuffer(String task, String[] steps)
+    {
+        Buffer buffer = new Buffer(task, steps, bufferSize);
+        buffers.add(buffer);
+        return buffer;
+    }
+
+    /**
+     * Discards entries recorded so far.
+     */
+    public void clear()
+    {
+        for (Buffer buffer : buffers)
+            buffer.clear();
+    }
+
+    /**
+     * Returns entries of all buffers ordered by seqno and start time.
+     */
+    public List<Entry> dump()
+    {
+        List<Entry> entries = new ArrayList<Entry>();
+        for (Buffer buffer : buffers)
+            buffer.read(entries);
+        Collections.sort(entries, new Comparator<Entry>()
+        {
+            public int compare(Entry e1, Entry e2)
+            {
+                if (e1.seqno != e2.seqno)
+                    return e1.seqno < e2.seqno ? -1 : 1;
+                if (e1.fragno != e2.fragno)
+                    return e1.fragno - e2.fragno;
+                if (e1.startNanos != e2.startNanos)
+                    return e1.startNanos < e2.startNanos ? -1 : 1;
+                return 0;
+            }
+        });
+        return entries;
+    }
+
+    /**
+     * Ring buffer of step timings written by a single task thread. The writer
+     * fills a slot and then publishes it by advancing the position. Readers
+     * copy published slots and drop those the writer may have overwritten
+     * during the copy.
+     */
+    public static class Buffer
+    {
+        private final String     task;
+        private final String[]   steps;
+        private final int        mask;
+        private final long[]     seqnos;
+        private final int[]      fragnos;
+        private final int[]      stepIndexes;
+        private final long[]     startNanos;
+        private final long[]     durationNanos;
+        private final AtomicLong position = new AtomicLong();
+        private volatile long    cleared  = 0;
+
+        // Converts nanosecond timings to wall clock time.
+        private final long       baseMillis;
+        private final long       baseNanos;
+
+        Buffer(String task, String[] steps, int size)
+        {
+            this.task = task;
+            this.steps = steps.clone();
+            this.mask = size - 1;
+            seqnos = new long[size];
+            fragnos = new int[size];
+            stepIndexes = new int[size];
+            startNanos = new long[size];
+            durationNanos = new long[size];
+            baseMillis = System.currentTimeMillis();
+            baseNanos = System.nanoTime();
+        }
+
+        /** Returns the name of the task that writes this buffer. */
+        public String getTask()
+        {
+            return task;
+        }
+
+        /**
+         * Records a step of an event.
+         *
+         * @param seqno Seqno of the event
+         * @param fragno Fragment number of the event
+         * @param step Index of the step in the step names of this buffer
+         * @param start Value of {@link System#nanoTime()} when the step began
+         * @param end Value of {@link System#nanoTime()} when the step ended
+         */
+        public void record(long seqno, int fragno, int step, long start,
+                long end)
+        {
+            long next = position.get();
+            int slot = (int) (next & mask);
+            seqnos[slot] = seqno;
+            fragnos[slot] = fragno;
+            stepIndexes[slot] = step;
+            startNanos[slot] = start;
+            durationNanos[slot] = end - start;
+            position.lazySet(next + 1);
+        }
+
+        // Hides entries recorded so far from readers.
+        private void clear()
+        {
+            cleared = position.get();
+        }
+
+        // Copies entries that are consistent at the time of the call.
+        private void read(List<Entry> entries)
+        {
+            long end = position.get();
+            long start = Math.max(Math.max(end - mask - 1, 0), cleared);
+            List<Entry> copied = new ArrayList<Entry>();
+            for (long i = start; i < end; i++)
+            {
+                int slot = (int) (i & mask);
+                long begin = startNanos[slot];
+                copied.add(new Entry(seqnos[slot], fragnos[slot], task,
+                        steps[stepIndexes[slot]], begin, baseMillis
+                                + (begin - baseNanos) / 1000000,
+                        durationNanos[slot]));
+            }
+
+            // The writer may have overwritten slots while they were copied.
+            // It could be filling the slot after the last published one, so
+            // only entries beyond that slot's previous use are kept.
+            long valid = position.get() - mask;
+            for (int i = 0; i < copied.size(); i++)
+            {
+                if (start + i >= valid)
+                    entries.add(copied.get(i));
+            }
+        }
+    }
+
+    /**
+     * Timing of a single step of an event.
+     */
+    public static class Entry
+    {
+        private final long   seqno;
+        private final int    fragno;
+        private final String task;
+        private final String step;
+        private final long   startNanos;
+        private final long   startMillis;
+        private final long   durationNanos;
+
+        Entry(long seqno, int fragno, String task, String step,
+                long startNanos, long startMillis, long durationNanos)
+        {
+            this.seqno = seqno;
+            this.fragno = fragno;
+            this.task = task;
+            this.step = step;
+            this.startNanos = startNanos;
+            this.startMillis = startMillis;
+            this.durationNanos = durationNanos;
+        }
+
+        public long getSeqno()
+        {
+            return seqno;
+        }
+
+        public int getFragno()
+        {
+            return fragno;
+        }
+
+        /** Returns the name of the task that recorded the step. */
+        public String getTask()
+        {
+            return task;
+        }
+
+        public String getStep()
+        {
+            return step;
+        }
+
+        /** Returns the wall clock time at which the step began. */
+        public long getStartMillis()
+        {
+            return startMillis;
+        }
+
+        public long getDurationNanos()
+        {
+            return durationNanos;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.pipeline;
+
+import com.continuent.tungsten.replicator.event.DBMSEvent;
+import com.continuent.tungsten.replicator.event.EventLineage;
+import com.continuent.tungsten.replicator.event.ReplDBMSEvent;
+
+/**
+ * Aggregates lineage stamps of events applied by the last stage of a pipeline
+ * into a breakdown of where replication lag is spent. Each segment is the time
+ * between two consecutive boundaries an event crossed:
+ * <ul>
+ * <li>extract: source commit to extraction</li>
+ * <li>store: extraction to first storage in the log</li>
+ * <li>send: storage to sending by the master's connector handler</li>
+ * <li>network: sending to receipt by the remote extractor</li>
+ * <li>queue: receipt, or the last earlier stamp, to the start of apply</li>
+ * <li>apply: the apply call of the last stage</li>
+ * <li>commit: end of apply to commit of the block</li>
+ * <li>total: source commit to commit on the target</li>
+ * </ul>
+ * Segments whose stamps are missing are skipped, in which case the next
+ * segment covers the time from the last available stamp.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @version 1.0
+ */
+public class LagBreakdown
+{
+    /** Segment names in pipeline order. */
+    public static final String[]     SEGMENTS = {"extract", "store", "send",
+            "network", "queue", "apply", "commit", "total"};
+
+    private static final int         EXTRACT  = 0;
+    private static final int         STORE    = 1;
+    private static final int         SEND     = 2;
+    private static final int         NETWORK  = 3;
+    private static final int         QUEUE    = 4;
+    private static final int         APPLY    = 5;
+    private static final int         COMMIT   = 6;
+    private static final int         TOTAL    = 7;
+
+    private final LatencyHistogram[] segments = new LatencyHistogram[SEGMENTS.length];
+
+    /**
+     * Creates a new, empty breakdown.
+     */
+    public LagBreakdown()
+    {
+        for (int i = 0; i < segments.length; i++)
+            segments[i] = new LatencyHistogram();
+    }
+
+    /**
+     * Returns the latency histogram of a segment.
+     *
+     * @param index Index of the segment in {@link #SEGMENTS}
+     */
+    public LatencyHistogram getSegment(int index)
+    {
+        return segments[index];
+    }
+
+    /** Returns true if any event has been recorded. */
+    public boolean hasData()
+    {
+        return segments[TOTAL].getCount() > 0;
+    }
+
+    /**
+     * Returns a recorder for a single task. Recorders are not thread-safe, so
+     * each task thread must use its own.
+     */
+    public Recorder newRecorder()
+    {
+        return new Recorder();
+    }
+
+    // Records a segment in milliseconds.
+    private void record(int segment, long millis)
+    {
+        segments[segment].record(millis * 1000);
+    }
+
+    /**
+     * Tracks events of one task from the start of apply until commit.
+     */
+    public class Recorder
+    {
+        // Applied time and source time of events that await commit.
+        private long[]  pending      = new long[32];
+        private int     pendingCount = 0;
+
+        // State of the event being applied.
+        private boolean applying     = false;
+        private long    applyStart;
+        private long    sourceTime;
+
+        /**
+         * Records segments up to the start of apply. Call before applying an
+         * event.
+         */
+        public void beforeApply(ReplDBMSEvent event)
+        {
+            applying = false;
+            if (!EventLineage.isTraced(event))
+                return;
+
+            DBMSEvent dbmsEvent = event.getDBMSEvent();
+            long now = System.currentTimeMillis();
+            sourceTime = dbmsEvent.getSourceTstamp().getTime();
+            long previous = EventLineage.getStamp(dbmsEvent,
+                    EventLineage.EXTRACTED);
+            record(EXTRACT, previous - sourceTime);
+            previous = segment(STORE, dbmsEvent, EventLineage.STORED, previous);
+            previous = segment(SEND, dbmsEvent, EventLineage.SENT, previous);
+            previous = segment(NETWORK, dbmsEvent, EventLineage.RECEIVED,
+                    previous);
+            record(QUEUE, now - previous);
+            applyStart = now;
+            applying = true;
+        }
+
+        /**
+         * Records the apply segment. Call after the apply call returns.
+         */
+        public void afterApply()
+        {
+            if (!applying)
+                return;
+            applying = false;
+            long now = System.currentTimeMillis();
+            record(APPLY, now - applyStart);
+            if (pendingCount + 2 > pending.length)
+            {
+                long[] larger = new long[pending.length * 2];
+                System.arraycopy(pending, 0, larger, 0, pendingCount);
+                pending = larger;
+            }
+            pending[pendingCount++] = now;
+            pending[pendingCount++] = sourceTime;
+        }
+
+        /**
+         * Records commit and total segments of events applied since the last
+         * commit. Call after a commit.
+         */
+        public void committed()
+        {
+            if (pendingCount == 0)
+                return;
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < pendingCount; i += 2)
+            {
+                record(COMMIT, now - pending[i]);
+                record(TOTAL, now - pending[i + 1]);
+            }
+            pendingCount = 0;
+        }
+
+        // Records a segment ending at a stamp if the stamp is present and
+        // returns the time at which the next segment starts.
+        private long segment(int segment, DBMSEvent dbmsEvent, String stamp,
+                long previous)
+        {
+            long time = EventLineage.getStamp(dbmsEvent, stamp);
+            if (time < 0)
+                return previous;
+            record(segment, time - previous);
+            return time;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.pipeline;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records a distribution of latencies in microseconds using log-linear buckets
+ * in the style of HDR histograms. Each power of two is split into 32 linear
+ * sub-buckets, so percentiles are reported within about 3% of the recorded
+ * value while the histogram stays a fixed size regardless of the number of
+ * values recorded. Values above about 50 days are counted in the last bucket.
+ * <p>
+ * Recording does not allocate or lock and may be called from any thread.
+ * Readers see a consistent-enough view for monitoring; percentiles computed
+ * while values are being recorded may lag the count by a few values.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @version 1.0
+ */
+public class LatencyHistogram
+{
+    // Number of bits of linear sub-buckets within each power of two.
+    private static final int     SUB_BUCKET_BITS  = 5;
+    private static final int     SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /** Largest value tracked exactly; larger values are clamped to this. */
+    public static final long     MAX_MICROS       = (1L << 42) - 1;
+
+    private static final int     BUCKET_COUNT     = bucketIndex(MAX_MICROS) + 1;
+
+    private final AtomicLongArray counts          = new AtomicLongArray(
+                                                          BUCKET_COUNT);
+    private final AtomicLong      count           = new AtomicLong();
+    private final AtomicLong      totalMicros     = new AtomicLong();
+    private final AtomicLong      maxMicros       = new AtomicLong();
+
+    /**
+     * Records a latency measured with {@link System#nanoTime()}.
+     */
+    public void recordNanos(long nanos)
+    {
+        record(nanos / 1000);
+    }
+
+    /**
+     * Records a latency in microseconds. Negative values, which may arise from
+     * clock adjustments, are recorded as 0.
+     */
+    public void record(long micros)
+    {
+        if (micros < 0)
+            micros = 0;
+        else if (micros > MAX_MICROS)
+            micros = MAX_MICROS;
+        counts.incrementAndGet(bucketIndex(micros));
+        count.incrementAndGet();
+        totalMicros.addAndGet(micros);
+        long max = maxMicros.get();
+        while (micros > max && !maxMicros.compareAndSet(max, micros))
+            max = maxMicros.get();
+    }
+
+    /**
+     * Adds the values of another histogram to this one, for example to
+     * compute the distribution across the tasks of a stage.
+     */
+    public void add(LatencyHistogram other)
+    {
+        for (int i = 0; i < BUCKET_COUNT; i++)
+        {
+            long n = other.counts.get(i);
+            if (n > 0)
+                counts.addAndGet(i, n);
+        }
+        count.addAndGet(other.count.get());
+        totalMicros.addAndGet(other.totalMicros.get());
+        long otherMax = other.maxMicros.get();
+        long max = maxMicros.get();
+        while (otherMax > max && !maxMicros.compareAndSet(max, otherMax))
+            max = maxMicros.get();
+    }
+
+    /** Returns the number of recorded values. */
+    public long getCount()
+    {
+        return count.get();
+    }
+
+    /** Returns the sum of recorded values in microseconds. */
+    public long getTotalMicros()
+    {
+        return totalMicros.get();
+    }
+
+    /** Returns the largest recorded value in microseconds. */
+    public long getMaxMicros()
+    {
+        return maxMicros.get();
+    }
+
+    /**
+     * Returns the value at a percentile, which is the highest value that falls
+     * in the same bucket as the value at that rank.
+     *
+     * @param percentile Percentile between 0 and 100
+     * @return Value in microseconds or 0 if no values are recorded
+     */
+    public long getPercentileMicros(double percentile)
+    {
+        long total = count.get();
+        if (total == 0)
+            return 0;
+        long rank = (long) Math.ceil(percentile / 100.0 * total);
+        if (rank < 1)
+            rank = 1;
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++)
+        {
+            seen += counts.get(i);
+            if (seen >= rank)
+                return Math.min(bucketUpperBound(i), maxMicros.get());
+        }
+        return maxMicros.get();
+    }
+
+    // Computes the bucket for a value. Values below the sub-bucket count have
+    // a bucket each; above that, each power of two is split into
+    // SUB_BUCKET_COUNT buckets of equal width.
+    private static int bucketIndex(long value)
+    {
+        if (value < SUB_BUCKET_COUNT)
+            return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKET_COUNT - 1);
+        return SUB_BUCKET_COUNT * (shift + 1) + subBucket;
+    }
+
+    // Returns the highest value that falls in a bucket.
+    private static long bucketUpperBound(int index)
+    {
+        if (index < SUB_BUCKET_COUNT)
+            return index;
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long subBucket = index % SUB_BUCKET_COUNT;
+        return ((SUB_BUCKET_COUNT + subBucket + 1) << shift) - 1;
+    }
+}
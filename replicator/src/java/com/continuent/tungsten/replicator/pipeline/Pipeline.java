@@ -35,9 +35,11 @@ import java.util.concurrent.Future;
 
 import org.apache.log4j.Logger;
 
+import com.continuent.tungsten.common.config.TungstenProperties;
 import com.continuent.tungsten.fsm.event.EventDispatcher;
 import com.continuent.tungsten.replicator.ReplicatorException;
 import com.continuent.tungsten.replicator.applier.Applier;
+import com.continuent.tungsten.replicator.conf.ReplicatorConf;
 import com.continuent.tungsten.replicator.conf.ReplicatorRuntime;
 import com.continuent.tungsten.replicator.event.ReplDBMSHeader;
 import com.continuent.tungsten.replicator.extractor.Extractor;
@@ -78,6 +80,8 @@ public class Pipeline implements ReplicatorPlugin
             .newCachedThreadPool();
     private TreeMap<String, Future<?>>       offlineRequests      = new TreeMap<String, Future<?>>();
     private int                              channels             = -1;
+    private final LagBreakdown               lagBreakdown         = new LagBreakdown();
+    private final EventTracer                eventTracer          = new EventTracer();
 
     public Pipeline()
     {
@@ -154,6 +158,23 @@ public class Pipeline implements ReplicatorPlugin
         return context;
     }
 
+    /**
+     * Returns the breakdown of replication lag of events applied by the last
+     * stage, which only has data when lineage is enabled.
+     */
+    public LagBreakdown getLagBreakdown()
+    {
+        return lagBreakdown;
+    }
+
+    /**
+     * Returns the tracer that records step timings of sampled events.
+     */
+    public EventTracer getEventTracer()
+    {
+        return eventTracer;
+    }
+
     /** Returns extractor at head of pipeline. */
     public Extractor getHeadExtractor()
     {
@@ -225,6 +246,18 @@ public class Pipeline implements ReplicatorPlugin
         // stage.
         channels = getLastStage().getTaskCount();
 
+        // Set up tracing of sampled events.
+        TungstenProperties properties = context.getReplicatorProperties();
+        if (properties != null)
+        {
+            eventTracer.setSampleRate(properties.getInt(
+                    ReplicatorConf.TRACE_SAMPLE_RATE,
+                    ReplicatorConf.TRACE_SAMPLE_RATE_DEFAULT, false));
+            eventTracer.setBufferSize(properties.getInt(
+                    ReplicatorConf.TRACE_BUFFER_SIZE,
+                    ReplicatorConf.TRACE_BUFFER_SIZE_DEFAULT, false));
+        }
+
         // Set auto sync value on the first stage.
         Stage first = stages.getFirst();
         first.setAutoSync(autoSync);
@@ -0,0 +1,223 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.pipeline;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.continuent.tungsten.common.config.TungstenProperties;
+import com.continuent.tungsten.replicator.storage.Store;
+import com.continuent.tungsten.replicator.thl.THL;
+
+/**
+ * Collects pipeline metrics as a list of samples. Each sample is a map with
+ * the sample name under {@link #NAME}, the metric type under {@link #TYPE},
+ * the value under {@link #VALUE} and one entry per label. Samples follow the
+ * naming and type conventions of the Prometheus text format, so they can be
+ * listed through the management interface and exported without translation.
+ * <p>
+ * The following metrics are collected:
+ * <ul>
+ * <li>tungsten_task_latency_seconds: extract, filter, apply and commit
+ * latency of each task</li>
+ * <li>tungsten_stage_latency_seconds: the same latencies across all tasks of
+ * a stage</li>
+ * <li>tungsten_filter_latency_seconds: latency of each filter of each task</li>
+ * <li>tungsten_task_events_total and tungsten_task_applied_latency_seconds</li>
+ * <li>tungsten_store_size and tungsten_store_queue_size: queue depth of stores
+ * that report it</li>
+ * <li>tungsten_thl_bytes_written_total and tungsten_thl_bytes_read_total</li>
+ * <li>tungsten_lineage_latency_seconds: lag of each lineage segment, which is
+ * only collected when lineage is enabled</li>
+ * </ul>
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @version 1.0
+ */
+public class PipelineMetrics
+{
+    /** Key of the sample name. */
+    public static final String    NAME      = "name";
+
+    /** Key of the metric type: counter, gauge or summary. */
+    public static final String    TYPE      = "type";
+
+    /** Key of the sample value. */
+    public static final String    VALUE     = "value";
+
+    /** Quantiles reported for latency summaries. */
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    // Store status keys that carry queue depths and THL byte counts.
+    private static final String   STORE_SIZE       = "storeSize";
+    private static final String   QUEUE_SIZE_PREFIX = "store.queueSize.";
+
+    private final List<Map<String, String>> samples = new ArrayList<Map<String, String>>();
+
+    /**
+     * Collects the current metrics of a pipeline.
+     *
+     * @param pipeline Pipeline to collect from
+     * @return List of samples
+     */
+    public static List<Map<String, String>> collect(Pipeline pipeline)
+    {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.collectTasks(pipeline);
+        metrics.collectStores(pipeline);
+        metrics.collectLineage(pipeline);
+        return metrics.samples;
+    }
+
+    // Adds latency histograms and counters of tasks and stages.
+    private void collectTasks(Pipeline pipeline)
+    {
+        for (Stage stage : pipeline.getStages())
+        {
+            String stageName = stage.getName();
+            LatencyHistogram[] stageLatency = {new LatencyHistogram(),
+                    new LatencyHistogram(), new LatencyHistogram(),
+                    new LatencyHistogram()};
+            String[] phases = {"extract", "filter", "apply", "commit"};
+
+            for (TaskProgress progress : stage.getTaskProgress())
+            {
+                String taskId = Integer.toString(progress.getTaskId());
+                LatencyHistogram[] taskLatency = {
+                        progress.getExtractLatency(),
+                        progress.getFilterLatency(),
+                        progress.getApplyLatency(),
+                        progress.getCommitLatency()};
+                for (int i = 0; i < phases.length; i++)
+                {
+                    addSummary("tungsten_task_latency_seconds",
+                            taskLatency[i], "stage", stageName, "task",
+                            taskId, "phase", phases[i]);
+                    stageLatency[i].add(taskLatency[i]);
+                }
+
+                String[] filterNames = progress.getFilterNames();
+                LatencyHistogram[] filterLatency = progress
+                        .getFilterLatencies();
+                for (int i = 0; i < filterNames.length; i++)
+                {
+                    addSummary("tungsten_filter_latency_seconds",
+                            filterLatency[i], "stage", stageName, "task",
+                            taskId, "filter", filterNames[i]);
+                }
+
+                add("tungsten_task_events_total", "counter",
+                        Long.toString(progress.getEventCount()), "stage",
+                        stageName, "task", taskId);
+                add("tungsten_task_applied_latency_seconds", "gauge",
+                        Double.toString(progress.getApplyLatencySeconds()),
+                        "stage", stageName, "task", taskId);
+            }
+
+            for (int i = 0; i < phases.length; i++)
+            {
+                addSummary("tungsten_stage_latency_seconds", stageLatency[i],
+                        "stage", stageName, "phase", phases[i]);
+            }
+        }
+    }
+
+    // Adds queue depths and THL byte counts from store status.
+    private void collectStores(Pipeline pipeline)
+    {
+        for (String storeName : pipeline.getStoreNames())
+        {
+            Store store = pipeline.getStore(storeName);
+            TungstenProperties status = store.status();
+            for (String key : status.keyNames())
+            {
+                String value = status.getString(key);
+                if (STORE_SIZE.equals(key))
+                    add("tungsten_store_size", "gauge", value, "store",
+                            storeName);
+                else if (key.startsWith(QUEUE_SIZE_PREFIX))
+                    add("tungsten_store_queue_size", "gauge", value, "store",
+                            storeName, "queue",
+                            key.substring(QUEUE_SIZE_PREFIX.length()));
+            }
+            if (store instanceof THL
+                    && status.getString("bytesWritten") != null)
+            {
+                add("tungsten_thl_bytes_written_total", "counter",
+                        status.getString("bytesWritten"), "store", storeName);
+                add("tungsten_thl_bytes_read_total", "counter",
+                        status.getString("bytesRead"), "store", storeName);
+            }
+        }
+    }
+
+    // Adds the lag breakdown of traced events.
+    private void collectLineage(Pipeline pipeline)
+    {
+        LagBreakdown lagBreakdown = pipeline.getLagBreakdown();
+        if (!lagBreakdown.hasData())
+            return;
+        for (int i = 0; i < LagBreakdown.SEGMENTS.length; i++)
+        {
+            addSummary("tungsten_lineage_latency_seconds",
+                    lagBreakdown.getSegment(i), "segment",
+                    LagBreakdown.SEGMENTS[i]);
+        }
+    }
+
+    // Adds quantile, sum and count samples of a latency histogram.
+    private void addSummary(String name, LatencyHistogram histogram,
+            String... labels)
+    {
+        for (double quantile : QUANTILES)
+        {
+            Map<String, String> sample = add(name, "summary",
+                    seconds(histogram.getPercentileMicros(quantile * 100)),
+                    labels);
+            sample.put("quantile", Double.toString(quantile));
+        }
+        add(name + "_sum", "summary", seconds(histogram.getTotalMicros()),
+                labels);
+        add(name + "_count", "summary", Long.toString(histogram.getCount()),
+                labels);
+    }
+
+    // Adds a sample with labels given as name, value pairs.
+    private Map<String, String> add(String name, String type, String value,
+            String... labels)
+    {
+        Map<String, String> sample = new LinkedHashMap<String, String>();
+        sample.put(NAME, name);
+        sample.put(TYPE, type);
+        sample.put(VALUE, value);
+        for (int i = 0; i + 1 < labels.length; i += 2)
+            sample.put(labels[i], labels[i + 1]);
+        samples.add(sample);
+        return sample;
+    }
+
+    private static String seconds(long micros)
+    {
+        return Double.toString(micros / 1000000.0);
+    }
+}
@@ -20,6 +20,7 @@
 
 package com.continuent.tungsten.replicator.pipeline;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -33,6 +34,7 @@ import com.continuent.tungsten.replicator.applier.Applier;
 import com.continuent.tungsten.replicator.applier.ApplierException;
 import com.continuent.tungsten.replicator.conf.FailurePolicy;
 import com.continuent.tungsten.replicator.consistency.ConsistencyException;
+import com.continuent.tungsten.replicator.event.EventLineage;
 import com.continuent.tungsten.replicator.event.ReplControlEvent;
 import com.continuent.tungsten.replicator.event.ReplDBMSEvent;
 import com.continuent.tungsten.replicator.event.ReplDBMSFilteredEvent;
@@ -43,6 +45,7 @@ import com.continuent.tungsten.replicator.extractor.Extractor;
 import com.continuent.tungsten.replicator.extractor.ExtractorException;
 import com.continuent.tungsten.replicator.filter.Filter;
 import com.continuent.tungsten.replicator.plugin.PluginContext;
+import com.continuent.tungsten.replicator.plugin.PluginSpecification;
 import com.continuent.tungsten.replicator.plugin.ReplicatorPlugin;
 import com.continuent.tungsten.replicator.plugin.ShutdownHook;
 
@@ -78,6 +81,19 @@ public class SingleThreadStageTask implements Runnable
     private long          blockCommitIntervalMillis;
     private boolean       strictBlockCommit = true;
 
+    // Records lineage of applied events; only set on the last stage.
+    private LagBreakdown.Recorder lineageRecorder;
+
+    // Records step timings of sampled events. Steps are extract, one per
+    // filter, apply and commit. The traced seqno is that of the last
+    // sampled event applied since the last commit or -1 if there is none.
+    private EventTracer           tracer;
+    private EventTracer.Buffer    traceBuffer;
+    private int                   applyStep;
+    private int                   commitStep;
+    private long                  tracedSeqno   = -1;
+    private int                   tracedFragno;
+
     private volatile boolean cancelled = false;
 
     public SingleThreadStageTask(Stage stage, int taskId)
@@ -128,6 +144,12 @@ public class SingleThreadStageTask implements Runnable
         this.filters = filters;
         for (Filter f : filters)
             addShutdownHook(f);
+
+        // Name per-filter latency statistics after the filter definitions.
+        List<String> filterNames = new ArrayList<String>(filters.size());
+        for (PluginSpecification spec : stage.getFilterSpecs())
+            filterNames.add(spec.getName());
+        taskProgress.setFilterNames(filterNames);
     }
 
     public void setApplier(Applier applier)
@@ -172,6 +194,17 @@ public class SingleThreadStageTask implements Runnable
         logInfo("Starting stage task thread", null);
         taskProgress.begin();
         context = stage.getPluginContext();
+        Pipeline pipeline = stage.getPipeline();
+        if (pipeline != null && pipeline.getLastStage() == stage
+                && EventLineage.isEnabled(context))
+        {
+            lineageRecorder = pipeline.getLagBreakdown().newRecorder();
+        }
+        if (pipeline != null)
+        {
+            tracer = pipeline.getEventTracer();
+            traceBuffer = tracer.newBuffer(name, traceSteps());
+        }
 
         try
         {
@@ -244,6 +277,8 @@ public class SingleThreadStageTask implements Runnable
 
                 // Fetch the next event.
                 event = null;
+                boolean tracing = tracer != null && tracer.isEnabled();
+                long extractStartNanos = tracing ? System.nanoTime() : 0;
                 try
                 {
                     taskProgress.beginExtractInterval();
@@ -279,6 +314,15 @@ public class SingleThreadStageTask implements Runnable
                     continue;
                 }
 
+                // Trace the extraction if the event is sampled.
+                boolean traced = tracing && isTraced(genericEvent);
+                if (traced)
+                {
+                    ReplDBMSEvent re = (ReplDBMSEvent) genericEvent;
+                    traceBuffer.record(re.getSeqno(), re.getFragno(), 0,
+                            extractStartNanos, System.nanoTime());
+                }
+
                 // There are several cases where may we need to commit previous
                 // work before moving on. Process those now. Unsafe for block
                 // commit will also force commit after the current event as well
@@ -417,9 +461,21 @@ public class SingleThreadStageTask implements Runnable
 
                     try
                     {
-                        for (Filter f : filters)
+                        for (int i = 0; i < filters.size(); i++)
                         {
-                            if ((event = f.filter(event)) == null)
+                            Filter f = filters.get(i);
+                            long filterStartNanos = System.nanoTime();
+                            event = f.filter(event);
+                            long filterEndNanos = System.nanoTime();
+                            taskProgress.recordFilterNanos(i,
+                                    filterEndNanos - filterStartNanos);
+                            if (traced)
+                            {
+                                traceBuffer.record(currentEvent.getSeqno(),
+                                        currentEvent.getFragno(), i + 1,
+                                        filterStartNanos, filterEndNanos);
+                            }
+                            if (event == null)
                             {
                                 if (logger.isDebugEnabled())
                                 {
@@ -761,11 +817,16 @@ public class SingleThreadStageTask implements Runnable
             logger.debug("Updating position: seqno=" + header.getSeqno()
                     + " doCommit=" + doCommit);
         }
+        long commitStartNanos = (doCommit && tracedSeqno >= 0) ? System
+                .nanoTime() : 0;
         taskProgress.beginApplyInterval();
         applier.updatePosition(header, doCommit, false);
-        taskProgress.endApplyInterval();
+        taskProgress.endApplyInterval(doCommit);
         if (doCommit)
         {
+            traceCommit(commitStartNanos);
+            if (lineageRecorder != null)
+                lineageRecorder.committed();
             schedule.commit();
             blockEventCount = 0;
             lastCommitMillis = System.currentTimeMillis();
@@ -795,7 +856,27 @@ public class SingleThreadStageTask implements Runnable
         try
         {
             taskProgress.beginApplyInterval();
+            if (lineageRecorder != null)
+                lineageRecorder.beforeApply(event);
+            boolean traced = isTraced(event);
+            long applyStartNanos = traced ? System.nanoTime() : 0;
             applier.apply(event, doCommit, doRollback, syncTHL);
+            if (traced)
+            {
+                // Commits within the apply call count as part of apply.
+                traceBuffer.record(event.getSeqno(), event.getFragno(),
+                        applyStep, applyStartNanos, System.nanoTime());
+                tracedSeqno = doCommit ? -1 : event.getSeqno();
+                tracedFragno = event.getFragno();
+            }
+            else if (doCommit)
+                tracedSeqno = -1;
+            if (lineageRecorder != null)
+            {
+                lineageRecorder.afterApply();
+                if (doCommit)
+                    lineageRecorder.committed();
+            }
             if (doCommit)
             {
                 schedule.commit();
@@ -819,7 +900,7 @@ public class SingleThreadStageTask implements Runnable
         }
         finally
         {
-            taskProgress.endApplyInterval();
+            taskProgress.endApplyInterval(doCommit);
         }
 
     }
@@ -832,12 +913,56 @@ public class SingleThreadStageTask implements Runnable
      */
     private void commit() throws InterruptedException, ReplicatorException
     {
+        long commitStartNanos = (tracedSeqno >= 0) ? System.nanoTime() : 0;
+        taskProgress.beginCommitInterval();
         applier.commit();
+        taskProgress.endCommitInterval();
+        traceCommit(commitStartNanos);
+        if (lineageRecorder != null)
+            lineageRecorder.committed();
         schedule.commit();
         blockEventCount = 0;
         lastCommitMillis = System.currentTimeMillis();
     }
 
+    // Returns true if the steps of an event should be traced.
+    private boolean isTraced(ReplEvent event)
+    {
+        return traceBuffer != null && event instanceof ReplDBMSEvent
+                && !(event instanceof ReplDBMSFilteredEvent)
+                && tracer.isSampled(((ReplDBMSEvent) event).getSeqno());
+    }
+
+    // Records the commit of a block that contains a sampled event.
+    private void traceCommit(long startNanos)
+    {
+        if (tracedSeqno >= 0)
+        {
+            traceBuffer.record(tracedSeqno, tracedFragno, commitStep,
+                    startNanos, System.nanoTime());
+            tracedSeqno = -1;
+        }
+    }
+
+    // Returns names of the steps traced by this task.
+    private String[] traceSteps()
+    {
+        List<PluginSpecification> filterSpecs = stage.getFilterSpecs();
+        String[] steps = new String[filters.size() + 3];
+        steps[0] = EventTracer.EXTRACT;
+        for (int i = 0; i < filters.size(); i++)
+        {
+            String filterName = (i < filterSpecs.size()) ? filterSpecs.get(i)
+                    .getName() : filters.get(i).getClass().getSimpleName();
+            steps[i + 1] = EventTracer.FILTER_PREFIX + filterName;
+        }
+        applyStep = filters.size() + 1;
+        commitStep = filters.size() + 2;
+        steps[applyStep] = EventTracer.APPLY;
+        steps[commitStep] = EventTracer.COMMIT;
+        return steps;
+    }
+
     /**
      * Utility routine to generate an error notification while trapping
      * interrupts. This is a terminal call and the caller thread *MUST* exit
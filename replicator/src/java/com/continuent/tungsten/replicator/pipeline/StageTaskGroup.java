@@ -37,8 +37,10 @@ import com.continuent.tungsten.replicator.event.ReplDBMSHeader;
 import com.continuent.tungsten.replicator.extractor.Extractor;
 import com.continuent.tungsten.replicator.extractor.ExtractorWrapper;
 import com.continuent.tungsten.replicator.extractor.ParallelExtractor;
+import com.continuent.tungsten.replicator.extractor.ProjectingExtractor;
 import com.continuent.tungsten.replicator.extractor.RawExtractor;
 import com.continuent.tungsten.replicator.filter.Filter;
+import com.continuent.tungsten.replicator.filter.ProjectionFilter;
 import com.continuent.tungsten.replicator.plugin.PluginContext;
 import com.continuent.tungsten.replicator.plugin.PluginSpecification;
 import com.continuent.tungsten.replicator.plugin.ReplicatorPlugin;
@@ -187,6 +189,9 @@ public class StageTaskGroup implements ReplicatorPlugin
 
             ReplicatorRuntime.preparePlugin(task.getApplier(), context);
 
+            // Push table projections from filters down to the extractor.
+            pushDownProjections(task);
+
             // Get the starting event data and position extractor.
             logger.debug("Looking up last applied event to position extractor");
             ReplDBMSHeader lastHeader = task.getApplier().getLastEvent();
@@ -210,6 +215,29 @@ public class StageTaskGroup implements ReplicatorPlugin
         }
     }
 
+    // Hands projection filters at the head of the filter list to extractors
+    // that can use them. We stop at the first other filter, as it might need
+    // to see row changes that later filters drop.
+    private void pushDownProjections(SingleThreadStageTask task)
+    {
+        if (!(task.getExtractor() instanceof ExtractorWrapper))
+            return;
+        RawExtractor rawExtractor = ((ExtractorWrapper) task.getExtractor())
+                .getExtractor();
+        if (!(rawExtractor instanceof ProjectingExtractor))
+            return;
+
+        List<ProjectionFilter> projections = new ArrayList<ProjectionFilter>();
+        for (Filter f : task.getFilters())
+        {
+            if (f instanceof ProjectionFilter)
+                projections.add((ProjectionFilter) f);
+            else
+                break;
+        }
+        ((ProjectingExtractor) rawExtractor).setProjectionFilters(projections);
+    }
+
     /**
      * {@inheritDoc}
      * 
@@ -20,10 +20,15 @@
 
 package com.continuent.tungsten.replicator.pipeline;
 
+import java.util.List;
+
 import com.continuent.tungsten.replicator.event.ReplDBMSHeader;
 
 /**
  * Tracks statistics for an individual task, which is identified by a task ID.
+ * Besides cumulative times the task keeps latency histograms of extract,
+ * filter, apply and commit operations as well as of each filter. Histograms
+ * are shared with clones so that monitoring sees live values.
  * 
  * @author <a href="mailto:robert.hodges@continuent.com">Robert Hodges</a>
  * @version 1.0
@@ -46,6 +51,16 @@ public class TaskProgress
     private long           totalApplyMillis         = 0;
     private TaskState      state                    = TaskState.other;
 
+    // Latency histograms, which are shared by clones.
+    private final LatencyHistogram extractLatency;
+    private final LatencyHistogram filterLatency;
+    private final LatencyHistogram applyLatency;
+    private final LatencyHistogram commitLatency;
+    private String[]               filterNames      = new String[0];
+    private LatencyHistogram[]     filterLatencies  = new LatencyHistogram[0];
+    private long                   intervalStartNanos;
+    private long                   commitStartNanos;
+
     // Used to mark the beginning of a timing interval.
     private long           intervalStartMillis      = 0;
 
@@ -68,6 +83,10 @@ public class TaskProgress
     {
         this.stageName = stageName;
         this.taskId = taskId;
+        this.extractLatency = new LatencyHistogram();
+        this.filterLatency = new LatencyHistogram();
+        this.applyLatency = new LatencyHistogram();
+        this.commitLatency = new LatencyHistogram();
     }
 
     /**
@@ -93,6 +112,12 @@ public class TaskProgress
         this.totalApplyMillis = other.getTotalApplyMillis();
         this.totalExtractMillis = other.getTotalExtractMillis();
         this.totalFilterMillis = other.getTotalFilterMillis();
+        this.extractLatency = other.getExtractLatency();
+        this.filterLatency = other.getFilterLatency();
+        this.applyLatency = other.getApplyLatency();
+        this.commitLatency = other.getCommitLatency();
+        this.filterNames = other.getFilterNames();
+        this.filterLatencies = other.getFilterLatencies();
     }
 
     /**
@@ -286,6 +311,7 @@ public class TaskProgress
     /** Start an extract interval. */
     public void beginExtractInterval()
     {
+        intervalStartNanos = System.nanoTime();
         intervalStartMillis = System.currentTimeMillis();
         endMillis = intervalStartMillis;
         state = TaskState.extract;
@@ -296,6 +322,7 @@ public class TaskProgress
     {
         endMillis = System.currentTimeMillis();
         totalExtractMillis += (endMillis - intervalStartMillis);
+        extractLatency.recordNanos(System.nanoTime() - intervalStartNanos);
         state = TaskState.other;
     }
 
@@ -314,6 +341,7 @@ public class TaskProgress
     /** Start a filter interval. */
     public void beginFilterInterval()
     {
+        intervalStartNanos = System.nanoTime();
         intervalStartMillis = System.currentTimeMillis();
         endMillis = intervalStartMillis;
         state = TaskState.filter;
@@ -324,6 +352,7 @@ public class TaskProgress
     {
         endMillis = System.currentTimeMillis();
         totalFilterMillis += (endMillis - intervalStartMillis);
+        filterLatency.recordNanos(System.nanoTime() - intervalStartNanos);
         state = TaskState.other;
     }
 
@@ -342,6 +371,7 @@ public class TaskProgress
     /** Start an apply interval. */
     public void beginApplyInterval()
     {
+        intervalStartNanos = System.nanoTime();
         intervalStartMillis = System.currentTimeMillis();
         endMillis = intervalStartMillis;
         state = TaskState.apply;
@@ -349,12 +379,106 @@ public class TaskProgress
 
     /** Add time for an apply operation interval. */
     public void endApplyInterval()
+    {
+        endApplyInterval(false);
+    }
+
+    /**
+     * Add time for an apply operation interval.
+     * 
+     * @param committed If true the operation committed a block, so its time
+     *            is also recorded as commit latency
+     */
+    public void endApplyInterval(boolean committed)
     {
         endMillis = System.currentTimeMillis();
         totalApplyMillis += (endMillis - intervalStartMillis);
+        long nanos = System.nanoTime() - intervalStartNanos;
+        applyLatency.recordNanos(nanos);
+        if (committed)
+            commitLatency.recordNanos(nanos);
         state = TaskState.other;
     }
 
+    /**
+     * Start a commit interval for a commit outside of an apply operation.
+     * Commit intervals are recorded in the commit latency histogram only.
+     */
+    public void beginCommitInterval()
+    {
+        commitStartNanos = System.nanoTime();
+    }
+
+    /** Record the latency of a commit interval. */
+    public void endCommitInterval()
+    {
+        commitLatency.recordNanos(System.nanoTime() - commitStartNanos);
+    }
+
+    /**
+     * Sets the names of the filters of this task and allocates a latency
+     * histogram for each of them.
+     * 
+     * @param names Filter names in the order in which filters are called
+     */
+    public void setFilterNames(List<String> names)
+    {
+        String[] newNames = names.toArray(new String[names.size()]);
+        LatencyHistogram[] newLatencies = new LatencyHistogram[newNames.length];
+        for (int i = 0; i < newLatencies.length; i++)
+            newLatencies[i] = new LatencyHistogram();
+        this.filterNames = newNames;
+        this.filterLatencies = newLatencies;
+    }
+
+    /**
+     * Records the latency of a single filter call.
+     * 
+     * @param filterIndex Position of the filter in the filter list
+     * @param nanos Elapsed time measured with {@link System#nanoTime()}
+     */
+    public void recordFilterNanos(int filterIndex, long nanos)
+    {
+        if (filterIndex < filterLatencies.length)
+            filterLatencies[filterIndex].recordNanos(nanos);
+    }
+
+    /** Returns the latency histogram of extract operations. */
+    public LatencyHistogram getExtractLatency()
+    {
+        return extractLatency;
+    }
+
+    /** Returns the latency histogram of passes through the filter list. */
+    public LatencyHistogram getFilterLatency()
+    {
+        return filterLatency;
+    }
+
+    /** Returns the latency histogram of apply operations. */
+    public LatencyHistogram getApplyLatency()
+    {
+        return applyLatency;
+    }
+
+    /** Returns the latency histogram of operations that commit a block. */
+    public LatencyHistogram getCommitLatency()
+    {
+        return commitLatency;
+    }
+
+    /** Returns the filter names, which match {@link #getFilterLatencies()}. */
+    public String[] getFilterNames()
+    {
+        return filterNames;
+    }
+
+    /** Returns the latency histograms of individual filters. */
+    public LatencyHistogram[] getFilterLatencies()
+    {
+        return filterLatencies;
+    }
+
     /** Returns remaining wall-clock time outside of extract/filter/apply. */
     public long getTotalOtherMillis()
     {
@@ -42,6 +42,8 @@ public class KeySelect
     private long     lastInvocation = 0;
 
     private String   invocationKey;
+    private long     invocationHash;
+    private boolean  hashed         = false;
 
     /** Create a new instance. */
     public KeySelect(Table table, Key key)
@@ -114,6 +116,7 @@ public class KeySelect
 
         values[index - 1] = value;
         invocationKey = null;
+        hashed = false;
     }
 
     /**
@@ -213,9 +216,10 @@ public class KeySelect
     }
 
     /**
-     * Returns a reasonably efficient key for this select that incorporates both
-     * the fully qualified key name as well as select values. This key can be
-     * used for caching information about this particular index prefetch query.
+     * Returns a key for this select that incorporates both the fully qualified
+     * key name as well as select values. Selects have the same key only if
+     * they run the same query, so this key can be used for caching information
+     * about this particular index prefetch query.
      */
     public String generateKey()
     {
@@ -227,7 +231,11 @@ public class KeySelect
             sb.append(".").append(key.getName());
             for (Object v : values)
             {
-                sb.append("-").append(v.hashCode());
+                // Prefix values with their length so that values containing
+                // the separator cannot run into each other.
+                String value = String.valueOf(v);
+                sb.append("-").append(value.length()).append(":")
+                        .append(value);
             }
             invocationKey = sb.toString();
         }
@@ -235,6 +243,41 @@ public class KeySelect
         return invocationKey;
     }
 
+    /**
+     * Returns a 64-bit hash of the same information as {@link #generateKey()}
+     * computed without building a string. This is used to look up queries in
+     * caches that are checked on every row. Different selects may have the
+     * same hash, so matches must be confirmed with {@link #generateKey()}.
+     */
+    public long generateHash()
+    {
+        if (!hashed)
+        {
+            long h = 17;
+            h = hash(h, table.getSchema());
+            h = hash(h, table.getName());
+            h = hash(h, key.getName());
+            for (Object v : values)
+            {
+                h = 31 * h + (v == null ? 0 : v.hashCode());
+            }
+            invocationHash = h;
+            hashed = true;
+        }
+        return invocationHash;
+    }
+
+    // Adds a name and a separator to a hash.
+    private static long hash(long h, String s)
+    {
+        if (s != null)
+        {
+            for (int i = 0; i < s.length(); i++)
+                h = 31 * h + s.charAt(i);
+        }
+        return 31 * h + '.';
+    }
+
     /**
      * {@inheritDoc}
      * 
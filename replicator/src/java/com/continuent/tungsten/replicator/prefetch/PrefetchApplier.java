@@ -152,7 +152,7 @@ public class PrefetchApplier implements RawApplier
 
     // Slow query cache. This is managed by task 0 but is shared across
     // threads.
-    private static SlowQueryCache     slowQueryCache;
+    private static volatile SlowQueryCache slowQueryCache;
 
     private ReplDBMSHeader            lastProcessedEvent     = null;
 
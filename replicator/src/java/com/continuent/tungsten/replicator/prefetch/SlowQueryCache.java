@@ -20,42 +20,51 @@
 
 package com.continuent.tungsten.replicator.prefetch;
 
-import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.log4j.Logger;
 
-import com.continuent.tungsten.common.cache.IndexedLRUCache;
-
 /**
- * Implements a shared cache for slow prefetch queries. The cache supports
- * concurrent access by synchronizing all access. Methods within the cache are
- * relatively fast.
+ * Implements a shared cache for slow prefetch queries. Queries are looked up
+ * by a 64-bit hash of the key select, which avoids building a string key per
+ * row. Entries keep the full query key, which is compared on a hash match so
+ * that queries with the same hash are not mistaken for one another. The cache
+ * is split into segments by hash, each holding its share of pending and slow
+ * queries in small LRU maps under its own lock, so that prefetch threads only
+ * contend when they look up queries in the same segment.
  */
 public class SlowQueryCache
 {
-    private static Logger         logger                  = Logger.getLogger(SlowQueryCache.class);
+    private static Logger    logger   = Logger.getLogger(SlowQueryCache.class);
+
+    // Number of lock segments.
+    private static final int SEGMENTS = 16;
 
     // Properties.
-    private int                   slowQueryCacheSize      = 10000;
-    private int                   slowQueryRows           = 100;
-    private double                slowQuerySelectivity    = .05;
-    private int                   slowQueryCacheDuration  = 60;
+    private volatile int    slowQueryCacheSize      = 10000;
+    private volatile int    slowQueryRows           = 100;
+    private volatile double slowQuerySelectivity    = .05;
+    private volatile int    slowQueryCacheDuration  = 60;
 
     // Counters.
-    private long                  totalCachedQueries      = 0;
-    private long                  totalInvalidatedQueries = 0;
-    private double                minSelectivity          = 1.0;
-    private double                maxSelectivity          = 0.0;
-    private long                  minRows                 = Long.MAX_VALUE;
-    private long                  maxRows                 = 0;
+    private final AtomicLong lookups                 = new AtomicLong();
+    private final AtomicLong pendingSkips            = new AtomicLong();
+    private final AtomicLong slowSkips               = new AtomicLong();
+    private final AtomicLong slowRetries             = new AtomicLong();
+    private final AtomicLong totalCachedQueries      = new AtomicLong();
+    private final AtomicLong totalInvalidatedQueries = new AtomicLong();
 
-    // Pending query cache. This keeps a list of queries that are currently
-    // running so that individual threads do not execute identical queries
-    // twice.
-    private IndexedLRUCache<Long> pendingQueries;
+    // Slow query statistics, which change rarely and share a lock.
+    private final Object    statsLock               = new Object();
+    private double          minSelectivity          = 1.0;
+    private double          maxSelectivity          = 0.0;
+    private long            minRows                 = Long.MAX_VALUE;
+    private long            maxRows                 = 0;
 
-    // Our slow query cache.
-    private IndexedLRUCache<Long> slowQueries;
+    // Cache segments. Null if the cache is inactive.
+    private volatile Segment[] segments;
 
     public SlowQueryCache()
     {
@@ -66,7 +75,7 @@ public class SlowQueryCache
      * 
      * @return Returns the slowQueryCacheSize.
      */
-    public synchronized int getSlowQueryCacheSize()
+    public int getSlowQueryCacheSize()
     {
         return slowQueryCacheSize;
     }
@@ -76,7 +85,7 @@ public class SlowQueryCache
      * 
      * @param slowQueryCacheSize The slowQueryCacheSize to set.
      */
-    public synchronized void setSlowQueryCacheSize(int slowQueryCacheSize)
+    public void setSlowQueryCacheSize(int slowQueryCacheSize)
     {
         this.slowQueryCacheSize = slowQueryCacheSize;
     }
@@ -86,7 +95,7 @@ public class SlowQueryCache
      * 
      * @return Returns the slowQueryRows.
      */
-    public synchronized int getSlowQueryRows()
+    public int getSlowQueryRows()
     {
         return slowQueryRows;
     }
@@ -96,7 +105,7 @@ public class SlowQueryCache
      * 
      * @param slowQueryRows The slowQueryRows to set.
      */
-    public synchronized void setSlowQueryRows(int slowQueryRows)
+    public void setSlowQueryRows(int slowQueryRows)
     {
         this.slowQueryRows = slowQueryRows;
     }
@@ -106,7 +115,7 @@ public class SlowQueryCache
      * 
      * @return Returns the slowQuerySelectivity.
      */
-    public synchronized double getSlowQuerySelectivity()
+    public double getSlowQuerySelectivity()
     {
         return slowQuerySelectivity;
     }
@@ -116,7 +125,7 @@ public class SlowQueryCache
      * 
      * @param slowQuerySelectivity The slowQuerySelectivity to set.
      */
-    public synchronized void setSlowQuerySelectivity(double slowQuerySelectivity)
+    public void setSlowQuerySelectivity(double slowQuerySelectivity)
     {
         this.slowQuerySelectivity = slowQuerySelectivity;
     }
@@ -126,7 +135,7 @@ public class SlowQueryCache
      * 
      * @return Returns the slowQueryCacheDuration.
      */
-    public synchronized int getSlowQueryCacheDuration()
+    public int getSlowQueryCacheDuration()
     {
         return slowQueryCacheDuration;
     }
@@ -136,7 +145,7 @@ public class SlowQueryCache
      * 
      * @param slowQueryCacheDuration The slowQueryCacheDuration to set.
      */
-    public synchronized void setSlowQueryCacheDuration(
+    public void setSlowQueryCacheDuration(
             int slowQueryCacheDuration)
     {
         this.slowQueryCacheDuration = slowQueryCacheDuration;
@@ -148,69 +157,89 @@ public class SlowQueryCache
     public synchronized void init()
     {
         if (slowQueryCacheSize > 0)
-            slowQueries = new IndexedLRUCache<Long>(slowQueryCacheSize, null);
-        pendingQueries = new IndexedLRUCache<Long>(100, null);
+        {
+            // Each segment holds its share of slow queries and of the
+            // pending queries, of which we keep about 100.
+            Segment[] newSegments = new Segment[SEGMENTS];
+            for (int i = 0; i < SEGMENTS; i++)
+            {
+                newSegments[i] = new Segment(
+                        Math.max(slowQueryCacheSize / SEGMENTS, 1),
+                        Math.max(100 / SEGMENTS, 1));
+            }
+            segments = newSegments;
+        }
     }
 
     /**
      * Returns true if we have not heard of this query *or* if the query has
      * exceeded the slow query limit.
-     * 
-     * @throws SQLException
      */
-    public synchronized boolean shouldExecute(KeySelect keySelect)
+    public boolean shouldExecute(KeySelect keySelect)
     {
         // Ensure cache is active.
-        if (slowQueries == null)
+        Segment[] currentSegments = segments;
+        if (currentSegments == null)
             return true;
 
-        // See if this is a pending query. If so some other thread
-        // is already running it.
-        String queryKey = keySelect.generateKey();
-        Long pendingQueryInvocation = pendingQueries.get(queryKey);
-        if (pendingQueryInvocation != null)
+        long queryKey = keySelect.generateHash();
+        Segment segment = segmentFor(currentSegments, queryKey);
+        lookups.incrementAndGet();
+        synchronized (segment)
         {
-            if (logger.isDebugEnabled())
+            // See if this is a pending query. If so some other thread
+            // is already running it.
+            if (matches(segment.pending.get(queryKey), keySelect))
             {
-                logger.debug("Skipped pending query: queryKey=" + queryKey);
+                pendingSkips.incrementAndGet();
+                if (logger.isDebugEnabled())
+                {
+                    logger.debug("Skipped pending query: keySelect="
+                            + keySelect);
+                }
+                return false;
             }
-            return false;
-        }
 
-        // See if we have a slow query.
-        Long slowQueryInvocation = slowQueries.get(queryKey);
-        if (slowQueryInvocation != null)
-        {
-            // Mark the query as slow and check the duraction since last
-            // execution.
-            keySelect.setLastInvocation(slowQueryInvocation);
-
-            // If so, only try again if we have exceeded the slow query
-            // cache size.
-            long sinceLastMillis = System.currentTimeMillis()
-                    - slowQueryInvocation;
-            if (sinceLastMillis < (slowQueryCacheDuration * 1000))
+            // See if we have a slow query.
+            long now = System.currentTimeMillis();
+            Entry slowQuery = segment.slow.get(queryKey);
+            if (matches(slowQuery, keySelect))
             {
-                // Mark the execution time and return false. This
-                // prevents other threads from uselessly running this one.
-                slowQueries.put(queryKey, System.currentTimeMillis());
-                return false;
+                // Mark the query as slow and check the duraction since last
+                // execution.
+                long slowQueryInvocation = slowQuery.invocation;
+                keySelect.setLastInvocation(slowQueryInvocation);
+
+                // If so, only try again if we have exceeded the slow query
+                // cache duration.
+                long sinceLastMillis = now - slowQueryInvocation;
+                if (sinceLastMillis < (slowQueryCacheDuration * 1000))
+                {
+                    // Mark the execution time and return false. This
+                    // prevents other threads from uselessly running this one.
+                    slowQuery.invocation = now;
+                    slowSkips.incrementAndGet();
+                    return false;
+                }
+                slowRetries.incrementAndGet();
             }
-        }
 
-        // We should add this to the pending query cache to prevent
-        // other threads from running it and execute.
-        pendingQueries.put(queryKey, System.currentTimeMillis());
-        return true;
+            // We should add this to the pending query cache to prevent
+            // other threads from running it and execute.
+            segment.pending.put(queryKey,
+                    new Entry(keySelect.generateKey(), now));
+            return true;
+        }
     }
 
     /**
      * Check for a slow query and update cache accordingly.
      */
-    public synchronized void updateCache(KeySelect keySelect, long rowCount)
+    public void updateCache(KeySelect keySelect, long rowCount)
     {
         // Ensure cache is active.
-        if (slowQueries == null)
+        Segment[] currentSegments = segments;
+        if (currentSegments == null)
             return;
 
         // See if this meets the criteria for a slow query based on its
@@ -228,50 +257,141 @@ public class SlowQueryCache
 
         // If this is a slow query add it. Otherwise try to remove it from the
         // cache.
-        String queryKey = keySelect.generateKey();
-        boolean cached = (slowQueries.get(queryKey) != null);
-        if (slow)
+        long queryKey = keySelect.generateHash();
+        Segment segment = segmentFor(currentSegments, queryKey);
+        boolean cached;
+        synchronized (segment)
         {
-            // Increment cached queries if we are currently uncached.
-            if (cached)
-                this.totalCachedQueries++;
+            cached = matches(segment.slow.get(queryKey), keySelect);
+            if (slow)
+                segment.slow.put(queryKey, new Entry(keySelect.generateKey(),
+                        System.currentTimeMillis()));
+            else if (cached)
+                segment.slow.remove(queryKey);
 
-            // Cache the query.
-            slowQueries.put(queryKey, System.currentTimeMillis());
+            // Remove this query from the pending query cache unless the
+            // entry belongs to another query with the same hash.
+            if (matches(segment.pending.get(queryKey), keySelect))
+                segment.pending.remove(queryKey);
+        }
+
+        if (slow)
+        {
+            // Increment cached queries if we were previously uncached.
+            if (!cached)
+                totalCachedQueries.incrementAndGet();
             if (logger.isDebugEnabled())
             {
                 logger.debug("Added slow prefetch query: selectivity="
-                        + selectivity + " rowCount=" + rowCount + " queryKey="
-                        + queryKey);
+                        + selectivity + " rowCount=" + rowCount
+                        + " keySelect=" + keySelect);
             }
 
-            // Update query stats if appropriate.
-            if (selectivity < minSelectivity)
-                minSelectivity = selectivity;
-            if (selectivity > maxSelectivity)
-                maxSelectivity = selectivity;
-            if (rowCount < minRows)
-                minRows = rowCount;
-            if (rowCount > maxRows)
-                maxRows = rowCount;
+            // Update query stats.
+            synchronized (statsLock)
+            {
+                if (selectivity < minSelectivity)
+                    minSelectivity = selectivity;
+                if (selectivity > maxSelectivity)
+                    maxSelectivity = selectivity;
+                if (rowCount < minRows)
+                    minRows = rowCount;
+                if (rowCount > maxRows)
+                    maxRows = rowCount;
+            }
         }
-        else if (!slow && cached)
+        else if (cached)
         {
-            slowQueries.invalidate(queryKey);
             if (logger.isDebugEnabled())
             {
                 logger.debug("Invalidated existing slow prefetch query: selectivity="
                         + selectivity
                         + " rowCount="
                         + rowCount
-                        + " queryKey="
-                        + queryKey);
+                        + " keySelect="
+                        + keySelect);
+            }
+            totalInvalidatedQueries.incrementAndGet();
+        }
+    }
+
+    /** Returns the number of queries checked before execution. */
+    public long getLookups()
+    {
+        return lookups.get();
+    }
+
+    /** Returns the number of queries skipped as another thread ran them. */
+    public long getPendingSkips()
+    {
+        return pendingSkips.get();
+    }
+
+    /** Returns the number of queries skipped because they are slow. */
+    public long getSlowSkips()
+    {
+        return slowSkips.get();
+    }
+
+    /**
+     * Returns the fraction of lookups that were skipped, or 0 if there were no
+     * lookups.
+     */
+    public double getSkipRate()
+    {
+        long total = lookups.get();
+        if (total == 0)
+            return 0;
+        return (double) (pendingSkips.get() + slowSkips.get()) / total;
+    }
+
+    /**
+     * Returns the fraction of lookups that found a slow query, whether it was
+     * skipped or retried, or 0 if there were no lookups.
+     */
+    public double getSlowHitRate()
+    {
+        long total = lookups.get();
+        if (total == 0)
+            return 0;
+        return (double) (slowSkips.get() + slowRetries.get()) / total;
+    }
+
+    /** Returns the number of slow queries currently cached. */
+    public int getCurrentSize()
+    {
+        return sizeOf(false);
+    }
+
+    // Sums the size of slow or pending queries over all segments.
+    private int sizeOf(boolean pending)
+    {
+        Segment[] currentSegments = segments;
+        if (currentSegments == null)
+            return 0;
+        int size = 0;
+        for (Segment segment : currentSegments)
+        {
+            synchronized (segment)
+            {
+                size += pending ? segment.pending.size() : segment.slow.size();
             }
-            totalInvalidatedQueries++;
         }
+        return size;
+    }
+
+    // Returns true if the entry found for the hash of a query belongs to it.
+    private static boolean matches(Entry entry, KeySelect keySelect)
+    {
+        return entry != null && entry.key.equals(keySelect.generateKey());
+    }
 
-        // Remove this query from the pending query cache.
-        pendingQueries.invalidate(queryKey);
+    // Selects the segment of a query, mixing high bits into the index.
+    private static Segment segmentFor(Segment[] currentSegments, long queryKey)
+    {
+        int h = (int) (queryKey ^ (queryKey >>> 32));
+        h ^= (h >>> 16);
+        return currentSegments[(h & 0x7fffffff) % currentSegments.length];
     }
 
     /**
@@ -286,15 +406,77 @@ public class SlowQueryCache
         sb.append(" slowQueryRows=").append(slowQueryRows);
         sb.append(" slowQuerySelectivity=").append(slowQuerySelectivity);
         sb.append(" slowQueryCacheDuration=").append(slowQueryCacheDuration);
-        sb.append(" currentSize=").append(
-                slowQueries == null ? 0 : slowQueries.size());
-        sb.append(" totalCachedQueries=").append(totalCachedQueries);
-        sb.append(" totalInvalidatedQueries=").append(totalInvalidatedQueries);
-        sb.append(" minSelectivity=").append(minSelectivity);
-        sb.append(" maxSelectivity=").append(maxSelectivity);
-        sb.append(" maxRows=").append(maxRows);
-        sb.append(" minRows=").append(minRows);
-        sb.append(" pendingQueries=").append(pendingQueries.size());
+        sb.append(" currentSize=").append(sizeOf(false));
+        sb.append(" totalCachedQueries=").append(totalCachedQueries.get());
+        sb.append(" totalInvalidatedQueries=").append(
+                totalInvalidatedQueries.get());
+        synchronized (statsLock)
+        {
+            sb.append(" minSelectivity=").append(minSelectivity);
+            sb.append(" maxSelectivity=").append(maxSelectivity);
+            sb.append(" maxRows=").append(maxRows);
+            sb.append(" minRows=").append(minRows);
+        }
+        sb.append(" pendingQueries=").append(sizeOf(true));
+        sb.append(" lookups=").append(lookups.get());
+        sb.append(" pendingSkips=").append(pendingSkips.get());
+        sb.append(" slowSkips=").append(slowSkips.get());
+        sb.append(" skipRate=").append(String.format("%.3f", getSkipRate()));
+        sb.append(" slowHitRate=").append(
+                String.format("%.3f", getSlowHitRate()));
         return sb.toString();
     }
-}
\ No newline at end of file
+
+    /**
+     * Holds pending and slow queries for a range of hashes. Access must be
+     * synchronized on the segment.
+     */
+    private static class Segment
+    {
+        final Map<Long, Entry> slow;
+        final Map<Long, Entry> pending;
+
+        Segment(int slowCapacity, int pendingCapacity)
+        {
+            slow = new LruMap(slowCapacity);
+            pending = new LruMap(pendingCapacity);
+        }
+    }
+
+    /**
+     * Query key and time of the last invocation of a query.
+     */
+    private static class Entry
+    {
+        final String key;
+        long         invocation;
+
+        Entry(String key, long invocation)
+        {
+            this.key = key;
+            this.invocation = invocation;
+        }
+    }
+
+    /**
+     * Map in access order that drops the least recently used entry once it
+     * exceeds its capacity.
+     */
+    private static class LruMap extends LinkedHashMap<Long, Entry>
+    {
+        private static final long serialVersionUID = 1L;
+        private final int         capacity;
+
+        LruMap(int capacity)
+        {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest)
+        {
+            return size() > capacity;
+        }
+    }
+}
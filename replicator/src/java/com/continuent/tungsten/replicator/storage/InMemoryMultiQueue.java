@@ -246,6 +246,12 @@ public class InMemoryMultiQueue implements Store
         TungstenProperties props = new TungstenProperties();
         props.setLong("maxSize", maxSize);
         props.setLong("eventCount", this.transactionCount);
+        List<BlockingQueue<ReplDBMSEvent>> queues = this.queues;
+        if (queues != null)
+        {
+            for (int i = 0; i < queues.size(); i++)
+                props.setInt("store.queueSize." + i, queues.get(i).size());
+        }
         return props;
     }
 }
\ No newline at end of file
@@ -342,6 +342,9 @@ public class InMemoryTransactionalQueue implements Store
     public TungstenProperties status()
     {
         TungstenProperties props = new TungstenProperties();
+        BlockingQueue<ReplDBMSEvent> queue = serialQueue;
+        if (queue != null)
+            props.setLong("storeSize", queue.size());
         props.setLong("maxSize", maxSize);
         props.setLong("eventCount", this.eventCount);
         props.setLong("commitCount", this.commitCount);
@@ -179,9 +179,10 @@ public class Connector implements ReplicatorPlugin
      * @return ReplEvent
      * @throws ReplicatorException
      * @throws IOException
+     * @throws InterruptedException
      */
     public ReplEvent requestEvent(long seqNo)
-            throws ReplicatorException, IOException
+            throws ReplicatorException, IOException, InterruptedException
     {
         ReplEvent retval;
         if (logger.isDebugEnabled())
@@ -196,6 +197,17 @@ public class Connector implements ReplicatorPlugin
         return retval;
     }
 
+    /**
+     * Returns statistics for the connection to the server, including bytes on
+     * the wire and compression ratio.
+     */
+    public TungstenProperties getStatistics()
+    {
+        if (protocol == null)
+            return new TungstenProperties();
+        return protocol.getStatistics();
+    }
+
     /**
      * Return server capability by name.
      */
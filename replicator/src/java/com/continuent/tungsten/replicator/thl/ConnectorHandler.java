@@ -33,6 +33,7 @@ import com.continuent.tungsten.replicator.ReplicatorException;
 import com.continuent.tungsten.replicator.database.EventId;
 import com.continuent.tungsten.replicator.database.EventIdFactory;
 import com.continuent.tungsten.replicator.event.DBMSEmptyEvent;
+import com.continuent.tungsten.replicator.event.EventLineage;
 import com.continuent.tungsten.replicator.event.ReplDBMSEvent;
 import com.continuent.tungsten.replicator.event.ReplDBMSFilteredEvent;
 import com.continuent.tungsten.replicator.event.ReplEvent;
@@ -40,6 +41,7 @@ import com.continuent.tungsten.replicator.plugin.PluginContext;
 import com.continuent.tungsten.replicator.plugin.ReplicatorPlugin;
 import com.continuent.tungsten.replicator.thl.log.LogConnection;
 import com.continuent.tungsten.replicator.thl.log.LogTimeoutException;
+import com.continuent.tungsten.replicator.thl.serializer.ProtobufSerializer;
 
 /**
  * This class defines a ConnectorHandler
@@ -65,6 +67,25 @@ public class ConnectorHandler implements ReplicatorPlugin, Runnable
 
     private volatile boolean checkFirstSeqno = true;
 
+    // If true, stamp events with the time they are sent.
+    private boolean lineage = false;
+
+    // Protocol for the current connection, published for status calls.
+    private volatile Protocol protocol;
+
+    // Log connection used when the client is not at the tail of the log.
+    private LogConnection connection;
+
+    // Shared tail of the log and our index in it, or -1 if we are reading
+    // the log directly.
+    private LogTailCache tailCache;
+    private long         cacheIndex = -1;
+
+    // Last event sent, or the sequence number requested if we have not sent
+    // one, to resume reading the log when we leave the cache.
+    private THLEvent     lastEvent;
+    private long         startSeqno;
+
     private static Logger logger = Logger.getLogger(ConnectorHandler.class);
 
     // Implements call-back to check log consistency between client and
@@ -389,11 +410,14 @@ public class ConnectorHandler implements ReplicatorPlugin, Runnable
      */
     public void run()
     {
-        LogConnection connection = null;
         Protocol protocol;
         try
         {
             protocol = new Protocol(context, socket, resetPeriod);
+            protocol.setBinaryFramingAllowed(ProtobufSerializer.class
+                    .getName().equals(thl.getEventSerializer()));
+            this.protocol = protocol;
+            tailCache = server.getTailCache();
         }
         catch (SSLHandshakeException e)
         {
@@ -439,8 +463,13 @@ public class ConnectorHandler implements ReplicatorPlugin, Runnable
                 long prefetchRange = request.getPrefetchRange();
                 short fragno = 0;
 
+                // With flow control the client does not send further requests,
+                // so we stream events until we are cancelled.
+                if (protocol.isFlowControlActive())
+                    prefetchRange = Long.MAX_VALUE;
+
                 // If we don't have a connection to the log, make it now.
-                if (connection == null)
+                if (connection == null && cacheIndex < 0)
                 {
                     // If we have an alternate sequence number from an event ID,
                     // seek it instead of the requested sequence number.
@@ -452,9 +481,20 @@ public class ConnectorHandler implements ReplicatorPlugin, Runnable
                         altSeqno = -1;
                     }
 
-                    // Establish the connection.
-                    connection = thl.connect(true);
-                    if (!connection.seek(seqno))
+                    // Clients that start at the tail of the log can share
+                    // reads with other clients.
+                    if (tailCache != null)
+                    {
+                        cacheIndex = tailCache.indexOf(seqno);
+                        startSeqno = seqno;
+                    }
+                    if (cacheIndex >= 0)
+                    {
+                        if (logger.isDebugEnabled())
+                            logger.debug("Serving client from THL tail cache: seqno="
+                                    + seqno);
+                    }
+                    else if (!connectLog(seqno, (short) 0))
                     {
                         String message = "Requested event (#" + seqno + " / "
                                 + fragno + ") not found in database";
@@ -462,10 +502,6 @@ public class ConnectorHandler implements ReplicatorPlugin, Runnable
                         sendError(protocol, message);
                         return;
                     }
-
-                    // Set the connection timeout to match the requested
-                    // heartbeat interval.
-                    connection.setTimeoutMillis(heartbeatMillis);
                 }
 
                 long i = 0;
@@ -476,7 +512,7 @@ public class ConnectorHandler implements ReplicatorPlugin, Runnable
                     THLEvent event = null;
                     try
                     {
-                        event = connection.next(true);
+                        event = nextEvent();
                     }
                     catch (LogTimeoutException e)
                     {
@@ -660,9 +696,104 @@ public class ConnectorHandler implements ReplicatorPlugin, Runnable
         }
     }
 
+    // Opens a log connection positioned on an event.
+    private boolean connectLog(long seqno, short fragno)
+            throws ReplicatorException, InterruptedException
+    {
+        if (connection == null)
+        {
+            connection = thl.connect(true);
+
+            // Set the connection timeout to match the requested heartbeat
+            // interval.
+            connection.setTimeoutMillis(heartbeatMillis);
+        }
+        return connection.seek(seqno, fragno);
+    }
+
+    // Returns the next event for the client, from the tail cache if we are
+    // caught up or else from our own log connection.
+    private THLEvent nextEvent() throws ReplicatorException,
+            InterruptedException
+    {
+        if (cacheIndex >= 0)
+        {
+            try
+            {
+                THLEvent event = tailCache.get(cacheIndex, heartbeatMillis);
+                if (event == null)
+                    throw new LogTimeoutException(
+                            "Timed out waiting for THL tail cache: index="
+                                    + cacheIndex);
+                cacheIndex++;
+                lastEvent = event;
+                return event;
+            }
+            catch (LogTimeoutException e)
+            {
+                throw e;
+            }
+            catch (THLException e)
+            {
+                // We fell too far behind or the cache stopped. Continue from
+                // the log after the last event we sent.
+                cacheIndex = -1;
+                long seqno;
+                short fragno;
+                if (lastEvent == null)
+                {
+                    seqno = startSeqno;
+                    fragno = 0;
+                }
+                else if (lastEvent.getLastFrag())
+                {
+                    seqno = LogTailCache.lastSeqno(lastEvent) + 1;
+                    fragno = 0;
+                }
+                else
+                {
+                    seqno = lastEvent.getSeqno();
+                    fragno = (short) (lastEvent.getFragno() + 1);
+                }
+                logger.info("Client left THL tail cache; reading log: seqno="
+                        + seqno + " fragno=" + fragno);
+                if (!connectLog(seqno, fragno))
+                    throw new THLException(
+                            "Unable to find event after leaving THL tail cache: seqno="
+                                    + seqno + " fragno=" + fragno);
+            }
+        }
+
+        THLEvent event = connection.next(true);
+        if (event != null)
+        {
+            lastEvent = event;
+
+            // Switch to the shared tail once we reach it.
+            if (tailCache != null)
+            {
+                cacheIndex = tailCache.indexAfter(event);
+                if (cacheIndex >= 0)
+                {
+                    if (logger.isDebugEnabled())
+                        logger.debug("Client reached THL tail cache: seqno="
+                                + event.getSeqno());
+                    connection.release();
+                    connection = null;
+                }
+            }
+        }
+        return event;
+    }
+
     private void sendEvent(Protocol protocol, ReplEvent event,
-            boolean forceSend) throws IOException
+            boolean forceSend) throws IOException, InterruptedException
     {
+        // Events from the tail cache are shared with other handlers, so
+        // the sent stamp goes on a copy.
+        if (lineage && event instanceof ReplDBMSEvent)
+            event = EventLineage.copyWithStamp((ReplDBMSEvent) event,
+                    EventLineage.SENT);
         protocol.sendReplEvent(event, forceSend);
     }
 
@@ -725,6 +856,7 @@ public class ConnectorHandler implements ReplicatorPlugin, Runnable
             throws ReplicatorException, InterruptedException
     {
         this.context = context;
+        this.lineage = EventLineage.isEnabled(context);
     }
 
     /**
@@ -807,4 +939,19 @@ public class ConnectorHandler implements ReplicatorPlugin, Runnable
     {
         return rmiPort;
     }
+
+    /**
+     * Returns statistics for the client connection, including bytes on the
+     * wire and compression ratio.
+     */
+    public TungstenProperties getStatistics()
+    {
+        Protocol current = protocol;
+        if (current == null)
+            return new TungstenProperties();
+        TungstenProperties stats = current.getStatistics();
+        if (current.getClientSourceId() != null)
+            stats.setString("sourceId", current.getClientSourceId());
+        return stats;
+    }
 }
@@ -0,0 +1,310 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.thl;
+
+import org.apache.log4j.Logger;
+
+import com.continuent.tungsten.replicator.event.ReplDBMSFilteredEvent;
+import com.continuent.tungsten.replicator.event.ReplEvent;
+import com.continuent.tungsten.replicator.thl.log.LogConnection;
+import com.continuent.tungsten.replicator.thl.log.LogTimeoutException;
+
+/**
+ * Reads the tail of the log on a single thread and keeps the most recent
+ * events in a ring so that connector handlers serving clients at the same
+ * position share one read and one deserialization of each event. Handlers
+ * that are caught up wait on the ring instead of polling the log file. A
+ * handler positions itself in the ring using an index, which counts events
+ * appended since the cache started; a handler whose index has been
+ * overwritten falls back to reading the log on its own.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @version 1.0
+ */
+public class LogTailCache implements Runnable
+{
+    private static Logger    logger          = Logger.getLogger(LogTailCache.class);
+
+    // Time to wait for log data before checking for cancellation.
+    private static final int READ_TIMEOUT    = 1000;
+
+    private final THL        thl;
+    private final THLEvent[] ring;
+    private Thread           thread;
+    private volatile boolean cancelled       = false;
+
+    // Number of events appended so far, i.e., index of the next event.
+    private long             appended        = 0;
+
+    // Sequence number of the next complete event the reader will append, or
+    // -1 until the reader is positioned.
+    private long             nextSeqno       = -1;
+
+    // Set once the reader stops; no more events will arrive.
+    private boolean          stopped         = false;
+
+    /**
+     * Creates a new cache.
+     *
+     * @param thl Log to read
+     * @param capacity Maximum number of events to keep
+     */
+    public LogTailCache(THL thl, int capacity)
+    {
+        this.thl = thl;
+        this.ring = new THLEvent[capacity];
+    }
+
+    /**
+     * Starts the reader thread.
+     */
+    public synchronized void start()
+    {
+        logger.info("Starting THL tail cache: store=" + thl.getName()
+                + " capacity=" + ring.length);
+        thread = new Thread(this, "thl-tail-cache-" + thl.getName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the reader thread and wakes any waiting handlers.
+     */
+    public void stop() throws InterruptedException
+    {
+        cancelled = true;
+        Thread reader;
+        synchronized (this)
+        {
+            reader = thread;
+            thread = null;
+        }
+        if (reader != null)
+        {
+            reader.interrupt();
+            reader.join();
+        }
+    }
+
+    /**
+     * Reads events from the tail of the log until cancelled.
+     */
+    public void run()
+    {
+        LogConnection conn = null;
+        try
+        {
+            conn = thl.connect(true);
+            conn.setTimeoutMillis(READ_TIMEOUT);
+
+            // Position on the next event to be written. The log may not
+            // exist yet, in which case we keep trying.
+            long seqno = thl.getMaxStoredSeqno() + 1;
+            while (!conn.seek(seqno))
+            {
+                if (cancelled)
+                    return;
+                Thread.sleep(READ_TIMEOUT);
+                seqno = thl.getMaxStoredSeqno() + 1;
+            }
+            synchronized (this)
+            {
+                nextSeqno = seqno;
+            }
+            if (logger.isDebugEnabled())
+                logger.debug("THL tail cache positioned: seqno=" + seqno);
+
+            while (!cancelled)
+            {
+                THLEvent event;
+                try
+                {
+                    event = conn.next(true);
+                }
+                catch (LogTimeoutException e)
+                {
+                    continue;
+                }
+                if (event != null)
+                    append(event);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            if (!cancelled)
+                logger.warn("THL tail cache interrupted unexpectedly");
+        }
+        catch (Throwable t)
+        {
+            // Handlers fall back to reading the log directly.
+            logger.warn("THL tail cache stopped by error; clients will read "
+                    + "the log directly: " + t.getMessage(), t);
+        }
+        finally
+        {
+            if (conn != null)
+                conn.release();
+            synchronized (this)
+            {
+                stopped = true;
+                notifyAll();
+            }
+            logger.info("THL tail cache done: store=" + thl.getName());
+        }
+    }
+
+    // Adds an event to the ring and wakes waiting handlers.
+    private synchronized void append(THLEvent event)
+    {
+        ring[(int) (appended % ring.length)] = event;
+        appended++;
+        if (event.getLastFrag())
+            nextSeqno = lastSeqno(event) + 1;
+        notifyAll();
+    }
+
+    /**
+     * Returns the index of the first fragment of an event, the index of the
+     * next event to be appended if seqno is the next to be read from the log,
+     * or -1 if the event is not cached.
+     */
+    public synchronized long indexOf(long seqno)
+    {
+        if (stopped)
+            return -1;
+        long i = search(seqno);
+        if (i < appended)
+        {
+            THLEvent event = eventAt(i);
+            if (event.getSeqno() == seqno && event.getFragno() == 0)
+                return i;
+        }
+
+        // A filtered event may span the sequence number.
+        if (i > firstIndex())
+        {
+            THLEvent previous = eventAt(i - 1);
+            if (previous.getFragno() == 0 && previous.getSeqno() < seqno
+                    && seqno <= lastSeqno(previous))
+                return i - 1;
+        }
+        if (i == appended && seqno == nextSeqno && isComplete())
+            return appended;
+        return -1;
+    }
+
+    /**
+     * Returns the index following an event, or -1 if the event is not cached.
+     */
+    public synchronized long indexAfter(THLEvent event)
+    {
+        if (stopped)
+            return -1;
+        for (long i = search(event.getSeqno()); i < appended; i++)
+        {
+            THLEvent cached = eventAt(i);
+            if (cached.getSeqno() != event.getSeqno())
+                break;
+            if (cached.getFragno() == event.getFragno())
+                return i + 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the event at an index, waiting for it to be read if necessary.
+     *
+     * @param index Index of the event
+     * @param waitMillis Maximum time to wait for the event to arrive
+     * @return The event or null if it did not arrive in time
+     * @throws THLException Thrown if the event is no longer cached or the
+     *             cache has stopped, in which case the caller must read the
+     *             log directly
+     * @throws InterruptedException Thrown if interrupted while waiting
+     */
+    public synchronized THLEvent get(long index, int waitMillis)
+            throws THLException, InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + waitMillis;
+        while (index >= appended && !stopped)
+        {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0)
+                return null;
+            wait(remaining);
+        }
+        if (index >= appended || index < firstIndex())
+            throw new THLException("Event is not in THL tail cache: index="
+                    + index + " first=" + firstIndex() + " next=" + appended);
+        return eventAt(index);
+    }
+
+    // Returns the index of the first cached event whose sequence number is
+    // not less than seqno, or the next index if there is none. Events are
+    // cached in sequence number order.
+    private long search(long seqno)
+    {
+        long low = firstIndex();
+        long high = appended;
+        while (low < high)
+        {
+            long mid = (low + high) >>> 1;
+            if (eventAt(mid).getSeqno() < seqno)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    private THLEvent eventAt(long index)
+    {
+        return ring[(int) (index % ring.length)];
+    }
+
+    // Returns the index of the oldest cached event.
+    private long firstIndex()
+    {
+        return Math.max(0, appended - ring.length);
+    }
+
+    // Returns true if the last appended event is a complete transaction.
+    private boolean isComplete()
+    {
+        if (nextSeqno < 0)
+            return false;
+        if (appended == 0)
+            return true;
+        return eventAt(appended - 1).getLastFrag();
+    }
+
+    /**
+     * Returns the last sequence number covered by an event, which is greater
+     * than its own sequence number for filtered events.
+     */
+    static long lastSeqno(THLEvent event)
+    {
+        ReplEvent replEvent = event.getReplEvent();
+        if (replEvent instanceof ReplDBMSFilteredEvent)
+            return ((ReplDBMSFilteredEvent) replEvent).getSeqnoEnd();
+        return event.getSeqno();
+    }
+}
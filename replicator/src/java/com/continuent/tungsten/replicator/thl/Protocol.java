@@ -22,10 +22,18 @@ package com.continuent.tungsten.replicator.thl;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
 
 import org.apache.log4j.Logger;
 
@@ -40,6 +48,8 @@ import com.continuent.tungsten.replicator.event.ReplDBMSFilteredEvent;
 import com.continuent.tungsten.replicator.event.ReplEvent;
 import com.continuent.tungsten.replicator.management.OpenReplicatorManager;
 import com.continuent.tungsten.replicator.plugin.PluginContext;
+import com.continuent.tungsten.replicator.thl.compression.CompressionCodec;
+import com.continuent.tungsten.replicator.thl.compression.CompressionCodecs;
 
 /**
  * This class defines a Protocol
@@ -58,6 +68,19 @@ public class Protocol
     public static String MIN_SEQNO     = "min_seqno";
     public static String MAX_SEQNO     = "max_seqno";
     public static String AUTH_REQUIRED = "auth_required";
+    public static String COMPRESSION   = "compression";
+    public static String FLOW_CONTROL  = "flow_control";
+    public static String FRAMING       = "framing";
+
+    // Values of the framing option.
+    public static final String FRAMING_BINARY = "binary";
+    public static final String FRAMING_JAVA   = "java";
+
+    // Value of the flow control capability for credit-based flow control.
+    private static final String CREDIT = "credit";
+
+    // Frames between compression probes while adaptive compression is off.
+    private static final int COMPRESSION_PROBE_INTERVAL = 32;
 
     protected PluginContext pluginContext = null;
     protected SocketWrapper socket        = null;
@@ -90,6 +113,46 @@ public class Protocol
     private String rmiHost = null;
     private int    rmiPort = -1;
 
+    // Byte counts on the socket.
+    private CountingInputStream  countingInput;
+    private CountingOutputStream countingOutput;
+
+    // Compression requested by a client, and the compressor used by a server
+    // once the client has requested it.
+    private String                compression         = CompressionCodecs.NONE;
+    private boolean               compressionAdaptive = true;
+    private ProtocolCompressor    compressor;
+    private ByteArrayOutputStream frameBuffer;
+
+    // Compressed frames received by a client.
+    private long framesDecompressed;
+    private long compressedBytesReceived;
+    private long uncompressedBytesReceived;
+
+    // Credit-based flow control, off unless creditBytes is set. A client
+    // advertises creditBytes and, if the server offers flow control, reads
+    // frames on a receiver thread and acknowledges them as it consumes them.
+    // A server tracks the client's credit and reads acknowledgements on its
+    // own thread. Both sides thus read and write the socket concurrently,
+    // which relies on SocketWrapper writing straight to the channel.
+    private long                creditBytes;
+    private boolean             creditGranted;
+    private Receiver            receiver;
+    private long                framesConsumed;
+    private long                bytesSinceAck;
+    private ProtocolFlowControl flowControl;
+    private int                 heartbeatMillis;
+    private Thread              ackReader;
+
+    // Binary framing negotiated in the handshake. Frames are written as block
+    // data of the object streams, so they mix with Java-serialized messages
+    // without re-creating the streams and add nothing to the back-reference
+    // table. Each direction has its own codec because codecs reuse buffers.
+    private String             framing        = FRAMING_JAVA;
+    private boolean            binaryAllowed  = true;
+    private ProtocolFrameCodec frameWriter;
+    private ProtocolFrameCodec frameReader;
+
     /**
      * Creates a new <code>Protocol</code> object
      */
@@ -106,8 +169,8 @@ public class Protocol
         this.pluginContext = context;
         this.socket = socket;
 
-        oos = new ObjectOutputStream(
-                new BufferedOutputStream(socket.getOutputStream()));
+        countingOutput = new CountingOutputStream(socket.getOutputStream());
+        oos = new ObjectOutputStream(new BufferedOutputStream(countingOutput));
         oos.flush();
 
         // Retrieve parameters available only in a casual Replicator service.
@@ -137,6 +200,29 @@ public class Protocol
         buffering = bufferSize > 0;
         if (buffering && logger.isDebugEnabled())
             logger.debug("THL protocol buffering enabled: size=" + bufferSize);
+        this.compression = context.getReplicatorProperties().getString(
+                ReplicatorConf.THL_PROTOCOL_COMPRESSION,
+                ReplicatorConf.THL_PROTOCOL_COMPRESSION_DEFAULT, false);
+        this.compressionAdaptive = context.getReplicatorProperties()
+                .getBoolean(ReplicatorConf.THL_PROTOCOL_COMPRESSION_ADAPTIVE,
+                        ReplicatorConf.THL_PROTOCOL_COMPRESSION_ADAPTIVE_DEFAULT,
+                        false);
+        this.creditBytes = context.getReplicatorProperties().getLong(
+                ReplicatorConf.THL_PROTOCOL_CREDIT_BYTES,
+                ReplicatorConf.THL_PROTOCOL_CREDIT_BYTES_DEFAULT, false);
+        this.framing = context.getReplicatorProperties().getString(
+                ReplicatorConf.THL_PROTOCOL_FRAMING,
+                ReplicatorConf.THL_PROTOCOL_FRAMING_DEFAULT, false);
+    }
+
+    /**
+     * Sets whether a server may offer binary framing. Binary frames encode
+     * events with the protobuf serializer, so servers whose log uses another
+     * serializer must not offer it.
+     */
+    public void setBinaryFramingAllowed(boolean binaryAllowed)
+    {
+        this.binaryAllowed = binaryAllowed;
     }
 
     /**
@@ -172,6 +258,57 @@ public class Protocol
         return serverCapabilities;
     }
 
+    /**
+     * Returns connection statistics: bytes sent and received on the socket,
+     * the compression codec in use, and the compression ratio of compressed
+     * frames sent (server) or received (client).
+     */
+    public synchronized TungstenProperties getStatistics()
+    {
+        TungstenProperties stats = new TungstenProperties();
+        stats.setString("framing", frameWriter == null
+                ? FRAMING_JAVA
+                : FRAMING_BINARY);
+        stats.setLong("bytesSent",
+                countingOutput == null ? 0 : countingOutput.getCount());
+        stats.setLong("bytesReceived",
+                countingInput == null ? 0 : countingInput.getCount());
+        if (compressor != null)
+        {
+            stats.setString("compression", compressor.getCodec().getName());
+            stats.setBoolean("compressionAdaptive", compressor.isAdaptive());
+            stats.setBoolean("compressionActive", compressor.isActive());
+            stats.setLong("compressedFrames", compressor.getFramesCompressed());
+            stats.setString("compressionRatio", String.format("%.2f",
+                    compressor.getCompressionRatio()));
+        }
+        else if (framesDecompressed > 0)
+        {
+            stats.setString("compression", compression);
+            stats.setLong("compressedFrames", framesDecompressed);
+            stats.setString("compressionRatio", String.format("%.2f",
+                    (double) uncompressedBytesReceived
+                            / compressedBytesReceived));
+        }
+        else
+        {
+            stats.setString("compression", CompressionCodecs.NONE);
+        }
+        if (flowControl != null)
+        {
+            stats.setLong("creditBytes", flowControl.getCredit());
+            stats.setLong("unackedBytes", flowControl.getUnackedBytes());
+            stats.setLong("ackedSeqno", flowControl.getAckedSeqno());
+            stats.setLong("creditWaits", flowControl.getCreditWaits());
+        }
+        else if (receiver != null)
+        {
+            stats.setLong("creditBytes", creditBytes);
+            stats.setLong("receiveQueueFrames", receiver.size());
+        }
+        return stats;
+    }
+
     /**
      * Read a message from network from either side.
      */
@@ -180,13 +317,18 @@ public class Protocol
     {
         if (ois == null)
         {
-            ois = new ObjectInputStream(
-                    new BufferedInputStream(socket.getInputStream()));
+            countingInput = new CountingInputStream(socket.getInputStream());
+            ois = new ObjectInputStream(new BufferedInputStream(countingInput));
         }
         Object obj;
         try
         {
-            obj = ois.readObject();
+            if (frameReader == null)
+                obj = ois.readObject();
+            else
+                obj = readFrame();
+            if (obj instanceof ProtocolCompressedMessage)
+                obj = decompress((ProtocolCompressedMessage) obj);
         }
         catch (ClassNotFoundException e)
         {
@@ -198,15 +340,99 @@ public class Protocol
         return (ProtocolMessage) obj;
     }
 
+    // Unpacks the message inside a compressed frame.
+    private Object decompress(ProtocolCompressedMessage frame)
+            throws IOException, ReplicatorException, ClassNotFoundException
+    {
+        CompressionCodec codec = CompressionCodecs
+                .getCodec(frame.getCodecId());
+        byte[] data = frame.getData();
+        byte[] serialized = codec.decompress(data, 0, data.length,
+                frame.getUncompressedLength());
+        decompressed(data.length, serialized.length);
+        ObjectInputStream frameIn = new ObjectInputStream(
+                new ByteArrayInputStream(serialized));
+        try
+        {
+            return frameIn.readObject();
+        }
+        finally
+        {
+            frameIn.close();
+        }
+    }
+
+    // Records receipt of a compressed frame.
+    private synchronized void decompressed(long compressedBytes,
+            long uncompressedBytes)
+    {
+        framesDecompressed++;
+        compressedBytesReceived += compressedBytes;
+        uncompressedBytesReceived += uncompressedBytes;
+    }
+
+    // Reads a binary frame, or the Java-serialized message that follows an
+    // object frame.
+    private Object readFrame() throws IOException, ReplicatorException,
+            ClassNotFoundException
+    {
+        byte type = ois.readByte();
+        if (type == ProtocolFrameCodec.OBJECT)
+            return ois.readObject();
+        else if (type == ProtocolFrameCodec.COMPRESSED)
+        {
+            CompressionCodec codec = CompressionCodecs.getCodec(ois
+                    .readByte());
+            int uncompressedLength = ois.readInt();
+            int length = ois.readInt();
+            if (uncompressedLength < 0 || length < 0)
+                throw new THLException(
+                        "Protocol error; invalid compressed frame length: "
+                                + length + "/" + uncompressedLength);
+            byte[] data = new byte[length];
+            ois.readFully(data);
+            byte[] frame = codec.decompress(data, 0, length,
+                    uncompressedLength);
+            decompressed(length, uncompressedLength);
+            return frameReader.decode(frame);
+        }
+        else
+            return frameReader.decode(type, ois);
+    }
+
     /**
      * Write a message to the network from either side.
      */
     protected void writeMessage(ProtocolMessage msg) throws IOException
     {
-        oos.writeObject(msg);
+        // Compress frames carrying events if the client asked for it.
+        boolean eventFrame = carriesEvents(msg);
+        boolean compress = compressor != null && eventFrame
+                && compressor.shouldCompress();
+
+        long startNanos = System.nanoTime();
+        long startCount = countingOutput.getCount();
+        if (frameWriter != null && ProtocolFrameCodec.canEncode(msg))
+        {
+            writeFrame(msg, compress);
+        }
+        else
+        {
+            if (compress)
+                msg = compress(msg);
+            if (frameWriter != null)
+                oos.writeByte(ProtocolFrameCodec.OBJECT);
+            oos.writeObject(msg);
+            objectsSent++;
+        }
         oos.flush();
+        long bytes = countingOutput.getCount() - startCount;
+        if (compressor != null)
+            compressor.written(bytes, System.nanoTime() - startNanos);
+        if (flowControl != null && eventFrame)
+            flowControl.sent(bytes);
 
-        objectsSent++;
+        // Only serialized objects enter the back-reference table.
         if (objectsSent >= resetPeriod)
         {
             objectsSent = 0;
@@ -214,6 +440,64 @@ public class Protocol
         }
     }
 
+    // Writes a binary frame, compressed if asked and if it shrinks enough.
+    private void writeFrame(ProtocolMessage msg, boolean compress)
+            throws IOException
+    {
+        if (!compress)
+        {
+            frameWriter.encode(msg, oos);
+            return;
+        }
+        ProtocolFrameCodec.FrameBuffer frame = frameWriter.encode(msg);
+        byte[] compressed = compressor.compress(frame.getBuffer(), 0,
+                frame.size());
+        if (compressed == null)
+        {
+            oos.write(frame.getBuffer(), 0, frame.size());
+        }
+        else
+        {
+            oos.writeByte(ProtocolFrameCodec.COMPRESSED);
+            oos.writeByte(compressor.getCodec().getId());
+            oos.writeInt(frame.size());
+            oos.writeInt(compressed.length);
+            oos.write(compressed);
+        }
+        frameWriter.trimBuffers();
+    }
+
+    // Returns true if a message carries replication events.
+    private static boolean carriesEvents(ProtocolMessage msg)
+    {
+        return msg instanceof ProtocolReplEvent
+                || msg.getPayload() instanceof ArrayList<?>;
+    }
+
+    // Serializes a message by itself and returns it as a compressed frame,
+    // or returns the message if it does not compress well.
+    private ProtocolMessage compress(ProtocolMessage msg) throws IOException
+    {
+        if (frameBuffer == null)
+            frameBuffer = new ByteArrayOutputStream(8192);
+        frameBuffer.reset();
+        ObjectOutputStream frameOut = new ObjectOutputStream(frameBuffer);
+        frameOut.writeObject(msg);
+        frameOut.close();
+        byte[] serialized = frameBuffer.toByteArray();
+
+        // Do not let one large frame pin a large buffer.
+        if (frameBuffer.size() > 1048576)
+            frameBuffer = null;
+
+        byte[] compressed = compressor.compress(serialized, 0,
+                serialized.length);
+        if (compressed == null)
+            return msg;
+        return new ProtocolCompressedMessage(compressor.getCodec().getId(),
+                serialized.length, compressed);
+    }
+
     /**
      * Initiate a server handshake from the client side.
      */
@@ -235,6 +519,20 @@ public class Protocol
         // 5.0.
         handshake.setCapability(AUTH_REQUIRED,
                 new Boolean(encryptionInUse).toString());
+
+        // Offer compression codecs that every replicator has. Older clients
+        // ignore this.
+        StringBuffer codecs = new StringBuffer();
+        for (String name : CompressionCodecs.getBuiltinNames())
+        {
+            if (codecs.length() > 0)
+                codecs.append(",");
+            codecs.append(name);
+        }
+        handshake.setCapability(COMPRESSION, codecs.toString());
+        handshake.setCapability(FLOW_CONTROL, CREDIT);
+        if (binaryAllowed && FRAMING_BINARY.equals(framing))
+            handshake.setCapability(FRAMING, FRAMING_BINARY);
         serverCapabilities = new TungstenProperties(
                 handshake.getCapabilities());
         writeMessage(handshake);
@@ -248,6 +546,13 @@ public class Protocol
                 validator.validateResponse(masterSourceId, handshakeResponse);
                 writeMessage(
                         new ProtocolOK(new SeqNoRange(minSeqNo, maxSeqNo)));
+                startCompression(handshakeResponse);
+                startFlowControl(handshakeResponse);
+                if (FRAMING_BINARY.equals(serverCapabilities
+                        .getString(FRAMING))
+                        && FRAMING_BINARY.equals(handshakeResponse
+                                .getOption(ProtocolParams.FRAMING)))
+                    startBinaryFraming();
             }
             catch (THLException e)
             {
@@ -266,6 +571,68 @@ public class Protocol
         }
     }
 
+    // Starts compressing events if the client asked for an offered codec.
+    private void startCompression(ProtocolHandshakeResponse response)
+            throws ReplicatorException
+    {
+        String name = response.getOption(ProtocolParams.COMPRESSION);
+        if (name == null)
+            return;
+        if (!Arrays.asList(CompressionCodecs.getBuiltinNames()).contains(name))
+        {
+            logger.warn("Ignoring request for unknown THL compression codec: "
+                    + name);
+            return;
+        }
+        boolean adaptive = !"false".equals(response
+                .getOption(ProtocolParams.COMPRESSION_ADAPTIVE));
+        synchronized (this)
+        {
+            compressor = new ProtocolCompressor(
+                    CompressionCodecs.getCodec(name), adaptive,
+                    COMPRESSION_PROBE_INTERVAL);
+        }
+        logger.info("Compressing THL events for client: sourceId="
+                + clientSourceId + " codec=" + name + " adaptive="
+                + adaptive);
+    }
+
+    // Switches both directions to binary frames.
+    private void startBinaryFraming()
+    {
+        frameWriter = new ProtocolFrameCodec();
+        frameReader = new ProtocolFrameCodec();
+        if (logger.isDebugEnabled())
+            logger.debug("Using binary THL protocol framing");
+    }
+
+    // Tracks the client's credit if the client asked for flow control.
+    private void startFlowControl(ProtocolHandshakeResponse response)
+    {
+        String credit = response.getOption(ProtocolParams.CREDIT_BYTES);
+        if (credit == null)
+            return;
+        long bytes;
+        try
+        {
+            bytes = Long.parseLong(credit);
+        }
+        catch (NumberFormatException e)
+        {
+            logger.warn("Ignoring invalid THL flow control credit: " + credit);
+            return;
+        }
+        if (bytes <= 0)
+            return;
+        synchronized (this)
+        {
+            flowControl = new ProtocolFlowControl(bytes);
+        }
+        heartbeatMillis = response.getHeartbeatMillis();
+        logger.info("Using credit-based flow control for client: sourceId="
+                + clientSourceId + " creditBytes=" + bytes);
+    }
+
     /**
      * Define a client handshake event including attendant information.
      * 
@@ -320,6 +687,42 @@ public class Protocol
             response.setOption(ProtocolParams.REMOTE_PASSWORD, remotePassword);
         }
 
+        // Ask for compression if the server offers our codec.
+        if (!CompressionCodecs.NONE.equals(compression))
+        {
+            String offered = serverCapabilities.getString(COMPRESSION);
+            if (offered != null
+                    && Arrays.asList(offered.split(",")).contains(compression))
+            {
+                response.setOption(ProtocolParams.COMPRESSION, compression);
+                response.setOption(ProtocolParams.COMPRESSION_ADAPTIVE,
+                        Boolean.toString(compressionAdaptive));
+            }
+            else
+            {
+                logger.warn("THL server does not offer requested compression; "
+                        + "continuing without compression: requested="
+                        + compression + " offered=" + offered);
+            }
+        }
+
+        // Advertise our credit if the server supports flow control. Older
+        // servers wait for a request per prefetch range instead.
+        if (creditBytes > 0
+                && CREDIT.equals(serverCapabilities.getString(FLOW_CONTROL)))
+        {
+            response.setOption(ProtocolParams.CREDIT_BYTES,
+                    Long.toString(creditBytes));
+            creditGranted = true;
+        }
+
+        // Ask for binary frames if the server offers them. Older servers
+        // and servers whose log events are not protobuf do not.
+        boolean binary = FRAMING_BINARY.equals(framing)
+                && FRAMING_BINARY.equals(serverCapabilities.getString(FRAMING));
+        if (binary)
+            response.setOption(ProtocolParams.FRAMING, FRAMING_BINARY);
+
         if (lastEventId != null)
             response.setOption(ProtocolParams.INIT_EVENT_ID, lastEventId);
         writeMessage(response);
@@ -327,6 +730,8 @@ public class Protocol
         ProtocolMessage okOrNok = readMessage();
         if (okOrNok instanceof ProtocolOK)
         {
+            if (binary)
+                startBinaryFraming();
             return (SeqNoRange) okOrNok.getPayload();
         }
         else if (okOrNok instanceof ProtocolNOK)
@@ -346,7 +751,7 @@ public class Protocol
      */
     @SuppressWarnings("unchecked")
     public ReplEvent requestReplEvent(long seqNo)
-            throws ReplicatorException, IOException
+            throws ReplicatorException, IOException, InterruptedException
     {
         ReplEvent ret = null;
         if (!buffer.isEmpty())
@@ -355,10 +760,15 @@ public class Protocol
         }
         else
         {
-            if (prefetchIndex == 0 && allPreviousFragmentsDone)
+            // With flow control the server streams within our credit after
+            // the first request, so we never request again.
+            if (prefetchIndex == 0 && allPreviousFragmentsDone
+                    && receiver == null)
             {
                 writeMessage(
                         new ProtocolReplEventRequest(seqNo, prefetchRange));
+                if (creditGranted)
+                    startReceiver();
             }
 
             // Read the next message, skipping over any heartbeat events, which
@@ -366,7 +776,7 @@ public class Protocol
             ProtocolMessage msg = null;
             for (;;)
             {
-                msg = readMessage();
+                msg = (receiver == null) ? readMessage() : receiver.take();
                 if (msg instanceof ProtocolHeartbeat)
                 {
                     if (logger.isDebugEnabled())
@@ -405,6 +815,13 @@ public class Protocol
             }
             else
                 ret = ((ProtocolReplEvent) msg).getReplEvent();
+
+            if (receiver != null && carriesEvents(msg))
+            {
+                ReplEvent last = buffer.isEmpty() ? ret : buffer
+                        .get(buffer.size() - 1);
+                acknowledge(last);
+            }
         }
 
         if (ret instanceof ReplDBMSEvent)
@@ -441,39 +858,116 @@ public class Protocol
         return ret;
     }
 
+    // Starts reading frames from the server on a separate thread.
+    private void startReceiver()
+    {
+        receiver = new Receiver();
+        Thread thread = new Thread(receiver, "thl-receiver-"
+                + pluginContext.getSourceId());
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("Using credit-based flow control: creditBytes="
+                + creditBytes);
+    }
+
+    // Records consumption of an event frame and acknowledges frames once a
+    // quarter of the credit is consumed or nothing is left to consume, so the
+    // server is never kept waiting while we have room.
+    private void acknowledge(ReplEvent last) throws IOException
+    {
+        framesConsumed++;
+        bytesSinceAck += receiver.lastFrameBytes();
+        if (bytesSinceAck >= creditBytes / 4 || receiver.size() == 0)
+        {
+            long seqno = -1;
+            if (last instanceof ReplDBMSFilteredEvent)
+                seqno = ((ReplDBMSFilteredEvent) last).getSeqnoEnd();
+            else if (last != null)
+                seqno = last.getSeqno();
+            writeMessage(new ProtocolAck(framesConsumed, seqno));
+            bytesSinceAck = 0;
+        }
+    }
+
     /**
      * Wait for an event request from client.
      */
     public ProtocolReplEventRequest waitReplEventRequest()
             throws ReplicatorException, IOException
     {
+        // Once acknowledgements are read on a separate thread, we must not
+        // read from the stream here as well.
+        if (ackReader != null)
+            throw new THLException(
+                    "Protocol error; event request read while streaming with flow control: sourceId="
+                            + clientSourceId);
+
         ProtocolMessage msg = readMessage();
         if (msg instanceof ProtocolReplEventRequest == false)
             throw new THLException("Protocol error");
+
+        // With flow control the client sends only acknowledgements from now
+        // on. Read them on a separate thread so we can stream events.
+        if (flowControl != null && ackReader == null)
+        {
+            ackReader = new Thread(new AckReader(), "thl-ack-reader-"
+                    + clientSourceId);
+            ackReader.setDaemon(true);
+            ackReader.start();
+        }
         return (ProtocolReplEventRequest) msg;
     }
 
     /**
-     * Send a replication event to the client.
+     * Returns true if the client uses credit-based flow control, in which case
+     * it sends a single event request and then streams events within its
+     * credit.
+     */
+    public boolean isFlowControlActive()
+    {
+        return flowControl != null;
+    }
+
+    /**
+     * Send a replication event to the client. If the client uses flow
+     * control, wait for credit before sending events, sending heartbeats
+     * while we wait.
      */
     public void sendReplEvent(ReplEvent event, boolean forceSend)
-            throws IOException
+            throws IOException, InterruptedException
     {
         if (buffering)
         {
             buffer.add(event);
             if (forceSend || buffer.size() >= bufferSize)
             {
+                awaitCredit();
                 writeMessage(new ProtocolMessage(buffer));
                 buffer.clear();
             }
         }
         else
         {
+            awaitCredit();
             writeMessage(new ProtocolReplEvent(event));
         }
     }
 
+    // Waits until the client has credit for another event frame.
+    private void awaitCredit() throws IOException, InterruptedException
+    {
+        if (flowControl == null)
+            return;
+        while (!flowControl.awaitCredit(heartbeatMillis))
+        {
+            if (logger.isDebugEnabled())
+                logger.debug("Waiting for client credit: sourceId="
+                        + clientSourceId + " unackedBytes="
+                        + flowControl.getUnackedBytes());
+            writeMessage(new ProtocolHeartbeat());
+        }
+    }
+
     /**
      * Send an error message back to client.
      */
@@ -499,4 +993,180 @@ public class Protocol
         }
         writeMessage(new ProtocolHeartbeat());
     }
+
+    // Reads frames from the server into a queue so that the socket is drained
+    // while the client processes events. The server's credit bounds the bytes
+    // of event frames in the queue.
+    private class Receiver implements Runnable
+    {
+        private final LinkedList<ProtocolMessage> frames     = new LinkedList<ProtocolMessage>();
+        private final LinkedList<Long>            frameBytes = new LinkedList<Long>();
+        private long                              lastFrameBytes;
+        private Exception                         failure;
+
+        public void run()
+        {
+            try
+            {
+                for (;;)
+                {
+                    long start = countingInput.getCount();
+                    ProtocolMessage msg = readMessage();
+                    long bytes = countingInput.getCount() - start;
+                    synchronized (this)
+                    {
+                        frames.addLast(msg);
+                        frameBytes.addLast(bytes);
+                        notifyAll();
+                    }
+                }
+            }
+            catch (Exception e)
+            {
+                if (logger.isDebugEnabled())
+                    logger.debug("THL receiver stopped: " + e.getMessage());
+                synchronized (this)
+                {
+                    failure = e;
+                    notifyAll();
+                }
+            }
+        }
+
+        // Returns the next frame, waiting if necessary, or rethrows the
+        // exception that stopped the receiver once all frames are taken.
+        synchronized ProtocolMessage take() throws IOException,
+                ReplicatorException, InterruptedException
+        {
+            while (frames.isEmpty() && failure == null)
+                wait();
+            if (!frames.isEmpty())
+            {
+                lastFrameBytes = frameBytes.removeFirst();
+                return frames.removeFirst();
+            }
+            if (failure instanceof IOException)
+                throw (IOException) failure;
+            else if (failure instanceof ReplicatorException)
+                throw (ReplicatorException) failure;
+            else
+                throw new THLException("THL receiver failed: "
+                        + failure.getMessage(), failure);
+        }
+
+        // Returns the approximate wire size of the last frame taken.
+        synchronized long lastFrameBytes()
+        {
+            return lastFrameBytes;
+        }
+
+        synchronized int size()
+        {
+            return frames.size();
+        }
+    }
+
+    // Reads acknowledgements from a client that uses flow control.
+    private class AckReader implements Runnable
+    {
+        public void run()
+        {
+            try
+            {
+                for (;;)
+                {
+                    ProtocolMessage msg = readMessage();
+                    if (msg instanceof ProtocolAck)
+                    {
+                        ProtocolAck ack = (ProtocolAck) msg;
+                        flowControl.acknowledged(ack.getFramesConsumed(),
+                                ack.getSeqno());
+                    }
+                    else
+                    {
+                        throw new THLException(
+                                "Protocol error; expected acknowledgement: "
+                                        + msg.getClass().getName());
+                    }
+                }
+            }
+            catch (IOException e)
+            {
+                flowControl.failed(e);
+            }
+            catch (Exception e)
+            {
+                logger.warn("Unable to read client acknowledgements: "
+                        + e.getMessage());
+                flowControl.failed(new IOException(e.getMessage(), e));
+            }
+        }
+    }
+
+    // Counts bytes written to the socket.
+    private static class CountingOutputStream extends FilterOutputStream
+    {
+        private volatile long count;
+
+        CountingOutputStream(OutputStream out)
+        {
+            super(out);
+        }
+
+        public void write(int b) throws IOException
+        {
+            out.write(b);
+            count++;
+        }
+
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        long getCount()
+        {
+            return count;
+        }
+    }
+
+    // Counts bytes read from the socket.
+    private static class CountingInputStream extends FilterInputStream
+    {
+        private volatile long count;
+
+        CountingInputStream(InputStream in)
+        {
+            super(in);
+        }
+
+        public int read() throws IOException
+        {
+            int b = in.read();
+            if (b >= 0)
+                count++;
+            return b;
+        }
+
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            int n = in.read(b, off, len);
+            if (n > 0)
+                count += n;
+            return n;
+        }
+
+        public long skip(long n) throws IOException
+        {
+            long skipped = in.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        long getCount()
+        {
+            return count;
+        }
+    }
 }
@@ -0,0 +1,64 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.thl;
+
+/**
+ * This class defines an acknowledgement sent by a client that uses
+ * credit-based flow control. It tells the server how many event frames the
+ * client has consumed, which returns their bytes to the client's credit, and
+ * the sequence number of the last event the client consumed.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @version 1.0
+ */
+public class ProtocolAck extends ProtocolMessage
+{
+    static final long serialVersionUID = 1L;
+
+    private long      framesConsumed;
+    private long      seqno;
+
+    /**
+     * Creates a new acknowledgement.
+     *
+     * @param framesConsumed Total number of event frames consumed on this
+     *            connection
+     * @param seqno Sequence number of the last event consumed
+     */
+    public ProtocolAck(long framesConsumed, long seqno)
+    {
+        super(null);
+        this.framesConsumed = framesConsumed;
+        this.seqno = seqno;
+    }
+
+    /** Returns the total number of event frames consumed. */
+    public long getFramesConsumed()
+    {
+        return framesConsumed;
+    }
+
+    /** Returns the sequence number of the last event consumed. */
+    public long getSeqno()
+    {
+        return seqno;
+    }
+}
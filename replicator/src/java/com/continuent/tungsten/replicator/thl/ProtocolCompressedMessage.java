@@ -0,0 +1,70 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.thl;
+
+/**
+ * This class defines a compressed frame, which wraps another serialized
+ * protocol message. It is only sent to clients that requested compression
+ * during the handshake.
+ * 
+ * @author <a href="mailto:agent@local">agent</a>
+ * @version 1.0
+ */
+public class ProtocolCompressedMessage extends ProtocolMessage
+{
+    static final long serialVersionUID = 1L;
+
+    private byte      codecId;
+    private int       uncompressedLength;
+
+    /**
+     * Creates a new frame.
+     * 
+     * @param codecId Id of the codec that compressed the data
+     * @param uncompressedLength Length of the serialized message
+     * @param data Compressed serialized message
+     */
+    public ProtocolCompressedMessage(byte codecId, int uncompressedLength,
+            byte[] data)
+    {
+        super(data);
+        this.codecId = codecId;
+        this.uncompressedLength = uncompressedLength;
+    }
+
+    /** Returns the id of the codec that compressed the data. */
+    public byte getCodecId()
+    {
+        return codecId;
+    }
+
+    /** Returns the length of the serialized message. */
+    public int getUncompressedLength()
+    {
+        return uncompressedLength;
+    }
+
+    /** Returns the compressed serialized message. */
+    public byte[] getData()
+    {
+        return (byte[]) getPayload();
+    }
+}
@@ -0,0 +1,199 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.thl;
+
+import org.apache.log4j.Logger;
+
+import com.continuent.tungsten.replicator.thl.compression.CompressionCodec;
+
+/**
+ * Compresses frames sent on a THL connection and decides whether compression
+ * is worth its cost. In adaptive mode the compressor keeps moving averages of
+ * the CPU time to compress a byte, the compression ratio, and the time to
+ * write a byte to the socket. Compression stays on only while the write time
+ * it saves exceeds the time spent compressing, which is the case on
+ * bandwidth-bound links but not on fast ones where writes never block. While
+ * compression is off, every probeInterval-th frame is still compressed to
+ * keep the estimates current.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @version 1.0
+ */
+public class ProtocolCompressor
+{
+    private static Logger          logger        = Logger.getLogger(ProtocolCompressor.class);
+
+    // Frames must shrink at least this much to be worth decompressing.
+    private static final double    MAX_RATIO     = 0.9;
+
+    // Weight of the latest sample in moving averages.
+    private static final double    WEIGHT        = 0.1;
+
+    private final CompressionCodec codec;
+    private final boolean          adaptive;
+    private final int              probeInterval;
+
+    // Moving averages. Start optimistic so the first frames are compressed.
+    private double                 ratio         = 0.5;
+    private double                 compressNanos = 0;
+    private double                 writeNanos    = 0;
+
+    private boolean                active        = true;
+    private int                    framesSinceProbe;
+
+    // Statistics.
+    private long                   framesCompressed;
+    private long                   uncompressedBytes;
+    private long                   compressedBytes;
+
+    /**
+     * Creates a new compressor.
+     *
+     * @param codec Codec to compress frames
+     * @param adaptive If true, turn compression off when it does not pay
+     * @param probeInterval Frames between compression probes while off
+     */
+    public ProtocolCompressor(CompressionCodec codec, boolean adaptive,
+            int probeInterval)
+    {
+        this.codec = codec;
+        this.adaptive = adaptive;
+        this.probeInterval = Math.max(1, probeInterval);
+    }
+
+    /** Returns the codec used to compress frames. */
+    public CompressionCodec getCodec()
+    {
+        return codec;
+    }
+
+    /** Returns true if adaptive selection is enabled. */
+    public boolean isAdaptive()
+    {
+        return adaptive;
+    }
+
+    /** Returns true if frames are currently being compressed. */
+    public synchronized boolean isActive()
+    {
+        return active;
+    }
+
+    /**
+     * Returns true if the next frame should be compressed.
+     */
+    public synchronized boolean shouldCompress()
+    {
+        if (active)
+            return true;
+        if (++framesSinceProbe >= probeInterval)
+        {
+            framesSinceProbe = 0;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Compresses a serialized frame.
+     *
+     * @return Compressed bytes, or null if compression does not shrink the
+     *         frame enough to be worth sending
+     */
+    public byte[] compress(byte[] data, int offset, int length)
+    {
+        long start = System.nanoTime();
+        byte[] compressed = codec.compress(data, offset, length);
+        long elapsed = System.nanoTime() - start;
+
+        synchronized (this)
+        {
+            if (length > 0)
+            {
+                compressNanos = average(compressNanos, (double) elapsed
+                        / length);
+                ratio = average(ratio, (double) compressed.length / length);
+            }
+            if (compressed.length >= length * MAX_RATIO)
+                return null;
+            framesCompressed++;
+            uncompressedBytes += length;
+            compressedBytes += compressed.length;
+            return compressed;
+        }
+    }
+
+    /**
+     * Records the time to write a frame to the socket and updates the decision
+     * whether to compress.
+     *
+     * @param bytes Number of bytes written
+     * @param nanos Time to write and flush the bytes
+     */
+    public synchronized void written(long bytes, long nanos)
+    {
+        if (bytes <= 0)
+            return;
+        writeNanos = average(writeNanos, (double) nanos / bytes);
+        if (!adaptive)
+            return;
+
+        // Compressing saves (1 - ratio) of the write time per byte and
+        // costs the compression time per byte.
+        boolean pays = ratio < MAX_RATIO
+                && compressNanos < writeNanos * (1 - ratio);
+        if (pays != active)
+        {
+            active = pays;
+            framesSinceProbe = 0;
+            if (logger.isDebugEnabled())
+                logger.debug(String.format(
+                        "THL compression %s: ratio=%.2f compressNanosPerByte=%.2f writeNanosPerByte=%.2f",
+                        active ? "enabled" : "disabled", ratio, compressNanos,
+                        writeNanos));
+        }
+    }
+
+    /** Returns the number of frames sent compressed. */
+    public synchronized long getFramesCompressed()
+    {
+        return framesCompressed;
+    }
+
+    /**
+     * Returns uncompressed bytes divided by compressed bytes for frames sent
+     * compressed, or 1.0 if none were.
+     */
+    public synchronized double getCompressionRatio()
+    {
+        if (compressedBytes == 0)
+            return 1.0;
+        return (double) uncompressedBytes / compressedBytes;
+    }
+
+    // Updates an exponential moving average.
+    private static double average(double current, double sample)
+    {
+        if (current == 0)
+            return sample;
+        return current + WEIGHT * (sample - current);
+    }
+}
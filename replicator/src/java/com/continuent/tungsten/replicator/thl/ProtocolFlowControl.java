@@ -0,0 +1,164 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.thl;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+
+/**
+ * Tracks the credit of a client that uses credit-based flow control. The
+ * client advertises how many bytes of event frames it is willing to buffer.
+ * The server records the size of each event frame it sends and may keep
+ * sending while the unacknowledged bytes are below the credit, so a link is
+ * kept full without waiting for a round trip per request. Acknowledgements
+ * from the client return the bytes of consumed frames to the credit. A single
+ * frame may take the unacknowledged bytes over the credit so that frames
+ * larger than the credit can still be sent.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @version 1.0
+ */
+public class ProtocolFlowControl
+{
+    private final long              credit;
+
+    // Sizes of frames sent but not yet acknowledged, oldest first.
+    private final ArrayDeque<Long>  unackedFrames = new ArrayDeque<Long>();
+    private long                    unackedBytes;
+    private long                    framesSent;
+    private long                    framesAcked;
+    private long                    ackedSeqno    = -1;
+    private long                    creditWaits;
+
+    // Set when acknowledgements can no longer arrive.
+    private IOException             failure;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param credit Number of bytes the client is willing to buffer
+     */
+    public ProtocolFlowControl(long credit)
+    {
+        this.credit = credit;
+    }
+
+    /** Returns the number of bytes the client is willing to buffer. */
+    public long getCredit()
+    {
+        return credit;
+    }
+
+    /**
+     * Waits until the client has credit for another frame.
+     *
+     * @param timeoutMillis Maximum time to wait
+     * @return True if there is credit, false if the wait timed out
+     * @throws IOException Thrown if acknowledgements can no longer arrive
+     * @throws InterruptedException Thrown if interrupted while waiting
+     */
+    public synchronized boolean awaitCredit(long timeoutMillis)
+            throws IOException, InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        boolean waited = false;
+        while (unackedBytes >= credit && failure == null)
+        {
+            if (!waited)
+            {
+                creditWaits++;
+                waited = true;
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0)
+                return false;
+            wait(remaining);
+        }
+        if (failure != null)
+            throw new IOException("Client acknowledgements stopped: "
+                    + failure.getMessage(), failure);
+        return true;
+    }
+
+    /**
+     * Records an event frame sent to the client.
+     *
+     * @param bytes Size of the frame on the wire
+     */
+    public synchronized void sent(long bytes)
+    {
+        unackedFrames.addLast(bytes);
+        unackedBytes += bytes;
+        framesSent++;
+    }
+
+    /**
+     * Records an acknowledgement from the client and wakes the sender.
+     *
+     * @param framesConsumed Total number of frames the client has consumed
+     * @param seqno Sequence number of the last event the client consumed
+     * @throws THLException Thrown if the client acknowledges frames that were
+     *             not sent
+     */
+    public synchronized void acknowledged(long framesConsumed, long seqno)
+            throws THLException
+    {
+        if (framesConsumed > framesSent)
+            throw new THLException(
+                    "Client acknowledged more frames than were sent: acknowledged="
+                            + framesConsumed + " sent=" + framesSent);
+        while (framesAcked < framesConsumed)
+        {
+            unackedBytes -= unackedFrames.removeFirst();
+            framesAcked++;
+        }
+        ackedSeqno = seqno;
+        notifyAll();
+    }
+
+    /**
+     * Records that acknowledgements can no longer arrive, which fails the
+     * sender's next wait for credit.
+     */
+    public synchronized void failed(IOException e)
+    {
+        failure = e;
+        notifyAll();
+    }
+
+    /** Returns the bytes sent and not yet acknowledged. */
+    public synchronized long getUnackedBytes()
+    {
+        return unackedBytes;
+    }
+
+    /** Returns the last sequence number acknowledged by the client. */
+    public synchronized long getAckedSeqno()
+    {
+        return ackedSeqno;
+    }
+
+    /** Returns the number of times the sender had to wait for credit. */
+    public synchronized long getCreditWaits()
+    {
+        return creditWaits;
+    }
+}
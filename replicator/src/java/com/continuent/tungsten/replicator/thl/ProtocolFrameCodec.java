@@ -0,0 +1,307 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.thl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+
+import com.continuent.tungsten.replicator.ReplicatorException;
+import com.continuent.tungsten.replicator.event.ReplDBMSEvent;
+import com.continuent.tungsten.replicator.event.ReplEvent;
+import com.continuent.tungsten.replicator.thl.serializer.ProtobufSerializer;
+
+/**
+ * Encodes protocol messages as compact binary frames for peers that negotiate
+ * binary framing during the handshake. A frame is a type byte followed by the
+ * fields of the message. Events are encoded with the protobuf serializer used
+ * by the log, so they carry the same data as events stored on disk. Messages
+ * this class cannot encode are sent as Java-serialized objects behind an
+ * {@link #OBJECT} type byte.
+ * <p>
+ * Buffers are reused between frames, so each direction of a connection must
+ * use its own instance.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @version 1.0
+ */
+public class ProtocolFrameCodec
+{
+    /** A Java-serialized message follows. */
+    public static final byte           OBJECT     = 0;
+
+    /** Heartbeat with no fields. */
+    public static final byte           HEARTBEAT  = 1;
+
+    /** A single event: length and protobuf bytes. */
+    public static final byte           EVENT      = 2;
+
+    /** A batch of events: count, then length and bytes of each event. */
+    public static final byte           EVENTS     = 3;
+
+    /** Event request: seqno and prefetch range. */
+    public static final byte           REQUEST    = 4;
+
+    /** Flow control acknowledgement: frames consumed and seqno. */
+    public static final byte           ACK        = 5;
+
+    /** Error message: length and UTF-8 bytes. */
+    public static final byte           NOK        = 6;
+
+    /**
+     * Compressed frame: codec id, uncompressed length, compressed length and
+     * compressed bytes of another frame.
+     */
+    public static final byte           COMPRESSED = 7;
+
+    private static final Charset       UTF8       = Charset.forName("UTF-8");
+
+    // Frames are buffered up to this size between uses.
+    private static final int           MAX_RETAINED_BUFFER = 1048576;
+
+    private final ProtobufSerializer   serializer = new ProtobufSerializer();
+    private FrameBuffer                eventBuffer = new FrameBuffer();
+    private FrameBuffer                frameBuffer;
+    private DataOutputStream           frameOut;
+    private byte[]                     readBuffer  = new byte[8192];
+
+    /**
+     * Returns true if a message can be encoded as a binary frame.
+     */
+    public static boolean canEncode(ProtocolMessage msg)
+    {
+        if (msg instanceof ProtocolHeartbeat
+                || msg instanceof ProtocolReplEventRequest
+                || msg instanceof ProtocolAck)
+            return true;
+        else if (msg instanceof ProtocolNOK)
+            return msg.getPayload() instanceof String;
+        else if (msg instanceof ProtocolReplEvent)
+            return ((ProtocolReplEvent) msg).getReplEvent() instanceof ReplDBMSEvent;
+        else if (msg.getClass() == ProtocolMessage.class
+                && msg.getPayload() instanceof ArrayList<?>)
+        {
+            for (Object event : (ArrayList<?>) msg.getPayload())
+            {
+                if (!(event instanceof ReplDBMSEvent))
+                    return false;
+            }
+            return true;
+        }
+        else
+            return false;
+    }
+
+    /**
+     * Writes a message as a binary frame.
+     *
+     * @param msg Message, which must be one for which
+     *            {@link #canEncode(ProtocolMessage)} is true
+     * @param out Stream to write the frame to
+     */
+    public void encode(ProtocolMessage msg, DataOutput out) throws IOException
+    {
+        if (msg instanceof ProtocolHeartbeat)
+        {
+            out.writeByte(HEARTBEAT);
+        }
+        else if (msg instanceof ProtocolReplEventRequest)
+        {
+            ProtocolReplEventRequest request = (ProtocolReplEventRequest) msg;
+            out.writeByte(REQUEST);
+            out.writeLong(request.getSeqNo());
+            out.writeLong(request.getPrefetchRange());
+        }
+        else if (msg instanceof ProtocolAck)
+        {
+            ProtocolAck ack = (ProtocolAck) msg;
+            out.writeByte(ACK);
+            out.writeLong(ack.getFramesConsumed());
+            out.writeLong(ack.getSeqno());
+        }
+        else if (msg instanceof ProtocolNOK)
+        {
+            byte[] message = ((String) msg.getPayload()).getBytes(UTF8);
+            out.writeByte(NOK);
+            out.writeInt(message.length);
+            out.write(message);
+        }
+        else if (msg instanceof ProtocolReplEvent)
+        {
+            out.writeByte(EVENT);
+            writeEvent((ReplDBMSEvent) ((ProtocolReplEvent) msg).getReplEvent(),
+                    out);
+        }
+        else
+        {
+            ArrayList<?> events = (ArrayList<?>) msg.getPayload();
+            out.writeByte(EVENTS);
+            out.writeInt(events.size());
+            for (Object event : events)
+                writeEvent((ReplDBMSEvent) event, out);
+        }
+    }
+
+    /**
+     * Encodes a message into a buffer owned by this codec, for example to
+     * compress it.
+     *
+     * @return Buffer holding the frame, which is valid until the next call
+     */
+    public FrameBuffer encode(ProtocolMessage msg) throws IOException
+    {
+        if (frameBuffer == null)
+        {
+            frameBuffer = new FrameBuffer();
+            frameOut = new DataOutputStream(frameBuffer);
+        }
+        frameBuffer.reset();
+        encode(msg, frameOut);
+        frameOut.flush();
+        return frameBuffer;
+    }
+
+    /**
+     * Releases a large frame buffer so that one large frame does not pin
+     * memory for the life of the connection.
+     */
+    public void trimBuffers()
+    {
+        if (frameBuffer != null
+                && frameBuffer.getBuffer().length > MAX_RETAINED_BUFFER)
+        {
+            frameBuffer = null;
+            frameOut = null;
+        }
+        if (eventBuffer.getBuffer().length > MAX_RETAINED_BUFFER)
+            eventBuffer = new FrameBuffer();
+        if (readBuffer.length > MAX_RETAINED_BUFFER)
+            readBuffer = new byte[8192];
+    }
+
+    // Writes the length and protobuf bytes of an event.
+    private void writeEvent(ReplDBMSEvent event, DataOutput out)
+            throws IOException
+    {
+        eventBuffer.reset();
+        serializer.serializeEvent(new THLEvent(event.getEventId(), event),
+                eventBuffer);
+        out.writeInt(eventBuffer.size());
+        out.write(eventBuffer.getBuffer(), 0, eventBuffer.size());
+    }
+
+    /**
+     * Reads the fields of a binary frame whose type byte has been read.
+     *
+     * @param type Type byte of the frame, which must not be {@link #OBJECT}
+     *            or {@link #COMPRESSED}
+     * @param in Stream positioned after the type byte
+     * @return The decoded message
+     * @throws THLException Thrown if the frame type is unknown
+     */
+    public ProtocolMessage decode(byte type, DataInput in) throws IOException,
+            ReplicatorException
+    {
+        switch (type)
+        {
+            case HEARTBEAT :
+                return new ProtocolHeartbeat();
+            case REQUEST :
+                return new ProtocolReplEventRequest(in.readLong(),
+                        in.readLong());
+            case ACK :
+                return new ProtocolAck(in.readLong(), in.readLong());
+            case NOK :
+                byte[] message = new byte[readLength(in)];
+                in.readFully(message);
+                return new ProtocolNOK(new String(message, UTF8));
+            case EVENT :
+                return new ProtocolReplEvent(readEvent(in));
+            case EVENTS :
+                int count = in.readInt();
+                ArrayList<ReplEvent> events = new ArrayList<ReplEvent>(count);
+                for (int i = 0; i < count; i++)
+                    events.add(readEvent(in));
+                return new ProtocolMessage(events);
+            default :
+                throw new THLException("Protocol error; unknown frame type: "
+                        + type);
+        }
+    }
+
+    /**
+     * Decodes a frame held in a byte array, such as a decompressed frame.
+     */
+    public ProtocolMessage decode(byte[] frame) throws IOException,
+            ReplicatorException
+    {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+                frame));
+        return decode(in.readByte(), in);
+    }
+
+    // Reads the length and protobuf bytes of an event.
+    private ReplEvent readEvent(DataInput in) throws IOException,
+            ReplicatorException
+    {
+        int length = readLength(in);
+        if (readBuffer.length < length)
+            readBuffer = new byte[Math.max(length, readBuffer.length * 2)];
+        in.readFully(readBuffer, 0, length);
+        THLEvent event = serializer.deserializeEvent(new ByteArrayInputStream(
+                readBuffer, 0, length));
+        return event.getReplEvent();
+    }
+
+    // Reads a length field and checks that it is valid.
+    private static int readLength(DataInput in) throws IOException,
+            THLException
+    {
+        int length = in.readInt();
+        if (length < 0)
+            throw new THLException("Protocol error; invalid frame length: "
+                    + length);
+        return length;
+    }
+
+    /**
+     * Byte array output stream that exposes its buffer to avoid a copy.
+     */
+    public static class FrameBuffer extends ByteArrayOutputStream
+    {
+        FrameBuffer()
+        {
+            super(8192);
+        }
+
+        /** Returns the buffer, which holds size() valid bytes. */
+        public byte[] getBuffer()
+        {
+            return buf;
+        }
+    }
+}
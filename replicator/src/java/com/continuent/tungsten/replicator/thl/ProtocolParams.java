@@ -47,4 +47,29 @@ public class ProtocolParams
 
     /** Client's RMI port. **/
     public static final String RMI_PORT = "rmiPort";
+
+    /**
+     * Codec the client asks the server to compress events with. Must be one
+     * of the codecs the server offers in its handshake.
+     */
+    public static final String COMPRESSION = "compression";
+
+    /**
+     * If true, the server may turn compression off while it does not pay.
+     */
+    public static final String COMPRESSION_ADAPTIVE = "compressionAdaptive";
+
+    /**
+     * Number of bytes of event frames the client is willing to buffer. If the
+     * server offers flow control, it streams events within this credit and
+     * the client acknowledges the frames it consumes.
+     */
+    public static final String CREDIT_BYTES = "creditBytes";
+
+    /**
+     * Set to "binary" if the client asks the server to exchange binary frames
+     * after the handshake instead of Java-serialized messages. Must be
+     * offered by the server in its handshake.
+     */
+    public static final String FRAMING = "framing";
 }
\ No newline at end of file
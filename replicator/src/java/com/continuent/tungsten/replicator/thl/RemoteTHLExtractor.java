@@ -28,6 +28,7 @@ import java.util.List;
 import org.apache.log4j.Logger;
 
 import com.continuent.tungsten.common.cluster.resource.OpenReplicatorParams;
+import com.continuent.tungsten.common.config.TungstenProperties;
 import com.continuent.tungsten.common.config.cluster.ConfigurationException;
 import com.continuent.tungsten.common.security.AuthenticationInfo;
 import com.continuent.tungsten.common.security.PasswordManager;
@@ -37,6 +38,7 @@ import com.continuent.tungsten.replicator.InSequenceNotification;
 import com.continuent.tungsten.replicator.OutOfSequenceNotification;
 import com.continuent.tungsten.replicator.ReplicatorException;
 import com.continuent.tungsten.replicator.conf.ReplicatorConf;
+import com.continuent.tungsten.replicator.event.EventLineage;
 import com.continuent.tungsten.replicator.event.ReplDBMSEvent;
 import com.continuent.tungsten.replicator.event.ReplDBMSFilteredEvent;
 import com.continuent.tungsten.replicator.event.ReplDBMSHeader;
@@ -82,6 +84,9 @@ public class RemoteTHLExtractor implements Extractor, ShutdownHook
 
     private ReplEvent pendingEvent;
 
+    // If true, stamp events with the time they are received.
+    private boolean lineage = false;
+
     // Remote password, which is set if we detect authentication will
     // be required due to use of encryption.
     private String remotePassword;
@@ -268,6 +273,9 @@ public class RemoteTHLExtractor implements Extractor, ShutdownHook
                         continue;
                     else
                     {
+                        if (lineage && replEvent instanceof ReplDBMSEvent)
+                            EventLineage.stamp((ReplDBMSEvent) replEvent,
+                                    EventLineage.RECEIVED);
                         if (fragmentedTx)
                         {
                             // In the middle of a fragmented transaction, skip
@@ -363,6 +371,18 @@ public class RemoteTHLExtractor implements Extractor, ShutdownHook
 
     }
 
+    /**
+     * Returns statistics for the current connection to the master, including
+     * bytes on the wire and compression ratio, or empty properties if we are
+     * not connected.
+     */
+    public synchronized TungstenProperties getStatistics()
+    {
+        if (conn == null)
+            return new TungstenProperties();
+        return conn.getStatistics();
+    }
+
     /** Does not make sense for this extractor type. */
     public String getCurrentResourceEventId()
             throws ReplicatorException, InterruptedException
@@ -404,6 +424,7 @@ public class RemoteTHLExtractor implements Extractor, ShutdownHook
     {
         // Store context for later.
         this.pluginContext = context;
+        this.lineage = EventLineage.isEnabled(context);
 
         // Set the connect URI to a default if not already set.
         if (this.uriList == null || this.uriList.size() == 0)
@@ -79,6 +79,7 @@ public class Server implements Runnable
     private volatile boolean                      stopped     = false;
     private String                                storeName;
     private PasswordManager                       passwordManager;
+    private LogTailCache                          tailCache;
 
     /**
      * Creates a new <code>Server</code> object
@@ -295,6 +296,13 @@ public class Server implements Runnable
                 "Opened socket: host=" + socketService.getAddress() + " port="
                         + socketService.getLocalPort() + " useSSL=" + useSSL);
 
+        // Start the shared reader for clients at the tail of the log.
+        if (thl.getTailCacheSize() > 0)
+        {
+            tailCache = new LogTailCache(thl, thl.getTailCacheSize());
+            tailCache.start();
+        }
+
         thd = new Thread(this,
                 "THL Server [" + storeName + ":" + host + ":" + port + "]");
         thd.start();
@@ -323,6 +331,19 @@ public class Server implements Runnable
                 throw e;
             }
         }
+        if (tailCache != null)
+        {
+            tailCache.stop();
+            tailCache = null;
+        }
+    }
+
+    /**
+     * Returns the shared reader of the log tail or null if it is disabled.
+     */
+    public LogTailCache getTailCache()
+    {
+        return tailCache;
     }
 
     /**
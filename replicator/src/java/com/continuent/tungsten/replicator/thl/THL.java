@@ -43,6 +43,7 @@ import com.continuent.tungsten.replicator.event.ReplDBMSHeaderData;
 import com.continuent.tungsten.replicator.event.ReplEvent;
 import com.continuent.tungsten.replicator.plugin.PluginContext;
 import com.continuent.tungsten.replicator.storage.Store;
+import com.continuent.tungsten.replicator.thl.compression.CompressionCodecs;
 import com.continuent.tungsten.replicator.thl.log.DiskLog;
 import com.continuent.tungsten.replicator.thl.log.LogConnection;
 import com.continuent.tungsten.replicator.thl.serializer.ProtobufSerializer;
@@ -83,6 +84,12 @@ public class THL implements Store
     /** Store and compare checksum values on the log. */
     private boolean doChecksum = true;
 
+    /** Codec used to compress events in the log, or "none". */
+    protected String compression = CompressionCodecs.NONE;
+
+    /** Minimum size in bytes of a serialized event to compress. */
+    protected int compressionThreshold = 256;
+
     /** Name of the class used to serialize events. */
     protected String eventSerializerClass = ProtobufSerializer.class.getName();
 
@@ -95,6 +102,9 @@ public class THL implements Store
     /** Idle log Connection timeout in seconds. */
     protected int logConnectionTimeout = 28800;
 
+    /** Number of events at the tail of the log shared by THL clients. */
+    protected int tailCacheSize = 512;
+
     /** I/O buffer size in bytes. */
     protected int bufferSize = 131072;
 
@@ -209,6 +219,49 @@ public class THL implements Store
         this.doChecksum = doChecksum;
     }
 
+    /**
+     * Returns the number of events at the tail of the log that are read once
+     * and shared by THL clients, or 0 if each client reads the log itself.
+     */
+    public int getTailCacheSize()
+    {
+        return tailCacheSize;
+    }
+
+    /**
+     * Sets the number of events at the tail of the log that are read once and
+     * shared by THL clients. 0 disables sharing.
+     */
+    public void setTailCacheSize(int tailCacheSize)
+    {
+        this.tailCacheSize = tailCacheSize;
+    }
+
+    /**
+     * Sets the codec used to compress log records: lzf, deflate, a codec class
+     * name, or none.
+     */
+    public void setCompression(String compression)
+    {
+        this.compression = compression;
+    }
+
+    /**
+     * Sets the minimum size in bytes of a serialized event to compress.
+     */
+    public void setCompressionThreshold(int compressionThreshold)
+    {
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    /**
+     * Returns the event serializer name.
+     */
+    public String getEventSerializer()
+    {
+        return eventSerializer;
+    }
+
     /**
      * Sets the event serializer name.
      */
@@ -386,6 +439,8 @@ public class THL implements Store
         diskLog = new DiskLog();
         diskLog.setDoChecksum(doChecksum || context.isDoChecksum());
         diskLog.setEventSerializerClass(eventSerializer);
+        diskLog.setCompression(compression);
+        diskLog.setCompressionThreshold(compressionThreshold);
         diskLog.setLogDir(logDir);
         diskLog.setLogFileSize(logFileSize);
         diskLog.setLogFileRetainMillis(logFileRetainMillis);
@@ -738,6 +793,7 @@ public class THL implements Store
         props.setLong(Replicator.MAX_STORED_SEQNO, getMaxStoredSeqno());
         props.setLong("activeSeqno", diskLog.getActiveSeqno());
         props.setBoolean("doChecksum", doChecksum);
+        props.setString("compression", compression);
         props.setString("logDir", logDir);
         props.setInt("logFileSize", logFileSize);
         props.setLong("logFileRetainMillis", logFileRetainMillis);
@@ -748,6 +804,8 @@ public class THL implements Store
         props.setLong("timeoutMillis", diskLog.getTimeoutMillis());
         props.setLong("logConnectionTimeout", logConnectionTimeout);
         props.setBoolean("readOnly", readOnly);
+        props.setLong("bytesWritten", diskLog.getBytesWritten());
+        props.setLong("bytesRead", diskLog.getBytesRead());
 
         return props;
     }
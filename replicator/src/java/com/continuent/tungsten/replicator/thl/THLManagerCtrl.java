@@ -29,6 +29,7 @@ import java.nio.charset.Charset;
 import java.sql.Timestamp;
 import java.sql.Types;
 import java.text.DateFormat;
+import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.List;
@@ -56,8 +57,11 @@ import com.continuent.tungsten.replicator.event.ReplEvent;
 import com.continuent.tungsten.replicator.event.ReplOption;
 import com.continuent.tungsten.replicator.thl.log.DiskLog;
 import com.continuent.tungsten.replicator.thl.log.LogConnection;
-import com.continuent.tungsten.replicator.thl.log.LogEventReadFilter;
 import com.continuent.tungsten.replicator.thl.log.LogEventReplReader;
+import com.continuent.tungsten.replicator.thl.log.LogFile;
+import com.continuent.tungsten.replicator.thl.log.LogRecord;
+import com.continuent.tungsten.replicator.thl.log.LogScanFilter;
+import com.continuent.tungsten.replicator.thl.log.LogScanner;
 
 /**
  * This class defines a THLManagerCtrl that implements a utility to access
@@ -90,6 +94,8 @@ public class THLManagerCtrl
     private boolean               doChecksum;
     private String                logDir;
     private DiskLog               diskLog;
+    private int                   scanThreads        = 0;
+    private boolean               useIndex           = true;
 
     protected static SQLTypes     sqlTypes           = new SQLTypes();
 
@@ -112,6 +118,23 @@ public class THLManagerCtrl
         this.doChecksum = doChecksum;
     }
 
+    /**
+     * Sets the number of log files to scan in parallel. 0 selects a default
+     * based on the number of processors.
+     */
+    public void setScanThreads(int scanThreads)
+    {
+        this.scanThreads = scanThreads;
+    }
+
+    /**
+     * If false, ignore log file summaries when scanning the log.
+     */
+    public void setUseIndex(boolean useIndex)
+    {
+        this.useIndex = useIndex;
+    }
+
     /**
      * Reads the replicator.properties.
      */
@@ -215,8 +238,58 @@ public class THLManagerCtrl
             newestFile = new File(logDir + File.separator
                     + diskLog.getLastFile());
 
-        return new InfoHolder(logDirName, minSeqno, maxSeqno, maxSeqno
-                - minSeqno, -1, logFiles, oldestFile, newestFile, logsSize);
+        InfoHolder info = new InfoHolder(logDirName, minSeqno, maxSeqno,
+                maxSeqno - minSeqno, -1, logFiles, oldestFile, newestFile,
+                logsSize);
+        if (newestFile != null)
+            scanCompression(newestFile, info);
+        return info;
+    }
+
+    // Sums stored and uncompressed event sizes in a log file. Only headers
+    // are read, so events are neither decompressed nor deserialized.
+    private void scanCompression(File file, InfoHolder info)
+            throws ReplicatorException
+    {
+        LogFile logFile = new LogFile(file);
+        int events = 0;
+        int compressedEvents = 0;
+        long storedBytes = 0;
+        long uncompressedBytes = 0;
+        try
+        {
+            logFile.openRead();
+            LogRecord logRecord;
+            while (!(logRecord = logFile.readRecord(0)).isEmpty()
+                    && !logRecord.isTruncated())
+            {
+                if (logRecord.getRecordType() != LogRecord.EVENT_REPL)
+                    continue;
+                LogEventReplReader reader = new LogEventReplReader(logRecord,
+                        diskLog.getEventSerializer(), false);
+                events++;
+                if (reader.isCompressed())
+                    compressedEvents++;
+                storedBytes += reader.getPayloadLength();
+                uncompressedBytes += reader.getUncompressedLength();
+                reader.done();
+            }
+        }
+        catch (IOException e)
+        {
+            throw new THLException("Unable to scan log file: "
+                    + file.getName(), e);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            logFile.close();
+        }
+        info.setCompressionStats(events, compressedEvents, storedBytes,
+                uncompressedBytes);
     }
 
     /**
@@ -387,6 +460,30 @@ public class THLManagerCtrl
         else
             highIndex = high;
 
+        // Headers are listed with a parallel scan that never deserializes
+        // events.
+        if (headersOnly)
+        {
+            LogScanFilter filter = new LogScanFilter();
+            filter.setLowSeqno(lowIndex);
+            filter.setHighSeqno(highIndex);
+            long found = scanEvents(filter, pureSQL, true, json, charset, hex,
+                    specs);
+            if (!json && found == 0)
+            {
+                if (lowIndex == diskLog.getMinSeqno())
+                    logger.info("No events found; log is empty");
+                else
+                {
+                    logger.error("Unable to find sequence number: "
+                            + lowIndex);
+                    fail();
+                }
+            }
+            release();
+            return;
+        }
+
         // Find low value.
         LogConnection conn = diskLog.connect(true);
         if (!conn.seek(lowIndex))
@@ -407,22 +504,6 @@ public class THLManagerCtrl
         if (json)
             println("[");
 
-        if (headersOnly)
-        {
-            // Add a read filter that will accept only events that are in this
-            // partition. We use an inner class so we can access the partitioner
-            // and task id easily.
-            LogEventReadFilter filter = new LogEventReadFilter()
-            {
-                public boolean accept(LogEventReplReader reader)
-                        throws ReplicatorException
-                {
-                    return false;
-                }
-            };
-            conn.setReadFilter(filter);
-        }
-
         // Iterate until we run out of sequence numbers.
         THLEvent thlEvent = null;
         int found = 0;
@@ -435,38 +516,8 @@ public class THLManagerCtrl
 
             // Print it.
             found++;
-            if (!pureSQL)
-            {
-                StringBuilder sb = new StringBuilder();
-                if (json && found > 1)
-                    sb.append(",\n");
-
-                // Choose appropriate format for the header.
-                int format = 0;
-                if (json)
-                    format = 1;
-                else if (headersOnly && !json)
-                    format = 2;
-                printHeader(sb, thlEvent, format);
-
-                print(sb.toString());
-            }
-            if (!headersOnly)
-            {
-                ReplEvent replEvent = thlEvent.getReplEvent();
-                if (replEvent instanceof ReplDBMSEvent)
-                {
-                    ReplDBMSEvent event = (ReplDBMSEvent) replEvent;
-                    StringBuilder sb = new StringBuilder();
-                    printReplDBMSEvent(sb, event, pureSQL, charset, hex, specs);
-                    print(sb.toString());
-                }
-                else
-                {
-                    println("# " + replEvent.getClass().getName()
-                            + ": not supported.");
-                }
-            }
+            printEvent(thlEvent, found == 1, pureSQL, headersOnly, json,
+                    charset, hex, specs);
         }
 
         if (json)
@@ -495,6 +546,121 @@ public class THLManagerCtrl
         release();
     }
 
+    /**
+     * Searches THL for events that match a filter. Log files are scanned in
+     * parallel, and events that do not match are never deserialized. Log file
+     * summaries built with the index command are used to skip files that
+     * cannot contain a match.
+     * 
+     * @param filter Filter that selects events
+     * @param pureSQL Output events in the pure SQL form if true, formatted form
+     *            otherwise.
+     * @param headersOnly Print only headers
+     * @param json Print headers in JSON format
+     * @param charset character set name to be used to decode byte arrays in row
+     *            replication
+     * @param hex If true print hex representation of strings
+     * @param specs Provide column specifications.
+     * @return Number of matching events
+     */
+    public long searchEvents(LogScanFilter filter, boolean pureSQL,
+            boolean headersOnly, boolean json, String charset, boolean hex,
+            boolean specs) throws ReplicatorException, InterruptedException
+    {
+        prepare(true);
+        long found = scanEvents(filter, pureSQL, headersOnly, json, charset,
+                hex, specs);
+        if (!json && found == 0)
+            logger.info("No matching events found");
+        release();
+        return found;
+    }
+
+    /**
+     * Builds summaries of log files that are used to skip files when
+     * searching the log.
+     * 
+     * @param rebuild If true, rebuild summaries that are still current
+     * @return Number of summaries built
+     */
+    public int buildIndex(boolean rebuild) throws ReplicatorException,
+            InterruptedException
+    {
+        return newScanner().buildSummaries(rebuild);
+    }
+
+    // Prints events selected by a filter using a parallel log scan.
+    private long scanEvents(LogScanFilter filter, final boolean pureSQL,
+            final boolean headersOnly, final boolean json,
+            final String charset, final boolean hex, final boolean specs)
+            throws ReplicatorException, InterruptedException
+    {
+        if (json)
+            println("[");
+        final long[] found = new long[1];
+        newScanner().scan(filter, !headersOnly, new LogScanner.Handler()
+        {
+            public void handle(THLEvent thlEvent)
+            {
+                found[0]++;
+                printEvent(thlEvent, found[0] == 1, pureSQL, headersOnly,
+                        json, charset, hex, specs);
+            }
+        });
+        if (json)
+            println("\n]");
+        return found[0];
+    }
+
+    // Returns a scanner on the open log.
+    private LogScanner newScanner()
+    {
+        LogScanner scanner = new LogScanner(diskLog);
+        if (scanThreads > 0)
+            scanner.setThreads(scanThreads);
+        scanner.setUseSummaries(useIndex);
+        return scanner;
+    }
+
+    // Prints a single event in the selected format.
+    private static void printEvent(THLEvent thlEvent, boolean first,
+            boolean pureSQL, boolean headersOnly, boolean json,
+            String charset, boolean hex, boolean specs)
+    {
+        if (!pureSQL)
+        {
+            StringBuilder sb = new StringBuilder();
+            if (json && !first)
+                sb.append(",\n");
+
+            // Choose appropriate format for the header.
+            int format = 0;
+            if (json)
+                format = 1;
+            else if (headersOnly && !json)
+                format = 2;
+            printHeader(sb, thlEvent, format);
+
+            print(sb.toString());
+        }
+        if (!headersOnly)
+        {
+            ReplEvent replEvent = thlEvent.getReplEvent();
+            if (replEvent instanceof ReplDBMSEvent)
+            {
+                ReplDBMSEvent event = (ReplDBMSEvent) replEvent;
+                StringBuilder sb = new StringBuilder();
+                printReplDBMSEvent(sb, event, pureSQL, charset, hex, specs);
+                print(sb.toString());
+            }
+            else
+            {
+                println("# " + replEvent.getClass().getName()
+                        + ": not supported.");
+            }
+        }
+    }
+
     /**
      * Prints a formatted header into StringBuilder for the given THLEvent.
      * 
@@ -945,6 +1111,13 @@ public class THLManagerCtrl
             String charsetName = null;
             boolean hex = false;
             boolean doChecksum = true;
+            String eventId = null;
+            String shardId = null;
+            String fromTime = null;
+            String toTime = null;
+            int threads = 0;
+            boolean useIndex = true;
+            boolean buildIndex = false;
             TimeZone timezone = TimeZone.getTimeZone("UTC");
 
             // Parse command line arguments.
@@ -1017,6 +1190,20 @@ public class THLManagerCtrl
                 {
                     doChecksum = false;
                 }
+                else if ("-eventid".equals(curArg))
+                    eventId = argvIterator.next();
+                else if ("-shard".equals(curArg))
+                    shardId = argvIterator.next();
+                else if ("-from".equals(curArg))
+                    fromTime = argvIterator.next();
+                else if ("-to".equals(curArg))
+                    toTime = argvIterator.next();
+                else if ("-threads".equals(curArg))
+                    threads = Integer.parseInt(argvIterator.next());
+                else if ("-no-index".equals(curArg))
+                    useIndex = false;
+                else if ("-build".equals(curArg))
+                    buildIndex = true;
                 else if (curArg.startsWith("-"))
                     fatal("Unrecognized option: " + curArg, null);
                 else
@@ -1082,6 +1269,15 @@ public class THLManagerCtrl
                 println("events = " + info.getEventCount());
                 printTHLFileInfo("oldest file", info.getOldestFile());
                 printTHLFileInfo("newest file", info.getNewestFile());
+                if (info.getScannedEvents() > 0)
+                {
+                    println("newest file compressed events = "
+                            + info.getCompressedEvents() + " of "
+                            + info.getScannedEvents());
+                    println(String.format(
+                            "newest file compression ratio = %.2f",
+                            info.getCompressionRatio()));
+                }
 
                 thlManager.release();
             }
@@ -1089,8 +1285,37 @@ public class THLManagerCtrl
             {
                 THLManagerCtrl thlManager = new THLManagerCtrl(configFile,
                         doChecksum);
+                thlManager.setScanThreads(threads);
+                thlManager.setUseIndex(useIndex);
 
-                if (fileName != null)
+                if (eventId != null || shardId != null || fromTime != null
+                        || toTime != null)
+                {
+                    // Search the log, optionally within a seqno range.
+                    LogScanFilter filter = new LogScanFilter();
+                    if (seqno != null)
+                    {
+                        filter.setLowSeqno(seqno);
+                        filter.setHighSeqno(seqno);
+                    }
+                    else
+                    {
+                        if (low != null)
+                            filter.setLowSeqno(low);
+                        if (high != null)
+                            filter.setHighSeqno(high);
+                    }
+                    filter.setEventId(eventId);
+                    filter.setShardId(shardId);
+                    if (fromTime != null)
+                        filter.setFromTstamp(parseTime(fromTime));
+                    if (toTime != null)
+                        filter.setToTstamp(parseTime(toTime));
+                    thlManager.searchEvents(filter, getBoolOrFalse(pureSQL),
+                            getBoolOrFalse(headersOnly), getBoolOrFalse(json),
+                            charsetName, hex, getBoolOrFalse(specs));
+                }
+                else if (fileName != null)
                 {
                     thlManager.listEvents(fileName, getBoolOrFalse(pureSQL),
                             getBoolOrFalse(headersOnly), getBoolOrFalse(json),
@@ -1168,9 +1393,16 @@ public class THLManagerCtrl
             {
                 THLManagerCtrl thlManager = new THLManagerCtrl(configFile,
                         doChecksum);
+                thlManager.setScanThreads(threads);
                 thlManager.prepare(true);
 
-                thlManager.printIndex();
+                if (buildIndex)
+                {
+                    int built = thlManager.buildIndex(false);
+                    println("log files indexed = " + built);
+                }
+                else
+                    thlManager.printIndex();
 
                 thlManager.release();
             }
@@ -1187,6 +1419,25 @@ public class THLManagerCtrl
         }
     }
 
+    /**
+     * Parses a time in the default time zone, which is set by the -timezone
+     * option.
+     */
+    private static long parseTime(String time)
+    {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        format.setLenient(false);
+        try
+        {
+            return format.parse(time).getTime();
+        }
+        catch (ParseException e)
+        {
+            fatal("Invalid time, expected yyyy-MM-dd HH:mm:ss: " + time, null);
+            return 0;
+        }
+    }
+
     /**
      * Converts size in bytes to megabytes.
      */
@@ -1280,38 +1531,8 @@ public class THLManagerCtrl
         boolean first = true;
         while ((thlEvent = conn.next(false)) != null)
         {
-            if (!pureSQL)
-            {
-                StringBuilder sb = new StringBuilder();
-                if (json && !first)
-                    sb.append(",\n");
-
-                // Choose appropriate format for the header.
-                int format = 0;
-                if (json)
-                    format = 1;
-                else if (headersOnly && !json)
-                    format = 2;
-                printHeader(sb, thlEvent, format);
-
-                print(sb.toString());
-            }
-            if (!headersOnly)
-            {
-                ReplEvent replEvent = thlEvent.getReplEvent();
-                if (replEvent instanceof ReplDBMSEvent)
-                {
-                    ReplDBMSEvent event = (ReplDBMSEvent) replEvent;
-                    StringBuilder sb = new StringBuilder();
-                    printReplDBMSEvent(sb, event, pureSQL, charset, hex, specs);
-                    print(sb.toString());
-                }
-                else
-                {
-                    println("# " + replEvent.getClass().getName()
-                            + ": not supported.");
-                }
-            }
+            printEvent(thlEvent, first, pureSQL, headersOnly, json, charset,
+                    hex, specs);
             first = false;
         }
 
@@ -1345,7 +1566,11 @@ public class THLManagerCtrl
         println("       [-json]                      Output in machine-parsable JSON format");
         println("       [-no-checksum]               Suppress checksums");
         println("       [-timezone timezone]         Time used zone for time-related data");
+        println("  list [-eventid <id>] [-shard <id>] - Search THL for events by native event ID,");
+        println("       [-from <time>] [-to <time>]     shard ID or source time (yyyy-MM-dd HH:mm:ss)");
+        println("       [-threads #] [-no-index]     Files to scan in parallel; ignore log index");
         println("  index [-no-checksum]            - Display index of log files");
+        println("  index -build [-threads #]       - Build log index used to speed up searches");
         println("  purge [-low #] [-high #]        - Delete events identified by the given range from THL files");
         println("        [-no-checksum] [-y]         Use -y to suppress prompt");
         println("  info [-no-checksum]             - Display minimum, maximum sequence number");
@@ -1457,6 +1682,10 @@ public class THLManagerCtrl
         private File   oldestFile             = null;
         private File   newestFile             = null;
         private long   logsSize               = -1;
+        private int    scannedEvents          = 0;
+        private int    compressedEvents       = 0;
+        private long   storedBytes            = 0;
+        private long   uncompressedBytes      = 0;
 
         public InfoHolder(String logDir, long minSeqNo, long maxSeqNo,
                 long eventCount, long highestReplicatedEvent, int logFiles,
@@ -1517,5 +1746,48 @@ public class THLManagerCtrl
         {
             return logsSize;
         }
+
+        /**
+         * Sets event sizes found by scanning the newest log file.
+         */
+        public void setCompressionStats(int scannedEvents,
+                int compressedEvents, long storedBytes, long uncompressedBytes)
+        {
+            this.scannedEvents = scannedEvents;
+            this.compressedEvents = compressedEvents;
+            this.storedBytes = storedBytes;
+            this.uncompressedBytes = uncompressedBytes;
+        }
+
+        public int getScannedEvents()
+        {
+            return scannedEvents;
+        }
+
+        public int getCompressedEvents()
+        {
+            return compressedEvents;
+        }
+
+        public long getStoredBytes()
+        {
+            return storedBytes;
+        }
+
+        public long getUncompressedBytes()
+        {
+            return uncompressedBytes;
+        }
+
+        /**
+         * Returns uncompressed bytes divided by stored bytes, which is 1.0 if
+         * nothing is compressed.
+         */
+        public double getCompressionRatio()
+        {
+            if (storedBytes == 0)
+                return 1.0;
+            return (double) uncompressedBytes / storedBytes;
+        }
     }
 }
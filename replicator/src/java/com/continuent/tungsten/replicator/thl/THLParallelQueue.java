@@ -819,6 +819,7 @@ public class THLParallelQueue implements ParallelStore
         for (int i = 0; i < readTasks.size(); i++)
         {
             props.setString("store." + i, readTasks.get(i).toString());
+            props.setInt("store.queueSize." + i, readTasks.get(i).size());
         }
         return props;
     }
@@ -25,6 +25,7 @@ import org.apache.log4j.Logger;
 import com.continuent.tungsten.replicator.ReplicatorException;
 import com.continuent.tungsten.replicator.applier.Applier;
 import com.continuent.tungsten.replicator.applier.ApplierException;
+import com.continuent.tungsten.replicator.event.EventLineage;
 import com.continuent.tungsten.replicator.event.ReplControlEvent;
 import com.continuent.tungsten.replicator.event.ReplDBMSEvent;
 import com.continuent.tungsten.replicator.event.ReplDBMSHeader;
@@ -48,6 +49,7 @@ public class THLStoreApplier implements Applier
     private PluginContext context;
     private LogConnection client;
     private int           nbErrors = 0;
+    private boolean       lineage  = false;
 
     /**
      * Instantiate the adapter.
@@ -86,6 +88,7 @@ public class THLStoreApplier implements Applier
     public void configure(PluginContext context) throws ReplicatorException
     {
         this.context = context;
+        this.lineage = EventLineage.isEnabled(context);
     }
 
     /**
@@ -143,6 +146,9 @@ public class THLStoreApplier implements Applier
             boolean doRollback, boolean syncTHL) throws ReplicatorException,
             InterruptedException
     {
+        // Events keep the stored stamp of the first log they reach.
+        if (lineage && EventLineage.isTraced(event))
+            EventLineage.stampIfAbsent(event, EventLineage.STORED);
         THLEvent thlEvent = new THLEvent(event.getEventId(), event);
         try
         {
@@ -0,0 +1,67 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.thl.compression;
+
+import java.io.IOException;
+
+/**
+ * Denotes a block compression algorithm used to store THL data. Codecs are
+ * identified in stored data by a one-byte id, so the id of a codec must never
+ * change once data have been written with it. Implementations must be thread
+ * safe.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public interface CompressionCodec
+{
+    /**
+     * Returns the id stored with data compressed by this codec.
+     */
+    public byte getId();
+
+    /**
+     * Returns the name used to select this codec in configuration.
+     */
+    public String getName();
+
+    /**
+     * Compresses a block of data.
+     *
+     * @param data Buffer holding the data
+     * @param offset Offset of the data in the buffer
+     * @param length Number of bytes of data
+     * @return Compressed data, which may be larger than the input
+     */
+    public byte[] compress(byte[] data, int offset, int length);
+
+    /**
+     * Decompresses a block of data.
+     *
+     * @param data Buffer holding the compressed data
+     * @param offset Offset of the compressed data in the buffer
+     * @param length Number of bytes of compressed data
+     * @param uncompressedLength Number of bytes the data decompress to
+     * @return Decompressed data
+     * @throws IOException If the data are corrupt
+     */
+    public byte[] decompress(byte[] data, int offset, int length,
+            int uncompressedLength) throws IOException;
+}
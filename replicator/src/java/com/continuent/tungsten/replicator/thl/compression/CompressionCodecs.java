@@ -0,0 +1,127 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.thl.compression;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.continuent.tungsten.replicator.ReplicatorException;
+
+/**
+ * Looks up compression codecs by configuration name or by the id stored with
+ * compressed data. The deflate and lzf codecs are always available. Other
+ * codecs are selected by the name of a class that implements
+ * {@link CompressionCodec} and are registered when first selected, so readers
+ * of their data must select them too.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class CompressionCodecs
+{
+    /** Name that selects no compression. */
+    public static final String                                     NONE   = "none";
+
+    private static final ConcurrentHashMap<String, CompressionCodec> byName = new ConcurrentHashMap<String, CompressionCodec>();
+    private static final CompressionCodec[]                          byId   = new CompressionCodec[256];
+
+    static
+    {
+        for (CompressionCodec codec : new CompressionCodec[]{
+                new DeflateCodec(), new LzfCodec()})
+        {
+            byId[codec.getId() & 0xff] = codec;
+            byName.put(codec.getName(), codec);
+        }
+    }
+
+    /**
+     * Returns the names of the codecs that are always available.
+     */
+    public static String[] getBuiltinNames()
+    {
+        return new String[]{LzfCodec.NAME, DeflateCodec.NAME};
+    }
+
+    /**
+     * Returns the codec with the given name or class name, or null if the name
+     * is null or "none".
+     *
+     * @throws ReplicatorException If the codec cannot be found or loaded
+     */
+    public static CompressionCodec getCodec(String name)
+            throws ReplicatorException
+    {
+        if (name == null || NONE.equals(name.trim()))
+            return null;
+        name = name.trim();
+        CompressionCodec codec = byName.get(name);
+        if (codec != null)
+            return codec;
+
+        try
+        {
+            codec = (CompressionCodec) Class.forName(name).newInstance();
+        }
+        catch (Exception e)
+        {
+            throw new ReplicatorException("Unable to load compression codec: "
+                    + name, e);
+        }
+        register(codec);
+        byName.put(name, codec);
+        return codec;
+    }
+
+    /**
+     * Returns the codec that wrote data with the given id.
+     *
+     * @throws ReplicatorException If no codec with this id is registered
+     */
+    public static CompressionCodec getCodec(byte id)
+            throws ReplicatorException
+    {
+        CompressionCodec codec;
+        synchronized (byId)
+        {
+            codec = byId[id & 0xff];
+        }
+        if (codec == null)
+            throw new ReplicatorException("Unknown compression codec id: " + id);
+        return codec;
+    }
+
+    // Registers a codec, ensuring its id is not used by another codec.
+    private static void register(CompressionCodec codec)
+            throws ReplicatorException
+    {
+        synchronized (byId)
+        {
+            CompressionCodec existing = byId[codec.getId() & 0xff];
+            if (existing == null)
+                byId[codec.getId() & 0xff] = codec;
+            else if (existing.getClass() != codec.getClass())
+                throw new ReplicatorException(
+                        "Compression codec id is already in use: id="
+                                + codec.getId() + " codec="
+                                + existing.getClass().getName());
+        }
+        byName.put(codec.getName(), codec);
+    }
+}
@@ -0,0 +1,230 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.thl.compression;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Compresses data with LZF, a byte-oriented LZ77 variant that is much faster
+ * than deflate at a somewhat lower compression ratio. Data use the block
+ * format of liblzf: a control byte below 32 starts a run of up to 32 literal
+ * bytes, while any other control byte is a back reference of 3 to 264 bytes
+ * up to 8 KB behind the current position.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class LzfCodec implements CompressionCodec
+{
+    /** Id stored with LZF-compressed data. */
+    public static final byte    ID          = 0x02;
+
+    /** Name of this codec in configuration. */
+    public static final String  NAME        = "lzf";
+
+    private static final int    HASH_BITS   = 14;
+    private static final int    MAX_LITERAL = 32;
+    private static final int    MAX_OFFSET  = 8192;
+    private static final int    MAX_REF     = 264;
+
+    // Hash table of recent positions, reused by each thread. Stale entries
+    // from earlier calls are harmless because every match is compared.
+    private static final ThreadLocal<int[]> hashTable = new ThreadLocal<int[]>()
+    {
+        protected int[] initialValue()
+        {
+            return new int[1 << HASH_BITS];
+        }
+    };
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see com.continuent.tungsten.replicator.thl.compression.CompressionCodec#getId()
+     */
+    public byte getId()
+    {
+        return ID;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see com.continuent.tungsten.replicator.thl.compression.CompressionCodec#getName()
+     */
+    public String getName()
+    {
+        return NAME;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see com.continuent.tungsten.replicator.thl.compression.CompressionCodec#compress(byte[],
+     *      int, int)
+     */
+    public byte[] compress(byte[] data, int offset, int length)
+    {
+        int[] table = hashTable.get();
+        byte[] out = new byte[length + (length >>> 5) + 16];
+        int end = offset + length;
+        int in = offset;
+
+        // Each literal run is preceded by a control byte that is filled in
+        // once the run ends.
+        int op = 1;
+        int literals = 0;
+        while (in < end - 2)
+        {
+            int h = hash(data, in);
+            int ref = table[h];
+            table[h] = in;
+
+            if (ref >= offset && ref < in && in - ref <= MAX_OFFSET
+                    && data[ref] == data[in] && data[ref + 1] == data[in + 1]
+                    && data[ref + 2] == data[in + 2])
+            {
+                // Extend the match as far as possible.
+                int maxLength = Math.min(MAX_REF, end - in);
+                int len = 3;
+                while (len < maxLength && data[ref + len] == data[in + len])
+                    len++;
+
+                // Close the literal run, or drop its unused control byte.
+                if (literals > 0)
+                    out[op - literals - 1] = (byte) (literals - 1);
+                else
+                    op--;
+
+                int distance = in - ref - 1;
+                int code = len - 2;
+                if (code < 7)
+                    out[op++] = (byte) ((code << 5) + (distance >>> 8));
+                else
+                {
+                    out[op++] = (byte) ((7 << 5) + (distance >>> 8));
+                    out[op++] = (byte) (code - 7);
+                }
+                out[op++] = (byte) distance;
+
+                // Index the end of the match so that runs are found again.
+                in += len;
+                if (in < end - 2)
+                    table[hash(data, in - 1)] = in - 1;
+                literals = 0;
+                op++;
+            }
+            else
+            {
+                out[op++] = data[in++];
+                if (++literals == MAX_LITERAL)
+                {
+                    out[op - literals - 1] = (byte) (literals - 1);
+                    literals = 0;
+                    op++;
+                }
+            }
+        }
+
+        // Copy the last bytes as literals.
+        while (in < end)
+        {
+            out[op++] = data[in++];
+            if (++literals == MAX_LITERAL)
+            {
+                out[op - literals - 1] = (byte) (literals - 1);
+                literals = 0;
+                op++;
+            }
+        }
+        if (literals > 0)
+            out[op - literals - 1] = (byte) (literals - 1);
+        else
+            op--;
+        return Arrays.copyOf(out, op);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see com.continuent.tungsten.replicator.thl.compression.CompressionCodec#decompress(byte[],
+     *      int, int, int)
+     */
+    public byte[] decompress(byte[] data, int offset, int length,
+            int uncompressedLength) throws IOException
+    {
+        byte[] out = new byte[uncompressedLength];
+        int end = offset + length;
+        int in = offset;
+        int op = 0;
+        while (in < end)
+        {
+            int control = data[in++] & 0xff;
+            if (control < MAX_LITERAL)
+            {
+                int len = control + 1;
+                if (in + len > end || op + len > uncompressedLength)
+                    throw new IOException("Corrupt LZF data: literal run of "
+                            + len + " bytes at offset " + (in - offset - 1));
+                System.arraycopy(data, in, out, op, len);
+                in += len;
+                op += len;
+            }
+            else
+            {
+                int len = control >>> 5;
+                if (len == 7)
+                {
+                    if (in >= end)
+                        throw new IOException(
+                                "Corrupt LZF data: truncated back reference");
+                    len += data[in++] & 0xff;
+                }
+                if (in >= end)
+                    throw new IOException(
+                            "Corrupt LZF data: truncated back reference");
+                int ref = op - ((control & 0x1f) << 8) - (data[in++] & 0xff)
+                        - 1;
+                len += 2;
+                if (ref < 0 || op + len > uncompressedLength)
+                    throw new IOException(
+                            "Corrupt LZF data: invalid back reference at offset "
+                                    + (in - offset));
+
+                // Copy byte by byte because the reference may overlap.
+                for (int i = 0; i < len; i++)
+                    out[op++] = out[ref++];
+            }
+        }
+        if (op != uncompressedLength)
+            throw new IOException("Corrupt LZF data: expected length="
+                    + uncompressedLength + " actual length=" + op);
+        return out;
+    }
+
+    // Hashes the three bytes at a position.
+    private static int hash(byte[] data, int pos)
+    {
+        int v = ((data[pos] & 0xff) << 16) | ((data[pos + 1] & 0xff) << 8)
+                | (data[pos + 2] & 0xff);
+        return (v * 0x9E3779B1) >>> (32 - HASH_BITS);
+    }
+}
@@ -23,11 +23,15 @@ package com.continuent.tungsten.replicator.thl.log;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.log4j.Logger;
 
 import com.continuent.tungsten.replicator.ReplicatorException;
 import com.continuent.tungsten.replicator.thl.THLException;
+import com.continuent.tungsten.replicator.thl.compression.CompressionCodec;
+import com.continuent.tungsten.replicator.thl.compression.CompressionCodecs;
 import com.continuent.tungsten.replicator.thl.serializer.ProtobufSerializer;
 import com.continuent.tungsten.replicator.thl.serializer.Serializer;
 
@@ -71,6 +75,19 @@ public class DiskLog
     protected String             eventSerializerClass       = ProtobufSerializer.class
                                                                     .getName();
 
+    /**
+     * Name or class name of the codec used to compress events in the log, or
+     * "none" to write events uncompressed. Records always carry their own
+     * compression flag, so this may be changed at any time.
+     */
+    protected String             compression                = CompressionCodecs.NONE;
+
+    /** Minimum size in bytes of a serialized event to compress. */
+    protected int                compressionThreshold       = 256;
+
+    /** Codec used to compress events, or null if compression is off. */
+    private CompressionCodec     compressionCodec;
+
     /** Log file maximum size in bytes. */
     protected int                logFileSize                = 1000000000;
 
@@ -117,6 +134,10 @@ public class DiskLog
      * Log flush task; enabled if asynchronous flush interval is greater than 0.
      */
     private LogFlushTask         logSyncTask;
+
+    // Bytes of log records written and read by connections.
+    private final AtomicLong     bytesWritten               = new AtomicLong();
+    private final AtomicLong     bytesRead                  = new AtomicLong();
     private Thread               logSyncThread;
 
     /**
@@ -195,6 +216,49 @@ public class DiskLog
         return this.doChecksum;
     }
 
+    /**
+     * Sets the codec used to compress events written to the log.
+     * 
+     * @param compression Codec name (lzf or deflate), codec class name, or
+     *            none
+     */
+    public void setCompression(String compression)
+    {
+        this.compression = compression;
+    }
+
+    /**
+     * Returns the name of the codec used to compress events.
+     */
+    public String getCompression()
+    {
+        return compression;
+    }
+
+    /**
+     * Sets the minimum size in bytes of a serialized event to compress.
+     */
+    public void setCompressionThreshold(int compressionThreshold)
+    {
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    /**
+     * Returns the minimum size in bytes of a serialized event to compress.
+     */
+    public int getCompressionThreshold()
+    {
+        return compressionThreshold;
+    }
+
+    /**
+     * Returns the codec used to compress events or null if compression is off.
+     */
+    public CompressionCodec getCompressionCodec()
+    {
+        return compressionCodec;
+    }
+
     /**
      * Set the number of milliseconds to retain old log files.
      * 
@@ -400,6 +464,16 @@ public class DiskLog
         logger.info("Loaded event serializer class: "
                 + eventSerializer.getClass().getName());
 
+        // Load the compression codec. Readers find the codec of each
+        // compressed record from the record itself.
+        compressionCodec = CompressionCodecs.getCodec(compression);
+        if (compressionCodec == null)
+            logger.info("Log record compression is disabled");
+        else
+            logger.info("Compressing log records: codec="
+                    + compressionCodec.getName() + " threshold="
+                    + compressionThreshold);
+
         // If the log does not have any files, initialize the first log file
         // now.
         if (listLogFiles(logDir, DATA_FILENAME_PREFIX).length == 0)
@@ -473,7 +547,7 @@ public class DiskLog
                 while (!currentRecord.isEmpty())
                 {
                     // See what kind of event we have.
-                    lastRecordType = currentRecord.getData()[0];
+                    lastRecordType = currentRecord.getRecordType();
                     if (lastRecordType == LogRecord.EVENT_REPL)
                     {
                         LogEventReplReader eventReader = new LogEventReplReader(
@@ -748,6 +822,30 @@ public class DiskLog
         index.setActiveSeqno(activeSeqno);
     }
 
+    /** Records bytes of log records written by a connection. */
+    void recordBytesWritten(long bytes)
+    {
+        bytesWritten.addAndGet(bytes);
+    }
+
+    /** Records bytes of log records read by a connection. */
+    void recordBytesRead(long bytes)
+    {
+        bytesRead.addAndGet(bytes);
+    }
+
+    /** Returns the number of bytes of log records written since start. */
+    public long getBytesWritten()
+    {
+        return bytesWritten.get();
+    }
+
+    /** Returns the number of bytes of log records read since start. */
+    public long getBytesRead()
+    {
+        return bytesRead.get();
+    }
+
     /**
      * Returns the active sequence number.
      */
@@ -803,6 +901,15 @@ public class DiskLog
         return index.getFileNames();
     }
 
+    /**
+     * Returns the names of log files that may contain events in a range of
+     * sequence numbers, in log order.
+     */
+    public List<String> getLogFileNames(long lowSeqno, long highSeqno)
+    {
+        return index.getFileNames(lowSeqno, highSeqno);
+    }
+
     /**
      * Returns true if this log is writable.
      */
@@ -1050,7 +1157,7 @@ public class DiskLog
             {
 
                 // See what kind of event we have.
-                byte recordType = currentRecord.getData()[0];
+                byte recordType = currentRecord.getRecordType();
                 if (recordType == LogRecord.EVENT_REPL)
                 {
                     LogEventReplReader eventReader = new LogEventReplReader(
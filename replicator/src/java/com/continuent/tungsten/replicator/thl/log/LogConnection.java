@@ -21,7 +21,6 @@
 package com.continuent.tungsten.replicator.thl.log;
 
 import java.io.IOException;
-import java.sql.Timestamp;
 import java.util.LinkedList;
 import java.util.Queue;
 
@@ -32,6 +31,7 @@ import com.continuent.tungsten.replicator.event.ReplDBMSFilteredEvent;
 import com.continuent.tungsten.replicator.event.ReplEvent;
 import com.continuent.tungsten.replicator.thl.THLEvent;
 import com.continuent.tungsten.replicator.thl.THLException;
+import com.continuent.tungsten.replicator.thl.compression.CompressionCodec;
 import com.continuent.tungsten.replicator.thl.serializer.Serializer;
 
 /**
@@ -73,6 +73,8 @@ public class LogConnection
     private boolean            doChecksum;
     private Serializer         eventSerializer;
     private int                logFileSize;
+    private CompressionCodec   compressionCodec;
+    private int                compressionThreshold;
     private int                timeoutMillis;
     private int                logRotateMillis;
 
@@ -100,6 +102,8 @@ public class LogConnection
         if (!readonly)
         {
             this.logFileSize = diskLog.getLogFileSize();
+            this.compressionCodec = diskLog.getCompressionCodec();
+            this.compressionThreshold = diskLog.getCompressionThreshold();
         }
     }
 
@@ -326,8 +330,7 @@ public class LogConnection
                         break;
                 }
 
-                byte[] bytes = logRecord.getData();
-                byte recordType = bytes[0];
+                byte recordType = logRecord.getRecordType();
                 if (recordType == LogRecord.EVENT_REPL)
                 {
                     // We have an event. Check the header.
@@ -438,13 +441,7 @@ public class LogConnection
         }
         else
         {
-            event = new THLEvent(eventReader.getSeqno(),
-                    eventReader.getFragno(), eventReader.isLastFrag(),
-                    eventReader.getSourceId(), THLEvent.REPL_DBMS_EVENT,
-                    eventReader.getEpochNumber(), new Timestamp(
-                            System.currentTimeMillis()), new Timestamp(
-                            eventReader.getSourceTStamp()),
-                    eventReader.getEventId(), eventReader.getShardId(), null);
+            event = eventReader.deserializeHeader();
         }
 
         eventReader.done();
@@ -570,9 +567,9 @@ public class LogConnection
                 {
                     return null;
                 }
+                diskLog.recordBytesRead(logRecord.getRecordLength());
 
-                byte[] bytes = logRecord.getData();
-                byte recordType = bytes[0];
+                byte recordType = logRecord.getRecordType();
                 if (recordType == LogRecord.EVENT_REPL)
                 {
                     event = deserialize(logRecord);
@@ -770,11 +767,13 @@ public class LogConnection
 
             // Write the event to byte stream.
             LogEventReplWriter eventWriter = new LogEventReplWriter(event,
-                    eventSerializer, doChecksum, dataFile.getFile());
+                    eventSerializer, doChecksum, dataFile.getFile(),
+                    compressionCodec, compressionThreshold);
             LogRecord logRecord = eventWriter.write();
 
             // Write to the file.
             dataFile.writeRecord(logRecord, logFileSize);
+            diskLog.recordBytesWritten(logRecord.getRecordLength());
             diskLog.setMaxSeqno(event.getSeqno());
             if (event.getLastFrag())
                 lastFragno = -1;
@@ -20,19 +20,24 @@
 
 package com.continuent.tungsten.replicator.thl.log;
 
+import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.sql.Timestamp;
 
 import com.continuent.tungsten.replicator.ReplicatorException;
 import com.continuent.tungsten.replicator.thl.THLEvent;
 import com.continuent.tungsten.replicator.thl.THLException;
+import com.continuent.tungsten.replicator.thl.compression.CompressionCodec;
+import com.continuent.tungsten.replicator.thl.compression.CompressionCodecs;
 import com.continuent.tungsten.replicator.thl.serializer.Serializer;
 
 /**
  * This class encapsulates operations to read a log record header and serialized
  * THLEvent for an event. It automatically reads the header but does not
- * deserialize the event until asked to. You should call done() after use to
- * free resources.
+ * deserialize the event until asked to. Compressed events are likewise only
+ * decompressed when deserialized. You should call done() after use to free
+ * resources.
  * 
  * @author <a href="mailto:robert.hodges@continuent.com">Robert Hodges</a>
  */
@@ -57,6 +62,13 @@ public class LogEventReplReader
     private String          shardId;
     private Long            sourceTStamp;
 
+    // Compression fields
+    private boolean         compressed;
+    private byte            codecId;
+    private int             uncompressedLength;
+    private int             payloadLength;
+    private byte[]          data;
+
     /**
      * Instantiate the reader and load header information.
      */
@@ -89,7 +101,8 @@ public class LogEventReplReader
 
         // Read the header fields.
         dis = new DataInputStream(logRecord.read());
-        recordType = dis.readByte();
+        compressed = logRecord.isCompressed();
+        recordType = (byte) (dis.readByte() & ~LogRecord.COMPRESSED);
         if (recordType != LogRecord.EVENT_REPL)
             throw new THLException("Invalid log record type reader: offset="
                     + logRecord.getOffset() + " type=" + recordType);
@@ -101,6 +114,15 @@ public class LogEventReplReader
         eventId = dis.readUTF();
         shardId = dis.readUTF();
         sourceTStamp = dis.readLong();
+        if (compressed)
+        {
+            codecId = dis.readByte();
+            uncompressedLength = dis.readInt();
+        }
+        payloadLength = dis.available();
+        data = logRecord.getData();
+        if (!compressed)
+            uncompressedLength = payloadLength;
     }
 
     public LogRecord getLogRecord()
@@ -153,11 +175,37 @@ public class LogEventReplReader
         return sourceTStamp;
     }
 
+    /** Returns true if the serialized event is compressed. */
+    public boolean isCompressed()
+    {
+        return compressed;
+    }
+
+    /** Returns the number of bytes stored for the serialized event. */
+    public int getPayloadLength()
+    {
+        return payloadLength;
+    }
+
+    /** Returns the number of bytes of the serialized event when uncompressed. */
+    public int getUncompressedLength()
+    {
+        return uncompressedLength;
+    }
+
     /** Deserialize and return the event. */
     public THLEvent deserializeEvent() throws ReplicatorException
     {
         try
         {
+            if (compressed)
+            {
+                CompressionCodec codec = CompressionCodecs.getCodec(codecId);
+                byte[] serialized = codec.decompress(data, data.length
+                        - payloadLength, payloadLength, uncompressedLength);
+                return serializer.deserializeEvent(new ByteArrayInputStream(
+                        serialized));
+            }
             THLEvent thlEvent = serializer.deserializeEvent(dis);
             return thlEvent;
         }
@@ -167,6 +215,18 @@ public class LogEventReplReader
         }
     }
 
+    /**
+     * Returns an event that contains only the header fields, which avoids
+     * decompressing and deserializing the stored event.
+     */
+    public THLEvent deserializeHeader()
+    {
+        return new THLEvent(seqno, fragno, lastFrag, sourceId,
+                THLEvent.REPL_DBMS_EVENT, epochNumber, new Timestamp(
+                        System.currentTimeMillis()),
+                new Timestamp(sourceTStamp), eventId, shardId, null);
+    }
+
     /** Release the log record. */
     public void done()
     {
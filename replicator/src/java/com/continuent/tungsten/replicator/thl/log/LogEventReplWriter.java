@@ -20,6 +20,7 @@
 
 package com.continuent.tungsten.replicator.thl.log;
 
+import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
@@ -27,11 +28,15 @@ import java.io.IOException;
 import com.continuent.tungsten.replicator.ReplicatorException;
 import com.continuent.tungsten.replicator.thl.THLEvent;
 import com.continuent.tungsten.replicator.thl.THLException;
+import com.continuent.tungsten.replicator.thl.compression.CompressionCodec;
 import com.continuent.tungsten.replicator.thl.serializer.Serializer;
 
 /**
  * This class encapsulates operations to write a log record header and
- * serialized THLEvent.
+ * serialized THLEvent. If a compression codec is given, serialized events at
+ * least as large as the compression threshold are compressed when this makes
+ * them smaller. The header stays uncompressed so that readers can scan records
+ * without decompressing them.
  * 
  * @author <a href="mailto:robert.hodges@continuent.com">Robert Hodges</a>
  */
@@ -41,18 +46,36 @@ public class LogEventReplWriter
     private THLEvent   event;
     private Serializer serializer;
     private boolean    checkCRC;
-    private File       file;
+    private File             file;
+    private CompressionCodec codec;
+    private int              compressionThreshold;
 
     /**
      * Instantiate the writer.
      */
     public LogEventReplWriter(THLEvent event, Serializer serializer,
             boolean checkCRC, File file) throws ReplicatorException
+    {
+        this(event, serializer, checkCRC, file, null, 0);
+    }
+
+    /**
+     * Instantiate a writer that compresses events.
+     * 
+     * @param codec Codec used to compress events or null for no compression
+     * @param compressionThreshold Minimum size in bytes of a serialized event
+     *            to compress
+     */
+    public LogEventReplWriter(THLEvent event, Serializer serializer,
+            boolean checkCRC, File file, CompressionCodec codec,
+            int compressionThreshold) throws ReplicatorException
     {
         this.event = event;
         this.serializer = serializer;
         this.checkCRC = checkCRC;
         this.file = file;
+        this.codec = codec;
+        this.compressionThreshold = compressionThreshold;
     }
 
     /**
@@ -63,8 +86,28 @@ public class LogEventReplWriter
         LogRecord logRecord = new LogRecord(file, -1, checkCRC);
         try
         {
+            // Serialize separately first if the event may be compressed.
+            byte[] serialized = null;
+            byte[] compressed = null;
+            if (codec != null)
+            {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                serializer.serializeEvent(event, bytes);
+                serialized = bytes.toByteArray();
+                if (serialized.length >= compressionThreshold)
+                {
+                    compressed = codec.compress(serialized, 0,
+                            serialized.length);
+                    if (compressed.length + 5 >= serialized.length)
+                        compressed = null;
+                }
+            }
+
             DataOutputStream dos = new DataOutputStream(logRecord.write());
-            dos.writeByte(LogRecord.EVENT_REPL);
+            if (compressed == null)
+                dos.writeByte(LogRecord.EVENT_REPL);
+            else
+                dos.writeByte(LogRecord.EVENT_REPL | LogRecord.COMPRESSED);
             dos.writeLong(event.getSeqno());
             dos.writeShort(event.getFragno());
             dos.writeByte((event.getLastFrag() ? 1 : 0));
@@ -74,7 +117,17 @@ public class LogEventReplWriter
             dos.writeUTF(event.getShardId());
             dos.writeLong(event.getSourceTstamp().getTime());
 
-            serializer.serializeEvent(event, dos);
+            if (compressed != null)
+            {
+                // Codec id and length precede the compressed event.
+                dos.writeByte(codec.getId());
+                dos.writeInt(serialized.length);
+                dos.write(compressed);
+            }
+            else if (serialized != null)
+                dos.write(serialized);
+            else
+                serializer.serializeEvent(event, dos);
             dos.flush();
             logRecord.done();
 
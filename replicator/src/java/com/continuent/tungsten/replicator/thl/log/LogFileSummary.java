@@ -0,0 +1,429 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+
+package com.continuent.tungsten.replicator.thl.log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.apache.log4j.Logger;
+
+import com.continuent.tungsten.replicator.thl.THLException;
+
+/**
+ * Secondary index of a single log file. The summary records the range of
+ * sequence numbers and source timestamps in the file, the shard IDs it
+ * contains and a Bloom filter of its event IDs, so that searches can skip
+ * files that cannot contain a matching event without reading them.
+ * <p>
+ * Summaries are stored in the {@link #DIRECTORY} subdirectory of the log
+ * directory, one file per log file. A summary is only valid while the log file
+ * keeps the length and modification time it had when the summary was built,
+ * so summaries of the log file that is currently being written are ignored.
+ * 
+ * @author <a href="mailto:agent@local">agent</a>
+ * @version 1.0
+ */
+public class LogFileSummary
+{
+    private static Logger      logger         = Logger.getLogger(LogFileSummary.class);
+
+    /** Name of the subdirectory of the log directory holding summaries. */
+    public static final String DIRECTORY      = "thl.index";
+
+    /** Suffix of summary file names. */
+    public static final String SUFFIX         = ".idx";
+
+    // Summaries list at most this many shards; files with more shards match
+    // any shard ID.
+    private static final int   MAX_SHARDS     = 1024;
+
+    // Bloom filter sizing, which gives a false positive rate around 1%.
+    private static final int   BITS_PER_EVENT = 10;
+    private static final int   HASH_COUNT     = 7;
+
+    private static final int   MAGIC          = 0x54484c53;
+    private static final short VERSION        = 1;
+
+    // File identity.
+    private final String       fileName;
+    private final long         fileLength;
+    private final long         lastModified;
+
+    // Ranges.
+    private long               eventCount     = 0;
+    private long               minSeqno       = Long.MAX_VALUE;
+    private long               maxSeqno       = Long.MIN_VALUE;
+    private long               minTstamp      = Long.MAX_VALUE;
+    private long               maxTstamp      = Long.MIN_VALUE;
+
+    // Shard IDs or null if the file has too many to list.
+    private TreeSet<String>    shardIds       = new TreeSet<String>();
+
+    // Event ID hashes collected while building and the resulting filter.
+    private long[]             hashes         = new long[1024];
+    private long[]             bits;
+
+    /**
+     * Creates an empty summary for a log file.
+     * 
+     * @param fileName Name of the log file
+     * @param fileLength Length of the log file covered by the summary
+     * @param lastModified Modification time of the log file
+     */
+    public LogFileSummary(String fileName, long fileLength, long lastModified)
+    {
+        this.fileName = fileName;
+        this.fileLength = fileLength;
+        this.lastModified = lastModified;
+    }
+
+    public String getFileName()
+    {
+        return fileName;
+    }
+
+    public long getEventCount()
+    {
+        return eventCount;
+    }
+
+    /** Returns true if the file contains no events. */
+    public boolean isEmpty()
+    {
+        return eventCount == 0;
+    }
+
+    public long getMinSeqno()
+    {
+        return minSeqno;
+    }
+
+    public long getMaxSeqno()
+    {
+        return maxSeqno;
+    }
+
+    public long getMinSourceTstamp()
+    {
+        return minTstamp;
+    }
+
+    public long getMaxSourceTstamp()
+    {
+        return maxTstamp;
+    }
+
+    /**
+     * Adds the header of an event to the summary. Call {@link #finish()} after
+     * the last event.
+     */
+    public void add(LogEventReplReader reader)
+    {
+        long seqno = reader.getSeqno();
+        long tstamp = reader.getSourceTStamp();
+        minSeqno = Math.min(minSeqno, seqno);
+        maxSeqno = Math.max(maxSeqno, seqno);
+        minTstamp = Math.min(minTstamp, tstamp);
+        maxTstamp = Math.max(maxTstamp, tstamp);
+
+        if (shardIds != null)
+        {
+            shardIds.add(reader.getShardId());
+            if (shardIds.size() > MAX_SHARDS)
+                shardIds = null;
+        }
+
+        if (eventCount >= hashes.length)
+        {
+            long[] larger = new long[hashes.length * 2];
+            System.arraycopy(hashes, 0, larger, 0, hashes.length);
+            hashes = larger;
+        }
+        hashes[(int) eventCount++] = hash(reader.getEventId());
+    }
+
+    /**
+     * Builds the event ID filter from the events added so far.
+     */
+    public void finish()
+    {
+        int words = (int) Math.max(1,
+                (eventCount * BITS_PER_EVENT + 63) / 64);
+        bits = new long[words];
+        for (int i = 0; i < eventCount; i++)
+        {
+            long hash = hashes[i];
+            for (int k = 0; k < HASH_COUNT; k++)
+            {
+                long bit = bitIndex(hash, k);
+                bits[(int) (bit >>> 6)] |= 1L << bit;
+            }
+        }
+        hashes = null;
+    }
+
+    /**
+     * Returns false if the file certainly does not contain an event with this
+     * event ID.
+     */
+    public boolean mayContainEventId(String eventId)
+    {
+        long hash = hash(eventId);
+        for (int k = 0; k < HASH_COUNT; k++)
+        {
+            long bit = bitIndex(hash, k);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns false if the file certainly does not contain an event with this
+     * shard ID.
+     */
+    public boolean mayContainShardId(String shardId)
+    {
+        return shardIds == null || shardIds.contains(shardId);
+    }
+
+    /**
+     * Returns true if the summary still describes the log file.
+     */
+    public boolean isCurrent(File logFile)
+    {
+        return logFile.length() == fileLength
+                && logFile.lastModified() == lastModified;
+    }
+
+    /**
+     * Returns the summary file of a log file.
+     * 
+     * @param logDir Log directory
+     * @param fileName Name of the log file
+     */
+    public static File getSummaryFile(File logDir, String fileName)
+    {
+        return new File(new File(logDir, DIRECTORY), fileName + SUFFIX);
+    }
+
+    /**
+     * Writes the summary into the summary directory of a log directory. The
+     * summary is written to a temporary file first, so readers never see a
+     * partial summary.
+     * 
+     * @throws THLException Thrown if the summary cannot be written
+     */
+    public void write(File logDir) throws THLException
+    {
+        File summaryFile = getSummaryFile(logDir, fileName);
+        File dir = summaryFile.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs())
+        {
+            throw new THLException("Unable to create log index directory: "
+                    + dir.getAbsolutePath());
+        }
+
+        File tempFile = new File(dir, fileName + SUFFIX + ".tmp");
+        DataOutputStream dos = null;
+        try
+        {
+            dos = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(tempFile)));
+            dos.writeInt(MAGIC);
+            dos.writeShort(VERSION);
+            dos.writeUTF(fileName);
+            dos.writeLong(fileLength);
+            dos.writeLong(lastModified);
+            dos.writeLong(eventCount);
+            dos.writeLong(minSeqno);
+            dos.writeLong(maxSeqno);
+            dos.writeLong(minTstamp);
+            dos.writeLong(maxTstamp);
+            if (shardIds == null)
+                dos.writeInt(-1);
+            else
+            {
+                dos.writeInt(shardIds.size());
+                for (String shardId : shardIds)
+                    dos.writeUTF(shardId);
+            }
+            dos.writeInt(bits.length);
+            for (long word : bits)
+                dos.writeLong(word);
+            dos.close();
+            dos = null;
+        }
+        catch (IOException e)
+        {
+            throw new THLException("Unable to write log index file: "
+                    + tempFile.getAbsolutePath(), e);
+        }
+        finally
+        {
+            close(dos);
+        }
+
+        if (!tempFile.renameTo(summaryFile))
+        {
+            tempFile.delete();
+            throw new THLException("Unable to rename log index file: "
+                    + tempFile.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Reads the summary of a log file.
+     * 
+     * @param logDir Log directory
+     * @param fileName Name of the log file
+     * @return The summary or null if there is no readable summary
+     */
+    public static LogFileSummary read(File logDir, String fileName)
+    {
+        File summaryFile = getSummaryFile(logDir, fileName);
+        if (!summaryFile.exists())
+            return null;
+
+        DataInputStream dis = null;
+        try
+        {
+            dis = new DataInputStream(new BufferedInputStream(
+                    new FileInputStream(summaryFile)));
+            if (dis.readInt() != MAGIC || dis.readShort() != VERSION)
+            {
+                logger.warn("Ignoring log index file with unknown format: "
+                        + summaryFile.getAbsolutePath());
+                return null;
+            }
+            LogFileSummary summary = new LogFileSummary(dis.readUTF(),
+                    dis.readLong(), dis.readLong());
+            summary.eventCount = dis.readLong();
+            summary.minSeqno = dis.readLong();
+            summary.maxSeqno = dis.readLong();
+            summary.minTstamp = dis.readLong();
+            summary.maxTstamp = dis.readLong();
+            int shardCount = dis.readInt();
+            if (shardCount < 0)
+                summary.shardIds = null;
+            else
+            {
+                for (int i = 0; i < shardCount; i++)
+                    summary.shardIds.add(dis.readUTF());
+            }
+            summary.bits = new long[dis.readInt()];
+            for (int i = 0; i < summary.bits.length; i++)
+                summary.bits[i] = dis.readLong();
+            summary.hashes = null;
+            return summary;
+        }
+        catch (IOException e)
+        {
+            logger.warn("Ignoring unreadable log index file: "
+                    + summaryFile.getAbsolutePath() + " (" + e.getMessage()
+                    + ")");
+            return null;
+        }
+        finally
+        {
+            close(dis);
+        }
+    }
+
+    /**
+     * Deletes summaries of log files that no longer exist.
+     * 
+     * @param logDir Log directory
+     * @param fileNames Names of all current log files
+     * @return Names of deleted summary files
+     */
+    public static List<String> deleteObsolete(File logDir,
+            List<String> fileNames)
+    {
+        List<String> deleted = new ArrayList<String>();
+        File[] summaryFiles = new File(logDir, DIRECTORY).listFiles();
+        if (summaryFiles == null)
+            return deleted;
+        for (File summaryFile : summaryFiles)
+        {
+            String name = summaryFile.getName();
+            if (name.endsWith(SUFFIX)
+                    && fileNames.contains(name.substring(0, name.length()
+                            - SUFFIX.length())))
+                continue;
+            if (summaryFile.delete())
+                deleted.add(name);
+        }
+        return deleted;
+    }
+
+    // Returns a 64-bit hash of a string. FNV-1a is followed by a final mix so
+    // that both halves of the hash are usable as independent hashes.
+    private static long hash(String value)
+    {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++)
+        {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    // Returns the k-th bit of a hash in the filter using double hashing.
+    private long bitIndex(long hash, int k)
+    {
+        long h1 = hash & 0xffffffffL;
+        long h2 = hash >>> 32;
+        long bitCount = bits.length * 64L;
+        return (h1 + k * h2) % bitCount;
+    }
+
+    // Closes a stream quietly.
+    private static void close(Closeable stream)
+    {
+        if (stream == null)
+            return;
+        try
+        {
+            stream.close();
+        }
+        catch (IOException e)
+        {
+        }
+    }
+}
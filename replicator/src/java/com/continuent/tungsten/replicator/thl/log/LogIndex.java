@@ -177,7 +177,7 @@ public class LogIndex
                     LogRecord record1 = lf.readRecord(0);
                     if (!record1.isEmpty() && !record1.isTruncated())
                     {
-                        if (record1.getData()[0] == LogRecord.EVENT_REPL)
+                        if (record1.getRecordType() == LogRecord.EVENT_REPL)
                         {
                             LogEventReplReader eventReader = new LogEventReplReader(
                                     record1, null, false);
@@ -452,6 +452,24 @@ public class LogIndex
         return fileNames;
     }
 
+    /**
+     * Returns the names of files that may contain events in a range of
+     * sequence numbers, in log order.
+     * 
+     * @param lowSeqno Lowest sequence number of the range
+     * @param highSeqno Highest sequence number of the range
+     */
+    public synchronized List<String> getFileNames(long lowSeqno, long highSeqno)
+    {
+        List<String> fileNames = new ArrayList<String>();
+        for (LogIndexEntry lie : index)
+        {
+            if (lie.endSeqno >= lowSeqno && lie.startSeqno <= highSeqno)
+                fileNames.add(lie.fileName);
+        }
+        return fileNames;
+    }
+
     /**
      * Adds a new file to the index.
      * 
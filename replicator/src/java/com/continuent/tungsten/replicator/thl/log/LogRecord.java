@@ -50,6 +50,12 @@ public class LogRecord
     /** Denotes a replication event */
     public static final byte      EVENT_ROTATE   = 0x02;
 
+    /**
+     * Flag set in the record type of a replication event whose serialized
+     * event is compressed. Records without it are read as before.
+     */
+    public static final byte      COMPRESSED     = (byte) 0x80;
+
     /** Record does not have a CRC computed. */
     public static final byte      CRC_TYPE_NONE  = 0x00;
 
@@ -151,6 +157,23 @@ public class LogRecord
         return crc;
     }
 
+    /**
+     * Returns the record type stored in the first byte of data without the
+     * compression flag.
+     */
+    public byte getRecordType()
+    {
+        return (byte) (data[0] & ~COMPRESSED);
+    }
+
+    /**
+     * Returns true if the event in this record is compressed.
+     */
+    public boolean isCompressed()
+    {
+        return data != null && data.length > 0 && (data[0] & COMPRESSED) != 0;
+    }
+
     /** Returns true if the record is truncated. */
     public boolean isTruncated()
     {
@@ -0,0 +1,149 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+
+package com.continuent.tungsten.replicator.thl.log;
+
+import com.continuent.tungsten.replicator.ReplicatorException;
+
+/**
+ * Selects events in a log scan by sequence number range, event ID, shard ID
+ * and source timestamp. Criteria are checked against log record headers only,
+ * so events that do not match are never deserialized. Criteria that are not
+ * set match any event.
+ * 
+ * @author <a href="mailto:agent@local">agent</a>
+ * @version 1.0
+ */
+public class LogScanFilter implements LogEventReadFilter
+{
+    private long   lowSeqno   = 0;
+    private long   highSeqno  = Long.MAX_VALUE;
+    private String eventId;
+    private String shardId;
+    private long   fromTstamp = Long.MIN_VALUE;
+    private long   toTstamp   = Long.MAX_VALUE;
+
+    public long getLowSeqno()
+    {
+        return lowSeqno;
+    }
+
+    /** Sets the lowest sequence number to accept. */
+    public void setLowSeqno(long lowSeqno)
+    {
+        this.lowSeqno = lowSeqno;
+    }
+
+    public long getHighSeqno()
+    {
+        return highSeqno;
+    }
+
+    /** Sets the highest sequence number to accept. */
+    public void setHighSeqno(long highSeqno)
+    {
+        this.highSeqno = highSeqno;
+    }
+
+    public String getEventId()
+    {
+        return eventId;
+    }
+
+    /** Sets the native event ID to search for. */
+    public void setEventId(String eventId)
+    {
+        this.eventId = eventId;
+    }
+
+    public String getShardId()
+    {
+        return shardId;
+    }
+
+    /** Sets the shard ID to search for. */
+    public void setShardId(String shardId)
+    {
+        this.shardId = shardId;
+    }
+
+    /** Sets the earliest source timestamp to accept in milliseconds. */
+    public void setFromTstamp(long fromTstamp)
+    {
+        this.fromTstamp = fromTstamp;
+    }
+
+    /** Sets the latest source timestamp to accept in milliseconds. */
+    public void setToTstamp(long toTstamp)
+    {
+        this.toTstamp = toTstamp;
+    }
+
+    /**
+     * Returns true if the filter has criteria other than a sequence number
+     * range.
+     */
+    public boolean isSearch()
+    {
+        return eventId != null || shardId != null
+                || fromTstamp != Long.MIN_VALUE || toTstamp != Long.MAX_VALUE;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @see com.continuent.tungsten.replicator.thl.log.LogEventReadFilter#accept(com.continuent.tungsten.replicator.thl.log.LogEventReplReader)
+     */
+    public boolean accept(LogEventReplReader reader)
+            throws ReplicatorException
+    {
+        long seqno = reader.getSeqno();
+        if (seqno < lowSeqno || seqno > highSeqno)
+            return false;
+        if (eventId != null && !eventId.equals(reader.getEventId()))
+            return false;
+        if (shardId != null && !shardId.equals(reader.getShardId()))
+            return false;
+        long tstamp = reader.getSourceTStamp();
+        return tstamp >= fromTstamp && tstamp <= toTstamp;
+    }
+
+    /**
+     * Returns false if a log file summary shows that the file cannot contain
+     * any matching event.
+     */
+    public boolean mayMatch(LogFileSummary summary)
+    {
+        if (summary.isEmpty())
+            return false;
+        if (summary.getMaxSeqno() < lowSeqno
+                || summary.getMinSeqno() > highSeqno)
+            return false;
+        if (summary.getMaxSourceTstamp() < fromTstamp
+                || summary.getMinSourceTstamp() > toTstamp)
+            return false;
+        if (eventId != null && !summary.mayContainEventId(eventId))
+            return false;
+        if (shardId != null && !summary.mayContainShardId(shardId))
+            return false;
+        return true;
+    }
+}
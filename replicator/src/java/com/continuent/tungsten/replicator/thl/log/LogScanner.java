@@ -0,0 +1,376 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+
+package com.continuent.tungsten.replicator.thl.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+
+import com.continuent.tungsten.common.concurrent.SimpleThreadFactory;
+import com.continuent.tungsten.replicator.ReplicatorException;
+import com.continuent.tungsten.replicator.thl.THLEvent;
+import com.continuent.tungsten.replicator.thl.THLException;
+import com.continuent.tungsten.replicator.thl.serializer.Serializer;
+
+/**
+ * Scans log files of a disk log in parallel for offline tools. Each file is
+ * read by its own worker with a private log file handle, and only the headers
+ * of log records are read unless an event matches the scan filter and full
+ * events are requested. Matching events are handed to the caller in log order.
+ * Each worker hands off matches through a bounded queue, so memory use does
+ * not depend on the size of log files or the number of matches.
+ * <p>
+ * Scans optionally use {@link LogFileSummary} files to skip log files that
+ * cannot contain a matching event. Summaries are built with
+ * {@link #buildSummaries(boolean)}.
+ * 
+ * @author <a href="mailto:agent@local">agent</a>
+ * @version 1.0
+ */
+public class LogScanner
+{
+    private static Logger         logger        = Logger.getLogger(LogScanner.class);
+
+    // Number of matching events each worker may buffer ahead of the handler.
+    private static final int      BUFFER_EVENTS = 100;
+
+    // Marks the end of the matches of one log file.
+    private static final THLEvent END           = new THLEvent(-1, (short) 0,
+                                                        true, null,
+                                                        THLEvent.REPL_DBMS_EVENT,
+                                                        -1, null, null, null,
+                                                        null, null);
+
+    private final DiskLog         diskLog;
+    private final File            logDir;
+    private int                   threads       = Math.min(8, Runtime
+                                                        .getRuntime()
+                                                        .availableProcessors());
+    private boolean               useSummaries  = true;
+
+    /**
+     * Receives matching events of a scan in log order.
+     */
+    public interface Handler
+    {
+        /**
+         * Handles an event. Events hold only header fields unless the scan
+         * deserializes events.
+         */
+        public void handle(THLEvent event) throws ReplicatorException;
+    }
+
+    // Matches of one log file and the worker that scans it.
+    private static class FileScan
+    {
+        final BlockingQueue<THLEvent> events = new ArrayBlockingQueue<THLEvent>(
+                                                     BUFFER_EVENTS);
+        Future<Void>                  result;
+    }
+
+    /**
+     * Creates a scanner on a prepared disk log.
+     */
+    public LogScanner(DiskLog diskLog)
+    {
+        this.diskLog = diskLog;
+        this.logDir = new File(diskLog.getLogDir());
+    }
+
+    public int getThreads()
+    {
+        return threads;
+    }
+
+    /** Sets the number of files to scan concurrently. */
+    public void setThreads(int threads)
+    {
+        this.threads = Math.max(1, threads);
+    }
+
+    public boolean isUseSummaries()
+    {
+        return useSummaries;
+    }
+
+    /** If true, skip files whose current summary excludes any match. */
+    public void setUseSummaries(boolean useSummaries)
+    {
+        this.useSummaries = useSummaries;
+    }
+
+    /**
+     * Scans the log files that may contain the sequence number range of a
+     * filter and hands matching events to a handler.
+     * 
+     * @param filter Filter that selects events
+     * @param deserialize If true, matching events are fully deserialized;
+     *            otherwise they hold header fields only
+     * @param handler Handler that receives matching events in log order
+     * @return Number of matching events
+     * @throws ReplicatorException Thrown if the log cannot be read
+     * @throws InterruptedException Thrown if the scan is interrupted
+     */
+    public long scan(final LogScanFilter filter, final boolean deserialize,
+            Handler handler) throws ReplicatorException, InterruptedException
+    {
+        List<String> fileNames = diskLog.getLogFileNames(filter.getLowSeqno(),
+                filter.getHighSeqno());
+        if (logger.isDebugEnabled())
+            logger.debug("Scanning log files: files=" + fileNames.size()
+                    + " threads=" + threads);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads,
+                new SimpleThreadFactory("log-scan"));
+        try
+        {
+            // Keep a bounded number of files in flight, each with a bounded
+            // queue of matches, so that memory use does not grow with the
+            // size of the log. Queues are drained in submission order, which
+            // is log order; workers on later files block once their queue is
+            // full.
+            LinkedList<FileScan> pending = new LinkedList<FileScan>();
+            int next = 0;
+            long matched = 0;
+            while (next < fileNames.size() || !pending.isEmpty())
+            {
+                while (next < fileNames.size() && pending.size() < threads * 2)
+                {
+                    final String fileName = fileNames.get(next++);
+                    final FileScan fileScan = new FileScan();
+                    fileScan.result = executor.submit(new Callable<Void>()
+                    {
+                        public Void call() throws Exception
+                        {
+                            try
+                            {
+                                scanFile(fileName, filter, deserialize,
+                                        fileScan.events);
+                            }
+                            finally
+                            {
+                                fileScan.events.put(END);
+                            }
+                            return null;
+                        }
+                    });
+                    pending.add(fileScan);
+                }
+
+                FileScan fileScan = pending.removeFirst();
+                THLEvent event;
+                while ((event = fileScan.events.take()) != END)
+                {
+                    handler.handle(event);
+                    matched++;
+                }
+                get(fileScan.result);
+            }
+            return matched;
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Builds summaries of all log files that do not have a current summary
+     * and deletes summaries of log files that no longer exist.
+     * 
+     * @param rebuild If true, rebuild summaries even if they are current
+     * @return Number of summaries built
+     * @throws ReplicatorException Thrown if the log cannot be read or a summary
+     *             cannot be written
+     * @throws InterruptedException Thrown if the build is interrupted
+     */
+    public int buildSummaries(boolean rebuild) throws ReplicatorException,
+            InterruptedException
+    {
+        List<String> fileNames = diskLog.getLogFileNames(0, Long.MAX_VALUE);
+        for (String deleted : LogFileSummary.deleteObsolete(logDir, fileNames))
+            logger.info("Deleted obsolete log index file: " + deleted);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads,
+                new SimpleThreadFactory("log-index"));
+        try
+        {
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+            for (final String fileName : fileNames)
+            {
+                LogFileSummary summary = LogFileSummary.read(logDir, fileName);
+                if (!rebuild && summary != null
+                        && summary.isCurrent(new File(logDir, fileName)))
+                    continue;
+                results.add(executor.submit(new Callable<Boolean>()
+                {
+                    public Boolean call() throws Exception
+                    {
+                        summarizeFile(fileName).write(logDir);
+                        return true;
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results)
+                get(result);
+            return results.size();
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    // Reads headers of one log file and queues matching events.
+    private void scanFile(String fileName, LogScanFilter filter,
+            boolean deserialize, BlockingQueue<THLEvent> events)
+            throws ReplicatorException, InterruptedException
+    {
+        File file = new File(logDir, fileName);
+        if (useSummaries)
+        {
+            LogFileSummary summary = LogFileSummary.read(logDir, fileName);
+            if (summary != null && summary.isCurrent(file)
+                    && !filter.mayMatch(summary))
+            {
+                if (logger.isDebugEnabled())
+                    logger.debug("Skipping log file by index: " + fileName);
+                return;
+            }
+        }
+
+        LogFile logFile = new LogFile(file);
+        try
+        {
+            logFile.openRead();
+            LogRecord logRecord;
+            while (!(logRecord = logFile.readRecord(0)).isEmpty()
+                    && !logRecord.isTruncated())
+            {
+                if (logRecord.getRecordType() != LogRecord.EVENT_REPL)
+                    continue;
+                LogEventReplReader reader = new LogEventReplReader(logRecord,
+                        diskLog.getEventSerializer(), diskLog.isDoChecksum());
+                try
+                {
+                    // Events are in seqno order, so nothing after the high
+                    // seqno can match.
+                    if (reader.getSeqno() > filter.getHighSeqno())
+                        break;
+                    if (filter.accept(reader))
+                    {
+                        if (deserialize)
+                            events.put(reader.deserializeEvent());
+                        else
+                            events.put(reader.deserializeHeader());
+                    }
+                }
+                finally
+                {
+                    reader.done();
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            throw new THLException("Unable to scan log file: " + fileName, e);
+        }
+        finally
+        {
+            logFile.close();
+        }
+    }
+
+    // Reads headers of one log file into a new summary.
+    private LogFileSummary summarizeFile(String fileName)
+            throws ReplicatorException, InterruptedException
+    {
+        // Capture file identity before reading so that a file that grows
+        // during the scan is not mistaken for a fully summarized one.
+        File file = new File(logDir, fileName);
+        long length = file.length();
+        LogFileSummary summary = new LogFileSummary(fileName, length,
+                file.lastModified());
+
+        LogFile logFile = new LogFile(file);
+        Serializer serializer = diskLog.getEventSerializer();
+        try
+        {
+            logFile.openRead();
+            LogRecord logRecord;
+            while (!(logRecord = logFile.readRecord(0)).isEmpty()
+                    && !logRecord.isTruncated()
+                    && logRecord.getOffset() < length)
+            {
+                if (logRecord.getRecordType() != LogRecord.EVENT_REPL)
+                    continue;
+                LogEventReplReader reader = new LogEventReplReader(logRecord,
+                        serializer, diskLog.isDoChecksum());
+                summary.add(reader);
+                reader.done();
+            }
+        }
+        catch (IOException e)
+        {
+            throw new THLException("Unable to index log file: " + fileName, e);
+        }
+        finally
+        {
+            logFile.close();
+        }
+        summary.finish();
+        return summary;
+    }
+
+    // Waits for a worker result and unwraps worker failures.
+    private static <T> T get(Future<T> future) throws ReplicatorException,
+            InterruptedException
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof ReplicatorException)
+                throw (ReplicatorException) cause;
+            else if (cause instanceof InterruptedException)
+                throw (InterruptedException) cause;
+            else if (cause instanceof Error)
+                throw (Error) cause;
+            else
+                throw new THLException("Log scan failed", e);
+        }
+    }
+}
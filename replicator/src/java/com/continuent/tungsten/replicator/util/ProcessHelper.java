@@ -22,6 +22,7 @@ package com.continuent.tungsten.replicator.util;
 
 import java.io.File;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 
 import org.apache.log4j.Logger;
@@ -93,6 +94,36 @@ public class ProcessHelper
     public void exec(String description, String[] baseCommand,
             InputStream stdin, File stdout, File stderr, boolean stdoutAppend,
             boolean stderrAppend) throws BackupException
+    {
+        exec(description, baseCommand, stdin, stdout, null, stderr,
+                stdoutAppend, stderrAppend);
+    }
+
+    /**
+     * Execute a command that writes its output to a stream, which is left open.
+     * A command prefix such as 'sudo' is added automatically.
+     * 
+     * @param description Text description of the command
+     * @param baseCommand Command as an array but without 'sudo' or other prefix
+     * @param stdin InputStream for process stdin
+     * @param stdout OutputStream to receive stdout
+     * @param stderr File to receive stderr
+     * @param stderrAppend If true append to stderr file
+     * @throws BackupException If the command fails or its output cannot be
+     *             written
+     */
+    public void exec(String description, String[] baseCommand,
+            InputStream stdin, OutputStream stdout, File stderr,
+            boolean stderrAppend) throws BackupException
+    {
+        exec(description, baseCommand, stdin, null, stdout, stderr, false,
+                stderrAppend);
+    }
+
+    private void exec(String description, String[] baseCommand,
+            InputStream stdin, File stdout, OutputStream stdoutStream,
+            File stderr, boolean stdoutAppend, boolean stderrAppend)
+            throws BackupException
     {
         // Generate a properly prefixed command.
         String[] cmd = makeCmd(baseCommand);
@@ -108,6 +139,8 @@ public class ProcessHelper
             pe.setStdOut(stdout);
             pe.setStdOutAppend(stdoutAppend);
         }
+        else if (stdoutStream != null)
+            pe.setStdOut(stdoutStream);
         if (stderr != null)
         {
             pe.setStdErr(stderr);
@@ -122,7 +155,7 @@ public class ProcessHelper
             {
                 logger.debug(this.processInfo(pe));
             }
-            if (stdout == null)
+            if (stdout == null && stdoutStream == null)
             {
                 outputLines = pe.getStdoutByLine();
             }
@@ -0,0 +1,114 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.applier;
+
+import java.util.ArrayList;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.continuent.tungsten.replicator.database.MySQLDatabase;
+import com.continuent.tungsten.replicator.dbms.OneRowChange;
+import com.continuent.tungsten.replicator.dbms.OneRowChange.ColumnSpec;
+import com.continuent.tungsten.replicator.dbms.OneRowChange.ColumnVal;
+
+/**
+ * Tests generation of batched prefetch queries.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class TestPrefetchKeyBatch
+{
+    /**
+     * Verify that a single column key is looked up with an IN list.
+     */
+    @Test
+    public void testSingleColumnKey() throws Exception
+    {
+        OneRowChange change = createChange("id");
+        PrefetchKeyBatch batch = new PrefetchKeyBatch("test", "t1",
+                change.getKeySpec());
+        batch.add(values(change, 1));
+        batch.add(values(change, 2));
+        batch.add(values(change, 3));
+
+        Assert.assertEquals("Query",
+                "SELECT * FROM `test`.`t1` WHERE `id` IN ( ? , ? , ? )",
+                batch.buildSelectQuery(new MySQLDatabase()));
+        Assert.assertEquals("Batch name", "test.t1:1",
+                PrefetchKeyBatch.batchName(change));
+    }
+
+    /**
+     * Verify that a multi-column key is looked up with one condition per row
+     * and that keys with null values are not batched.
+     */
+    @Test
+    public void testMultiColumnKey() throws Exception
+    {
+        OneRowChange change = createChange("a", "b");
+        PrefetchKeyBatch batch = new PrefetchKeyBatch("test", "t1",
+                change.getKeySpec());
+        batch.add(values(change, 1, 2));
+        batch.add(values(change, 3, 4));
+
+        Assert.assertEquals("Query",
+                "SELECT * FROM `test`.`t1` WHERE (`a` =  ?  AND `b` =  ? )"
+                        + " OR (`a` =  ?  AND `b` =  ? )",
+                batch.buildSelectQuery(new MySQLDatabase()));
+        Assert.assertTrue("Batchable",
+                PrefetchKeyBatch.isBatchable(values(change, 1, 2)));
+        Assert.assertFalse("Null key",
+                PrefetchKeyBatch.isBatchable(values(change, 1, null)));
+
+        batch.clear();
+        Assert.assertEquals("Cleared", 0, batch.size());
+    }
+
+    private OneRowChange createChange(String... keyNames)
+    {
+        OneRowChange change = new OneRowChange();
+        change.setSchemaName("test");
+        change.setTableName("t1");
+        ArrayList<ColumnSpec> keySpec = new ArrayList<ColumnSpec>();
+        for (int i = 0; i < keyNames.length; i++)
+        {
+            ColumnSpec spec = change.new ColumnSpec();
+            spec.setIndex(i + 1);
+            spec.setName(keyNames[i]);
+            keySpec.add(spec);
+        }
+        change.setKeySpec(keySpec);
+        return change;
+    }
+
+    private ArrayList<ColumnVal> values(OneRowChange change, Integer... keys)
+    {
+        ArrayList<ColumnVal> values = new ArrayList<ColumnVal>();
+        for (Integer key : keys)
+        {
+            ColumnVal value = change.new ColumnVal();
+            value.setValue(key);
+            values.add(value);
+        }
+        return values;
+    }
+}
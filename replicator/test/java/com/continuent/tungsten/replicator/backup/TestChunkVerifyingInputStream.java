@@ -0,0 +1,136 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.backup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests chunk checksums and chunk-by-chunk verification of backup files.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class TestChunkVerifyingInputStream
+{
+    /**
+     * Verify that chunk CRCs computed in one pass read back identically on
+     * several threads, including empty files and partial last chunks.
+     */
+    @Test
+    public void testRoundTrip() throws Exception
+    {
+        for (int size : new int[]{0, 1, 4096, 100000})
+        {
+            byte[] data = createData(size);
+            ChunkChecksums checksums = new ChunkChecksums(4096);
+            checksums.update(data, 0, data.length / 3);
+            checksums.update(data, data.length / 3, data.length
+                    - data.length / 3);
+
+            CRC32 crc = new CRC32();
+            crc.update(data);
+            Assert.assertEquals("CRC", crc.getValue(), checksums.getCrc());
+            Assert.assertEquals("Length", size, checksums.getLength());
+            Assert.assertEquals("Chunks", (size + 4095) / 4096,
+                    checksums.getChunkCrcs().length);
+
+            File file = writeFile(data);
+            ChunkVerifyingInputStream in = new ChunkVerifyingInputStream(file,
+                    4096, checksums.getChunkCrcs(), 3);
+            Assert.assertArrayEquals("Verified read size=" + size, data,
+                    readAll(in));
+            Assert.assertTrue("All chunks verified", in.isVerified());
+            file.delete();
+        }
+    }
+
+    /**
+     * Verify that a corrupt chunk is reported while reading and that a file
+     * whose length does not match its chunks is rejected.
+     */
+    @Test
+    public void testCorruption() throws Exception
+    {
+        byte[] data = createData(100000);
+        ChunkChecksums checksums = new ChunkChecksums(8192);
+        checksums.update(data, 0, data.length);
+        long[] chunkCrcs = checksums.getChunkCrcs();
+
+        data[data.length / 2] ^= 1;
+        File file = writeFile(data);
+        try
+        {
+            readAll(new ChunkVerifyingInputStream(file, 8192, chunkCrcs, 2));
+            Assert.fail("Corruption was not detected");
+        }
+        catch (IOException e)
+        {
+            Assert.assertTrue("CRC error: " + e.getMessage(), e.getMessage()
+                    .contains("crc"));
+        }
+
+        try
+        {
+            new ChunkVerifyingInputStream(file, 4096, chunkCrcs, 2);
+            Assert.fail("Length mismatch was not detected");
+        }
+        catch (IOException e)
+        {
+        }
+        file.delete();
+    }
+
+    private byte[] createData(int size)
+    {
+        Random random = new Random(size);
+        byte[] data = new byte[size];
+        random.nextBytes(data);
+        return data;
+    }
+
+    private File writeFile(byte[] data) throws IOException
+    {
+        File file = File.createTempFile("chunks", ".dat");
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(data);
+        out.close();
+        return file;
+    }
+
+    private byte[] readAll(InputStream in) throws IOException
+    {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        byte[] buf = new byte[1500];
+        int len;
+        while ((len = in.read(buf)) >= 0)
+            data.write(buf, 0, len);
+        in.close();
+        return data.toByteArray();
+    }
+}
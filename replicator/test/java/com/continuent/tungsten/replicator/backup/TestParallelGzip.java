@@ -0,0 +1,148 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.backup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests parallel gzip compression and decompression of backup files.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class TestParallelGzip
+{
+    /**
+     * Verify that data compressed in parallel reads back identically with both
+     * the parallel reader and GZIPInputStream, and that the reported CRC and
+     * length describe the compressed output.
+     */
+    @Test
+    public void testRoundTrip() throws Exception
+    {
+        for (int size : new int[]{0, 1, 4096, 100000})
+        {
+            byte[] data = createData(size);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ParallelGzipOutputStream out = new ParallelGzipOutputStream(bytes,
+                    4, 6, 4096);
+            out.write(data, 0, data.length / 2);
+            if (data.length > 0)
+                out.write(data[data.length / 2]);
+            out.write(data, data.length / 2 + 1,
+                    Math.max(data.length - data.length / 2 - 1, 0));
+            out.close();
+
+            byte[] compressed = bytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(compressed);
+            Assert.assertEquals("CRC", crc.getValue(), out.getCrc());
+            Assert.assertEquals("Length", compressed.length, out.getLength());
+            Assert.assertEquals("Uncompressed length", size,
+                    out.getUncompressedLength());
+
+            Assert.assertArrayEquals("Parallel read size=" + size, data,
+                    readAll(new ParallelGzipInputStream(
+                            new ByteArrayInputStream(compressed), 3)));
+            Assert.assertArrayEquals("Gzip read size=" + size, data,
+                    readAll(new GZIPInputStream(new ByteArrayInputStream(
+                            compressed))));
+        }
+    }
+
+    /**
+     * Verify that plain gzip files are read sequentially.
+     */
+    @Test
+    public void testPlainGzip() throws Exception
+    {
+        byte[] data = createData(50000);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GZIPOutputStream out = new GZIPOutputStream(bytes);
+        out.write(data);
+        out.close();
+
+        Assert.assertArrayEquals("Plain gzip read", data,
+                readAll(new ParallelGzipInputStream(new ByteArrayInputStream(
+                        bytes.toByteArray()), 2)));
+    }
+
+    /**
+     * Verify that a corrupt block is reported while reading.
+     */
+    @Test
+    public void testCorruption() throws Exception
+    {
+        byte[] data = createData(100000);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ParallelGzipOutputStream out = new ParallelGzipOutputStream(bytes, 2,
+                0, 8192);
+        out.write(data);
+        out.close();
+
+        // Level 0 stores data, so this changes a byte of data in a block in
+        // the middle without breaking the deflate format.
+        byte[] compressed = bytes.toByteArray();
+        compressed[compressed.length / 2] ^= 1;
+        try
+        {
+            readAll(new ParallelGzipInputStream(new ByteArrayInputStream(
+                    compressed), 2));
+            Assert.fail("Corruption was not detected");
+        }
+        catch (IOException e)
+        {
+            Assert.assertTrue("CRC error: " + e.getMessage(), e.getMessage()
+                    .contains("crc"));
+        }
+    }
+
+    private byte[] createData(int size)
+    {
+        // Compressible but not uniform.
+        Random random = new Random(size);
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++)
+            data[i] = (byte) ('a' + random.nextInt(16));
+        return data;
+    }
+
+    private byte[] readAll(InputStream in) throws IOException
+    {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        byte[] buf = new byte[1500];
+        int len;
+        while ((len = in.read(buf)) >= 0)
+            data.write(buf, 0, len);
+        in.close();
+        return data.toByteArray();
+    }
+}
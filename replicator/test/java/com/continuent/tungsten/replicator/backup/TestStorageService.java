@@ -20,10 +20,18 @@
 
 package com.continuent.tungsten.replicator.backup;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.net.URI;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.Random;
 
 import junit.framework.TestCase;
 
@@ -264,6 +272,213 @@ public class TestStorageService extends TestCase
         agent.release();
     }
 
+    /**
+     * Verify that a streamed backup is stored compressed and reads back
+     * identically, including per-database file names.
+     */
+    public void testStreamingStoreRetrieve() throws Exception
+    {
+        FileSystemStorageAgent agent = (FileSystemStorageAgent) this
+                .configureStorageService("testStreamingStoreRetrieve", 3);
+        agent.setCompressionThreads(3);
+        agent.setCompressionBlockSize(4096);
+        agent.setCrcCheckingEnabled(true);
+
+        StreamingAgent backupAgent = new StreamingAgent(new String[]{"db1",
+                "db2"}, 100000, false);
+        URI uri = agent.store(backupAgent, "dummy");
+        StorageSpecification storeSpec = agent.getSpecification(uri);
+        assertEquals("Files stored", 2, storeSpec.getFilesCount());
+        assertEquals("Compressed", "gzip", storeSpec.getFileCompression(0));
+        assertEquals("Database name", "db2", storeSpec.getDatabaseName(1));
+        assertEquals("Agent name", "dummy", storeSpec.getAgent());
+
+        BackupSpecification backupSpecRetrieve = agent.retrieve(uri);
+        for (int i = 0; i < 2; i++)
+        {
+            BackupLocator locator = backupSpecRetrieve.getBackupLocators()
+                    .get(i);
+            assertTrue("Stored file is compressed", locator.getContents()
+                    .length() < 100000);
+            assertEquals("Stored CRC matches file",
+                    storeSpec.getFileCrc(i),
+                    FileSystemStorageAgent.computeFileCrc(locator
+                            .getContents()));
+
+            ByteArrayOutputStream data = new ByteArrayOutputStream();
+            InputStream in = locator.getInputStream();
+            byte[] buf = new byte[1000];
+            int len;
+            while ((len = in.read(buf)) > 0)
+                data.write(buf, 0, len);
+            in.close();
+            assertTrue("Contents match", Arrays.equals(
+                    backupAgent.contents[i], data.toByteArray()));
+        }
+        agent.release();
+    }
+
+    /**
+     * Verify that stored files record chunk CRCs and that retrieved files are
+     * checked chunk by chunk as they are read, reporting corrupt chunks.
+     */
+    public void testChunkedRetrieve() throws Exception
+    {
+        FileSystemStorageAgent agent = (FileSystemStorageAgent) this
+                .configureStorageService("testChunkedRetrieve", 3);
+        agent.setCrcCheckingEnabled(true);
+        agent.setChunkSize(4096);
+        agent.setRestoreThreads(3);
+
+        // Store a file and confirm chunk CRCs are recorded.
+        BackupSpecification bspec = createBackup("testChunkedRetrieve", 50000);
+        File original = bspec.getBackupLocators().get(0).getContents();
+        byte[] contents = readAll(new FileInputStream(original));
+        URI uri = agent.store(bspec);
+        StorageSpecification storeSpec = agent.getSpecification(uri);
+        assertEquals("Chunk size", 4096, storeSpec.getFileChunkSize(0));
+        assertEquals("Chunk count", 13, storeSpec.getFileChunkCrcs(0).length);
+
+        // Retrieve and read the file, which verifies every chunk.
+        BackupLocator locator = agent.retrieve(uri).getBackupLocators().get(0);
+        assertTrue("Contents match", Arrays.equals(contents,
+                readAll(locator.getInputStream())));
+        locator.verify();
+
+        // Corrupt one byte and confirm both reading and verifying fail.
+        RandomAccessFile raf = new RandomAccessFile(locator.getContents(),
+                "rw");
+        raf.seek(20000);
+        int b = raf.read();
+        raf.seek(20000);
+        raf.write(b ^ 1);
+        raf.close();
+        locator = agent.retrieve(uri).getBackupLocators().get(0);
+        try
+        {
+            readAll(locator.getInputStream());
+            fail("Corrupt chunk was read");
+        }
+        catch (IOException e)
+        {
+        }
+        try
+        {
+            agent.retrieve(uri).getBackupLocators().get(0).verify();
+            fail("Corrupt chunk was verified");
+        }
+        catch (BackupException e)
+        {
+        }
+        agent.release();
+    }
+
+    /**
+     * Verify that a failed streamed backup leaves nothing in storage.
+     */
+    public void testStreamingFailure() throws Exception
+    {
+        FileSystemStorageAgent agent = (FileSystemStorageAgent) this
+                .configureStorageService("testStreamingFailure", 3);
+        StreamingAgent backupAgent = new StreamingAgent(new String[]{"db1",
+                "db2"}, 10000, true);
+        try
+        {
+            agent.store(backupAgent, "dummy");
+            fail("Failed backup was stored");
+        }
+        catch (BackupException e)
+        {
+        }
+        assertEquals("No backups", 0, agent.list().length);
+        for (File f : agent.getDirectory().listFiles())
+            assertFalse("No backup files left: " + f.getName(), f.getName()
+                    .endsWith(".gz"));
+        agent.release();
+    }
+
+    // Writes random text for each database, optionally failing on the last.
+    private static class StreamingAgent implements StreamingBackupAgent
+    {
+        private final String[] databases;
+        private final byte[][] contents;
+        private final boolean  fail;
+
+        StreamingAgent(String[] databases, int length, boolean fail)
+        {
+            this.databases = databases;
+            this.fail = fail;
+            Random random = new Random();
+            contents = new byte[databases.length][length];
+            for (int i = 0; i < databases.length; i++)
+                for (int j = 0; j < length; j++)
+                    contents[i][j] = (byte) ('a' + random.nextInt(8));
+        }
+
+        public boolean isStreamingEnabled()
+        {
+            return true;
+        }
+
+        public BackupSpecification backup(BackupSink sink)
+                throws BackupException
+        {
+            BackupSpecification spec = new BackupSpecification();
+            spec.setBackupDate(new Date());
+            for (int i = 0; i < databases.length; i++)
+            {
+                OutputStream out = sink.openFile("dump-" + databases[i]
+                        + ".sql", databases[i]);
+                try
+                {
+                    out.write(contents[i]);
+                    if (fail && i == databases.length - 1)
+                        throw new BackupException("Dump failed");
+                    out.close();
+                }
+                catch (IOException e)
+                {
+                    throw new BackupException(e.getMessage(), e);
+                }
+            }
+            return spec;
+        }
+
+        public BackupSpecification backup() throws BackupException
+        {
+            throw new BackupException("Not supported");
+        }
+
+        public void restore(BackupSpecification bspec)
+        {
+        }
+
+        public BackupCapabilities capabilities()
+        {
+            return new BackupCapabilities();
+        }
+
+        public void configure()
+        {
+        }
+
+        public void release()
+        {
+        }
+    }
+
+    // Reads and closes a stream.
+    private byte[] readAll(InputStream in) throws IOException
+    {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        byte[] buf = new byte[1000];
+        int len;
+        while ((len = in.read(buf)) >= 0)
+            data.write(buf, 0, len);
+        in.close();
+        return data.toByteArray();
+    }
+
     // Configure the storage service.
     protected StorageAgent configureStorageService(String name, int retention)
             throws BackupException
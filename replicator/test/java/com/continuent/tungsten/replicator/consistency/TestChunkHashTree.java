@@ -0,0 +1,215 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.consistency;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.continuent.tungsten.replicator.database.Column;
+import com.continuent.tungsten.replicator.database.Key;
+import com.continuent.tungsten.replicator.database.MySQLOperationMatcher;
+import com.continuent.tungsten.replicator.database.SqlOperationMatcher;
+import com.continuent.tungsten.replicator.database.Table;
+import com.continuent.tungsten.replicator.dbms.OneRowChange;
+import com.continuent.tungsten.replicator.dbms.OneRowChange.ColumnSpec;
+import com.continuent.tungsten.replicator.dbms.OneRowChange.ColumnVal;
+import com.continuent.tungsten.replicator.dbms.RowChangeData;
+
+/**
+ * Tests hash trees and chunk tracking used by incremental consistency checks.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class TestChunkHashTree
+{
+    /**
+     * Verify that trees over the same chunk results are equal and compared at
+     * the root only.
+     */
+    @Test
+    public void testEqualTrees() throws Exception
+    {
+        List<String> leaves = createLeaves(13);
+        ChunkHashTree master = new ChunkHashTree(leaves);
+        ChunkHashTree slave = new ChunkHashTree(new ArrayList<String>(leaves));
+
+        Assert.assertEquals("Leaves", 13, master.getLeafCount());
+        Assert.assertEquals("Root", master.getRootHash(), slave.getRootHash());
+        Assert.assertTrue("No mismatch", master.diff(slave).isEmpty());
+        Assert.assertEquals("Compared", 1, master.getCompared());
+    }
+
+    /**
+     * Verify that mismatching and missing chunks are found by descending into
+     * differing subtrees only.
+     */
+    @Test
+    public void testMismatches() throws Exception
+    {
+        List<String> leaves = createLeaves(100);
+        List<String> changed = new ArrayList<String>(leaves);
+        changed.set(3, ChunkHashTree.leafValue("bad", 10));
+        changed.set(97, null);
+        ChunkHashTree master = new ChunkHashTree(leaves);
+        ChunkHashTree slave = new ChunkHashTree(changed);
+
+        Assert.assertFalse("Root",
+                master.getRootHash().equals(slave.getRootHash()));
+        Assert.assertEquals("Mismatches", Arrays.asList(3, 97),
+                master.diff(slave));
+        Assert.assertTrue("Pruned", master.getCompared() < 100);
+
+        try
+        {
+            master.diff(new ChunkHashTree(createLeaves(99)));
+            Assert.fail("Trees of different sizes were compared");
+        }
+        catch (IllegalArgumentException e)
+        {
+        }
+    }
+
+    /**
+     * Verify that row changes mark the chunks of their old and new keys and
+     * that tables without a numeric key are ignored.
+     */
+    @Test
+    public void testChunkTracking() throws Exception
+    {
+        Assert.assertEquals("Offset", 2048,
+                ConsistencyChunkTracker.chunkOffset(3000, 1024));
+        Assert.assertEquals("Negative offset", -1024,
+                ConsistencyChunkTracker.chunkOffset(-1, 1024));
+        Assert.assertEquals("Negative boundary", -1024,
+                ConsistencyChunkTracker.chunkOffset(-1024, 1024));
+
+        ConsistencyChunkTracker tracker = new ConsistencyChunkTracker(
+                "tungsten", 1024);
+        Table table = createTable(Types.INTEGER);
+
+        // Update moving a row from chunk 0 to chunk 2048 and another within
+        // chunk 0.
+        OneRowChange change = new OneRowChange("test", "t1",
+                RowChangeData.ActionType.UPDATE);
+        change.setKeySpec(specs(change));
+        change.setColumnSpec(specs(change));
+        change.getKeyValues().add(values(change, 5));
+        change.getKeyValues().add(values(change, 6));
+        change.getColumnValues().add(values(change, 3000));
+        change.getColumnValues().add(values(change, 7));
+        tracker.record(change, table);
+        Assert.assertEquals("Pending chunks", 2, tracker.getPendingChunks());
+
+        tracker.record(change, createTable(Types.VARCHAR));
+        Assert.assertEquals("Ignored table", 2, tracker.getPendingChunks());
+
+        tracker.clear();
+        Assert.assertEquals("Cleared", 0, tracker.getPendingChunks());
+    }
+
+    /**
+     * Verify that statements mark all chunks of the tables they touch, that
+     * statements on unknown tables mark all chunks and that statements which
+     * do not change data are ignored.
+     */
+    @Test
+    public void testStatementTracking() throws Exception
+    {
+        SqlOperationMatcher matcher = new MySQLOperationMatcher();
+        ConsistencyChunkTracker tracker = new ConsistencyChunkTracker(
+                "tungsten", 1024);
+        Table table = createTable(Types.INTEGER);
+
+        tracker.record(matcher.match("BEGIN"), "test");
+        tracker.record(matcher.match("SET autocommit=1"), "test");
+        tracker.record(
+                matcher.match("INSERT INTO tungsten.consistency VALUES (1)"),
+                "test");
+        Assert.assertTrue("Ignored statements", tracker.getPendingTables()
+                .isEmpty());
+
+        tracker.record(matcher.match("UPDATE t1 SET v = v + 1 WHERE v > 10"),
+                "test");
+        tracker.record(matcher.match("DELETE FROM other.t2"), "test");
+        Assert.assertEquals("Tables", Arrays.asList("test.t1", "other.t2"),
+                tracker.getPendingTables());
+
+        // Rows of a table whose chunks are all stale are not tracked again.
+        OneRowChange change = new OneRowChange("test", "t1",
+                RowChangeData.ActionType.DELETE);
+        change.setKeySpec(specs(change));
+        change.getKeyValues().add(values(change, 5));
+        tracker.record(change, table);
+        Assert.assertEquals("Pending chunks", 0, tracker.getPendingChunks());
+
+        tracker.record(matcher.match("DROP DATABASE other"), "test");
+        tracker.record(matcher.match("CALL refresh_totals()"), "test");
+        Assert.assertEquals("All", Arrays.asList("*", "other.*", "test.t1",
+                "other.t2"), tracker.getPendingTables());
+
+        tracker.clear();
+        Assert.assertTrue("Cleared", tracker.getPendingTables().isEmpty());
+    }
+
+    private List<String> createLeaves(int count)
+    {
+        List<String> leaves = new ArrayList<String>();
+        for (int i = 0; i < count; i++)
+            leaves.add(ChunkHashTree.leafValue("crc" + i, i));
+        return leaves;
+    }
+
+    private Table createTable(int keyType)
+    {
+        Table table = new Table("test", "t1");
+        Column id = new Column("id", keyType);
+        id.setPosition(1);
+        table.AddColumn(id);
+        Key pk = new Key(Key.Primary);
+        pk.AddColumn(id);
+        table.AddKey(pk);
+        return table;
+    }
+
+    private ArrayList<ColumnSpec> specs(OneRowChange change)
+    {
+        ArrayList<ColumnSpec> specs = new ArrayList<ColumnSpec>();
+        ColumnSpec spec = change.new ColumnSpec();
+        spec.setIndex(1);
+        spec.setName("id");
+        specs.add(spec);
+        return specs;
+    }
+
+    private ArrayList<ColumnVal> values(OneRowChange change, int key)
+    {
+        ArrayList<ColumnVal> values = new ArrayList<ColumnVal>();
+        ColumnVal value = change.new ColumnVal();
+        value.setValue(key);
+        values.add(value);
+        return values;
+    }
+}
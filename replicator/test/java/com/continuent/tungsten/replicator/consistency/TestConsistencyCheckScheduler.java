@@ -0,0 +1,266 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.consistency;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.continuent.tungsten.replicator.database.Table;
+
+/**
+ * Tests scheduling of concurrent consistency checks.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class TestConsistencyCheckScheduler
+{
+    /**
+     * Verify that every chunk of every table is checked exactly once and that
+     * mismatches are reported for the slave where they occur.
+     */
+    @Test
+    public void testScan() throws Exception
+    {
+        Table a = new Table("test", "a");
+        Table b = new Table("test", "b");
+        SimpleCluster cluster = new SimpleCluster(a, 500, 1, 0);
+        ConsistencyCheckScheduler scheduler = new ConsistencyCheckScheduler(
+                cluster, cluster, 2);
+        scheduler.setThreads(4);
+        scheduler.setPollInterval(5);
+        scheduler.addTable(a, 0, 1000, 64);
+        scheduler.addTable(b, 10, 300, 64);
+
+        List<ConsistencyCheckScheduler.Mismatch> mismatches = scheduler.run();
+
+        assertCovered(cluster.chunks(a), 0, 1000);
+        assertCovered(cluster.chunks(b), 10, 300);
+        Assert.assertEquals("Issued", 16 + 5, scheduler.getIssued());
+        Assert.assertEquals("Passed", 16 + 5 - 1, scheduler.getPassed());
+        Assert.assertEquals("Mismatches", 1, mismatches.size());
+        ConsistencyCheckScheduler.Mismatch m = mismatches.get(0);
+        Assert.assertSame("Table", a, m.getTable());
+        Assert.assertEquals("Row", 448, m.getRow());
+        Assert.assertEquals("Range", 64, m.getRange());
+        Assert.assertEquals("Slave", 1, m.getSlave());
+        Assert.assertFalse("Timed out", m.isTimedOut());
+    }
+
+    /**
+     * Verify that chunk sizes grow while checks are fast and shrink while they
+     * are slow, within limits.
+     */
+    @Test
+    public void testAdaptiveChunkSize() throws Exception
+    {
+        Table fast = new Table("test", "fast");
+        SimpleCluster cluster = new SimpleCluster(null, -1, -1, 0);
+        ConsistencyCheckScheduler scheduler = new ConsistencyCheckScheduler(
+                cluster, cluster, 1);
+        scheduler.setPollInterval(5);
+        scheduler.setTargetLatency(1000);
+        scheduler.setChunkSizeLimits(16, 256);
+        scheduler.addTable(fast, 0, 100000, 16);
+        scheduler.run();
+        Assert.assertEquals("Grown", 256, scheduler.getChunkSize(fast));
+        assertCovered(cluster.chunks(fast), 0, 100000);
+
+        Table slow = new Table("test", "slow");
+        cluster = new SimpleCluster(null, -1, -1, 20);
+        scheduler = new ConsistencyCheckScheduler(cluster, cluster, 1);
+        scheduler.setPollInterval(5);
+        scheduler.setTargetLatency(5);
+        scheduler.setChunkSizeLimits(16, 256);
+        scheduler.addTable(slow, 0, 1024, 128);
+        scheduler.run();
+        Assert.assertEquals("Shrunk", 16, scheduler.getChunkSize(slow));
+        assertCovered(cluster.chunks(slow), 0, 1024);
+    }
+
+    /**
+     * Verify that chunk sizes adapt to the time until slaves report results,
+     * not only to the time taken to issue checks on the master.
+     */
+    @Test
+    public void testAdaptToSlaveLatency() throws Exception
+    {
+        Table a = new Table("test", "a");
+        SimpleCluster cluster = new SimpleCluster(null, -1, -1, 0);
+        cluster.resultDelay = 50;
+        ConsistencyCheckScheduler scheduler = new ConsistencyCheckScheduler(
+                cluster, cluster, 2);
+        scheduler.setPollInterval(5);
+        scheduler.setMaxPending(1);
+        scheduler.setTargetLatency(10);
+        scheduler.setChunkSizeLimits(16, 256);
+        scheduler.addTable(a, 0, 512, 128);
+        scheduler.run();
+        Assert.assertEquals("Shrunk", 16, scheduler.getChunkSize(a));
+        assertCovered(cluster.chunks(a), 0, 512);
+    }
+
+    /**
+     * Verify that checks whose results do not arrive are reported as timed
+     * out.
+     */
+    @Test
+    public void testTimeout() throws Exception
+    {
+        Table a = new Table("test", "a");
+        SimpleCluster cluster = new SimpleCluster(null, -1, 0, 0);
+        cluster.lost = true;
+        ConsistencyCheckScheduler scheduler = new ConsistencyCheckScheduler(
+                cluster, cluster, 1);
+        scheduler.setPollInterval(5);
+        scheduler.setTimeout(1);
+        scheduler.addTable(a, 0, 100, 64);
+
+        List<ConsistencyCheckScheduler.Mismatch> mismatches = scheduler.run();
+        Assert.assertEquals("Mismatches", 2, mismatches.size());
+        Assert.assertTrue("Timed out", mismatches.get(0).isTimedOut());
+        Assert.assertEquals("Passed", 0, scheduler.getPassed());
+    }
+
+    /**
+     * Verify that the throttle paces checks to the maximum rates.
+     */
+    @Test
+    public void testThrottle() throws Exception
+    {
+        ScanThrottle throttle = new ScanThrottle(200, 0);
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 21; i++)
+            throttle.acquire(1);
+        long elapsed = System.currentTimeMillis() - start;
+        Assert.assertTrue("Check rate: " + elapsed, elapsed >= 90);
+
+        throttle = new ScanThrottle(0, 10000);
+        start = System.currentTimeMillis();
+        for (int i = 0; i < 3; i++)
+            throttle.acquire(500);
+        elapsed = System.currentTimeMillis() - start;
+        Assert.assertTrue("Row rate: " + elapsed, elapsed >= 90);
+
+        Assert.assertFalse("Disabled", new ScanThrottle(0, 0).isEnabled());
+    }
+
+    // Asserts that chunks cover a row range without gaps or overlaps.
+    private void assertCovered(List<long[]> chunks, long from, long till)
+    {
+        Collections.sort(chunks, new Comparator<long[]>()
+        {
+            public int compare(long[] x, long[] y)
+            {
+                return Long.valueOf(x[0]).compareTo(y[0]);
+            }
+        });
+        long next = from;
+        for (long[] chunk : chunks)
+        {
+            Assert.assertEquals("Chunk start", next, chunk[0]);
+            next = chunk[0] + chunk[1];
+        }
+        Assert.assertTrue("Chunk end", next >= till);
+    }
+
+    // Issues checks with increasing IDs and makes their results available
+    // after a delay, failing the check holding a bad row on one slave.
+    private static class SimpleCluster
+            implements
+                ConsistencyCheckScheduler.CheckIssuer,
+                ConsistencyCheckScheduler.ResultCollector
+    {
+        private final Table                        badTable;
+        private final long                         badRow;
+        private final int                          badSlave;
+        private final long                         delay;
+        private final AtomicInteger                ids     = new AtomicInteger();
+        private final Map<Integer, long[]>         checks  = new ConcurrentHashMap<Integer, long[]>();
+        private final Map<Table, List<long[]>>     chunks  = new HashMap<Table, List<long[]>>();
+        private volatile boolean                   lost    = false;
+        private volatile long                      resultDelay = 0;
+
+        SimpleCluster(Table badTable, long badRow, int badSlave, long delay)
+        {
+            this.badTable = badTable;
+            this.badRow = badRow;
+            this.badSlave = badSlave;
+            this.delay = delay;
+        }
+
+        public int issue(Table table, long row, int range) throws Exception
+        {
+            if (delay > 0)
+                Thread.sleep(delay);
+            int id = ids.incrementAndGet();
+            boolean bad = table == badTable && badRow >= row
+                    && badRow < row + range;
+            checks.put(id,
+                    new long[]{bad ? 1 : 0, System.currentTimeMillis()});
+            synchronized (chunks)
+            {
+                List<long[]> list = chunks.get(table);
+                if (list == null)
+                {
+                    list = new ArrayList<long[]>();
+                    chunks.put(table, list);
+                }
+                list.add(new long[]{row, range});
+            }
+            return id;
+        }
+
+        public Map<Integer, Boolean> collect(int slave, Collection<Integer> ids)
+        {
+            Map<Integer, Boolean> results = new HashMap<Integer, Boolean>();
+            if (lost)
+                return results;
+            long now = System.currentTimeMillis();
+            for (Integer id : ids)
+            {
+                long[] check = checks.get(id);
+                if (now - check[1] < resultDelay)
+                    continue;
+                boolean bad = check[0] == 1 && slave == badSlave;
+                results.put(id, !bad);
+            }
+            return results;
+        }
+
+        List<long[]> chunks(Table table)
+        {
+            synchronized (chunks)
+            {
+                return new ArrayList<long[]>(chunks.get(table));
+            }
+        }
+    }
+}
@@ -0,0 +1,280 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.extractor.mysql;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.continuent.tungsten.common.cache.RawByteCache;
+import com.continuent.tungsten.replicator.ReplicatorException;
+import com.continuent.tungsten.replicator.dbms.DBMSData;
+import com.continuent.tungsten.replicator.dbms.StatementData;
+import com.continuent.tungsten.replicator.event.DBMSEvent;
+
+/**
+ * Tests parallel extraction of binlog files.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class TestBinlogCatchUp
+{
+    /**
+     * Verify that events from files extracted in parallel are returned in file
+     * order and that all file extractors are released.
+     */
+    @Test
+    public void testFileOrder() throws Exception
+    {
+        List<String> files = createFiles(8);
+        SimpleFactory factory = new SimpleFactory(50, null);
+        BinlogCatchUp catchUp = new BinlogCatchUp(factory, files, 120, 4, 5);
+        catchUp.start();
+
+        for (String file : files)
+        {
+            long start = file.equals(files.get(0)) ? 120 : 4;
+            for (int i = 0; i < 50; i++)
+            {
+                DBMSEvent event = catchUp.next();
+                Assert.assertNotNull("Event", event);
+                Assert.assertEquals("Event order", file + ":" + (start + i),
+                        event.getEventId());
+            }
+        }
+        Assert.assertNull("Done", catchUp.next());
+        Assert.assertTrue("Done", catchUp.isDone());
+        catchUp.stop();
+        Assert.assertEquals("Released", files.size(), factory.released.get());
+    }
+
+    /**
+     * Verify that no more files than threads are in flight, so that workers
+     * that finish early do not leave full buffers for many files behind.
+     */
+    @Test
+    public void testFilesInFlight() throws Exception
+    {
+        List<String> files = createFiles(8);
+        SimpleFactory factory = new SimpleFactory(3, null);
+        BinlogCatchUp catchUp = new BinlogCatchUp(factory, files, 4, 2, 5);
+        catchUp.start();
+
+        // Every file fits in its buffer, so workers finish files quickly.
+        Thread.sleep(200);
+        Assert.assertEquals("Files started before reading", 2,
+                factory.created.get());
+
+        // Reading past the first file starts one more.
+        for (int i = 0; i < 4; i++)
+            Assert.assertNotNull("Event", catchUp.next());
+        Thread.sleep(200);
+        Assert.assertEquals("Files started after first file", 3,
+                factory.created.get());
+
+        for (int i = 0; i < 20; i++)
+            Assert.assertNotNull("Event", catchUp.next());
+        Assert.assertNull("Done", catchUp.next());
+        catchUp.stop();
+        Assert.assertEquals("All files started", files.size(),
+                factory.created.get());
+    }
+
+    /**
+     * Verify that a failure is reported after the events that precede it and
+     * that stopping early releases the workers.
+     */
+    @Test
+    public void testFailure() throws Exception
+    {
+        List<String> files = createFiles(4);
+        SimpleFactory factory = new SimpleFactory(10, files.get(2));
+        BinlogCatchUp catchUp = new BinlogCatchUp(factory, files, 4, 2, 3);
+        catchUp.start();
+
+        for (int i = 0; i < 20; i++)
+            Assert.assertNotNull("Event", catchUp.next());
+        try
+        {
+            catchUp.next();
+            Assert.fail("Failure was not reported");
+        }
+        catch (ReplicatorException e)
+        {
+            Assert.assertEquals("Current file", files.get(2),
+                    catchUp.getCurrentFile());
+        }
+        catchUp.stop();
+    }
+
+    /**
+     * Verify that catch-up workers spill transactions larger than the buffer
+     * limit to the parent's byte cache and that the transactions come back
+     * whole and in order.
+     */
+    @Test
+    public void testLargeTransactions() throws Exception
+    {
+        // Keep nothing in memory so that spilled data go to storage.
+        final RawByteCache cache = new RawByteCache(new File(
+                "testBinlogCatchUpCache"), 0, 0, 5);
+        cache.prepare();
+        final MySQLExtractor parent = new MySQLExtractor();
+        parent.setTransactionBufferLimit(10);
+        parent.setByteCache(cache);
+        final AtomicInteger spilled = new AtomicInteger();
+
+        List<String> files = createFiles(4);
+        BinlogCatchUp.FileExtractorFactory factory = new BinlogCatchUp.FileExtractorFactory()
+        {
+            public BinlogCatchUp.FileExtractor create(final String fileName,
+                    long offset)
+            {
+                final MySQLExtractor worker = parent.newCatchUpExtractor(
+                        fileName, offset);
+                return new BinlogCatchUp.FileExtractor()
+                {
+                    int count = 0;
+
+                    public DBMSEvent extract() throws ReplicatorException,
+                            InterruptedException
+                    {
+                        if (count++ >= 3)
+                            return null;
+                        MySQLTransactionBuffer buffer = worker
+                                .newTransactionBuffer();
+                        try
+                        {
+                            for (int i = 0; i < 25; i++)
+                                buffer.add(new StatementData(fileName + ":"
+                                        + i));
+                            if (buffer.isSpilled())
+                                spilled.incrementAndGet();
+                            return worker.newDBMSEvent(fileName + ":" + count,
+                                    buffer, true, null);
+                        }
+                        catch (Exception e)
+                        {
+                            throw new MySQLExtractException(
+                                    "Unable to buffer transaction", e);
+                        }
+                        finally
+                        {
+                            buffer.release();
+                        }
+                    }
+
+                    public void release()
+                    {
+                    }
+                };
+            }
+        };
+
+        BinlogCatchUp catchUp = new BinlogCatchUp(factory, files, 4, 2, 2);
+        catchUp.start();
+        try
+        {
+            for (String file : files)
+            {
+                for (int i = 1; i <= 3; i++)
+                {
+                    DBMSEvent event = catchUp.next();
+                    Assert.assertEquals("Event order", file + ":" + i,
+                            event.getEventId());
+                    Assert.assertTrue("Last fragment", event.isLastFrag());
+                    List<DBMSData> data = event.getData();
+                    Assert.assertEquals("Whole transaction", 25, data.size());
+                    Assert.assertEquals("Data order", file + ":24",
+                            ((StatementData) data.get(24)).getQuery());
+                }
+            }
+            Assert.assertNull("Done", catchUp.next());
+            Assert.assertEquals("Spilled transactions", 12, spilled.get());
+            Assert.assertEquals("Vectors deallocated", 0, cache.getSize());
+            Assert.assertEquals("Storage released", 0,
+                    cache.getCurrentStorageBytes());
+        }
+        finally
+        {
+            catchUp.stop();
+            cache.release();
+        }
+    }
+
+    private List<String> createFiles(int count)
+    {
+        List<String> files = new ArrayList<String>();
+        for (int i = 1; i <= count; i++)
+            files.add("mysql-bin.00000" + i);
+        return files;
+    }
+
+    // Generates events with ids based on file name and offset after random
+    // delays, optionally failing at the start of one file.
+    private static class SimpleFactory
+            implements
+                BinlogCatchUp.FileExtractorFactory
+    {
+        private final int           events;
+        private final String        failFile;
+        private final AtomicInteger released = new AtomicInteger();
+        private final AtomicInteger created  = new AtomicInteger();
+
+        SimpleFactory(int events, String failFile)
+        {
+            this.events = events;
+            this.failFile = failFile;
+        }
+
+        public BinlogCatchUp.FileExtractor create(final String fileName,
+                final long offset)
+        {
+            created.incrementAndGet();
+            final Random random = new Random();
+            return new BinlogCatchUp.FileExtractor()
+            {
+                int count = 0;
+
+                public DBMSEvent extract() throws ReplicatorException,
+                        InterruptedException
+                {
+                    if (fileName.equals(failFile))
+                        throw new MySQLExtractException("Bad binlog");
+                    if (count >= events)
+                        return null;
+                    Thread.sleep(random.nextInt(2));
+                    return new DBMSEvent(fileName + ":" + (offset + count++));
+                }
+
+                public void release()
+                {
+                    released.incrementAndGet();
+                }
+            };
+        }
+    }
+}
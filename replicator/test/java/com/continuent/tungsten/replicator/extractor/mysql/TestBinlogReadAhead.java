@@ -0,0 +1,159 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.extractor.mysql;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests read-ahead on binlog files.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class TestBinlogReadAhead
+{
+    private static final int FILE_SIZE = 1024 * 1024;
+
+    /**
+     * Verify that the read-ahead reads the window beyond the reader, that
+     * reads inside the window count as hits, and that it reads the head of the
+     * next binlog once it reaches the end of the current one.
+     */
+    @Test
+    public void testReadAhead() throws Exception
+    {
+        File dir = new File("testBinlogReadAhead");
+        dir.mkdirs();
+        File first = createFile(dir, "mysql-bin.000001", FILE_SIZE);
+        File second = createFile(dir, "mysql-bin.000002", FILE_SIZE);
+        FileWriter index = new FileWriter(new File(dir, "mysql-bin.index"));
+        index.write("mysql-bin.000001\nmysql-bin.000002\n");
+        index.close();
+
+        BinlogReadAhead readAhead = new BinlogReadAhead(dir.getAbsolutePath(),
+                "mysql-bin", 2 * FILE_SIZE);
+        readAhead.start();
+        try
+        {
+            readAhead.position(first, 4);
+
+            // The whole file plus the head of the next one is read ahead.
+            long expected = (FILE_SIZE - 4) + FILE_SIZE;
+            waitFor(readAhead, expected);
+            Assert.assertEquals("Bytes read ahead", expected,
+                    readAhead.getBytesPrefetched());
+            Assert.assertEquals("Next files read ahead", 1,
+                    readAhead.getFilesPrefetched());
+
+            // Reads in the window are hits.
+            readAhead.recordRead(4, 100);
+            readAhead.recordRead(104, 1000);
+            Assert.assertEquals("Hits", 2, readAhead.getHits());
+
+            // After rotation, reads in the head of the next file are hits
+            // without reading the file again.
+            readAhead.position(second, 4);
+            readAhead.recordRead(4, 1000);
+            Assert.assertEquals("Hits after rotation", 3, readAhead.getHits());
+            Assert.assertEquals("No misses", 0, readAhead.getMisses());
+            Assert.assertEquals("Hit ratio", 100.0, readAhead.getHitRatio(),
+                    0.01);
+            Assert.assertEquals("Next file not read again", expected,
+                    readAhead.getBytesPrefetched());
+
+            // Reads past the end of the data are misses.
+            readAhead.recordRead(FILE_SIZE, 10);
+            Assert.assertEquals("Misses", 1, readAhead.getMisses());
+        }
+        finally
+        {
+            readAhead.stop();
+        }
+    }
+
+    /**
+     * Verify that a failure to read ahead on one binlog is counted and that
+     * read-ahead resumes when the reader moves to the next binlog.
+     */
+    @Test
+    public void testReadAheadFailure() throws Exception
+    {
+        File dir = new File("testBinlogReadAheadFailure");
+        dir.mkdirs();
+
+        // A directory cannot be opened as a file, so reading ahead fails.
+        File broken = new File(dir, "mysql-bin.000001");
+        broken.mkdirs();
+        File second = createFile(dir, "mysql-bin.000002", FILE_SIZE);
+
+        BinlogReadAhead readAhead = new BinlogReadAhead(dir.getAbsolutePath(),
+                "mysql-bin", 2 * FILE_SIZE);
+        readAhead.start();
+        try
+        {
+            readAhead.position(broken, 4);
+            long timeout = System.currentTimeMillis() + 10000;
+            while (readAhead.getFailures() == 0
+                    && System.currentTimeMillis() < timeout)
+                Thread.sleep(10);
+            Assert.assertEquals("Failures", 1, readAhead.getFailures());
+            Assert.assertEquals("Nothing read ahead", 0,
+                    readAhead.getBytesPrefetched());
+
+            // Read-ahead resumes on the next binlog.
+            readAhead.position(second, 4);
+            waitFor(readAhead, FILE_SIZE - 4);
+            Assert.assertEquals("Bytes read ahead after failure",
+                    FILE_SIZE - 4, readAhead.getBytesPrefetched());
+            Assert.assertEquals("No further failures", 1,
+                    readAhead.getFailures());
+        }
+        finally
+        {
+            readAhead.stop();
+        }
+    }
+
+    // Waits up to 10 seconds for the expected number of bytes to be read.
+    private void waitFor(BinlogReadAhead readAhead, long bytes)
+            throws InterruptedException
+    {
+        long timeout = System.currentTimeMillis() + 10000;
+        while (readAhead.getBytesPrefetched() < bytes
+                && System.currentTimeMillis() < timeout)
+        {
+            Thread.sleep(10);
+        }
+    }
+
+    private File createFile(File dir, String name, int size) throws Exception
+    {
+        File file = new File(dir, name);
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(new byte[size]);
+        out.close();
+        return file;
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.extractor.mysql;
+
+import java.io.File;
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.continuent.tungsten.common.cache.RawByteCache;
+import com.continuent.tungsten.replicator.dbms.DBMSData;
+import com.continuent.tungsten.replicator.dbms.StatementData;
+
+/**
+ * Tests the transaction buffer used by the MySQL extractor to spill large
+ * transactions to storage.
+ */
+public class TestMySQLTransactionBuffer
+{
+    private RawByteCache cache;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        // Keep nothing in memory so that spilled data go to storage.
+        cache = new RawByteCache(new File("testMySQLTransactionBuffer"), 0,
+                0, 5);
+        cache.prepare();
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        cache.release();
+    }
+
+    /**
+     * Verify that transactions below the buffer limit stay in memory and are
+     * returned as a single list.
+     */
+    @Test
+    public void testSmallTransaction() throws Exception
+    {
+        MySQLTransactionBuffer buffer = new MySQLTransactionBuffer(cache, 10);
+        for (int i = 0; i < 10; i++)
+            buffer.add(new StatementData("query " + i));
+
+        Assert.assertFalse("Not spilled", buffer.isSpilled());
+        Assert.assertEquals("No storage used", 0,
+                cache.getCurrentStorageBytes());
+        ArrayList<DBMSData> data = buffer.toList();
+        Assert.assertEquals("All entries", 10, data.size());
+        Assert.assertEquals("Order", "query 9",
+                ((StatementData) data.get(9)).getQuery());
+        buffer.release();
+        Assert.assertEquals("Vector deallocated", 0, cache.getSize());
+    }
+
+    /**
+     * Verify that transactions above the buffer limit spill to storage and
+     * are read back in order in fragments no larger than the limit.
+     */
+    @Test
+    public void testSpilledTransaction() throws Exception
+    {
+        MySQLTransactionBuffer buffer = new MySQLTransactionBuffer(cache, 10);
+        for (int i = 0; i < 25; i++)
+            buffer.add(new StatementData("query " + i));
+
+        Assert.assertTrue("Spilled", buffer.isSpilled());
+        Assert.assertTrue("Storage used", cache.getCurrentStorageBytes() > 0);
+
+        int[] expectedSizes = {10, 10, 5};
+        int next = 0;
+        for (int expectedSize : expectedSizes)
+        {
+            Assert.assertTrue("More fragments", buffer.hasMoreFragments());
+            ArrayList<DBMSData> fragment = buffer.nextFragment();
+            Assert.assertEquals("Fragment size", expectedSize,
+                    fragment.size());
+            for (DBMSData data : fragment)
+            {
+                Assert.assertEquals("Order", "query " + next++,
+                        ((StatementData) data).getQuery());
+            }
+        }
+        Assert.assertFalse("No more fragments", buffer.hasMoreFragments());
+
+        buffer.release();
+        buffer.release();
+        Assert.assertEquals("Vector deallocated", 0, cache.getSize());
+        Assert.assertEquals("Storage released", 0,
+                cache.getCurrentStorageBytes());
+    }
+
+    /**
+     * Verify that a spilled transaction can be read back whole, which is how
+     * it is returned unless fragmenting of spilled transactions is enabled.
+     */
+    @Test
+    public void testReadAllSpilled() throws Exception
+    {
+        MySQLTransactionBuffer buffer = new MySQLTransactionBuffer(cache, 10);
+        for (int i = 0; i < 25; i++)
+            buffer.add(new StatementData("query " + i));
+        Assert.assertTrue("Spilled", buffer.isSpilled());
+
+        ArrayList<DBMSData> data = buffer.readAll();
+        Assert.assertEquals("All entries", 25, data.size());
+        for (int i = 0; i < data.size(); i++)
+        {
+            Assert.assertEquals("Order", "query " + i,
+                    ((StatementData) data.get(i)).getQuery());
+        }
+
+        buffer.release();
+        Assert.assertEquals("Vector deallocated", 0, cache.getSize());
+        Assert.assertEquals("Storage released", 0,
+                cache.getCurrentStorageBytes());
+    }
+
+    /**
+     * Verify that a buffer without a cache keeps everything in memory.
+     */
+    @Test
+    public void testNoCache() throws Exception
+    {
+        MySQLTransactionBuffer buffer = new MySQLTransactionBuffer();
+        for (int i = 0; i < 1000; i++)
+            buffer.add(new StatementData("query " + i));
+        Assert.assertFalse("Not spilled", buffer.isSpilled());
+        Assert.assertEquals("All entries", 1000, buffer.toList().size());
+        buffer.release();
+    }
+}
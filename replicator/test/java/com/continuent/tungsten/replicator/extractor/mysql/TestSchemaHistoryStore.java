@@ -0,0 +1,259 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.extractor.mysql;
+
+import java.io.File;
+import java.sql.Types;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.continuent.tungsten.replicator.database.Column;
+import com.continuent.tungsten.replicator.database.Key;
+import com.continuent.tungsten.replicator.database.SqlOperation;
+import com.continuent.tungsten.replicator.database.Table;
+import com.continuent.tungsten.replicator.extractor.mysql.SchemaHistoryStore.Position;
+
+/**
+ * Tests the SchemaHistoryStore used by the MySQL extractor to resolve table
+ * metadata by binlog position.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class TestSchemaHistoryStore
+{
+    /**
+     * Verify that lookups return the version in effect at a position and that
+     * positions before the first version are unknown.
+     */
+    @Test
+    public void testVersionsByPosition() throws Exception
+    {
+        SchemaHistoryStore store = new SchemaHistoryStore(null, 10);
+        store.open();
+
+        store.store(createTable("a", "t", 2), pos("mysql-bin.000002", 100));
+        store.store(createTable("a", "t", 3), pos("mysql-bin.000003", 4));
+
+        Assert.assertNull("Before first version",
+                store.lookup("a", "t", pos("mysql-bin.000001", 500)));
+        Assert.assertEquals("First version", 2,
+                store.lookup("a", "t", pos("mysql-bin.000002", 100))
+                        .getColumnCount());
+        Assert.assertEquals("First version, later offset", 2,
+                store.lookup("a", "t", pos("mysql-bin.000002", 9999))
+                        .getColumnCount());
+        Assert.assertEquals("Second version", 3,
+                store.lookup("a", "t", pos("mysql-bin.000004", 4))
+                        .getColumnCount());
+        Assert.assertNull("Unknown table",
+                store.lookup("a", "u", pos("mysql-bin.000004", 4)));
+        store.close();
+    }
+
+    /**
+     * Verify that DDL in the stream hides earlier versions from later
+     * positions but not from earlier ones.
+     */
+    @Test
+    public void testInvalidation() throws Exception
+    {
+        SchemaHistoryStore store = new SchemaHistoryStore(null, 10);
+        store.open();
+        store.store(createTable("a", "t", 2), pos("mysql-bin.000001", 100));
+        store.store(createTable("b", "t", 2), pos("mysql-bin.000001", 100));
+
+        // ALTER TABLE using the default schema.
+        SqlOperation alter = new SqlOperation(SqlOperation.TABLE,
+                SqlOperation.ALTER, null, "t");
+        Assert.assertEquals("alter", 1,
+                store.invalidate(alter, "a", pos("mysql-bin.000001", 200)));
+        Assert.assertNotNull("Before alter",
+                store.lookup("a", "t", pos("mysql-bin.000001", 150)));
+        Assert.assertNull("After alter",
+                store.lookup("a", "t", pos("mysql-bin.000001", 250)));
+
+        // DROP DATABASE hides all tables in the schema.
+        SqlOperation drop = new SqlOperation(SqlOperation.SCHEMA,
+                SqlOperation.DROP, "b", null);
+        Assert.assertEquals("drop database", 1,
+                store.invalidate(drop, "a", pos("mysql-bin.000002", 4)));
+        Assert.assertNotNull("Before drop",
+                store.lookup("b", "t", pos("mysql-bin.000001", 999)));
+        Assert.assertNull("After drop",
+                store.lookup("b", "t", pos("mysql-bin.000002", 5)));
+
+        // A new version after the drop is visible again.
+        store.store(createTable("b", "t", 4), pos("mysql-bin.000002", 10));
+        Assert.assertEquals("Recreated", 4,
+                store.lookup("b", "t", pos("mysql-bin.000002", 20))
+                        .getColumnCount());
+
+        // DML does not invalidate anything.
+        SqlOperation insert = new SqlOperation(SqlOperation.TABLE,
+                SqlOperation.INSERT, "b", "t");
+        Assert.assertEquals("insert", 0,
+                store.invalidate(insert, "a", pos("mysql-bin.000002", 30)));
+        store.close();
+    }
+
+    /**
+     * Verify that history survives a restart, including column details and
+     * keys, and that the number of versions per table is bounded.
+     */
+    @Test
+    public void testPersistence() throws Exception
+    {
+        File dir = prepareDir("testPersistence");
+        SchemaHistoryStore store = new SchemaHistoryStore(
+                dir.getAbsolutePath(), 2);
+        store.open();
+        store.store(createTable("a", "t", 1), pos("mysql-bin.000001", 4));
+        store.store(createTable("a", "t", 2), pos("mysql-bin.000002", 4));
+        store.store(createTable("a", "t", 3), pos("mysql-bin.000003", 4));
+        store.invalidate(new SqlOperation(SqlOperation.TABLE,
+                SqlOperation.DROP, "a", "t"), null, pos("mysql-bin.000004", 4));
+        store.close();
+
+        SchemaHistoryStore store2 = new SchemaHistoryStore(
+                dir.getAbsolutePath(), 2);
+        store2.open();
+        Assert.assertNull("Oldest version was trimmed",
+                store2.lookup("a", "t", pos("mysql-bin.000002", 4)));
+        Table t = store2.lookup("a", "t", pos("mysql-bin.000003", 100));
+        Assert.assertNotNull("Retained version", t);
+        Assert.assertEquals("Columns", 3, t.getColumnCount());
+        Column c = t.findColumn(2);
+        Assert.assertEquals("Column name", "c2", c.getName());
+        Assert.assertEquals("Column type", Types.VARCHAR, c.getType());
+        Assert.assertEquals("Type description", "datetime(3)",
+                c.getTypeDescription());
+        Assert.assertEquals("Primary key", "c1", t.getPrimaryKey()
+                .getColumns().get(0).getName());
+        Assert.assertNull("Dropped",
+                store2.lookup("a", "t", pos("mysql-bin.000004", 4)));
+        store2.close();
+    }
+
+    /**
+     * Verify that positions are ordered by binlog sequence number, so that
+     * history stays correct when the sequence number gains a digit.
+     */
+    @Test
+    public void testSequenceOrder() throws Exception
+    {
+        SchemaHistoryStore store = new SchemaHistoryStore(null, 10);
+        store.open();
+        store.store(createTable("a", "t", 2), pos("mysql-bin.999999", 100));
+        store.store(createTable("a", "t", 3), pos("mysql-bin.1000000", 100));
+
+        Assert.assertTrue("Sequence order",
+                pos("mysql-bin.999999", 9999).compareTo(
+                        pos("mysql-bin.1000000", 4)) < 0);
+        Assert.assertEquals("Version before extra digit", 2,
+                store.lookup("a", "t", pos("mysql-bin.1000000", 50))
+                        .getColumnCount());
+        Assert.assertEquals("Version after extra digit", 3,
+                store.lookup("a", "t", pos("mysql-bin.1000001", 4))
+                        .getColumnCount());
+        store.close();
+    }
+
+    /**
+     * Verify that history is discarded when the binlog sequence restarts or
+     * the binlog base name changes, but not when reading an earlier binlog of
+     * the same sequence.
+     */
+    @Test
+    public void testSequenceRestart() throws Exception
+    {
+        File dir = prepareDir("testSequenceRestart");
+        SchemaHistoryStore store = new SchemaHistoryStore(
+                dir.getAbsolutePath(), 10);
+        store.open();
+        store.store(createTable("a", "t", 2), pos("mysql-bin.000005", 100));
+        store.store(createTable("a", "t", 3), pos("mysql-bin.000009", 100));
+
+        // Going back within the sequence keeps history.
+        Assert.assertFalse("Same sequence", store.checkSequence(
+                pos("mysql-bin.000005", 4), "mysql-bin.000010"));
+        Assert.assertEquals("Tables after rewind", 1, store.size());
+
+        // After RESET MASTER, binlogs after the new last one no longer exist.
+        Assert.assertTrue("Sequence restarted", store.checkSequence(
+                pos("mysql-bin.000001", 4), "mysql-bin.000002"));
+        Assert.assertNull("History discarded",
+                store.lookup("a", "t", pos("mysql-bin.000009", 200)));
+        store.store(createTable("a", "t", 4), pos("mysql-bin.000001", 100));
+        store.close();
+
+        // The discarded history does not come back on restart.
+        SchemaHistoryStore store2 = new SchemaHistoryStore(
+                dir.getAbsolutePath(), 10);
+        store2.open();
+        Assert.assertEquals("Only new sequence reloaded", 4,
+                store2.lookup("a", "t", pos("mysql-bin.000009", 200))
+                        .getColumnCount());
+
+        // A new base name discards history as well.
+        Assert.assertTrue("Base name changed",
+                store2.checkSequence(pos("binlog.000001", 4), null));
+        Assert.assertEquals("Tables after base name change", 0,
+                store2.size());
+        store2.close();
+    }
+
+    // Creates a table with the given number of columns and a primary key.
+    private Table createTable(String schema, String name, int columns)
+    {
+        Table t = new Table(schema, name);
+        Key pk = new Key(Key.Primary);
+        for (int i = 1; i <= columns; i++)
+        {
+            Column c = new Column("c" + i, (i == 1) ? Types.INTEGER
+                    : Types.VARCHAR);
+            c.setPosition(i);
+            c.setTypeDescription((i == 1) ? "int" : "datetime(3)");
+            t.AddColumn(c);
+            if (i == 1)
+                pk.AddColumn(c);
+        }
+        t.AddKey(pk);
+        return t;
+    }
+
+    private Position pos(String file, long offset)
+    {
+        return new Position(file, offset);
+    }
+
+    // Creates an empty test directory.
+    private File prepareDir(String name)
+    {
+        File dir = new File(getClass().getSimpleName(), name);
+        File history = new File(dir, SchemaHistoryStore.HISTORY_FILE);
+        if (history.exists())
+            history.delete();
+        dir.mkdirs();
+        return dir;
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.extractor.oracle.redo;
+
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.continuent.tungsten.replicator.ReplicatorException;
+import com.continuent.tungsten.replicator.event.DBMSEvent;
+
+/**
+ * Tests parallel conversion of plog transactions.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class TestPlogCommitPipeline
+{
+    /**
+     * Verify that events of transactions converted in parallel are posted in
+     * submission order and that all transactions are released.
+     */
+    @Test
+    public void testCommitOrder() throws Exception
+    {
+        LinkedBlockingQueue<DBMSEvent> queue = new LinkedBlockingQueue<DBMSEvent>();
+        AtomicInteger released = new AtomicInteger();
+        PlogCommitPipeline pipeline = new PlogCommitPipeline(queue, 4, 2);
+        pipeline.start();
+
+        for (int i = 0; i < 50; i++)
+            pipeline.submit(new SimpleWork(i, 5, false, released));
+        pipeline.flush();
+        Assert.assertEquals("Last event ID", "49#LAST",
+                pipeline.getLastProcessedEventId());
+        pipeline.stop();
+
+        Assert.assertEquals("Released", 50, released.get());
+        Assert.assertEquals("Events", 250, queue.size());
+        for (int i = 0; i < 50; i++)
+        {
+            for (int j = 0; j < 4; j++)
+                Assert.assertEquals("Order", i + "#" + j, queue.take()
+                        .getEventId());
+            Assert.assertEquals("Order", i + "#LAST", queue.take()
+                    .getEventId());
+        }
+    }
+
+    /**
+     * Verify that a failed conversion is reported and that events of later
+     * transactions are not posted.
+     */
+    @Test
+    public void testFailure() throws Exception
+    {
+        LinkedBlockingQueue<DBMSEvent> queue = new LinkedBlockingQueue<DBMSEvent>();
+        AtomicInteger released = new AtomicInteger();
+        PlogCommitPipeline pipeline = new PlogCommitPipeline(queue, 2, 2);
+        pipeline.start();
+
+        pipeline.submit(new SimpleWork(0, 3, false, released));
+        pipeline.submit(new SimpleWork(1, 3, true, released));
+        pipeline.submit(new SimpleWork(2, 3, false, released));
+        try
+        {
+            pipeline.flush();
+            Assert.fail("Failure was not reported");
+        }
+        catch (ReplicatorException e)
+        {
+        }
+        pipeline.stop();
+
+        Assert.assertEquals("Last event ID", "0#LAST",
+                pipeline.getLastProcessedEventId());
+        for (DBMSEvent event : queue)
+            Assert.assertFalse("No later events",
+                    event.getEventId().startsWith("2#"));
+        Assert.assertEquals("Released", 3, released.get());
+    }
+
+    // Posts a number of events after random delays, optionally failing.
+    private static class SimpleWork implements PlogCommitPipeline.Work
+    {
+        private final int           id;
+        private final int           events;
+        private final boolean       fail;
+        private final AtomicInteger released;
+
+        SimpleWork(int id, int events, boolean fail, AtomicInteger released)
+        {
+            this.id = id;
+            this.events = events;
+            this.fail = fail;
+            this.released = released;
+        }
+
+        public String pushContentsToQueue(BlockingQueue<DBMSEvent> out)
+                throws Exception
+        {
+            Random random = new Random();
+            String eventId = null;
+            for (int i = 0; i < events; i++)
+            {
+                Thread.sleep(random.nextInt(3));
+                if (fail)
+                    throw new ReplicatorException("Bad LCR");
+                eventId = id + "#" + (i == events - 1 ? "LAST" : "" + i);
+                out.put(new DBMSEvent(eventId));
+            }
+            return eventId;
+        }
+
+        public void release()
+        {
+            released.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.extractor.oracle.redo;
+
+import java.io.File;
+import java.sql.Timestamp;
+import java.util.LinkedList;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.continuent.tungsten.common.cache.LargeObjectArray;
+import com.continuent.tungsten.common.cache.LargeObjectScanner;
+import com.continuent.tungsten.common.cache.RawByteCache;
+
+/**
+ * Tests the binary codec for LCRs that spill to the byte cache.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class TestPlogLCRCodec
+{
+    /**
+     * Verify that LCRs spilled through the codec read back with the same
+     * header fields and raw tags, including null and empty values.
+     */
+    @Test
+    public void testRoundTrip() throws Exception
+    {
+        File testDir = new File("testPlogLCRCodec");
+        RawByteCache cache = new RawByteCache(testDir, 10000, 1000, 5);
+        cache.prepare();
+        LargeObjectArray<PlogLCR> lcrs = new LargeObjectArray<PlogLCR>(cache,
+                0, new PlogLCRCodec());
+
+        for (int i = 0; i < 200; i++)
+            lcrs.add(createLCR(i));
+
+        LargeObjectScanner<PlogLCR> scanner = lcrs.scanner();
+        for (int i = 0; i < 200; i++)
+        {
+            PlogLCR expected = createLCR(i);
+            PlogLCR lcr = scanner.next();
+            Assert.assertEquals("type", expected.type, lcr.type);
+            Assert.assertEquals("subtype", expected.subtype, lcr.subtype);
+            Assert.assertEquals("length", expected.length, lcr.length);
+            Assert.assertEquals("eventId", expected.eventId, lcr.eventId);
+            Assert.assertEquals("XID", expected.XID, lcr.XID);
+            Assert.assertEquals("LCRid", expected.LCRid, lcr.LCRid);
+            Assert.assertEquals("savepoint", expected.LCRSavepointId,
+                    lcr.LCRSavepointId);
+            Assert.assertEquals("SCN", expected.SCN, lcr.SCN);
+            Assert.assertEquals("timestamp", expected.timestamp, lcr.timestamp);
+            Assert.assertEquals("owner", expected.tableOwner, lcr.tableOwner);
+            Assert.assertEquals("table", expected.tableName, lcr.tableName);
+            Assert.assertEquals("tableId", expected.tableId, lcr.tableId);
+            Assert.assertEquals("SQL", expected.SQLText, lcr.SQLText);
+            Assert.assertEquals("schema", expected.currentSchema,
+                    lcr.currentSchema);
+            Assert.assertEquals("tags", expected.rawTags.size(),
+                    lcr.rawTags.size());
+            for (int t = 0; t < expected.rawTags.size(); t++)
+            {
+                PlogLCRTag expectedTag = expected.rawTags.get(t);
+                PlogLCRTag tag = lcr.rawTags.get(t);
+                Assert.assertEquals("tag id", expectedTag.id, tag.id);
+                Assert.assertEquals("tag length", expectedTag.length,
+                        tag.length);
+                Assert.assertEquals("tag prchar", expectedTag.prchar,
+                        tag.prchar);
+                Assert.assertArrayEquals("tag data", expectedTag.rawData,
+                        tag.rawData);
+            }
+        }
+        Assert.assertFalse("End of array", scanner.hasNext());
+
+        lcrs.release();
+        cache.release();
+    }
+
+    // Builds a recognizable LCR, leaving some fields null on odd numbers.
+    private PlogLCR createLCR(int i)
+    {
+        PlogLCR lcr = new PlogLCR();
+        lcr.type = PlogLCR.ETYPE_LCR_DATA;
+        lcr.subtype = PlogLCR.ESTYPE_LCR_INSERT;
+        lcr.length = 100 + i;
+        lcr.eventId = (i % 2 == 0) ? "plog-" + i : null;
+        lcr.XID = "0x0001.002." + i;
+        lcr.LCRid = i;
+        lcr.LCRSavepointId = -i;
+        lcr.SCN = 1000000L + i;
+        if (i % 2 == 0)
+        {
+            lcr.timestamp = new Timestamp(1420070400000L + i * 1000L);
+            lcr.timestamp.setNanos(123456789);
+        }
+        lcr.tableOwner = "OWNER";
+        lcr.tableName = "T\u00e9ble" + i;
+        lcr.tableId = i;
+        lcr.SQLText = (i % 3 == 0) ? null : "insert into t values (" + i + ")";
+
+        lcr.rawTags = new LinkedList<PlogLCRTag>();
+        for (int t = 0; t < i % 4; t++)
+        {
+            PlogLCRTag tag = new PlogLCRTag();
+            tag.id = t;
+            tag.length = t + 2;
+            tag.prchar = (short) (t - 1);
+            tag.rawData = new int[t];
+            for (int j = 0; j < t; j++)
+                tag.rawData[j] = Integer.MAX_VALUE - j * i;
+            lcr.rawTags.add(tag);
+        }
+        return lcr;
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.extractor.parallel;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests adaptive chunking helpers.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class TestKeyHistogram
+{
+    /**
+     * Verify that chunks computed from a skewed histogram hold about the same
+     * number of rows, cover the whole key range and skip empty buckets.
+     */
+    @Test
+    public void testSkewedKeys() throws Exception
+    {
+        // Keys 1 to 1000000 in 100 buckets of 10000 keys. Almost all rows are
+        // in the first bucket and the last one.
+        KeyHistogram histogram = new KeyHistogram(1, 1000000, 100);
+        Assert.assertEquals("Width", 10000, histogram.getWidth());
+        histogram.add(0, 90000);
+        histogram.add(50, 100);
+        histogram.add(99, 9900);
+        Assert.assertEquals("Total", 100000, histogram.getTotal());
+
+        long from = 0;
+        long rows = 0;
+        int count = 0;
+        while (histogram.hasNext())
+        {
+            long to = histogram.next(10000);
+            Assert.assertTrue("Increasing bounds", to > from);
+            long chunkRows = histogram.getLastRows();
+            if (histogram.hasNext())
+                Assert.assertEquals("Chunk rows", 10000, chunkRows, 100);
+            rows += chunkRows;
+            from = to;
+            count++;
+        }
+        Assert.assertEquals("Covers range", 1000000, from);
+        Assert.assertEquals("All rows", 100000, rows, 10);
+        Assert.assertEquals("Chunks", 10, count);
+    }
+
+    /**
+     * Verify that a chunk with a key range can be split in halves that cover
+     * the same range, and merged back.
+     */
+    @Test
+    public void testSplit() throws Exception
+    {
+        NumericChunk chunk = new NumericChunk(null, 100L, 200L, null, 1);
+        chunk.setEstimatedRows(5001);
+        NumericChunk half = chunk.splitUpperHalf();
+        Assert.assertNotNull("Split", half);
+        Assert.assertEquals("Lower from", 100, (long) chunk.getFrom());
+        Assert.assertEquals("Lower to", 150, (long) chunk.getTo());
+        Assert.assertEquals("Upper from", 150, (long) half.getFrom());
+        Assert.assertEquals("Upper to", 200, (long) half.getTo());
+        Assert.assertEquals("Rows", 5001, chunk.getEstimatedRows()
+                + half.getEstimatedRows());
+
+        chunk.merge(half);
+        Assert.assertEquals("Merged to", 200, (long) chunk.getTo());
+        Assert.assertEquals("Merged rows", 5001, chunk.getEstimatedRows());
+
+        // Whole table chunks and tiny ranges cannot be split.
+        Assert.assertNull("No range", new NumericChunk(null, null)
+                .splitUpperHalf());
+        Assert.assertNull("Tiny range",
+                new NumericChunk(null, 1L, 2L, null, 1).splitUpperHalf());
+    }
+}
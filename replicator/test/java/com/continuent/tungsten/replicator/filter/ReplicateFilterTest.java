@@ -228,6 +228,39 @@ public class ReplicateFilterTest extends TestCase
         filterHelper.done();
     }
 
+    /**
+     * Verify that the table projection declared to extractors agrees with the
+     * filtering of row changes.
+     */
+    public void testRowChangeProjection() throws ReplicatorException,
+            InterruptedException
+    {
+        ReplicateFilter rf = new ReplicateFilter();
+        rf.setTungstenSchema("tungsten_foo");
+        rf.setDo("foo.*,bar.test1");
+        filterHelper.setFilter(rf);
+
+        String[] names = {"id"};
+        Object[] values = {1};
+        assertFalse("foo.a kept", rf.dropsRowChanges("foo", "a"));
+        verifyRowAccept(filterHelper, 0, "foo", "a", names, values);
+        assertFalse("bar.test1 kept", rf.dropsRowChanges("bar", "test1"));
+        verifyRowAccept(filterHelper, 1, "bar", "test1", names, values);
+        assertTrue("bar.test2 dropped", rf.dropsRowChanges("bar", "test2"));
+        verifyRowIgnore(filterHelper, 2, "bar", "test2", names, values);
+        assertFalse("Tungsten schema kept",
+                rf.dropsRowChanges("tungsten_foo", "heartbeat"));
+
+        filterHelper.done();
+
+        // A filter without rules drops nothing.
+        ReplicateFilter empty = new ReplicateFilter();
+        empty.setTungstenSchema("tungsten_foo");
+        filterHelper.setFilter(empty);
+        assertFalse("No rules", empty.dropsRowChanges("bar", "test2"));
+        filterHelper.done();
+    }
+
     /**
      * Verify that we always accept the Tungsten catalog even if it is
      * explicitly ignored.
@@ -0,0 +1,129 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.pipeline;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests sampling and ring buffers of the event tracer.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class EventTracerTest
+{
+    private static final String[] STEPS = {EventTracer.EXTRACT,
+            EventTracer.APPLY, EventTracer.COMMIT};
+
+    /**
+     * Verify that events are sampled by seqno and that a rate of 0 disables
+     * tracing.
+     */
+    @Test
+    public void testSampling() throws Exception
+    {
+        EventTracer tracer = new EventTracer();
+        Assert.assertFalse("disabled by default", tracer.isEnabled());
+        Assert.assertFalse("not sampled", tracer.isSampled(0));
+
+        tracer.setSampleRate(10);
+        Assert.assertTrue("enabled", tracer.isEnabled());
+        Assert.assertTrue("seqno 0", tracer.isSampled(0));
+        Assert.assertFalse("seqno 5", tracer.isSampled(5));
+        Assert.assertTrue("seqno 20", tracer.isSampled(20));
+        Assert.assertFalse("uninitialized seqno", tracer.isSampled(-10));
+
+        tracer.setSampleRate(-1);
+        Assert.assertFalse("negative rate disables", tracer.isEnabled());
+    }
+
+    /**
+     * Verify that a buffer keeps only the most recent entries and that clear
+     * hides entries recorded before it.
+     */
+    @Test
+    public void testBufferWrap() throws Exception
+    {
+        EventTracer tracer = new EventTracer();
+        tracer.setBufferSize(10);
+        Assert.assertEquals("rounded size", 16, tracer.getBufferSize());
+        EventTracer.Buffer buffer = tracer.newBuffer("task-0", STEPS);
+
+        long now = System.nanoTime();
+        for (int i = 0; i < 40; i++)
+            buffer.record(i, 0, i % 3, now + i, now + i + 1000);
+
+        // The writer reuses the oldest slot next, so only the most recent 15
+        // entries are guaranteed to be intact.
+        List<EventTracer.Entry> entries = tracer.dump();
+        Assert.assertEquals("kept entries", 15, entries.size());
+        for (int i = 0; i < entries.size(); i++)
+        {
+            EventTracer.Entry entry = entries.get(i);
+            long seqno = 25 + i;
+            Assert.assertEquals("seqno", seqno, entry.getSeqno());
+            Assert.assertEquals("step", STEPS[(int) (seqno % 3)],
+                    entry.getStep());
+            Assert.assertEquals("duration", 1000, entry.getDurationNanos());
+            Assert.assertEquals("task", "task-0", entry.getTask());
+        }
+
+        tracer.clear();
+        Assert.assertEquals("cleared", 0, tracer.dump().size());
+        buffer.record(40, 0, 0, now, now + 1);
+        Assert.assertEquals("entry after clear", 1, tracer.dump().size());
+    }
+
+    /**
+     * Verify that entries of several buffers are merged in order of seqno and
+     * start time.
+     */
+    @Test
+    public void testMerge() throws Exception
+    {
+        EventTracer tracer = new EventTracer();
+        EventTracer.Buffer first = tracer.newBuffer("stage1-0", STEPS);
+        EventTracer.Buffer second = tracer.newBuffer("stage2-0", STEPS);
+
+        long now = System.nanoTime();
+        second.record(0, 0, 0, now + 100, now + 200);
+        first.record(0, 0, 1, now, now + 50);
+        second.record(0, 0, 1, now + 200, now + 300);
+        first.record(1, 0, 0, now + 60, now + 70);
+
+        List<EventTracer.Entry> entries = tracer.dump();
+        Assert.assertEquals("entries", 4, entries.size());
+        String[] expectedTasks = {"stage1-0", "stage2-0", "stage2-0",
+                "stage1-0"};
+        String[] expectedSteps = {EventTracer.APPLY, EventTracer.EXTRACT,
+                EventTracer.APPLY, EventTracer.EXTRACT};
+        for (int i = 0; i < entries.size(); i++)
+        {
+            Assert.assertEquals("task " + i, expectedTasks[i],
+                    entries.get(i).getTask());
+            Assert.assertEquals("step " + i, expectedSteps[i],
+                    entries.get(i).getStep());
+        }
+        Assert.assertEquals("last seqno", 1, entries.get(3).getSeqno());
+    }
+}
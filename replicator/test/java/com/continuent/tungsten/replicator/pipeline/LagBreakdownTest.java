@@ -0,0 +1,184 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.pipeline;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.continuent.tungsten.replicator.dbms.DBMSData;
+import com.continuent.tungsten.replicator.dbms.StatementData;
+import com.continuent.tungsten.replicator.event.DBMSEvent;
+import com.continuent.tungsten.replicator.event.EventLineage;
+import com.continuent.tungsten.replicator.event.ReplDBMSEvent;
+
+/**
+ * Tests lineage stamps and the lag breakdown computed from them.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class LagBreakdownTest
+{
+    /**
+     * Verify that stamps are only added to traced events, that stored stamps
+     * are kept and that copies get their own metadata.
+     */
+    @Test
+    public void testStamps() throws Exception
+    {
+        ReplDBMSEvent event = createEvent(System.currentTimeMillis());
+        DBMSEvent dbmsEvent = event.getDBMSEvent();
+
+        // Events without an extracted stamp are not traced.
+        EventLineage.stamp(event, EventLineage.RECEIVED);
+        Assert.assertFalse("not traced", EventLineage.isTraced(event));
+        Assert.assertEquals("no received stamp", -1,
+                EventLineage.getStamp(dbmsEvent, EventLineage.RECEIVED));
+        Assert.assertSame("not copied", event,
+                EventLineage.copyWithStamp(event, EventLineage.SENT));
+
+        // The first stamp wins with stampIfAbsent.
+        dbmsEvent.setMetaDataOption(EventLineage.EXTRACTED, "5");
+        EventLineage.stampIfAbsent(event, EventLineage.EXTRACTED);
+        Assert.assertTrue("traced", EventLineage.isTraced(event));
+        Assert.assertEquals("extracted stamp kept", 5,
+                EventLineage.getStamp(dbmsEvent, EventLineage.EXTRACTED));
+
+        // Received stamps are overwritten.
+        dbmsEvent.setMetaDataOption(EventLineage.RECEIVED, "6");
+        EventLineage.stamp(event, EventLineage.RECEIVED);
+        Assert.assertTrue("received stamp replaced", EventLineage.getStamp(
+                dbmsEvent, EventLineage.RECEIVED) > 6);
+
+        // Copies carry the sent stamp without changing the original.
+        ReplDBMSEvent copy = EventLineage.copyWithStamp(event,
+                EventLineage.SENT);
+        Assert.assertNotSame("copied", event, copy);
+        Assert.assertEquals("seqno", event.getSeqno(), copy.getSeqno());
+        Assert.assertSame("data shared", dbmsEvent.getData(),
+                copy.getDBMSEvent().getData());
+        Assert.assertTrue("copy has sent stamp", EventLineage.getStamp(
+                copy.getDBMSEvent(), EventLineage.SENT) > 0);
+        Assert.assertEquals("original has no sent stamp", -1,
+                EventLineage.getStamp(dbmsEvent, EventLineage.SENT));
+        Assert.assertEquals("copy keeps extracted stamp", 5, EventLineage
+                .getStamp(copy.getDBMSEvent(), EventLineage.EXTRACTED));
+    }
+
+    /**
+     * Verify that each segment covers the time between consecutive stamps
+     * and that commit and total segments wait for the commit.
+     */
+    @Test
+    public void testBreakdown() throws Exception
+    {
+        long now = System.currentTimeMillis();
+        ReplDBMSEvent event = createEvent(now - 10000);
+        DBMSEvent dbmsEvent = event.getDBMSEvent();
+        dbmsEvent.setMetaDataOption(EventLineage.EXTRACTED,
+                Long.toString(now - 8000));
+        dbmsEvent.setMetaDataOption(EventLineage.STORED,
+                Long.toString(now - 7000));
+        dbmsEvent.setMetaDataOption(EventLineage.SENT,
+                Long.toString(now - 4000));
+        dbmsEvent.setMetaDataOption(EventLineage.RECEIVED,
+                Long.toString(now - 1000));
+
+        LagBreakdown breakdown = new LagBreakdown();
+        LagBreakdown.Recorder recorder = breakdown.newRecorder();
+        recorder.beforeApply(event);
+        recorder.afterApply();
+        Assert.assertFalse("no data before commit", breakdown.hasData());
+        recorder.committed();
+        Assert.assertTrue("data after commit", breakdown.hasData());
+
+        long[] expectedMillis = {2000, 1000, 3000, 3000};
+        for (int i = 0; i < expectedMillis.length; i++)
+        {
+            LatencyHistogram segment = breakdown.getSegment(i);
+            Assert.assertEquals(LagBreakdown.SEGMENTS[i] + " count", 1,
+                    segment.getCount());
+            Assert.assertEquals(LagBreakdown.SEGMENTS[i] + " total",
+                    expectedMillis[i] * 1000, segment.getTotalMicros());
+        }
+        for (int i = expectedMillis.length; i < LagBreakdown.SEGMENTS.length; i++)
+        {
+            Assert.assertEquals(LagBreakdown.SEGMENTS[i] + " count", 1,
+                    breakdown.getSegment(i).getCount());
+        }
+        Assert.assertTrue("queue", breakdown.getSegment(4)
+                .getTotalMicros() >= 1000000);
+        Assert.assertTrue("total", breakdown.getSegment(7)
+                .getTotalMicros() >= 10000000);
+
+        // A second commit does not count the event again.
+        recorder.committed();
+        Assert.assertEquals("total count", 1,
+                breakdown.getSegment(7).getCount());
+    }
+
+    /**
+     * Verify that missing stamps are skipped and untraced events are ignored.
+     */
+    @Test
+    public void testMissingStamps() throws Exception
+    {
+        long now = System.currentTimeMillis();
+        LagBreakdown breakdown = new LagBreakdown();
+        LagBreakdown.Recorder recorder = breakdown.newRecorder();
+
+        recorder.beforeApply(createEvent(now));
+        recorder.afterApply();
+        recorder.committed();
+        Assert.assertFalse("untraced event ignored", breakdown.hasData());
+
+        // Without sent and received stamps, e.g. on a master, the queue
+        // segment starts at the stored stamp.
+        ReplDBMSEvent event = createEvent(now - 3000);
+        event.getDBMSEvent().setMetaDataOption(EventLineage.EXTRACTED,
+                Long.toString(now - 2000));
+        event.getDBMSEvent().setMetaDataOption(EventLineage.STORED,
+                Long.toString(now - 1000));
+        recorder.beforeApply(event);
+        recorder.afterApply();
+        recorder.committed();
+        Assert.assertEquals("send count", 0,
+                breakdown.getSegment(2).getCount());
+        Assert.assertEquals("network count", 0,
+                breakdown.getSegment(3).getCount());
+        Assert.assertTrue("queue", breakdown.getSegment(4)
+                .getTotalMicros() >= 1000000);
+        Assert.assertEquals("total count", 1,
+                breakdown.getSegment(7).getCount());
+    }
+
+    // Creates an event with a single statement.
+    private ReplDBMSEvent createEvent(long sourceMillis)
+    {
+        ArrayList<DBMSData> data = new ArrayList<DBMSData>();
+        data.add(new StatementData("insert into foo values(1)"));
+        DBMSEvent dbmsEvent = new DBMSEvent("mysql-bin.000001:1", data,
+                new Timestamp(sourceMillis));
+        return new ReplDBMSEvent(1, dbmsEvent);
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.pipeline;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests recording and percentiles of latency histograms.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class LatencyHistogramTest
+{
+    /**
+     * Verify that an empty histogram reports zeros.
+     */
+    @Test
+    public void testEmpty() throws Exception
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals("count", 0, histogram.getCount());
+        Assert.assertEquals("p99", 0, histogram.getPercentileMicros(99));
+        Assert.assertEquals("max", 0, histogram.getMaxMicros());
+    }
+
+    /**
+     * Verify that percentiles are within the bucket precision of the exact
+     * values across a wide range of magnitudes.
+     */
+    @Test
+    public void testPercentilePrecision() throws Exception
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long v = 1; v <= 100000; v++)
+            histogram.record(v);
+        Assert.assertEquals("count", 100000, histogram.getCount());
+        Assert.assertEquals("total", 100000L * 100001 / 2,
+                histogram.getTotalMicros());
+        Assert.assertEquals("max", 100000, histogram.getMaxMicros());
+        Assert.assertEquals("p100", 100000, histogram.getPercentileMicros(100));
+
+        double[] percentiles = {0.001, 1, 50, 90, 99, 99.9};
+        for (double p : percentiles)
+        {
+            long exact = (long) Math.ceil(p / 100 * 100000);
+            long reported = histogram.getPercentileMicros(p);
+            Assert.assertTrue("p" + p + " not below exact: " + reported,
+                    reported >= exact);
+            Assert.assertTrue("p" + p + " within 4%: " + reported,
+                    reported <= exact * 1.04 + 1);
+        }
+    }
+
+    /**
+     * Verify that out of range values are clamped and that histograms can be
+     * merged.
+     */
+    @Test
+    public void testClampAndAdd() throws Exception
+    {
+        LatencyHistogram a = new LatencyHistogram();
+        a.record(-5);
+        a.record(Long.MAX_VALUE);
+        Assert.assertEquals("min", 0, a.getPercentileMicros(50));
+        Assert.assertEquals("max", LatencyHistogram.MAX_MICROS,
+                a.getPercentileMicros(100));
+
+        LatencyHistogram b = new LatencyHistogram();
+        b.recordNanos(3000000);
+        LatencyHistogram merged = new LatencyHistogram();
+        merged.add(a);
+        merged.add(b);
+        Assert.assertEquals("merged count", 3, merged.getCount());
+        Assert.assertEquals("merged max", LatencyHistogram.MAX_MICROS,
+                merged.getMaxMicros());
+        long median = merged.getPercentileMicros(50);
+        Assert.assertTrue("median near 3ms: " + median,
+                median >= 3000 && median < 3100);
+    }
+}
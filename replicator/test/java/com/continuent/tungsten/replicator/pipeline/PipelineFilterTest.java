@@ -20,6 +20,7 @@
 
 package com.continuent.tungsten.replicator.pipeline;
 
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -33,6 +34,7 @@ import org.junit.Before;
 
 import com.continuent.tungsten.common.config.TungstenProperties;
 import com.continuent.tungsten.replicator.ReplicatorException;
+import com.continuent.tungsten.replicator.conf.ReplicatorConf;
 import com.continuent.tungsten.replicator.conf.ReplicatorMonitor;
 import com.continuent.tungsten.replicator.conf.ReplicatorRuntime;
 import com.continuent.tungsten.replicator.event.ReplDBMSEvent;
@@ -360,6 +362,52 @@ public class PipelineFilterTest extends TestCase
         }
     }
 
+    /**
+     * Verify that sampled events have their extract, filter and apply steps
+     * traced and that tracing stops when the sample rate is set to 0.
+     */
+    public void testEventTracing() throws Exception
+    {
+        // Configure a pipeline that traces every third event.
+        TungstenProperties config = helper.createDoubleQueueWithFilter(100, 1,
+                -1, 0, false);
+        config.setInt(ReplicatorConf.TRACE_SAMPLE_RATE, 3);
+        ReplicatorRuntime runtime = new ReplicatorRuntime(config,
+                new MockOpenReplicatorContext(),
+                ReplicatorMonitor.getInstance());
+        Pipeline pipeline = prepareAndStartPipeline(config, runtime);
+        EventTracer tracer = pipeline.getEventTracer();
+        assertEquals("sample rate", 3, tracer.getSampleRate());
+
+        // Process 10 events and confirm that seqnos 0, 3, 6 and 9 are traced.
+        InMemoryQueueStore input = (InMemoryQueueStore) pipeline.getStore("q1");
+        this.insertEvents(input, 0, 10);
+        verifyProcessedSeqno(pipeline, 9);
+        String[] steps = {EventTracer.EXTRACT,
+                EventTracer.FILTER_PREFIX + "sample-filter", EventTracer.APPLY};
+        List<EventTracer.Entry> entries = tracer.dump();
+        assertEquals("traced steps", 12, entries.size());
+        for (int i = 0; i < entries.size(); i++)
+        {
+            EventTracer.Entry entry = entries.get(i);
+            assertEquals("seqno", (i / 3) * 3, entry.getSeqno());
+            assertEquals("step", steps[i % 3], entry.getStep());
+            assertEquals("task", "stage-0", entry.getTask());
+            assertTrue("duration", entry.getDurationNanos() >= 0);
+        }
+
+        // Disable tracing and confirm that no further steps are recorded.
+        tracer.setSampleRate(0);
+        tracer.clear();
+        this.insertEvents(input, 10, 10);
+        verifyProcessedSeqno(pipeline, 19);
+        assertEquals("no steps after disabling", 0, tracer.dump().size());
+
+        // Shut down.
+        pipeline.shutdown(false);
+        pipeline.release(runtime);
+    }
+
     // Starting with configuration properties and a runtime as input, prepare
     // and start a pipeline.
     private Pipeline prepareAndStartPipeline(TungstenProperties config,
@@ -21,6 +21,8 @@
 package com.continuent.tungsten.replicator.pipeline;
 
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
@@ -33,8 +35,10 @@ import com.continuent.tungsten.common.config.TungstenProperties;
 import com.continuent.tungsten.replicator.conf.ReplicatorMonitor;
 import com.continuent.tungsten.replicator.conf.ReplicatorRuntime;
 import com.continuent.tungsten.replicator.event.ReplDBMSHeader;
+import com.continuent.tungsten.replicator.management.MetricsHttpServer;
 import com.continuent.tungsten.replicator.management.MockEventDispatcher;
 import com.continuent.tungsten.replicator.management.MockOpenReplicatorContext;
+import com.continuent.tungsten.replicator.storage.InMemoryQueueStore;
 
 /**
  * This class implements a test of pipeline monitoring functions.
@@ -148,4 +152,81 @@ public class PipelineProgressTest extends TestCase
         pipeline.shutdown(false);
         pipeline.release(runtime);
     }
-}
\ No newline at end of file
+
+    /**
+     * Verify that task latency histograms record operations and that pipeline
+     * metrics include task, stage, filter and store samples in a form that
+     * can be exported in Prometheus format.
+     */
+    public void testPipelineMetrics() throws Exception
+    {
+        TungstenProperties config = helper.createDoubleQueueWithFilter(10, 1,
+                -1, 0, false);
+        ReplicatorRuntime runtime = new ReplicatorRuntime(config,
+                new MockOpenReplicatorContext(),
+                ReplicatorMonitor.getInstance());
+        runtime.configure();
+        runtime.prepare();
+        Pipeline pipeline = runtime.getPipeline();
+        pipeline.start(new MockEventDispatcher());
+
+        // Push events through the filter.
+        InMemoryQueueStore input = (InMemoryQueueStore) pipeline.getStore("q1");
+        for (int i = 0; i < 5; i++)
+            input.put(helper.createEvent(i, "db0"));
+        Future<ReplDBMSHeader> wait = pipeline.watchForCommittedSequenceNumber(
+                4, false);
+        assertEquals("Last seqno", 4, wait.get(10, TimeUnit.SECONDS)
+                .getSeqno());
+
+        // Every event was filtered and applied with a commit.
+        TaskProgress task = pipeline.getTaskProgress().get(0);
+        assertEquals("filter passes", 5, task.getFilterLatency().getCount());
+        assertEquals("apply calls", 5, task.getApplyLatency().getCount());
+        assertEquals("commits", 5, task.getCommitLatency().getCount());
+        assertEquals("filter names", "sample-filter",
+                task.getFilterNames()[0]);
+        assertEquals("calls of filter", 5,
+                task.getFilterLatencies()[0].getCount());
+
+        // Check for samples of each kind.
+        List<Map<String, String>> samples = PipelineMetrics.collect(pipeline);
+        assertNotNull("stage apply count", findSample(samples,
+                "tungsten_stage_latency_seconds_count", "phase", "apply"));
+        assertEquals("task events", "5", findSample(samples,
+                "tungsten_task_events_total", "stage", "stage").get(
+                PipelineMetrics.VALUE));
+        assertNotNull("filter quantile", findSample(samples,
+                "tungsten_filter_latency_seconds", "filter", "sample-filter"));
+        assertEquals("output queue size", "5", findSample(samples,
+                "tungsten_store_size", "store", "q2").get(
+                PipelineMetrics.VALUE));
+
+        // Samples of one metric are grouped under a single type line.
+        Map<String, List<Map<String, String>>> serviceMetrics = new TreeMap<String, List<Map<String, String>>>();
+        serviceMetrics.put("test", samples);
+        String text = MetricsHttpServer.format(serviceMetrics);
+        assertEquals("one type line per summary", text
+                .indexOf("# TYPE tungsten_task_latency_seconds summary"), text
+                .lastIndexOf("# TYPE tungsten_task_latency_seconds"));
+        assertTrue("labelled sample", text
+                .contains("tungsten_store_size{service=\"test\",store=\"q2\"} 5"));
+
+        // Shut down.
+        pipeline.shutdown(false);
+        pipeline.release(runtime);
+    }
+
+    // Returns the first sample with a name and label value or null.
+    private Map<String, String> findSample(List<Map<String, String>> samples,
+            String name, String label, String value)
+    {
+        for (Map<String, String> sample : samples)
+        {
+            if (name.equals(sample.get(PipelineMetrics.NAME))
+                    && value.equals(sample.get(label)))
+                return sample;
+        }
+        return null;
+    }
+}
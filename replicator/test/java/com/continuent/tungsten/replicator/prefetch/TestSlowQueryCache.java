@@ -0,0 +1,185 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.prefetch;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.continuent.tungsten.replicator.database.Column;
+import com.continuent.tungsten.replicator.database.Key;
+import com.continuent.tungsten.replicator.database.Table;
+
+/**
+ * Tests tracking of pending and slow prefetch queries.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class TestSlowQueryCache
+{
+    /**
+     * Verify that a query is skipped while another thread runs it and once it
+     * is known to be slow, and that skips are counted.
+     */
+    @Test
+    public void testPendingAndSlowQueries() throws Exception
+    {
+        SlowQueryCache cache = createCache(1000);
+        Key key = createKey();
+
+        // A running query is skipped by others until it completes.
+        Assert.assertTrue("First run", cache.shouldExecute(select(key, 1)));
+        Assert.assertFalse("Pending", cache.shouldExecute(select(key, 1)));
+        Assert.assertTrue("Other value", cache.shouldExecute(select(key, 2)));
+        cache.updateCache(select(key, 1), 1);
+        Assert.assertTrue("Completed", cache.shouldExecute(select(key, 1)));
+
+        // Once slow, the query is skipped until it is invalidated.
+        cache.updateCache(select(key, 1), 500);
+        Assert.assertEquals("Slow queries", 1, cache.getCurrentSize());
+        KeySelect slowSelect = select(key, 1);
+        Assert.assertFalse("Slow", cache.shouldExecute(slowSelect));
+        Assert.assertTrue("Last invocation set",
+                slowSelect.getLastInvocation() > 0);
+
+        Assert.assertEquals("Lookups", 5, cache.getLookups());
+        Assert.assertEquals("Pending skips", 1, cache.getPendingSkips());
+        Assert.assertEquals("Slow skips", 1, cache.getSlowSkips());
+        Assert.assertEquals("Skip rate", 0.4, cache.getSkipRate(), 0.001);
+    }
+
+    /**
+     * Verify that queries whose hashes collide are not mistaken for one
+     * another, whether pending or slow.
+     */
+    @Test
+    public void testHashCollision() throws Exception
+    {
+        SlowQueryCache cache = createCache(1000);
+        Key key = createKey();
+
+        // Long values whose upper and lower halves are equal hash to 0.
+        KeySelect first = select(key, Long.valueOf(0));
+        KeySelect second = select(key, Long.valueOf(0x100000001L));
+        Assert.assertEquals("Forced collision", first.generateHash(),
+                second.generateHash());
+        Assert.assertFalse("Different queries",
+                first.generateKey().equals(second.generateKey()));
+
+        // A pending query does not block its colliding neighbor.
+        Assert.assertTrue("First run", cache.shouldExecute(first));
+        Assert.assertTrue("Colliding query runs",
+                cache.shouldExecute(select(key, Long.valueOf(0x100000001L))));
+        Assert.assertEquals("Pending skips", 0, cache.getPendingSkips());
+        cache.updateCache(second, 1);
+
+        // A slow query does not make its colliding neighbor slow.
+        cache.updateCache(first, 500);
+        Assert.assertFalse("Slow",
+                cache.shouldExecute(select(key, Long.valueOf(0))));
+        Assert.assertTrue("Colliding query is not slow",
+                cache.shouldExecute(select(key, Long.valueOf(0x100000001L))));
+        Assert.assertEquals("Slow skips", 1, cache.getSlowSkips());
+
+        // A fast run of the neighbor does not invalidate the slow query.
+        cache.updateCache(second, 1);
+        Assert.assertEquals("Slow queries", 1, cache.getCurrentSize());
+        Assert.assertFalse("Still slow",
+                cache.shouldExecute(select(key, Long.valueOf(0))));
+    }
+
+    /**
+     * Verify that concurrent threads can use the cache and that the number of
+     * slow queries stays within the cache size.
+     */
+    @Test
+    public void testConcurrentAccess() throws Exception
+    {
+        final SlowQueryCache cache = createCache(160);
+        final Key key = createKey();
+        final List<Throwable> errors = new ArrayList<Throwable>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 8; t++)
+        {
+            Thread thread = new Thread()
+            {
+                public void run()
+                {
+                    Random random = new Random();
+                    try
+                    {
+                        for (int i = 0; i < 20000; i++)
+                        {
+                            KeySelect ks = select(key, random.nextInt(1000));
+                            if (cache.shouldExecute(ks))
+                                cache.updateCache(ks, random.nextInt(200));
+                        }
+                    }
+                    catch (Throwable e)
+                    {
+                        synchronized (errors)
+                        {
+                            errors.add(e);
+                        }
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        Assert.assertEquals("Thread errors: " + errors, 0, errors.size());
+        Assert.assertEquals("Lookups", 160000, cache.getLookups());
+        Assert.assertTrue("Cache size: " + cache,
+                cache.getCurrentSize() <= 160);
+    }
+
+    private SlowQueryCache createCache(int size)
+    {
+        SlowQueryCache cache = new SlowQueryCache();
+        cache.setSlowQueryCacheSize(size);
+        cache.setSlowQueryRows(100);
+        cache.setSlowQueryCacheDuration(60);
+        cache.init();
+        return cache;
+    }
+
+    private Key createKey()
+    {
+        Key key = new Key(Key.NonUnique);
+        key.setName("idx_c1");
+        key.AddColumn(new Column("c1", Types.INTEGER));
+        return key;
+    }
+
+    private KeySelect select(Key key, Object value) throws Exception
+    {
+        KeySelect ks = new KeySelect(new Table("test", "t1"), key);
+        ks.setValue(1, value);
+        return ks;
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.thl;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.continuent.tungsten.replicator.thl.compression.LzfCodec;
+
+/**
+ * Tests adaptive selection of compression on THL connections.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class TestProtocolCompressor
+{
+    /**
+     * Verify that adaptive compression turns off when writes are cheap,
+     * keeps probing while off, and turns back on when writes become slow.
+     */
+    @Test
+    public void testAdaptiveSelection() throws Exception
+    {
+        ProtocolCompressor compressor = new ProtocolCompressor(new LzfCodec(),
+                true, 4);
+        byte[] frame = createFrame();
+        Assert.assertTrue("Starts active", compressor.shouldCompress());
+        byte[] compressed = compressor.compress(frame, 0, frame.length);
+        Assert.assertNotNull("Frame compresses", compressed);
+
+        // A fast link: writes take no time at all.
+        for (int i = 0; i < 10; i++)
+            compressor.written(compressed.length, 0);
+        Assert.assertFalse("Inactive on fast link", compressor.isActive());
+        int probes = 0;
+        for (int i = 0; i < 8; i++)
+        {
+            if (compressor.shouldCompress())
+                probes++;
+        }
+        Assert.assertEquals("Probes while inactive", 2, probes);
+
+        // A slow link: writes take 10 microseconds per byte.
+        for (int i = 0; i < 50; i++)
+            compressor.written(compressed.length, compressed.length * 10000L);
+        Assert.assertTrue("Active on slow link", compressor.isActive());
+        Assert.assertTrue("Ratio", compressor.getCompressionRatio() > 2.0);
+    }
+
+    /**
+     * Verify that frames that do not shrink are sent uncompressed and that
+     * compression stays on when not adaptive.
+     */
+    @Test
+    public void testFixedSelection() throws Exception
+    {
+        ProtocolCompressor compressor = new ProtocolCompressor(new LzfCodec(),
+                false, 4);
+        byte[] random = new byte[4096];
+        new Random(1).nextBytes(random);
+        Assert.assertNull("Random data are not compressed",
+                compressor.compress(random, 0, random.length));
+        for (int i = 0; i < 10; i++)
+            compressor.written(random.length, 0);
+        Assert.assertTrue("Still active", compressor.isActive());
+        Assert.assertEquals("No compressed frames", 0,
+                compressor.getFramesCompressed());
+    }
+
+    private byte[] createFrame()
+    {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 500; i++)
+            sb.append("INSERT INTO test.t1 VALUES (").append(i)
+                    .append(", 'abc');\n");
+        return sb.toString().getBytes();
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.thl;
+
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests credit accounting for THL flow control.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class TestProtocolFlowControl
+{
+    /**
+     * Verify that the sender may send until the credit is used up and that
+     * acknowledgements return the bytes of consumed frames.
+     */
+    @Test
+    public void testCreditAccounting() throws Exception
+    {
+        ProtocolFlowControl flow = new ProtocolFlowControl(1000);
+        Assert.assertTrue("Credit at start", flow.awaitCredit(0));
+
+        // A frame may take us over the credit.
+        flow.sent(600);
+        Assert.assertTrue("Credit left", flow.awaitCredit(0));
+        flow.sent(600);
+        Assert.assertEquals("Unacked", 1200, flow.getUnackedBytes());
+        Assert.assertFalse("No credit left", flow.awaitCredit(10));
+        Assert.assertEquals("Waits", 1, flow.getCreditWaits());
+
+        // Acknowledging the first frame returns its bytes.
+        flow.acknowledged(1, 5);
+        Assert.assertEquals("Unacked", 600, flow.getUnackedBytes());
+        Assert.assertEquals("Acked seqno", 5, flow.getAckedSeqno());
+        Assert.assertTrue("Credit returned", flow.awaitCredit(0));
+
+        // Acknowledgements are cumulative.
+        flow.sent(100);
+        flow.acknowledged(3, 9);
+        Assert.assertEquals("Unacked", 0, flow.getUnackedBytes());
+        Assert.assertEquals("Acked seqno", 9, flow.getAckedSeqno());
+    }
+
+    /**
+     * Verify that an acknowledgement wakes a waiting sender.
+     */
+    @Test
+    public void testAckWakesSender() throws Exception
+    {
+        final ProtocolFlowControl flow = new ProtocolFlowControl(100);
+        flow.sent(100);
+        Thread acker = new Thread()
+        {
+            public void run()
+            {
+                try
+                {
+                    Thread.sleep(100);
+                    flow.acknowledged(1, 0);
+                }
+                catch (Exception e)
+                {
+                }
+            }
+        };
+        acker.start();
+        Assert.assertTrue("Woken by ack", flow.awaitCredit(10000));
+        acker.join();
+    }
+
+    /**
+     * Verify that acknowledging frames that were not sent is an error and that
+     * a failed acknowledgement stream fails the sender.
+     */
+    @Test
+    public void testErrors() throws Exception
+    {
+        ProtocolFlowControl flow = new ProtocolFlowControl(100);
+        flow.sent(50);
+        try
+        {
+            flow.acknowledged(2, 0);
+            Assert.fail("Acknowledged unsent frame");
+        }
+        catch (THLException e)
+        {
+        }
+
+        flow.sent(50);
+        flow.failed(new IOException("closed"));
+        try
+        {
+            flow.awaitCredit(10000);
+            Assert.fail("Waited after failure");
+        }
+        catch (IOException e)
+        {
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.thl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.continuent.tungsten.replicator.dbms.DBMSData;
+import com.continuent.tungsten.replicator.dbms.StatementData;
+import com.continuent.tungsten.replicator.event.DBMSEvent;
+import com.continuent.tungsten.replicator.event.ReplControlEvent;
+import com.continuent.tungsten.replicator.event.ReplDBMSEvent;
+import com.continuent.tungsten.replicator.event.ReplDBMSFilteredEvent;
+import com.continuent.tungsten.replicator.event.ReplEvent;
+
+/**
+ * Tests encoding and decoding of binary THL protocol frames.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class TestProtocolFrameCodec
+{
+    /**
+     * Verify that control messages survive a round trip.
+     */
+    @Test
+    public void testControlMessages() throws Exception
+    {
+        ProtocolReplEventRequest request = (ProtocolReplEventRequest) roundTrip(new ProtocolReplEventRequest(
+                42, Long.MAX_VALUE));
+        Assert.assertEquals("Request seqno", 42, request.getSeqNo());
+        Assert.assertEquals("Request range", Long.MAX_VALUE,
+                request.getPrefetchRange());
+
+        ProtocolAck ack = (ProtocolAck) roundTrip(new ProtocolAck(7, 99));
+        Assert.assertEquals("Ack frames", 7, ack.getFramesConsumed());
+        Assert.assertEquals("Ack seqno", 99, ack.getSeqno());
+
+        Assert.assertTrue("Heartbeat",
+                roundTrip(new ProtocolHeartbeat()) instanceof ProtocolHeartbeat);
+
+        // Error messages may exceed the limit of DataOutput.writeUTF().
+        StringBuffer sb = new StringBuffer();
+        for (int i = 0; i < 70000; i++)
+            sb.append((char) ('a' + i % 26));
+        ProtocolMessage nok = roundTrip(new ProtocolNOK(sb.toString()));
+        Assert.assertTrue("NOK", nok instanceof ProtocolNOK);
+        Assert.assertEquals("NOK message", sb.toString(), nok.getPayload());
+    }
+
+    /**
+     * Verify that single events and batches, including filtered events,
+     * survive a round trip.
+     */
+    @Test
+    public void testEvents() throws Exception
+    {
+        ReplDBMSEvent event = createEvent(5);
+        ProtocolReplEvent single = (ProtocolReplEvent) roundTrip(new ProtocolReplEvent(
+                event));
+        assertEventsEqual(event, (ReplDBMSEvent) single.getReplEvent());
+
+        ArrayList<ReplEvent> batch = new ArrayList<ReplEvent>();
+        batch.add(createEvent(6));
+        batch.add(new ReplDBMSFilteredEvent(7L, (short) 0, 9L, (short) 0,
+                true, "event-9", "source", new Timestamp(1000), 3));
+        batch.add(createEvent(10));
+        ProtocolMessage decoded = roundTrip(new ProtocolMessage(batch));
+        ArrayList<?> events = (ArrayList<?>) decoded.getPayload();
+        Assert.assertEquals("Batch size", 3, events.size());
+        assertEventsEqual((ReplDBMSEvent) batch.get(0),
+                (ReplDBMSEvent) events.get(0));
+        ReplDBMSFilteredEvent filtered = (ReplDBMSFilteredEvent) events.get(1);
+        Assert.assertEquals("Filtered seqno", 7, filtered.getSeqno());
+        Assert.assertEquals("Filtered seqno end", 9, filtered.getSeqnoEnd());
+        assertEventsEqual((ReplDBMSEvent) batch.get(2),
+                (ReplDBMSEvent) events.get(2));
+    }
+
+    /**
+     * Verify that messages without a binary encoding are recognized so that
+     * they can be sent as Java objects.
+     */
+    @Test
+    public void testUnencodableMessages() throws Exception
+    {
+        Assert.assertFalse("Handshake", ProtocolFrameCodec
+                .canEncode(new ProtocolHandshake()));
+        Assert.assertFalse("Control event",
+                ProtocolFrameCodec.canEncode(new ProtocolReplEvent(
+                        new ReplControlEvent(ReplControlEvent.STOP, 1, null))));
+        ArrayList<ReplEvent> batch = new ArrayList<ReplEvent>();
+        batch.add(createEvent(1));
+        batch.add(new ReplControlEvent(ReplControlEvent.STOP, 2, null));
+        Assert.assertFalse("Mixed batch",
+                ProtocolFrameCodec.canEncode(new ProtocolMessage(batch)));
+    }
+
+    // Encodes and decodes a message with separate codecs, as the two ends of
+    // a connection do.
+    private ProtocolMessage roundTrip(ProtocolMessage msg) throws Exception
+    {
+        Assert.assertTrue("Can encode", ProtocolFrameCodec.canEncode(msg));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        new ProtocolFrameCodec().encode(msg, out);
+        out.flush();
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+                bytes.toByteArray()));
+        ProtocolMessage decoded = new ProtocolFrameCodec().decode(
+                in.readByte(), in);
+        Assert.assertEquals("Frame fully read", -1, in.read());
+        return decoded;
+    }
+
+    private void assertEventsEqual(ReplDBMSEvent expected, ReplDBMSEvent actual)
+    {
+        Assert.assertEquals("Seqno", expected.getSeqno(), actual.getSeqno());
+        Assert.assertEquals("Fragno", expected.getFragno(), actual.getFragno());
+        Assert.assertEquals("Last frag", expected.getLastFrag(),
+                actual.getLastFrag());
+        Assert.assertEquals("Event ID", expected.getEventId(),
+                actual.getEventId());
+        Assert.assertEquals("Shard ID", expected.getShardId(),
+                actual.getShardId());
+        StatementData expectedData = (StatementData) expected.getData().get(0);
+        StatementData actualData = (StatementData) actual.getData().get(0);
+        Assert.assertEquals("Query", expectedData.getQuery(),
+                actualData.getQuery());
+    }
+
+    private ReplDBMSEvent createEvent(long seqno)
+    {
+        ArrayList<DBMSData> data = new ArrayList<DBMSData>();
+        data.add(new StatementData("INSERT INTO t VALUES (" + seqno + ")"));
+        DBMSEvent dbmsEvent = new DBMSEvent("event-" + seqno, null, data,
+                true, new Timestamp(System.currentTimeMillis()));
+        ReplDBMSEvent event = new ReplDBMSEvent(seqno, dbmsEvent);
+        event.setShardId("shard" + seqno);
+        return event;
+    }
+}
@@ -23,6 +23,7 @@ package com.continuent.tungsten.replicator.thl;
 import java.io.File;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
@@ -40,6 +41,7 @@ import com.continuent.tungsten.replicator.conf.ReplicatorRuntime;
 import com.continuent.tungsten.replicator.dbms.DBMSData;
 import com.continuent.tungsten.replicator.dbms.StatementData;
 import com.continuent.tungsten.replicator.event.DBMSEvent;
+import com.continuent.tungsten.replicator.event.EventLineage;
 import com.continuent.tungsten.replicator.event.ReplDBMSEvent;
 import com.continuent.tungsten.replicator.event.ReplDBMSFilteredEvent;
 import com.continuent.tungsten.replicator.event.ReplDBMSHeader;
@@ -47,11 +49,13 @@ import com.continuent.tungsten.replicator.event.ReplOptionParams;
 import com.continuent.tungsten.replicator.extractor.DummyExtractor;
 import com.continuent.tungsten.replicator.management.MockEventDispatcher;
 import com.continuent.tungsten.replicator.management.MockOpenReplicatorContext;
+import com.continuent.tungsten.replicator.pipeline.LagBreakdown;
 import com.continuent.tungsten.replicator.pipeline.Pipeline;
 import com.continuent.tungsten.replicator.pipeline.PipelineConfigBuilder;
 import com.continuent.tungsten.replicator.storage.InMemoryQueueAdapter;
 import com.continuent.tungsten.replicator.storage.InMemoryQueueStore;
 import com.continuent.tungsten.replicator.storage.Store;
+import com.continuent.tungsten.replicator.thl.log.LogConnection;
 
 /**
  * Implements a test of THL. This test implements a practical test of the
@@ -70,8 +74,13 @@ public class TestTHL2
     private Pipeline          pipeline;
     private ReplicatorRuntime runtime;
 
+    // Every runtime a test creates, so that a failed test still frees its
+    // THL ports for the tests that follow.
+    private List<ReplicatorRuntime> runtimes = new ArrayList<ReplicatorRuntime>();
+
     /**
-     * Shut down default pipeline and runtime at end of test.
+     * Shut down default pipeline and runtime, plus any other runtimes still
+     * running, at end of test.
      */
     @After
     public void teardown()
@@ -86,6 +95,15 @@ public class TestTHL2
             logger.info("Releasing runtime...");
             runtime.release();
         }
+        for (ReplicatorRuntime other : runtimes)
+        {
+            if (other.getPipeline() != null)
+            {
+                logger.info("Releasing leftover runtime...");
+                other.getPipeline().shutdown(true);
+                other.release();
+            }
+        }
     }
 
     /*
@@ -101,6 +119,7 @@ public class TestTHL2
                 "testBasicServices", 1);
         runtime = new ReplicatorRuntime(conf, new MockOpenReplicatorContext(),
                 ReplicatorMonitor.getInstance());
+        runtimes.add(runtime);
         runtime.configure();
         runtime.prepare();
         pipeline = runtime.getPipeline();
@@ -139,6 +158,7 @@ public class TestTHL2
                 ReplicatorMonitor.getInstance());
 
         // Configure and start pipeline
+        runtimes.add(runtime);
         runtime.configure();
         runtime.prepare();
         pipeline = runtime.getPipeline();
@@ -278,6 +298,7 @@ public class TestTHL2
         ReplicatorRuntime serverRuntime = new ReplicatorRuntime(serverConf,
                 new MockOpenReplicatorContext(),
                 ReplicatorMonitor.getInstance());
+        runtimes.add(serverRuntime);
         serverRuntime.configure();
         serverRuntime.prepare();
         Pipeline serverPipeline = serverRuntime.getPipeline();
@@ -285,6 +306,7 @@ public class TestTHL2
         ReplicatorRuntime clientRuntime = new ReplicatorRuntime(clientConf,
                 new MockOpenReplicatorContext(),
                 ReplicatorMonitor.getInstance());
+        runtimes.add(clientRuntime);
         clientRuntime.configure();
         clientRuntime.prepare();
         Pipeline clientPipeline = clientRuntime.getPipeline();
@@ -329,6 +351,462 @@ public class TestTHL2
         serverRuntime.release();
     }
 
+    /**
+     * Verify that a slave that requests compression receives compressed
+     * frames from the master and that both ends report it in their
+     * connection statistics.
+     */
+    @Test
+    public void testCompressedTransfer() throws Exception
+    {
+        logger.info("##### testCompressedTransfer #####");
+
+        // Generate server pipeline from dummy extractor to THL that sends
+        // events in frames of up to 5 events.
+        prepareLogDir("testCompressedTransfer1");
+        PipelineConfigBuilder builder = new PipelineConfigBuilder();
+        builder.setProperty(ReplicatorConf.SERVICE_NAME, "test");
+        builder.setRole("master");
+        builder.setProperty(ReplicatorConf.METADATA_SCHEMA,
+                "testCompressedTransfer1");
+        builder.setProperty(ReplicatorConf.THL_PROTOCOL_BUFFER_SIZE, "5");
+        builder.addPipeline("master", "extract-s", "thl");
+        builder.addStage("extract-s", "dummy", "thl-apply", null);
+        builder.addComponent("extractor", "dummy", DummyExtractor.class);
+        builder.addComponent("applier", "thl-apply", THLStoreApplier.class);
+        builder.addProperty("applier", "thl-apply", "storeName", "thl");
+        builder.addComponent("store", "thl", THL.class);
+        builder.addProperty("store", "thl", "logDir", "testCompressedTransfer1");
+        builder.addProperty("store", "thl", "storageListenerUri",
+                "thl://localhost:2114/");
+        TungstenProperties serverConf = builder.getConfig();
+
+        // Generate a slave that always asks for compression.
+        TungstenProperties clientConf = generateSlaveProps(
+                "testCompressedTransfer2", "thl://localhost:2114/", 2115,
+                null);
+        clientConf.setString(ReplicatorConf.THL_PROTOCOL_COMPRESSION, "lzf");
+        clientConf.setString(ReplicatorConf.THL_PROTOCOL_COMPRESSION_ADAPTIVE,
+                "false");
+
+        ReplicatorRuntime serverRuntime = new ReplicatorRuntime(serverConf,
+                new MockOpenReplicatorContext(),
+                ReplicatorMonitor.getInstance());
+        runtimes.add(serverRuntime);
+        serverRuntime.configure();
+        serverRuntime.prepare();
+        Pipeline serverPipeline = serverRuntime.getPipeline();
+
+        ReplicatorRuntime clientRuntime = new ReplicatorRuntime(clientConf,
+                new MockOpenReplicatorContext(),
+                ReplicatorMonitor.getInstance());
+        runtimes.add(clientRuntime);
+        clientRuntime.configure();
+        clientRuntime.prepare();
+        Pipeline clientPipeline = clientRuntime.getPipeline();
+
+        serverPipeline.start(new MockEventDispatcher());
+        clientPipeline.start(new MockEventDispatcher());
+
+        // Ensure the client gets all events.
+        Future<ReplDBMSHeader> waitClient = clientPipeline
+                .watchForProcessedSequenceNumber(9);
+        ReplDBMSHeader lastClientEvent = waitClient.get(5, TimeUnit.SECONDS);
+        Assert.assertEquals("Expected 10 client events", 9,
+                lastClientEvent.getSeqno());
+
+        // Check statistics on both ends of the connection.
+        RemoteTHLExtractor extractor = (RemoteTHLExtractor) clientPipeline
+                .getStages().get(0).getExtractor0();
+        TungstenProperties clientStats = extractor.getStatistics();
+        logger.info("Client statistics: " + clientStats);
+        Assert.assertEquals("Client codec", "lzf",
+                clientStats.getString("compression"));
+        Assert.assertTrue("Client received compressed frames",
+                clientStats.getLong("compressedFrames") > 0);
+        Assert.assertTrue("Client received bytes",
+                clientStats.getLong("bytesReceived") > 0);
+
+        THL serverThl = (THL) serverPipeline.getStore("thl");
+        TungstenProperties serverStats = serverThl.getClients().get(0)
+                .getStatistics();
+        logger.info("Server statistics: " + serverStats);
+        Assert.assertEquals("Server codec", "lzf",
+                serverStats.getString("compression"));
+        Assert.assertEquals("Server compressed frames",
+                clientStats.getLong("compressedFrames"),
+                serverStats.getLong("compressedFrames"));
+        Assert.assertTrue("Frames are compressed", Double
+                .parseDouble(serverStats.getString("compressionRatio")) > 1.0);
+
+        clientPipeline.shutdown(true);
+        serverPipeline.shutdown(true);
+        clientRuntime.release();
+        serverRuntime.release();
+    }
+
+    /**
+     * Verify that slaves served from a small THL tail cache receive every
+     * event, including when they fall behind the cache and must read the log
+     * directly.
+     */
+    @Test
+    public void testTailCacheSharing() throws Exception
+    {
+        logger.info("##### testTailCacheSharing #####");
+
+        // Generate server pipeline with a tail cache much smaller than the
+        // number of events.
+        prepareLogDir("testTailCacheSharing1");
+        PipelineConfigBuilder builder = new PipelineConfigBuilder();
+        builder.setProperty(ReplicatorConf.SERVICE_NAME, "test");
+        builder.setRole("master");
+        builder.setProperty(ReplicatorConf.METADATA_SCHEMA,
+                "testTailCacheSharing1");
+        builder.addPipeline("master", "extract-s", "thl");
+        builder.addStage("extract-s", "dummy", "thl-apply", null);
+        builder.addComponent("extractor", "dummy", DummyExtractor.class);
+        builder.addProperty("extractor", "dummy", "nTrx", "200");
+        builder.addComponent("applier", "thl-apply", THLStoreApplier.class);
+        builder.addProperty("applier", "thl-apply", "storeName", "thl");
+        builder.addComponent("store", "thl", THL.class);
+        builder.addProperty("store", "thl", "logDir", "testTailCacheSharing1");
+        builder.addProperty("store", "thl", "storageListenerUri",
+                "thl://localhost:2114/");
+        builder.addProperty("store", "thl", "tailCacheSize", "4");
+        TungstenProperties serverConf = builder.getConfig();
+
+        ReplicatorRuntime serverRuntime = new ReplicatorRuntime(serverConf,
+                new MockOpenReplicatorContext(),
+                ReplicatorMonitor.getInstance());
+        runtimes.add(serverRuntime);
+        serverRuntime.configure();
+        serverRuntime.prepare();
+        Pipeline serverPipeline = serverRuntime.getPipeline();
+        serverPipeline.start(new MockEventDispatcher());
+
+        // Start two slaves, which read the same tail.
+        Pipeline slave1 = createMultiThlSlave("testTailCacheSharing2",
+                "thl://localhost:2114/", 2115, null);
+        Pipeline slave2 = createMultiThlSlave("testTailCacheSharing3",
+                "thl://localhost:2114/", 2116, null);
+
+        // Ensure both slaves get all events.
+        ReplDBMSHeader last1 = slave1.watchForProcessedSequenceNumber(199)
+                .get(10, TimeUnit.SECONDS);
+        Assert.assertEquals("Slave 1 last seqno", 199, last1.getSeqno());
+        ReplDBMSHeader last2 = slave2.watchForProcessedSequenceNumber(199)
+                .get(10, TimeUnit.SECONDS);
+        Assert.assertEquals("Slave 2 last seqno", 199, last2.getSeqno());
+
+        // Check that the slaves stored the events in order.
+        Store thl1 = slave1.getStore("thl");
+        Assert.assertEquals("Slave 1 first stored", 0, thl1.getMinStoredSeqno());
+        Assert.assertEquals("Slave 1 last stored", 199,
+                thl1.getMaxStoredSeqno());
+
+        slave1.shutdown(true);
+        ((ReplicatorRuntime) slave1.getContext()).release();
+        slave2.shutdown(true);
+        ((ReplicatorRuntime) slave2.getContext()).release();
+        serverPipeline.shutdown(true);
+        serverRuntime.release();
+    }
+
+    /**
+     * Verify that a slave with a credit much smaller than the events it
+     * receives gets every event and acknowledges them, and that a slave that
+     * does not use flow control is still served.
+     */
+    @Test
+    public void testCreditFlowControl() throws Exception
+    {
+        logger.info("##### testCreditFlowControl #####");
+
+        // Generate server pipeline.
+        prepareLogDir("testCreditFlowControl1");
+        PipelineConfigBuilder builder = new PipelineConfigBuilder();
+        builder.setProperty(ReplicatorConf.SERVICE_NAME, "test");
+        builder.setRole("master");
+        builder.setProperty(ReplicatorConf.METADATA_SCHEMA,
+                "testCreditFlowControl1");
+        builder.addPipeline("master", "extract-s", "thl");
+        builder.addStage("extract-s", "dummy", "thl-apply", null);
+        builder.addComponent("extractor", "dummy", DummyExtractor.class);
+        builder.addProperty("extractor", "dummy", "nTrx", "200");
+        builder.addComponent("applier", "thl-apply", THLStoreApplier.class);
+        builder.addProperty("applier", "thl-apply", "storeName", "thl");
+        builder.addComponent("store", "thl", THL.class);
+        builder.addProperty("store", "thl", "logDir", "testCreditFlowControl1");
+        builder.addProperty("store", "thl", "storageListenerUri",
+                "thl://localhost:2114/");
+        TungstenProperties serverConf = builder.getConfig();
+
+        // Generate a slave with a tiny credit and one without flow control.
+        TungstenProperties creditConf = generateSlaveProps(
+                "testCreditFlowControl2", "thl://localhost:2114/", 2115, null);
+        creditConf.setString(ReplicatorConf.THL_PROTOCOL_CREDIT_BYTES, "1024");
+        TungstenProperties legacyConf = generateSlaveProps(
+                "testCreditFlowControl3", "thl://localhost:2114/", 2116, null);
+        legacyConf.setString(ReplicatorConf.THL_PROTOCOL_CREDIT_BYTES, "0");
+
+        ReplicatorRuntime serverRuntime = new ReplicatorRuntime(serverConf,
+                new MockOpenReplicatorContext(),
+                ReplicatorMonitor.getInstance());
+        runtimes.add(serverRuntime);
+        serverRuntime.configure();
+        serverRuntime.prepare();
+        Pipeline serverPipeline = serverRuntime.getPipeline();
+        serverPipeline.start(new MockEventDispatcher());
+
+        Pipeline[] slaves = new Pipeline[2];
+        TungstenProperties[] slaveConfs = {creditConf, legacyConf};
+        for (int i = 0; i < slaves.length; i++)
+        {
+            ReplicatorRuntime runtime = new ReplicatorRuntime(slaveConfs[i],
+                    new MockOpenReplicatorContext(),
+                    ReplicatorMonitor.getInstance());
+            runtimes.add(runtime);
+            runtime.configure();
+            runtime.prepare();
+            slaves[i] = runtime.getPipeline();
+            slaves[i].start(new MockEventDispatcher());
+        }
+
+        // Ensure both slaves get all events.
+        for (Pipeline slave : slaves)
+        {
+            ReplDBMSHeader last = slave.watchForProcessedSequenceNumber(199)
+                    .get(10, TimeUnit.SECONDS);
+            Assert.assertEquals("Slave last seqno", 199, last.getSeqno());
+        }
+
+        // The client with credit reports it; the other does not.
+        RemoteTHLExtractor extractor = (RemoteTHLExtractor) slaves[0]
+                .getStages().get(0).getExtractor0();
+        TungstenProperties creditStats = extractor.getStatistics();
+        Assert.assertEquals("Client credit", 1024,
+                creditStats.getLong("creditBytes"));
+        extractor = (RemoteTHLExtractor) slaves[1].getStages().get(0)
+                .getExtractor0();
+        Assert.assertNull("No credit for legacy client", extractor
+                .getStatistics().getString("creditBytes"));
+
+        // The server must have waited for credit and received an ack for
+        // the last event. Acks arrive asynchronously, so allow some time.
+        THL serverThl = (THL) serverPipeline.getStore("thl");
+        TungstenProperties serverStats = null;
+        for (int i = 0; i < 50; i++)
+        {
+            for (ConnectorHandler handler : serverThl.getClients())
+            {
+                TungstenProperties stats = handler.getStatistics();
+                if (stats.getString("creditBytes") != null)
+                    serverStats = stats;
+            }
+            if (serverStats != null
+                    && serverStats.getLong("ackedSeqno") == 199)
+                break;
+            Thread.sleep(100);
+        }
+        Assert.assertNotNull("Server tracks client credit", serverStats);
+        logger.info("Server statistics: " + serverStats);
+        Assert.assertTrue("Server waited for credit",
+                serverStats.getLong("creditWaits") > 0);
+        Assert.assertEquals("Acked seqno", 199,
+                serverStats.getLong("ackedSeqno"));
+
+        for (Pipeline slave : slaves)
+        {
+            slave.shutdown(true);
+            ((ReplicatorRuntime) slave.getContext()).release();
+        }
+        serverPipeline.shutdown(true);
+        serverRuntime.release();
+    }
+
+    /**
+     * Verify that a client that asks for Java framing and a client that
+     * accepts binary framing both receive all events from the same server.
+     */
+    @Test
+    public void testFramingNegotiation() throws Exception
+    {
+        logger.info("##### testFramingNegotiation #####");
+
+        // Generate server pipeline.
+        prepareLogDir("testFramingNegotiation1");
+        PipelineConfigBuilder builder = new PipelineConfigBuilder();
+        builder.setProperty(ReplicatorConf.SERVICE_NAME, "test");
+        builder.setRole("master");
+        builder.setProperty(ReplicatorConf.METADATA_SCHEMA,
+                "testFramingNegotiation1");
+        builder.addPipeline("master", "extract-s", "thl");
+        builder.addStage("extract-s", "dummy", "thl-apply", null);
+        builder.addComponent("extractor", "dummy", DummyExtractor.class);
+        builder.addProperty("extractor", "dummy", "nTrx", "100");
+        builder.addComponent("applier", "thl-apply", THLStoreApplier.class);
+        builder.addProperty("applier", "thl-apply", "storeName", "thl");
+        builder.addComponent("store", "thl", THL.class);
+        builder.addProperty("store", "thl", "logDir", "testFramingNegotiation1");
+        builder.addProperty("store", "thl", "storageListenerUri",
+                "thl://localhost:2114/");
+        TungstenProperties serverConf = builder.getConfig();
+
+        // Generate one slave with default framing and one with Java framing.
+        TungstenProperties binaryConf = generateSlaveProps(
+                "testFramingNegotiation2", "thl://localhost:2114/", 2115, null);
+        TungstenProperties javaConf = generateSlaveProps(
+                "testFramingNegotiation3", "thl://localhost:2114/", 2116, null);
+        javaConf.setString(ReplicatorConf.THL_PROTOCOL_FRAMING, "java");
+
+        ReplicatorRuntime serverRuntime = new ReplicatorRuntime(serverConf,
+                new MockOpenReplicatorContext(),
+                ReplicatorMonitor.getInstance());
+        runtimes.add(serverRuntime);
+        serverRuntime.configure();
+        serverRuntime.prepare();
+        Pipeline serverPipeline = serverRuntime.getPipeline();
+        serverPipeline.start(new MockEventDispatcher());
+
+        Pipeline[] slaves = new Pipeline[2];
+        TungstenProperties[] slaveConfs = {binaryConf, javaConf};
+        String[] framing = {"binary", "java"};
+        for (int i = 0; i < slaves.length; i++)
+        {
+            ReplicatorRuntime runtime = new ReplicatorRuntime(slaveConfs[i],
+                    new MockOpenReplicatorContext(),
+                    ReplicatorMonitor.getInstance());
+            runtimes.add(runtime);
+            runtime.configure();
+            runtime.prepare();
+            slaves[i] = runtime.getPipeline();
+            slaves[i].start(new MockEventDispatcher());
+        }
+
+        // Ensure both slaves get all events and use the expected framing.
+        for (int i = 0; i < slaves.length; i++)
+        {
+            ReplDBMSHeader last = slaves[i].watchForProcessedSequenceNumber(
+                    99).get(10, TimeUnit.SECONDS);
+            Assert.assertEquals("Slave last seqno", 99, last.getSeqno());
+            RemoteTHLExtractor extractor = (RemoteTHLExtractor) slaves[i]
+                    .getStages().get(0).getExtractor0();
+            Assert.assertEquals("Client framing", framing[i], extractor
+                    .getStatistics().getString("framing"));
+        }
+
+        // The server must use the framing each client asked for.
+        THL serverThl = (THL) serverPipeline.getStore("thl");
+        int javaClients = 0;
+        for (ConnectorHandler handler : serverThl.getClients())
+        {
+            if ("java".equals(handler.getStatistics().getString("framing")))
+                javaClients++;
+        }
+        Assert.assertEquals("Server clients with Java framing", 1, javaClients);
+        Assert.assertEquals("Server clients", 2, serverThl.getClients().size());
+
+        for (Pipeline slave : slaves)
+        {
+            slave.shutdown(true);
+            ((ReplicatorRuntime) slave.getContext()).release();
+        }
+        serverPipeline.shutdown(true);
+        serverRuntime.release();
+    }
+
+    /**
+     * Verify that with lineage enabled events carry stamps from the master to
+     * the slave and the slave reports a lag breakdown that includes the
+     * network transfer.
+     */
+    @Test
+    public void testLineage() throws Exception
+    {
+        logger.info("##### testLineage #####");
+
+        // Generate server pipeline.
+        prepareLogDir("testLineage1");
+        PipelineConfigBuilder builder = new PipelineConfigBuilder();
+        builder.setProperty(ReplicatorConf.SERVICE_NAME, "test");
+        builder.setRole("master");
+        builder.setProperty(ReplicatorConf.METADATA_SCHEMA, "testLineage1");
+        builder.setProperty(ReplicatorConf.LINEAGE_ENABLED, "true");
+        builder.addPipeline("master", "extract-s", "thl");
+        builder.addStage("extract-s", "dummy", "thl-apply", null);
+        builder.addComponent("extractor", "dummy", DummyExtractor.class);
+        builder.addProperty("extractor", "dummy", "nTrx", "50");
+        builder.addComponent("applier", "thl-apply", THLStoreApplier.class);
+        builder.addProperty("applier", "thl-apply", "storeName", "thl");
+        builder.addComponent("store", "thl", THL.class);
+        builder.addProperty("store", "thl", "logDir", "testLineage1");
+        builder.addProperty("store", "thl", "storageListenerUri",
+                "thl://localhost:2114/");
+        TungstenProperties serverConf = builder.getConfig();
+
+        // Generate slave pipeline.
+        TungstenProperties slaveConf = generateSlaveProps("testLineage2",
+                "thl://localhost:2114/", 2115, null);
+        slaveConf.setString(ReplicatorConf.LINEAGE_ENABLED, "true");
+
+        ReplicatorRuntime serverRuntime = new ReplicatorRuntime(serverConf,
+                new MockOpenReplicatorContext(),
+                ReplicatorMonitor.getInstance());
+        runtimes.add(serverRuntime);
+        serverRuntime.configure();
+        serverRuntime.prepare();
+        Pipeline serverPipeline = serverRuntime.getPipeline();
+        serverPipeline.start(new MockEventDispatcher());
+
+        ReplicatorRuntime slaveRuntime = new ReplicatorRuntime(slaveConf,
+                new MockOpenReplicatorContext(),
+                ReplicatorMonitor.getInstance());
+        runtimes.add(slaveRuntime);
+        slaveRuntime.configure();
+        slaveRuntime.prepare();
+        Pipeline slavePipeline = slaveRuntime.getPipeline();
+        slavePipeline.start(new MockEventDispatcher());
+
+        // Wait for the slave to apply all events.
+        Future<ReplDBMSHeader> future = slavePipeline
+                .watchForCommittedSequenceNumber(49, false);
+        ReplDBMSHeader last = future.get(10, TimeUnit.SECONDS);
+        Assert.assertEquals("Slave last seqno", 49, last.getSeqno());
+
+        // The master log has extracted and stored stamps only.
+        THL serverThl = (THL) serverPipeline.getStore("thl");
+        LogConnection conn = serverThl.connect(true);
+        conn.seek(49);
+        THLEvent thlEvent = conn.next();
+        DBMSEvent stored = ((ReplDBMSEvent) thlEvent.getReplEvent())
+                .getDBMSEvent();
+        Assert.assertTrue("Extracted stamp",
+                EventLineage.getStamp(stored, EventLineage.EXTRACTED) > 0);
+        Assert.assertTrue("Stored stamp",
+                EventLineage.getStamp(stored, EventLineage.STORED) > 0);
+        Assert.assertEquals("No sent stamp in master log", -1,
+                EventLineage.getStamp(stored, EventLineage.SENT));
+        conn.release();
+
+        // The slave breakdown covers every segment.
+        LagBreakdown lagBreakdown = slavePipeline.getLagBreakdown();
+        Assert.assertTrue("Slave has lineage data", lagBreakdown.hasData());
+        for (int i = 0; i < LagBreakdown.SEGMENTS.length; i++)
+        {
+            Assert.assertTrue("Segment count: " + LagBreakdown.SEGMENTS[i],
+                    lagBreakdown.getSegment(i).getCount() > 0);
+        }
+        Assert.assertFalse("No network segment on master",
+                serverPipeline.getLagBreakdown().getSegment(3)
+                        .getCount() > 0);
+
+        slavePipeline.shutdown(true);
+        slaveRuntime.release();
+        serverPipeline.shutdown(true);
+        serverRuntime.release();
+    }
+
     /**
      * Verify that multiple pipelines work slave pipeline extracts from the
      * master pipeline.
@@ -369,6 +847,7 @@ public class TestTHL2
         ReplicatorRuntime serverRuntime = new ReplicatorRuntime(serverConf,
                 new MockOpenReplicatorContext(),
                 ReplicatorMonitor.getInstance());
+        runtimes.add(serverRuntime);
         serverRuntime.configure();
         serverRuntime.prepare();
         Pipeline serverPipeline = serverRuntime.getPipeline();
@@ -376,6 +855,7 @@ public class TestTHL2
         ReplicatorRuntime clientRuntime = new ReplicatorRuntime(clientConf,
                 new MockOpenReplicatorContext(),
                 ReplicatorMonitor.getInstance());
+        runtimes.add(clientRuntime);
         clientRuntime.configure();
         clientRuntime.prepare();
         Pipeline clientPipeline = clientRuntime.getPipeline();
@@ -429,6 +909,7 @@ public class TestTHL2
         ReplicatorRuntime masterRuntime = new ReplicatorRuntime(masterConf,
                 new MockOpenReplicatorContext(),
                 ReplicatorMonitor.getInstance());
+        runtimes.add(masterRuntime);
         masterRuntime.configure();
         masterRuntime.prepare();
         Pipeline master = masterRuntime.getPipeline();
@@ -501,6 +982,7 @@ public class TestTHL2
         ReplicatorRuntime runtime = new ReplicatorRuntime(conf,
                 new MockOpenReplicatorContext(),
                 ReplicatorMonitor.getInstance());
+        runtimes.add(runtime);
         runtime.configure();
         runtime.prepare();
         Pipeline slave = runtime.getPipeline();
@@ -543,6 +1025,7 @@ public class TestTHL2
         ReplicatorRuntime runtime1 = new ReplicatorRuntime(conf,
                 new MockOpenReplicatorContext(),
                 ReplicatorMonitor.getInstance());
+        runtimes.add(runtime1);
         runtime1.configure();
         runtime1.prepare();
         Pipeline pipeline1 = runtime1.getPipeline();
@@ -563,6 +1046,7 @@ public class TestTHL2
         ReplicatorRuntime runtime2 = new ReplicatorRuntime(conf,
                 new MockOpenReplicatorContext(),
                 ReplicatorMonitor.getInstance());
+        runtimes.add(runtime2);
         runtime2.configure();
         runtime2.prepare();
         Pipeline pipeline2 = runtime2.getPipeline();
@@ -632,6 +1116,7 @@ public class TestTHL2
                 ReplicatorMonitor.getInstance());
 
         // Configure and start pipeline
+        runtimes.add(runtime);
         runtime.configure();
         runtime.prepare();
         pipeline = runtime.getPipeline();
@@ -674,6 +1159,7 @@ public class TestTHL2
         TungstenProperties conf = generateQueueFedMasterProps("testTHLExtractWaiting");
         runtime = new ReplicatorRuntime(conf, new MockOpenReplicatorContext(),
                 ReplicatorMonitor.getInstance());
+        runtimes.add(runtime);
         runtime.configure();
         runtime.prepare();
         pipeline = runtime.getPipeline();
@@ -708,6 +1194,7 @@ public class TestTHL2
         // 10.
         runtime = new ReplicatorRuntime(conf, new MockOpenReplicatorContext(),
                 ReplicatorMonitor.getInstance());
+        runtimes.add(runtime);
         runtime.configure();
         runtime.prepare();
         pipeline = runtime.getPipeline();
@@ -0,0 +1,162 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+package com.continuent.tungsten.replicator.thl.compression;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.continuent.tungsten.replicator.ReplicatorException;
+
+/**
+ * Tests compression codecs and codec lookup.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class TestCompressionCodecs
+{
+    /**
+     * Verify that each codec round-trips empty, random, and repetitive data,
+     * including data at an offset in a larger buffer, and that repetitive
+     * data actually shrink.
+     */
+    @Test
+    public void testRoundTrip() throws Exception
+    {
+        for (CompressionCodec codec : new CompressionCodec[]{
+                new LzfCodec(), new DeflateCodec()})
+        {
+            for (byte[] data : createSamples())
+            {
+                byte[] compressed = codec.compress(data, 0, data.length);
+                Assert.assertArrayEquals(codec.getName() + " length="
+                        + data.length, data, codec.decompress(compressed, 0,
+                        compressed.length, data.length));
+            }
+
+            byte[] text = createText(100000);
+            byte[] compressed = codec.compress(text, 0, text.length);
+            Assert.assertTrue(codec.getName() + " compresses text",
+                    compressed.length < text.length / 3);
+
+            // Compress from the middle of a buffer and decompress likewise.
+            byte[] padded = new byte[compressed.length + 20];
+            System.arraycopy(compressed, 0, padded, 10, compressed.length);
+            byte[] slice = codec.compress(text, 500, 5000);
+            Assert.assertArrayEquals(codec.getName() + " slice",
+                    Arrays.copyOfRange(text, 500, 5500),
+                    codec.decompress(slice, 0, slice.length, 5000));
+            Assert.assertArrayEquals(codec.getName() + " offset", text,
+                    codec.decompress(padded, 10, compressed.length,
+                            text.length));
+        }
+    }
+
+    /**
+     * Verify that truncated or wrongly sized data are rejected rather than
+     * returned.
+     */
+    @Test
+    public void testCorruption() throws Exception
+    {
+        for (CompressionCodec codec : new CompressionCodec[]{
+                new LzfCodec(), new DeflateCodec()})
+        {
+            byte[] text = createText(10000);
+            byte[] compressed = codec.compress(text, 0, text.length);
+            try
+            {
+                codec.decompress(compressed, 0, compressed.length / 2,
+                        text.length);
+                Assert.fail(codec.getName() + " accepted truncated data");
+            }
+            catch (IOException e)
+            {
+            }
+            try
+            {
+                codec.decompress(compressed, 0, compressed.length,
+                        text.length + 1);
+                Assert.fail(codec.getName() + " accepted wrong length");
+            }
+            catch (IOException e)
+            {
+            }
+        }
+    }
+
+    /**
+     * Verify lookup of codecs by name and id.
+     */
+    @Test
+    public void testLookup() throws Exception
+    {
+        Assert.assertNull(CompressionCodecs.getCodec(CompressionCodecs.NONE));
+        Assert.assertNull(CompressionCodecs.getCodec((String) null));
+        Assert.assertEquals(LzfCodec.ID, CompressionCodecs.getCodec("lzf")
+                .getId());
+        Assert.assertEquals(DeflateCodec.NAME,
+                CompressionCodecs.getCodec(DeflateCodec.ID).getName());
+        Assert.assertEquals(LzfCodec.NAME,
+                CompressionCodecs.getCodec(LzfCodec.class.getName())
+                        .getName());
+        try
+        {
+            CompressionCodecs.getCodec("no.such.Codec");
+            Assert.fail("Loaded unknown codec");
+        }
+        catch (ReplicatorException e)
+        {
+        }
+        try
+        {
+            CompressionCodecs.getCodec((byte) 0x7f);
+            Assert.fail("Found unknown codec id");
+        }
+        catch (ReplicatorException e)
+        {
+        }
+    }
+
+    private byte[][] createSamples()
+    {
+        Random random = new Random(1);
+        byte[] random1 = new byte[1];
+        byte[] random2 = new byte[70000];
+        random.nextBytes(random1);
+        random.nextBytes(random2);
+        byte[] zeros = new byte[100000];
+        return new byte[][]{new byte[0], random1, random2, zeros,
+                createText(3), createText(100000)};
+    }
+
+    private byte[] createText(int length)
+    {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; sb.length() < length; i++)
+            sb.append("INSERT INTO test.t1 VALUES (").append(i)
+                    .append(", 'row value ").append(i % 17).append("');\n");
+        return sb.substring(0, length).getBytes();
+    }
+}
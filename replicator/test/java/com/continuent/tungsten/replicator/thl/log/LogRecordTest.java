@@ -22,6 +22,7 @@ package com.continuent.tungsten.replicator.thl.log;
 
 import java.io.RandomAccessFile;
 import java.sql.Timestamp;
+import java.util.ArrayList;
 
 import junit.framework.TestCase;
 
@@ -29,9 +30,14 @@ import org.apache.log4j.Logger;
 import org.junit.After;
 import org.junit.Before;
 
+import com.continuent.tungsten.replicator.dbms.DBMSData;
+import com.continuent.tungsten.replicator.dbms.StatementData;
 import com.continuent.tungsten.replicator.event.DBMSEvent;
 import com.continuent.tungsten.replicator.event.ReplDBMSEvent;
 import com.continuent.tungsten.replicator.thl.THLEvent;
+import com.continuent.tungsten.replicator.thl.compression.CompressionCodec;
+import com.continuent.tungsten.replicator.thl.compression.DeflateCodec;
+import com.continuent.tungsten.replicator.thl.compression.LzfCodec;
 import com.continuent.tungsten.replicator.thl.serializer.ProtobufSerializer;
 import com.continuent.tungsten.replicator.thl.serializer.Serializer;
 
@@ -117,6 +123,73 @@ public class LogRecordTest extends TestCase
         tfro.close();
     }
 
+    /**
+     * Confirm that compressed events read back with uncompressed header
+     * fields, that events below the threshold are stored uncompressed, and
+     * that compressed and uncompressed records mix in one file.
+     */
+    public void testCompressedReplicationEvents() throws Exception
+    {
+        Serializer serializer = new ProtobufSerializer();
+        LogFile tfrw = LogHelper.createLogFile(
+                "testCompressedReplicationEvents.dat", 3);
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        StringBuilder sql = new StringBuilder();
+        for (int i = 0; i < 200; i++)
+            sql.append("INSERT INTO test.t1 VALUES (" + i + ", 'value');\n");
+        CompressionCodec[] codecs = new CompressionCodec[]{new LzfCodec(),
+                new DeflateCodec(), new LzfCodec(), null};
+        for (int i = 0; i < codecs.length; i++)
+        {
+            ArrayList<DBMSData> data = new ArrayList<DBMSData>();
+            data.add(new StatementData(sql.toString()));
+            ReplDBMSEvent replEvent = new ReplDBMSEvent(i, (short) 0, true,
+                    "unittest", 1, now, new DBMSEvent("id" + i, data, now));
+            // The third event is below the threshold.
+            int threshold = (i == 2 ? 1000000 : 256);
+            LogEventReplWriter writer = new LogEventReplWriter(new THLEvent(
+                    "dummy" + i, replEvent), serializer, true, null,
+                    codecs[i], threshold);
+            tfrw.writeRecord(writer.write(), 10000);
+        }
+        tfrw.close();
+
+        LogFile tfro = LogHelper
+                .openExistingFileForRead("testCompressedReplicationEvents.dat");
+        for (int i = 0; i < codecs.length; i++)
+        {
+            LogRecord logRec = tfro.readRecord(0);
+            boolean compressed = (i < 2);
+            assertEquals("Compressed flag " + i, compressed,
+                    logRec.isCompressed());
+            assertEquals("Record type " + i, LogRecord.EVENT_REPL,
+                    logRec.getRecordType());
+
+            LogEventReplReader reader = new LogEventReplReader(logRec,
+                    serializer, true);
+            assertEquals("Checking seqno", i, reader.getSeqno());
+            assertEquals("Checking eventId", "dummy" + i, reader.getEventId());
+            assertEquals("Reader compressed " + i, compressed,
+                    reader.isCompressed());
+            if (compressed)
+                assertTrue("Payload is smaller",
+                        reader.getPayloadLength() < reader
+                                .getUncompressedLength() / 3);
+            else
+                assertEquals("Payload is uncompressed",
+                        reader.getPayloadLength(),
+                        reader.getUncompressedLength());
+
+            THLEvent outputEvent = reader.deserializeEvent();
+            reader.done();
+            DBMSEvent dbmsEvent = ((ReplDBMSEvent) outputEvent.getReplEvent())
+                    .getDBMSEvent();
+            assertEquals("Statement " + i, sql.toString(),
+                    ((StatementData) dbmsEvent.getData().get(0)).getQuery());
+        }
+        tfro.close();
+    }
+
     /**
      * Confirm that a record that has corrupted bytes triggers a checksum
      * failure resulting in a LogConsistencyException.
@@ -0,0 +1,293 @@
+/**
+ * VMware Continuent Tungsten Replicator
+ * Copyright (C) 2026 agent <agent@local>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Initial developer(s): agent
+ * Contributor(s):
+ */
+
+
+package com.continuent.tungsten.replicator.thl.log;
+
+import java.io.File;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.continuent.tungsten.replicator.ReplicatorException;
+import com.continuent.tungsten.replicator.dbms.DBMSData;
+import com.continuent.tungsten.replicator.dbms.StatementData;
+import com.continuent.tungsten.replicator.event.DBMSEvent;
+import com.continuent.tungsten.replicator.event.ReplDBMSEvent;
+import com.continuent.tungsten.replicator.event.ReplOptionParams;
+import com.continuent.tungsten.replicator.thl.THLEvent;
+import com.continuent.tungsten.replicator.thl.serializer.ProtobufSerializer;
+
+/**
+ * Tests parallel log scans and log file summaries.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class LogScannerTest
+{
+    private static final int  EVENTS    = 500;
+    private static final long BASE_TIME = 1400000000000L;
+
+    private File              logDir;
+    private DiskLog           log;
+
+    /**
+     * Writes a log that spans many files. Event IDs are seqnos, shards rotate
+     * over three names and source times advance one second per event.
+     */
+    @Before
+    public void setUp() throws Exception
+    {
+        logDir = new File("testLogScanner");
+        delete(logDir);
+        Assert.assertTrue("created log directory", logDir.mkdirs());
+
+        log = new DiskLog();
+        log.setDoChecksum(true);
+        log.setReadOnly(false);
+        log.setEventSerializerClass(ProtobufSerializer.class.getName());
+        log.setLogDir(logDir.getAbsolutePath());
+        log.setLogFileSize(4000);
+        log.prepare();
+
+        LogConnection conn = log.connect(false);
+        for (int i = 0; i < EVENTS; i++)
+            conn.store(createTHLEvent(i), i == EVENTS - 1);
+        conn.release();
+        Assert.assertTrue("log spans many files", log.fileCount() > 10);
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        if (log != null)
+            log.release();
+        delete(logDir);
+    }
+
+    /**
+     * Verify that a parallel scan of a seqno range returns headers in order
+     * without deserializing events.
+     */
+    @Test
+    public void testHeaderScan() throws Exception
+    {
+        LogScanFilter filter = new LogScanFilter();
+        filter.setLowSeqno(100);
+        filter.setHighSeqno(299);
+        LogScanner scanner = new LogScanner(log);
+        scanner.setThreads(4);
+
+        List<THLEvent> events = scan(scanner, filter, false);
+        Assert.assertEquals("events in range", 200, events.size());
+        for (int i = 0; i < events.size(); i++)
+        {
+            THLEvent event = events.get(i);
+            Assert.assertEquals("seqno", 100 + i, event.getSeqno());
+            Assert.assertEquals("event ID", Long.toString(100 + i),
+                    event.getEventId());
+            Assert.assertEquals("shard ID", "db" + ((100 + i) % 3),
+                    event.getShardId());
+            Assert.assertNull("not deserialized", event.getReplEvent());
+        }
+    }
+
+    /**
+     * Verify that a handler failure ends the scan even though workers are
+     * still queueing matches of later files.
+     */
+    @Test
+    public void testHandlerFailure() throws Exception
+    {
+        LogScanner scanner = new LogScanner(log);
+        scanner.setThreads(4);
+        final List<THLEvent> events = new ArrayList<THLEvent>();
+        try
+        {
+            scanner.scan(new LogScanFilter(), false, new LogScanner.Handler()
+            {
+                public void handle(THLEvent event) throws ReplicatorException
+                {
+                    if (events.size() == 50)
+                        throw new ReplicatorException("handler failed");
+                    events.add(event);
+                }
+            });
+            Assert.fail("Scan did not return handler failure");
+        }
+        catch (ReplicatorException e)
+        {
+            Assert.assertEquals("handler failure", "handler failed",
+                    e.getMessage());
+        }
+        Assert.assertEquals("events before failure", 50, events.size());
+        for (int i = 0; i < events.size(); i++)
+            Assert.assertEquals("seqno", i, events.get(i).getSeqno());
+    }
+
+    /**
+     * Verify searches by event ID, shard ID and source time.
+     */
+    @Test
+    public void testSearch() throws Exception
+    {
+        LogScanner scanner = new LogScanner(log);
+        scanner.setThreads(3);
+
+        LogScanFilter byEventId = new LogScanFilter();
+        byEventId.setEventId("250");
+        Assert.assertTrue("search", byEventId.isSearch());
+        List<THLEvent> events = scan(scanner, byEventId, true);
+        Assert.assertEquals("event ID matches", 1, events.size());
+        Assert.assertEquals("seqno", 250, events.get(0).getSeqno());
+        Assert.assertTrue("deserialized",
+                events.get(0).getReplEvent() instanceof ReplDBMSEvent);
+
+        LogScanFilter byShard = new LogScanFilter();
+        byShard.setShardId("db1");
+        byShard.setHighSeqno(99);
+        events = scan(scanner, byShard, false);
+        Assert.assertEquals("shard matches", 33, events.size());
+        for (int i = 0; i < events.size(); i++)
+            Assert.assertEquals("seqno", 1 + i * 3, events.get(i).getSeqno());
+
+        LogScanFilter byTime = new LogScanFilter();
+        byTime.setFromTstamp(BASE_TIME + 400 * 1000);
+        byTime.setToTstamp(BASE_TIME + 409 * 1000);
+        events = scan(scanner, byTime, false);
+        Assert.assertEquals("time matches", 10, events.size());
+        Assert.assertEquals("first seqno", 400, events.get(0).getSeqno());
+    }
+
+    /**
+     * Verify that summaries are built once, let searches skip files and give
+     * the same results as a full scan.
+     */
+    @Test
+    public void testSummaries() throws Exception
+    {
+        // Leave an orphaned summary that the build must remove.
+        File orphan = LogFileSummary.getSummaryFile(logDir,
+                "thl.data.0000009999");
+        orphan.getParentFile().mkdirs();
+        Assert.assertTrue("orphan created", orphan.createNewFile());
+
+        LogScanner scanner = new LogScanner(log);
+        int files = log.fileCount();
+        Assert.assertEquals("summaries built", files,
+                scanner.buildSummaries(false));
+        Assert.assertEquals("summaries are current", 0,
+                scanner.buildSummaries(false));
+        Assert.assertFalse("orphan deleted", orphan.exists());
+
+        // Only few files can match an event ID; none can match an unknown
+        // shard and the file holding the event must match.
+        LogScanFilter filter = new LogScanFilter();
+        filter.setEventId("250");
+        LogScanFilter unknownShard = new LogScanFilter();
+        unknownShard.setShardId("nosuchdb");
+        int candidates = 0;
+        boolean holderMatches = false;
+        for (String fileName : log.getLogFileNames())
+        {
+            LogFileSummary summary = LogFileSummary.read(logDir, fileName);
+            Assert.assertNotNull("summary exists", summary);
+            Assert.assertTrue("summary current",
+                    summary.isCurrent(new File(logDir, fileName)));
+            Assert.assertFalse("unknown shard", unknownShard.mayMatch(summary));
+            if (filter.mayMatch(summary))
+            {
+                candidates++;
+                if (summary.getMinSeqno() <= 250
+                        && summary.getMaxSeqno() >= 250)
+                    holderMatches = true;
+            }
+        }
+        Assert.assertTrue("file holding event matches", holderMatches);
+        Assert.assertTrue("few candidate files", candidates <= 2);
+
+        // Results agree with and without summaries.
+        List<THLEvent> indexed = scan(scanner, filter, false);
+        scanner.setUseSummaries(false);
+        List<THLEvent> scanned = scan(scanner, filter, false);
+        Assert.assertEquals("indexed matches", 1, indexed.size());
+        Assert.assertEquals("scanned matches", 1, scanned.size());
+        Assert.assertEquals("same event", scanned.get(0).getSeqno(), indexed
+                .get(0).getSeqno());
+
+        // A summary no longer applies once its file changes.
+        String first = log.getLogFileNames()[0];
+        File firstFile = new File(logDir, first);
+        firstFile.setLastModified(firstFile.lastModified() - 10000);
+        Assert.assertFalse("stale summary", LogFileSummary
+                .read(logDir, first).isCurrent(firstFile));
+        Assert.assertEquals("stale summary rebuilt", 1,
+                scanner.buildSummaries(false));
+    }
+
+    // Scans the log and returns matching events.
+    private List<THLEvent> scan(LogScanner scanner, LogScanFilter filter,
+            boolean deserialize) throws ReplicatorException,
+            InterruptedException
+    {
+        final List<THLEvent> events = new ArrayList<THLEvent>();
+        long matched = scanner.scan(filter, deserialize,
+                new LogScanner.Handler()
+                {
+                    public void handle(THLEvent event)
+                    {
+                        events.add(event);
+                    }
+                });
+        Assert.assertEquals("match count", events.size(), matched);
+        return events;
+    }
+
+    // Creates an event with a shard ID and a source time derived from the
+    // seqno.
+    private THLEvent createTHLEvent(long seqno)
+    {
+        ArrayList<DBMSData> data = new ArrayList<DBMSData>();
+        data.add(new StatementData("insert into foo values(" + seqno + ")"));
+        DBMSEvent dbmsEvent = new DBMSEvent(Long.toString(seqno), data,
+                new Timestamp(BASE_TIME + seqno * 1000));
+        dbmsEvent.setMetaDataOption(ReplOptionParams.SHARD_ID, "db"
+                + (seqno % 3));
+        ReplDBMSEvent replEvent = new ReplDBMSEvent(seqno, dbmsEvent);
+        return new THLEvent(Long.toString(seqno), replEvent);
+    }
+
+    // Deletes a file or directory tree.
+    private void delete(File file)
+    {
+        File[] children = file.listFiles();
+        if (children != null)
+        {
+            for (File child : children)
+                delete(child);
+        }
+        file.delete();
+    }
+}